@@ -1,238 +1,793 @@
 package org.littlesheep.cache;
 
 import org.bukkit.plugin.java.JavaPlugin;
+import org.littlesheep.data.PlayerData;
+import org.littlesheep.utils.TimingWheel;
 
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Logger;
 
 /**
  * 飞行数据缓存层 - 减少数据库查询，提升性能
+ *
+ * 每个玩家一个缓存条目，包含飞行时间、特效、速度、限时特效和限时速度五类数据，
+ * 每类数据单独加载、单独失效，未加载的类型为 null。
+ * 常驻（在线）玩家的条目不参与 LRU 淘汰和 TTL 过期，直到调用 {@link #unpin}。
+ * 条目在 TTL 到期前的提前刷新窗口内被读取时，照常返回缓存值，同时交给刷新处理器在后台重新加载。
+ *
+ * 缓存按 UUID 哈希分成若干分段，每个分段是一个按访问顺序排列的 LRU 表，由各自的锁保护。
+ * 总容量按分段均分，写入时超出分段容量立即淘汰该分段最久未访问的条目，
+ * 淘汰为 O(1)，缓存大小严格不超过 max-size。
+ * 每个条目在共享时间轮上登记 TTL 到期任务，到期后立即移除，不需要定期扫描。
  */
 public class FlightDataCache {
-    private final JavaPlugin plugin;
+    // 最大分段数
+    private static final int MAX_STRIPES = 16;
+    
+    /**
+     * {@link #lookupFlightTime} 的返回值，表示已确认该玩家没有飞行记录
+     */
+    public static final long NO_FLIGHT = Long.MIN_VALUE;
+    
+    private final Logger logger;
     
     // 缓存数据
-    private final Map<UUID, CacheEntry> cache = new ConcurrentHashMap<>();
+    private final Stripe[] stripes;
+    // 条目的 TTL 到期任务登记在共享时间轮上
+    private final TimingWheel timingWheel;
     
     // 缓存配置
     private final long maxCacheSize;
     private final long ttlMillis; // 生存时间
-    private final long cleanupIntervalMillis;
+    private final long negativeTtlMillis; // "没有飞行记录"的缓存时间
+    private final long refreshAheadMillis; // TTL 到期前多久开始提前刷新，0 表示不刷新
     
-    // 清理任务
-    private final ScheduledExecutorService cleanupExecutor;
+    // 提前刷新处理器，返回 false 表示不刷新该玩家
+    private volatile Predicate<UUID> refreshHandler;
     
     // 统计信息
     private final AtomicLong hits = new AtomicLong(0);
     private final AtomicLong misses = new AtomicLong(0);
     private final AtomicLong evictions = new AtomicLong(0);
+    private final AtomicLong negativeHits = new AtomicLong(0);
+    private final AtomicLong negativeMisses = new AtomicLong(0);
+    private final AtomicLong refreshes = new AtomicLong(0);
     private final AtomicInteger currentSize = new AtomicInteger(0);
+    private final AtomicInteger residentCount = new AtomicInteger(0);
 
-    public FlightDataCache(JavaPlugin plugin) {
-        this.plugin = plugin;
-        
+    public FlightDataCache(JavaPlugin plugin, TimingWheel timingWheel) {
         // 从配置读取缓存参数
-        this.maxCacheSize = plugin.getConfig().getLong("cache.max-size", 1000);
-        this.ttlMillis = plugin.getConfig().getLong("cache.ttl-minutes", 30) * 60 * 1000;
-        this.cleanupIntervalMillis = plugin.getConfig().getLong("cache.cleanup-interval-minutes", 5) * 60 * 1000;
-        
-        // 启动清理任务
-        this.cleanupExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
-            Thread t = new Thread(r, "FlightDataCache-Cleanup");
-            t.setDaemon(true);
-            return t;
-        });
-        
-        this.cleanupExecutor.scheduleAtFixedRate(
-            this::cleanupExpiredEntries, 
-            cleanupIntervalMillis, 
-            cleanupIntervalMillis, 
-            TimeUnit.MILLISECONDS
-        );
+        this(plugin.getLogger(), timingWheel,
+            plugin.getConfig().getLong("cache.max-size", 1000),
+            plugin.getConfig().getLong("cache.ttl-minutes", 30) * 60 * 1000,
+            plugin.getConfig().getLong("cache.negative-ttl-minutes", 5) * 60 * 1000,
+            plugin.getConfig().getBoolean("cache.refresh-ahead.enabled", true)
+                ? plugin.getConfig().getLong("cache.refresh-ahead.window-seconds", 120) * 1000
+                : 0);
+    }
+
+    /**
+     * 直接指定缓存参数，不依赖插件实例，用于基准测试等独立运行的场合
+     * @param refreshAheadMillis 提前刷新窗口，0 表示不刷新
+     */
+    public FlightDataCache(Logger logger, TimingWheel timingWheel, long maxCacheSize, long ttlMillis,
+                           long negativeTtlMillis, long refreshAheadMillis) {
+        this.logger = logger;
+        this.timingWheel = timingWheel;
+        this.maxCacheSize = maxCacheSize;
+        this.ttlMillis = ttlMillis;
+        this.negativeTtlMillis = negativeTtlMillis;
+        // 窗口不超过 TTL 的一半，避免刚加载的条目立即被刷新
+        this.refreshAheadMillis = Math.min(Math.max(0L, refreshAheadMillis), ttlMillis / 2);
+        this.stripes = createStripes(Math.max(1, (int) Math.min(maxCacheSize, Integer.MAX_VALUE)));
         
-        plugin.getLogger().info(String.format(
-            "飞行数据缓存已启动 - 最大容量: %d, TTL: %d分钟, 清理间隔: %d分钟",
+        logger.info(String.format(
+            "飞行数据缓存已启动 - 最大容量: %d, TTL: %d分钟, 无记录TTL: %d分钟, 提前刷新: %d秒",
             maxCacheSize, 
             ttlMillis / 60000, 
-            cleanupIntervalMillis / 60000
+            negativeTtlMillis / 60000,
+            refreshAheadMillis / 1000
         ));
     }
 
+    /**
+     * 玩家数据类型
+     */
+    public enum DataKind {
+        FLIGHT, EFFECTS, SPEEDS, EFFECT_TIMES, SPEED_TIMES
+    }
+
     /**
      * 获取缓存中的飞行时间
      * @param uuid 玩家UUID
      * @return 飞行结束时间，如果缓存中没有则返回null
      */
     public Long getFlightTime(UUID uuid) {
-        CacheEntry entry = cache.get(uuid);
-        
-        if (entry == null) {
+        Long flightEndTime = lookupFlightTime(uuid);
+        return flightEndTime != null && flightEndTime != NO_FLIGHT ? flightEndTime : null;
+    }
+
+    /**
+     * 获取缓存中的飞行时间，区分"未缓存"和"确认没有记录"
+     * @param uuid 玩家UUID
+     * @return 飞行结束时间；确认没有记录时返回 {@link #NO_FLIGHT}；未缓存时返回 null
+     */
+    public Long lookupFlightTime(UUID uuid) {
+        long now = System.currentTimeMillis();
+        Long result = read(uuid, entry -> flightOf(entry, now));
+        if (result == null) {
             misses.incrementAndGet();
-            return null;
+        } else if (result == NO_FLIGHT) {
+            // 命中"没有记录"的缓存单独计数，不计入普通命中
+            negativeHits.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
         }
-        
-        // 检查是否过期
-        if (isExpired(entry)) {
-            cache.remove(uuid);
-            currentSize.decrementAndGet();
-            misses.incrementAndGet();
-            return null;
+        return result;
+    }
+
+    /**
+     * 条目中的飞行时间，含义同 {@link #lookupFlightTime}，调用方需持有分段锁
+     */
+    private Long flightOf(CacheEntry entry, long now) {
+        // 已结束的飞行时间不再使用缓存值，常驻玩家保留，与存储中的值一致
+        if (entry.flightEndTime != null && entry.flightEndTime <= now && !entry.resident) {
+            entry.flightEndTime = null;
         }
-        
-        // 更新访问时间
-        entry.lastAccessed = System.currentTimeMillis();
-        hits.incrementAndGet();
-        return entry.flightEndTime;
+        if (entry.flightEndTime != null) {
+            return entry.flightEndTime;
+        }
+        if (entry.noFlightUntil > now) {
+            return NO_FLIGHT;
+        }
+        entry.noFlightUntil = 0;
+        return null;
+    }
+
+    /**
+     * 记录存储中没有该玩家的飞行记录
+     * @param stamp 读取前 {@link #stamp(UUID)} 的返回值
+     */
+    public void fillNoFlight(UUID uuid, long stamp) {
+        negativeMisses.incrementAndGet();
+        fill(uuid, stamp, this::markNoFlight);
     }
 
     /**
-     * 设置缓存中的飞行时间
+     * 把从存储读到的飞行时间放入缓存，读取期间发生过失效或本服务器写入时放弃
+     * @param stamp 读取前 {@link #stamp(UUID)} 的返回值
+     */
+    public void fillFlightTime(UUID uuid, long flightEndTime, long stamp) {
+        fill(uuid, stamp, entry -> {
+            entry.flightEndTime = flightEndTime;
+            entry.noFlightUntil = 0;
+        });
+    }
+
+    private void markNoFlight(CacheEntry entry) {
+        // 读取期间写入的飞行时间优先
+        if (entry.flightEndTime == null) {
+            entry.noFlightUntil = entry.resident ? Long.MAX_VALUE : System.currentTimeMillis() + negativeTtlMillis;
+        }
+    }
+
+    /**
+     * 设置缓存中的飞行时间，本服务器写入存储时调用，同时使读取中的填充作废
      * @param uuid 玩家UUID
      * @param flightEndTime 飞行结束时间
      */
     public void setFlightTime(UUID uuid, long flightEndTime) {
-        // 检查缓存容量
-        if (currentSize.get() >= maxCacheSize && !cache.containsKey(uuid)) {
-            evictLeastRecentlyUsed();
-        }
-        
-        CacheEntry entry = new CacheEntry(flightEndTime);
-        CacheEntry previous = cache.put(uuid, entry);
-        
-        if (previous == null) {
-            currentSize.incrementAndGet();
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            stripe.invalidations++;
+            CacheEntry entry = entryFor(stripe, uuid);
+            entry.flightEndTime = flightEndTime;
+            entry.noFlightUntil = 0;
         }
     }
 
     /**
-     * 移除缓存中的飞行时间
+     * 移除缓存中的飞行时间，本服务器删除记录后调用，缓存中记为没有飞行记录
      * @param uuid 玩家UUID
      */
     public void removeFlightTime(UUID uuid) {
-        CacheEntry removed = cache.remove(uuid);
-        if (removed != null) {
-            currentSize.decrementAndGet();
-        }
+        update(uuid, entry -> {
+            entry.flightEndTime = null;
+            markNoFlight(entry);
+        });
     }
 
     /**
-     * 检查缓存中是否存在指定玩家的数据
-     * @param uuid 玩家UUID
-     * @return 如果存在且未过期则返回true
+     * 过期清理删除了结束时间为 endTime 的记录后调用，缓存中已是更新的结束时间时保留
      */
-    public boolean contains(UUID uuid) {
-        return getFlightTime(uuid) != null;
+    public void expireFlightTime(UUID uuid, long endTime) {
+        update(uuid, entry -> {
+            if (entry.flightEndTime == null || entry.flightEndTime <= endTime) {
+                entry.flightEndTime = null;
+                markNoFlight(entry);
+            }
+        });
+    }
+
+    /**
+     * 获取缓存中的永久特效，未缓存时返回 null
+     */
+    public Set<String> getEffects(UUID uuid) {
+        return get(uuid, entry -> entry.effects != null ? new HashSet<>(entry.effects) : null);
+    }
+
+    /**
+     * 获取缓存中的永久速度，未缓存时返回 null
+     */
+    public Set<String> getSpeeds(UUID uuid) {
+        return get(uuid, entry -> entry.speeds != null ? new HashSet<>(entry.speeds) : null);
     }
 
     /**
-     * 批量预加载数据到缓存
-     * @param data 飞行数据映射
+     * 获取缓存中的限时特效，未缓存时返回 null
      */
-    public void preloadData(Map<UUID, Long> data) {
+    public Map<String, Long> getEffectTimes(UUID uuid) {
+        return get(uuid, entry -> entry.effectTimes != null ? new HashMap<>(entry.effectTimes) : null);
+    }
+
+    /**
+     * 获取缓存中的限时速度，未缓存时返回 null
+     */
+    public Map<String, Long> getSpeedTimes(UUID uuid) {
+        return get(uuid, entry -> entry.speedTimes != null ? new HashMap<>(entry.speedTimes) : null);
+    }
+
+    /**
+     * 从缓存组装玩家的全部数据，五类数据都已缓存时计为一次命中
+     * @param missing 调用方提供的空集合，加入尚未缓存的数据类型
+     * @return 已缓存的类型取缓存值、未缓存的类型为空的 PlayerData；没有条目时返回 null，此时所有类型都加入 missing
+     */
+    public PlayerData getProfile(UUID uuid, Set<DataKind> missing) {
         long now = System.currentTimeMillis();
-        int preloadCount = 0;
-        
-        for (Map.Entry<UUID, Long> entry : data.entrySet()) {
-            // 只缓存未过期的数据
-            if (entry.getValue() > now) {
-                setFlightTime(entry.getKey(), entry.getValue());
-                preloadCount++;
+        PlayerData profile = read(uuid, entry -> {
+            Long flightEndTime = flightOf(entry, now);
+            if (flightEndTime == null) {
+                missing.add(DataKind.FLIGHT);
+            }
+            if (entry.effects == null) {
+                missing.add(DataKind.EFFECTS);
+            }
+            if (entry.speeds == null) {
+                missing.add(DataKind.SPEEDS);
             }
+            if (entry.effectTimes == null) {
+                missing.add(DataKind.EFFECT_TIMES);
+            }
+            if (entry.speedTimes == null) {
+                missing.add(DataKind.SPEED_TIMES);
+            }
+            return new PlayerData(flightEndTime != null && flightEndTime != NO_FLIGHT ? flightEndTime : null,
+                entry.effects, entry.speeds, entry.effectTimes, entry.speedTimes);
+        });
+        if (profile == null) {
+            missing.addAll(EnumSet.allOf(DataKind.class));
         }
-        
-        plugin.getLogger().info(String.format("预加载了 %d 条飞行数据到缓存", preloadCount));
+        if (missing.isEmpty()) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+        return profile;
     }
 
     /**
-     * 清理过期条目
+     * 获取玩家所在分段的失效计数，从存储读取前调用，填充时原样传回
      */
-    private void cleanupExpiredEntries() {
-        long cleanupStart = System.currentTimeMillis();
-        int cleanedCount = 0;
-        
-        cache.entrySet().removeIf(entry -> {
-            if (isExpired(entry.getValue())) {
+    public long stamp(UUID uuid) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            return stripe.invalidations;
+        }
+    }
+
+    /**
+     * 在已缓存的永久特效上应用本服务器刚写入存储的修改，未缓存时不做任何事
+     */
+    public void updateEffects(UUID uuid, Consumer<Set<String>> change) {
+        update(uuid, entry -> {
+            if (entry.effects != null) {
+                change.accept(entry.effects);
+            }
+        });
+    }
+
+    public void updateSpeeds(UUID uuid, Consumer<Set<String>> change) {
+        update(uuid, entry -> {
+            if (entry.speeds != null) {
+                change.accept(entry.speeds);
+            }
+        });
+    }
+
+    public void updateEffectTimes(UUID uuid, Consumer<Map<String, Long>> change) {
+        update(uuid, entry -> {
+            if (entry.effectTimes != null) {
+                change.accept(entry.effectTimes);
+            }
+        });
+    }
+
+    public void updateSpeedTimes(UUID uuid, Consumer<Map<String, Long>> change) {
+        update(uuid, entry -> {
+            if (entry.speedTimes != null) {
+                change.accept(entry.speedTimes);
+            }
+        });
+    }
+
+    /**
+     * 用存储读取结果填充永久特效
+     * @param stamp 读取前 {@link #stamp(UUID)} 的返回值
+     */
+    public void fillEffects(UUID uuid, Set<String> effects, long stamp) {
+        if (effects != null) {
+            fill(uuid, stamp, entry -> entry.effects = new HashSet<>(effects));
+        }
+    }
+
+    public void fillSpeeds(UUID uuid, Set<String> speeds, long stamp) {
+        if (speeds != null) {
+            fill(uuid, stamp, entry -> entry.speeds = new HashSet<>(speeds));
+        }
+    }
+
+    public void fillEffectTimes(UUID uuid, Map<String, Long> effectTimes, long stamp) {
+        if (effectTimes != null) {
+            fill(uuid, stamp, entry -> entry.effectTimes = new HashMap<>(effectTimes));
+        }
+    }
+
+    public void fillSpeedTimes(UUID uuid, Map<String, Long> speedTimes, long stamp) {
+        if (speedTimes != null) {
+            fill(uuid, stamp, entry -> entry.speedTimes = new HashMap<>(speedTimes));
+        }
+    }
+
+    /**
+     * 用聚合读取结果填充全部数据类型，已缓存的飞行时间以缓存为准
+     * @param stamp 读取前 {@link #stamp(UUID)} 的返回值
+     */
+    public boolean fillProfile(UUID uuid, PlayerData profile, long stamp) {
+        return fill(uuid, stamp, entry -> applyProfile(entry, profile, false));
+    }
+
+    /**
+     * 不检查失效计数，只填充条目中仍未缓存的类型，已缓存的值保留。
+     * 常驻玩家的多次填充都与分段内的写入冲突时使用，保证常驻条目的每类数据都已加载
+     */
+    public void fillMissing(UUID uuid, PlayerData profile) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            CacheEntry entry = entryFor(stripe, uuid);
+            if (entry.flightEndTime == null && entry.noFlightUntil == 0) {
+                entry.flightEndTime = profile.getFlightEndTime();
+                markNoFlight(entry);
+            }
+            if (entry.effects == null) {
+                entry.effects = profile.getPurchasedEffects();
+            }
+            if (entry.speeds == null) {
+                entry.speeds = profile.getPurchasedSpeeds();
+            }
+            if (entry.effectTimes == null) {
+                entry.effectTimes = profile.getEffectTimes();
+            }
+            if (entry.speedTimes == null) {
+                entry.speedTimes = profile.getSpeedTimes();
+            }
+        }
+    }
+
+    /**
+     * @param replaceFlight 为 true 时用读取结果覆盖已缓存的飞行时间和"没有记录"状态，
+     *                      提前刷新使用；读取期间的写入已由调用方的 stamp 检查排除，
+     *                      读取前尚未落盘的写回由调用方覆盖到 profile 上
+     */
+    private void applyProfile(CacheEntry entry, PlayerData profile, boolean replaceFlight) {
+        if (replaceFlight) {
+            entry.flightEndTime = profile.getFlightEndTime();
+            entry.noFlightUntil = 0;
+            markNoFlight(entry);
+        } else if (entry.flightEndTime == null) {
+            entry.flightEndTime = profile.getFlightEndTime();
+            markNoFlight(entry);
+        }
+        entry.effects = profile.getPurchasedEffects();
+        entry.speeds = profile.getPurchasedSpeeds();
+        entry.effectTimes = profile.getEffectTimes();
+        entry.speedTimes = profile.getSpeedTimes();
+    }
+
+    /**
+     * 设置提前刷新处理器，在读取线程上调用，应只发起异步加载并尽快返回
+     * 加载完成后调用 {@link #completeRefresh}
+     */
+    public void setRefreshHandler(Predicate<UUID> handler) {
+        this.refreshHandler = handler;
+    }
+
+    /**
+     * 完成提前刷新，成功时重新开始计算条目的 TTL
+     * @param profile 重新加载的数据，加载失败时为 null；写回模式下其中的飞行时间应已用尚未落盘的写入覆盖
+     * @param stamp 加载前 {@link #stamp(UUID)} 的返回值，期间发生过写入时放弃，之后的读取会再次触发刷新
+     */
+    public void completeRefresh(UUID uuid, PlayerData profile, long stamp) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            CacheEntry entry = stripe.lookup(uuid);
+            // 条目已被淘汰或过期时不再重新创建
+            if (entry == null || (!entry.resident && isExpired(entry))) {
+                return;
+            }
+            entry.refreshing = false;
+            if (profile == null || stripe.invalidations != stamp) {
+                return;
+            }
+            // 刷新的目的就是替换可能已过时的值，包括飞行时间
+            applyProfile(entry, profile, true);
+            if (!entry.resident) {
+                entry.createdTime = System.currentTimeMillis();
+                scheduleExpiry(stripe, uuid, entry);
+            }
+            refreshes.incrementAndGet();
+        }
+    }
+
+    /**
+     * 使指定玩家某一类数据失效，写入存储后调用
+     */
+    public void invalidate(UUID uuid, DataKind kind) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            stripe.invalidations++;
+            CacheEntry entry = stripe.lookup(uuid);
+            if (entry == null) {
+                return;
+            }
+            switch (kind) {
+                case FLIGHT:
+                    entry.flightEndTime = null;
+                    entry.noFlightUntil = 0;
+                    break;
+                case EFFECTS:
+                    entry.effects = null;
+                    break;
+                case SPEEDS:
+                    entry.speeds = null;
+                    break;
+                case EFFECT_TIMES:
+                    entry.effectTimes = null;
+                    break;
+                case SPEED_TIMES:
+                    entry.speedTimes = null;
+                    break;
+            }
+            // 不再包含任何数据的条目直接移除，常驻条目保留
+            if (entry.isEmpty() && !entry.resident) {
+                stripe.remove(uuid);
+                cancelExpiry(entry);
+                currentSize.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 在已有条目上应用本服务器的写入，同时使读取中的填充作废
+     */
+    private void update(UUID uuid, Consumer<CacheEntry> change) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            stripe.invalidations++;
+            CacheEntry entry = stripe.lookup(uuid);
+            if (entry != null) {
+                change.accept(entry);
+            }
+        }
+    }
+
+    /**
+     * 把玩家设为常驻，条目不再被淘汰或过期，在玩家登录时调用
+     */
+    public void pin(UUID uuid) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            if (stripe.resident.containsKey(uuid)) {
+                return;
+            }
+            CacheEntry entry = stripe.remove(uuid);
+            if (entry != null) {
+                cancelExpiry(entry);
                 currentSize.decrementAndGet();
-                return true;
+                if (isExpired(entry)) {
+                    entry = null;
+                }
+            }
+            if (entry == null) {
+                entry = new CacheEntry();
+            }
+            entry.resident = true;
+            if (entry.noFlightUntil > 0) {
+                entry.noFlightUntil = Long.MAX_VALUE;
             }
+            stripe.resident.put(uuid, entry);
+            residentCount.incrementAndGet();
+        }
+    }
+
+    /**
+     * 取消常驻，条目回到普通缓存并重新开始计算 TTL
+     */
+    public void unpin(UUID uuid) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            CacheEntry entry = stripe.resident.remove(uuid);
+            if (entry == null) {
+                return;
+            }
+            residentCount.decrementAndGet();
+            entry.resident = false;
+            entry.createdTime = System.currentTimeMillis();
+            if (entry.noFlightUntil > 0) {
+                entry.noFlightUntil = entry.createdTime + negativeTtlMillis;
+            }
+            if (entry.isEmpty()) {
+                return;
+            }
+            if (stripe.put(uuid, entry) == null) {
+                currentSize.incrementAndGet();
+            }
+            scheduleExpiry(stripe, uuid, entry);
+        }
+    }
+
+    /**
+     * 检查玩家是否常驻
+     */
+    public boolean isResident(UUID uuid) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            return stripe.resident.containsKey(uuid);
+        }
+    }
+
+    /**
+     * 获取所有常驻玩家
+     */
+    public Set<UUID> getResidentPlayers() {
+        Set<UUID> result = new HashSet<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                result.addAll(stripe.resident.keySet());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 读取条目中的一类数据，getter 返回 null 表示该类型未缓存
+     */
+    private <T> T get(UUID uuid, Function<CacheEntry, T> getter) {
+        T value = read(uuid, getter);
+        if (value == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return value;
+    }
+
+    /**
+     * 读取条目中的一类数据，不计入统计
+     */
+    private <T> T read(UUID uuid, Function<CacheEntry, T> getter) {
+        T value = null;
+        boolean refresh = false;
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            CacheEntry entry = stripe.lookup(uuid);
+            // 检查是否过期
+            if (entry != null && !entry.resident && isExpired(entry)) {
+                stripe.remove(uuid);
+                cancelExpiry(entry);
+                currentSize.decrementAndGet();
+                entry = null;
+            }
+            if (entry != null) {
+                value = getter.apply(entry);
+                refresh = claimRefresh(entry);
+            }
+        }
+        if (refresh) {
+            requestRefresh(stripe, uuid);
+        }
+        return value;
+    }
+
+    /**
+     * 条目进入提前刷新窗口且没有正在进行的刷新时，标记为刷新中，调用方需持有分段锁
+     */
+    private boolean claimRefresh(CacheEntry entry) {
+        if (refreshAheadMillis <= 0 || refreshHandler == null || entry.resident || entry.refreshing
+                || System.currentTimeMillis() - entry.createdTime <= ttlMillis - refreshAheadMillis) {
             return false;
-        });
-        
-        if (cleanedCount > 0) {
-            long cleanupTime = System.currentTimeMillis() - cleanupStart;
-            plugin.getLogger().fine(String.format(
-                "缓存清理完成: 清理了 %d 条过期数据，耗时 %dms", 
-                cleanedCount, cleanupTime));
         }
+        entry.refreshing = true;
+        return true;
     }
 
     /**
-     * 驱逐最近最少使用的条目
+     * 在分段锁外调用刷新处理器，处理器拒绝时清除刷新标记
      */
-    private void evictLeastRecentlyUsed() {
-        UUID lruKey = null;
-        long oldestAccess = Long.MAX_VALUE;
-        
-        for (Map.Entry<UUID, CacheEntry> entry : cache.entrySet()) {
-            if (entry.getValue().lastAccessed < oldestAccess) {
-                oldestAccess = entry.getValue().lastAccessed;
-                lruKey = entry.getKey();
+    private void requestRefresh(Stripe stripe, UUID uuid) {
+        boolean accepted;
+        try {
+            accepted = refreshHandler.test(uuid);
+        } catch (RuntimeException e) {
+            accepted = false;
+            logger.warning(String.format("提前刷新玩家 %s 的缓存失败: %s", uuid, e.getMessage()));
+        }
+        if (!accepted) {
+            synchronized (stripe) {
+                CacheEntry entry = stripe.lookup(uuid);
+                if (entry != null) {
+                    entry.refreshing = false;
+                }
             }
         }
-        
-        if (lruKey != null) {
-            cache.remove(lruKey);
-            currentSize.decrementAndGet();
-            evictions.incrementAndGet();
+    }
+
+    /**
+     * 填充条目中的数据，读取期间发生过失效时放弃
+     */
+    private boolean fill(UUID uuid, long stamp, Consumer<CacheEntry> setter) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            if (stripe.invalidations != stamp) {
+                return false;
+            }
+            setter.accept(entryFor(stripe, uuid));
+            return true;
+        }
+    }
+
+    /**
+     * 获取或创建条目，调用方需持有分段锁
+     */
+    private CacheEntry entryFor(Stripe stripe, UUID uuid) {
+        CacheEntry entry = stripe.lookup(uuid);
+        if (entry != null && (entry.resident || !isExpired(entry))) {
+            return entry;
+        }
+        entry = new CacheEntry();
+        // 超出分段容量时由 removeEldestEntry 淘汰最久未访问的条目
+        CacheEntry previous = stripe.put(uuid, entry);
+        if (previous == null) {
+            currentSize.incrementAndGet();
+        } else {
+            cancelExpiry(previous);
+        }
+        scheduleExpiry(stripe, uuid, entry);
+        return entry;
+    }
+
+    /**
+     * 在时间轮上登记条目的 TTL 到期任务，替换之前的任务，调用方需持有分段锁
+     */
+    private void scheduleExpiry(Stripe stripe, UUID uuid, CacheEntry entry) {
+        cancelExpiry(entry);
+        entry.expiry = timingWheel.schedule(entry.createdTime + ttlMillis + 1, () -> expireEntry(stripe, uuid, entry));
+    }
+
+    private void cancelExpiry(CacheEntry entry) {
+        if (entry.expiry != null) {
+            entry.expiry.cancel();
+            entry.expiry = null;
+        }
+    }
+
+    /**
+     * TTL 到期任务，在时间轮驱动线程上执行
+     */
+    private void expireEntry(Stripe stripe, UUID uuid, CacheEntry entry) {
+        synchronized (stripe) {
+            // 只移除登记任务时的那个条目，不改变 LRU 顺序
+            if (!entry.resident && isExpired(entry) && stripe.remove(uuid, entry)) {
+                entry.expiry = null;
+                currentSize.decrementAndGet();
+            }
+        }
+    }
+
+    /**
+     * 检查缓存中是否存在指定玩家的数据
+     * @param uuid 玩家UUID
+     * @return 如果存在且未过期则返回true
+     */
+    public boolean contains(UUID uuid) {
+        return getFlightTime(uuid) != null;
+    }
+
+    /**
+     * 预加载一条飞行数据，已缓存该玩家的飞行时间或"没有记录"时以缓存为准
+     * @param flightEndTime 飞行结束时间
+     */
+    public void preloadFlightTime(UUID uuid, long flightEndTime) {
+        Stripe stripe = stripeFor(uuid);
+        synchronized (stripe) {
+            CacheEntry entry = entryFor(stripe, uuid);
+            if (entry.flightEndTime == null && entry.noFlightUntil == 0) {
+                entry.flightEndTime = flightEndTime;
+            }
         }
     }
 
+    /**
+     * 按容量创建分段，容量均分到各分段，总和等于最大容量
+     */
+    private Stripe[] createStripes(int capacity) {
+        int count = Math.min(MAX_STRIPES, Integer.highestOneBit(capacity));
+        Stripe[] result = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = new Stripe(capacity / count + (i < capacity % count ? 1 : 0));
+        }
+        return result;
+    }
+
+    private Stripe stripeFor(UUID uuid) {
+        int h = uuid.hashCode();
+        return stripes[(h ^ (h >>> 16)) & (stripes.length - 1)];
+    }
+
     /**
      * 检查缓存条目是否过期
      */
     private boolean isExpired(CacheEntry entry) {
-        long now = System.currentTimeMillis();
-        
-        // 检查缓存TTL过期
-        if (now - entry.createdTime > ttlMillis) {
-            return true;
-        }
-        
-        // 检查飞行时间是否已过期
-        return entry.flightEndTime <= now;
+        return System.currentTimeMillis() - entry.createdTime > ttlMillis;
     }
 
     /**
      * 清空所有缓存
      */
     public void clear() {
-        cache.clear();
-        currentSize.set(0);
-        plugin.getLogger().info("飞行数据缓存已清空");
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                currentSize.addAndGet(-stripe.size());
+                stripe.values().forEach(this::cancelExpiry);
+                stripe.clear();
+                // 常驻玩家保留常驻状态，只丢弃数据
+                stripe.invalidations++;
+                stripe.resident.replaceAll((uuid, entry) -> {
+                    CacheEntry empty = new CacheEntry();
+                    empty.resident = true;
+                    return empty;
+                });
+            }
+        }
+        logger.info("飞行数据缓存已清空");
     }
 
     /**
      * 关闭缓存
      */
     public void shutdown() {
-        cleanupExecutor.shutdown();
-        try {
-            if (!cleanupExecutor.awaitTermination(5, TimeUnit.SECONDS)) {
-                cleanupExecutor.shutdownNow();
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-            cleanupExecutor.shutdownNow();
-        }
-        
         clear();
-        plugin.getLogger().info("飞行数据缓存已关闭");
+        logger.info("飞行数据缓存已关闭");
     }
 
     /**
@@ -248,7 +803,11 @@ public class FlightDataCache {
             hits.get(),
             misses.get(),
             evictions.get(),
-            hitRate
+            hitRate,
+            negativeHits.get(),
+            negativeMisses.get(),
+            residentCount.get(),
+            refreshes.get()
         );
     }
 
@@ -259,21 +818,62 @@ public class FlightDataCache {
         hits.set(0);
         misses.set(0);
         evictions.set(0);
-        plugin.getLogger().info("缓存统计信息已重置");
+        negativeHits.set(0);
+        negativeMisses.set(0);
+        refreshes.set(0);
+        logger.info("缓存统计信息已重置");
     }
 
     /**
-     * 缓存条目类
+     * 缓存条目类 - 玩家的全部数据，字段只能在持有分段锁时访问
      */
     private static class CacheEntry {
-        final long flightEndTime;
-        final long createdTime;
-        volatile long lastAccessed;
+        long createdTime = System.currentTimeMillis();
+        boolean resident;
+        boolean refreshing; // 已交给刷新处理器，等待 completeRefresh
+        TimingWheel.Timeout expiry; // TTL 到期任务，常驻条目为 null
+        Long flightEndTime;
+        long noFlightUntil; // 大于当前时间表示已确认没有飞行记录
+        Set<String> effects;
+        Set<String> speeds;
+        Map<String, Long> effectTimes;
+        Map<String, Long> speedTimes;
+
+        boolean isEmpty() {
+            return flightEndTime == null && noFlightUntil == 0 && effects == null && speeds == null
+                && effectTimes == null && speedTimes == null;
+        }
+    }
+
+    /**
+     * 缓存分段 - 按访问顺序排列的 LRU 表，只能在持有自身锁时访问
+     */
+    private final class Stripe extends LinkedHashMap<UUID, CacheEntry> {
+        private final int capacity;
+        // 常驻条目，不计入容量
+        final Map<UUID, CacheEntry> resident = new HashMap<>();
+        // 失效计数，读取存储前取值，填充时若已变化说明期间发生过写入，放弃填充
+        long invalidations;
 
-        CacheEntry(long flightEndTime) {
-            this.flightEndTime = flightEndTime;
-            this.createdTime = System.currentTimeMillis();
-            this.lastAccessed = this.createdTime;
+        Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        CacheEntry lookup(UUID uuid) {
+            CacheEntry entry = resident.get(uuid);
+            return entry != null ? entry : get(uuid);
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, CacheEntry> eldest) {
+            if (size() <= capacity) {
+                return false;
+            }
+            cancelExpiry(eldest.getValue());
+            currentSize.decrementAndGet();
+            evictions.incrementAndGet();
+            return true;
         }
     }
 
@@ -287,21 +887,32 @@ public class FlightDataCache {
         public final long misses;
         public final long evictions;
         public final double hitRate;
+        public final long negativeHits; // 命中"没有飞行记录"的次数
+        public final long negativeMisses; // 读取存储后确认没有飞行记录的次数
+        public final long resident; // 常驻玩家数，不计入 currentSize
+        public final long refreshes; // 提前刷新成功的次数
 
-        CacheStatistics(long currentSize, long maxSize, long hits, long misses, long evictions, double hitRate) {
+        CacheStatistics(long currentSize, long maxSize, long hits, long misses, long evictions, double hitRate,
+                        long negativeHits, long negativeMisses, long resident, long refreshes) {
             this.currentSize = currentSize;
             this.maxSize = maxSize;
             this.hits = hits;
             this.misses = misses;
             this.evictions = evictions;
             this.hitRate = hitRate;
+            this.negativeHits = negativeHits;
+            this.negativeMisses = negativeMisses;
+            this.resident = resident;
+            this.refreshes = refreshes;
         }
 
         @Override
         public String toString() {
+            long negativeTotal = negativeHits + negativeMisses;
             return String.format(
-                "缓存统计: 大小=%d/%d, 命中=%d, 未命中=%d, 驱逐=%d, 命中率=%.1f%%",
-                currentSize, maxSize, hits, misses, evictions, hitRate
+                "缓存统计: 大小=%d/%d, 常驻=%d, 命中=%d, 未命中=%d, 驱逐=%d, 命中率=%.1f%%, 无记录命中=%d, 无记录未命中=%d, 无记录命中率=%.1f%%, 提前刷新=%d",
+                currentSize, maxSize, resident, hits, misses, evictions, hitRate, negativeHits, negativeMisses,
+                negativeTotal > 0 ? negativeHits * 100.0 / negativeTotal : 0.0, refreshes
             );
         }
     }
@@ -87,8 +87,8 @@ public class AdminCommandHandler {
         // 同步取消MHDF-Tools飞行权限
         syncMHDFToolsDisableFlight(target);
 
-        // 取消倒计时
-        plugin.getCountdownManager().cancelCountdown(target);
+        // 取消到期跟踪和倒计时
+        plugin.getExpiryManager().cancel(target);
 
         // 发送消息
         target.sendMessage(prefix + plugin.getLang().getMessage("flight-disabled-by-admin"));
@@ -179,8 +179,8 @@ public class AdminCommandHandler {
         // 同步MHDF-Tools飞行权限
         syncMHDFToolsFlight(target, endTime);
 
-        // 启动倒计时
-        plugin.getCountdownManager().startCountdown(target, endTime);
+        // 登记结束时间并启动倒计时
+        plugin.getExpiryManager().track(target, endTime);
 
         // 发送消息
         if (existingEndTime > System.currentTimeMillis()) {
@@ -292,10 +292,14 @@ public class AdminCommandHandler {
         if (plugin.getCountdownManager() != null) {
             sender.sendMessage(prefix + "§e" + plugin.getCountdownManager().getStatistics());
         }
+        if (plugin.getExpiryManager() != null) {
+            sender.sendMessage(prefix + "§e" + plugin.getExpiryManager().getStatistics());
+        }
 
         // 存储统计
-        if (plugin.getStorage() instanceof org.littlesheep.data.CachedStorage) {
-            org.littlesheep.data.CachedStorage cachedStorage = (org.littlesheep.data.CachedStorage) plugin.getStorage();
+        org.littlesheep.data.AsyncStorage storage = org.littlesheep.data.MeteredStorage.unwrap(plugin.getStorage());
+        if (storage instanceof org.littlesheep.data.CachedStorage) {
+            org.littlesheep.data.CachedStorage cachedStorage = (org.littlesheep.data.CachedStorage) storage;
             sender.sendMessage(prefix + "§e" + cachedStorage.getCacheStatistics());
             
             // 显示底层存储统计
@@ -306,14 +310,25 @@ public class AdminCommandHandler {
                 org.littlesheep.data.JsonStorage jsonStorage = (org.littlesheep.data.JsonStorage) cachedStorage.getDelegate();
                 sender.sendMessage(prefix + "§e" + jsonStorage.getStatistics());
             }
-        } else if (plugin.getStorage() instanceof org.littlesheep.data.MySqlStorage) {
-            org.littlesheep.data.MySqlStorage mysqlStorage = (org.littlesheep.data.MySqlStorage) plugin.getStorage();
+        } else if (storage instanceof org.littlesheep.data.MySqlStorage) {
+            org.littlesheep.data.MySqlStorage mysqlStorage = (org.littlesheep.data.MySqlStorage) storage;
             sender.sendMessage(prefix + "§e" + mysqlStorage.getDatabaseStatistics());
-        } else if (plugin.getStorage() instanceof org.littlesheep.data.JsonStorage) {
-            org.littlesheep.data.JsonStorage jsonStorage = (org.littlesheep.data.JsonStorage) plugin.getStorage();
+        } else if (storage instanceof org.littlesheep.data.JsonStorage) {
+            org.littlesheep.data.JsonStorage jsonStorage = (org.littlesheep.data.JsonStorage) storage;
             sender.sendMessage(prefix + "§e" + jsonStorage.getStatistics());
         }
 
+        // 存储耗时统计，只显示 p99 最高的几项
+        org.littlesheep.data.StorageMetrics metrics = plugin.getStorageMetrics();
+        if (metrics != null) {
+            java.util.List<org.littlesheep.data.StorageMetrics.Entry> entries = metrics.getEntries();
+            sender.sendMessage(prefix + "§e存储耗时统计 (共" + entries.size() + "项, 按p99排序):");
+            for (int i = 0; i < Math.min(10, entries.size()); i++) {
+                sender.sendMessage(prefix + "§7  " + entries.get(i));
+            }
+        }
+        sender.sendMessage(prefix + "§e存储队列深度: " + plugin.getStorage().getQueueDepths());
+
         // 资源管理器统计
         if (plugin.getResourceManager() != null) {
             sender.sendMessage(prefix + "§e" + plugin.getResourceManager().getResourceStatistics());
@@ -83,9 +83,12 @@ public class PlayerCommandHandler {
                         "{remaining}", remaining));
                 }
             } else {
-                // 购买时间已过期
-                player.sendMessage(prefix + plugin.getLang().getMessage("time-check-expired"));
-                plugin.getStorage().removePlayerFlightTime(player.getUniqueId());
+                // 购买时间已过期，交给到期管理器处理（撤销飞行、删除记录、触发到期事件，每个结束时间只处理一次）。
+                // 本次触发了到期处理且玩家没有无限权限时，到期管理器已发送到期消息
+                boolean expiredNow = plugin.getExpiryManager().expire(player, endTime);
+                if (!expiredNow || player.hasPermission("paytofly.infinite")) {
+                    player.sendMessage(prefix + plugin.getLang().getMessage("time-check-expired"));
+                }
                 
                 // 过期后检查是否有无限权限
                 if (player.hasPermission("paytofly.infinite")) {
@@ -202,8 +205,8 @@ public class PlayerCommandHandler {
         // 同步MHDF-Tools飞行权限
         syncMHDFToolsFlight(player, endTime);
 
-        // 启动倒计时
-        plugin.getCountdownManager().startCountdown(player, endTime);
+        // 登记结束时间并启动倒计时
+        plugin.getExpiryManager().track(player, endTime);
 
         player.sendMessage(prefix + plugin.getLang().getMessage("purchase-success",
             "{amount}", String.format("%.2f", totalCost),
@@ -0,0 +1,88 @@
+package org.littlesheep.data;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 异步存储接口 - 为主线程调用者提供不阻塞的存储访问
+ *
+ * 所有操作在存储专用的I/O线程上执行，返回的 CompletableFuture 可配合
+ * {@link StorageExecutor#mainThread()} 把结果交回主线程处理。
+ * 默认实现直接包装同步方法，内存型存储可覆盖为立即完成的结果。
+ */
+public interface AsyncStorage extends Storage {
+
+    /**
+     * 获取该存储使用的I/O执行器
+     */
+    StorageExecutor getStorageExecutor();
+
+    /**
+     * 获取各异步写入队列当前积压的任务数，用于统计
+     */
+    default Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = new LinkedHashMap<>();
+        depths.put("io", getStorageExecutor().getQueueDepth());
+        return depths;
+    }
+
+    // 飞行时间
+    default CompletableFuture<Long> getPlayerFlightTimeAsync(UUID uuid) {
+        return getStorageExecutor().supply(() -> getPlayerFlightTime(uuid));
+    }
+
+    default CompletableFuture<Void> setPlayerFlightTimeAsync(UUID uuid, long endTime) {
+        return getStorageExecutor().run(() -> setPlayerFlightTime(uuid, endTime));
+    }
+
+    default CompletableFuture<Void> removePlayerFlightTimeAsync(UUID uuid) {
+        return getStorageExecutor().run(() -> removePlayerFlightTime(uuid));
+    }
+
+    default CompletableFuture<Map<UUID, Long>> getAllPlayerDataAsync() {
+        return getStorageExecutor().supply(this::getAllPlayerData);
+    }
+
+    // 特效购买记录
+    default CompletableFuture<Set<String>> getPlayerEffectsAsync(UUID uuid) {
+        return getStorageExecutor().supply(() -> getPlayerEffects(uuid));
+    }
+
+    default CompletableFuture<Map<String, Long>> getPlayerEffectTimesAsync(UUID uuid) {
+        return getStorageExecutor().supply(() -> getPlayerEffectTimes(uuid));
+    }
+
+    default CompletableFuture<Void> removePlayerEffectTimeAsync(UUID uuid, String effectName) {
+        return getStorageExecutor().run(() -> removePlayerEffectTime(uuid, effectName));
+    }
+
+    // 速度购买记录
+    default CompletableFuture<Set<String>> getPlayerSpeedsAsync(UUID uuid) {
+        return getStorageExecutor().supply(() -> getPlayerSpeeds(uuid));
+    }
+
+    default CompletableFuture<Map<String, Long>> getPlayerSpeedTimesAsync(UUID uuid) {
+        return getStorageExecutor().supply(() -> getPlayerSpeedTimes(uuid));
+    }
+
+    default CompletableFuture<Void> removePlayerSpeedTimeAsync(UUID uuid, String speedName) {
+        return getStorageExecutor().run(() -> removePlayerSpeedTime(uuid, speedName));
+    }
+
+    // 聚合读取
+    default CompletableFuture<PlayerData> loadPlayerProfileAsync(UUID uuid) {
+        return getStorageExecutor().supply(() -> loadPlayerProfile(uuid));
+    }
+
+    default CompletableFuture<Map<UUID, PlayerData>> loadPlayerProfilesAsync(Collection<UUID> uuids) {
+        return getStorageExecutor().supply(() -> loadPlayerProfiles(uuids));
+    }
+
+    default CompletableFuture<Map<ExpiryKey, Long>> pollExpiredAsync(long now) {
+        return getStorageExecutor().supply(() -> pollExpired(now));
+    }
+}
@@ -0,0 +1,761 @@
+package org.littlesheep.data;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 内存映射二进制存储
+ *
+ * 玩家记录保存在定长记录文件中（UUID + 飞行结束时间 + 特效位图 + 速度位图），
+ * 文件本身就是开放寻址哈希索引，启动时直接映射，无需解析。
+ * 特效/速度名称通过 {@link NameDictionary} 映射为位序号，每类最多 64 种，超出时永久购买失败并抛出异常。
+ * 限时特效/速度以 (UUID, 类型 + 名称编号) 为键保存在第二个记录文件中。
+ */
+public class BinaryStorage implements AsyncStorage {
+    // 记录中表示"无飞行时间"的值
+    private static final long NO_TIME = Long.MIN_VALUE;
+
+    // 玩家记录字段
+    private static final int F_FLIGHT = 0;
+    private static final int F_EFFECTS = 1;
+    private static final int F_SPEEDS = 2;
+    private static final int PLAYER_FIELDS = 3;
+    private static final int PLAYER_TAG = 0;
+
+    // 限时记录 tag 的高 16 位
+    private static final int KIND_EFFECT = 1;
+    private static final int KIND_SPEED = 2;
+
+    // 位图宽度
+    private static final int MAX_BITS = Long.SIZE;
+
+    private final JavaPlugin plugin;
+    private final File directory;
+    private final int initialCapacity;
+    private final long forceIntervalMs;
+    private final boolean syncWrites;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final AtomicBoolean dirty = new AtomicBoolean(false);
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "PayToFly-BinaryStorage");
+        t.setDaemon(true);
+        return t;
+    });
+
+    // 数据直接从映射内存读取，异步读取直接返回已完成的结果，执行器仅用于主线程回调
+    private final StorageExecutor storageExecutor;
+
+    private MappedHashFile players;
+    private MappedHashFile timed;
+    private NameDictionary effectNames;
+    private NameDictionary speedNames;
+
+    // 按到期时间排序的飞行时间和限时特效/速度，启动时从记录文件建立
+    private final ExpiryIndex<ExpiryKey> expiryIndex = new ExpiryIndex<>();
+
+    // 统计信息
+    private final AtomicLong writeOperations = new AtomicLong(0);
+    private final AtomicLong forceCount = new AtomicLong(0);
+
+    public BinaryStorage(JavaPlugin plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(),
+            plugin.getConfig().getString("storage.binary.directory", "binary"));
+        this.initialCapacity = plugin.getConfig().getInt("storage.binary.initial-capacity", 4096);
+        this.forceIntervalMs = Math.max(100L, plugin.getConfig().getLong("storage.binary.force-interval-ms", 1000));
+        this.syncWrites = plugin.getConfig().getBoolean("storage.binary.sync-writes", false);
+        this.storageExecutor = new StorageExecutor(plugin, "Binary", 1);
+    }
+
+    @Override
+    public void init() {
+        long start = System.nanoTime();
+        try {
+            if (!directory.exists() && !directory.mkdirs()) {
+                throw new IOException("无法创建数据目录: " + directory);
+            }
+
+            effectNames = new NameDictionary(new File(directory, "effects.names"));
+            speedNames = new NameDictionary(new File(directory, "speeds.names"));
+            players = new MappedHashFile(new File(directory, "players.dat"), PLAYER_FIELDS, initialCapacity);
+            timed = new MappedHashFile(new File(directory, "timed.dat"), 1, initialCapacity);
+            buildExpiryIndex();
+
+            scheduler.scheduleWithFixedDelay(this::forceIfDirty, forceIntervalMs, forceIntervalMs, TimeUnit.MILLISECONDS);
+
+            plugin.getLogger().info(String.format(
+                "二进制存储已初始化 - 玩家记录: %d, 限时记录: %d, 耗时 %.1fms, 刷盘: %s",
+                players.size(), timed.size(), (System.nanoTime() - start) / 1_000_000.0,
+                syncWrites ? "每次写入" : "每 " + forceIntervalMs + "ms"));
+        } catch (IOException e) {
+            plugin.getLogger().severe("二进制存储初始化失败: " + e.getMessage());
+            throw new RuntimeException("二进制存储初始化失败", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        plugin.getLogger().info("正在关闭二进制存储...");
+        scheduler.shutdown();
+        try {
+            if (!scheduler.awaitTermination(10, TimeUnit.SECONDS)) {
+                scheduler.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            scheduler.shutdownNow();
+        }
+        storageExecutor.shutdown();
+
+        lock.writeLock().lock();
+        try {
+            if (players != null) {
+                players.close();
+            }
+            if (timed != null) {
+                timed.close();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        plugin.getLogger().info(String.format("二进制存储已关闭 - 写操作数: %d, 刷盘次数: %d",
+            writeOperations.get(), forceCount.get()));
+    }
+
+    // ============= 飞行时间 =============
+
+    @Override
+    public void setPlayerFlightTime(UUID uuid, long endTime) {
+        lock.writeLock().lock();
+        try {
+            long[] fields = readPlayer(uuid);
+            fields[F_FLIGHT] = endTime;
+            writePlayer(uuid, fields);
+            expiryIndex.schedule(ExpiryKey.flight(uuid), endTime);
+            afterWrite(1);
+        } catch (IOException e) {
+            plugin.getLogger().severe("保存飞行时间时出错: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void setPlayerFlightTimes(Map<UUID, Long> endTimes) {
+        if (endTimes.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            for (Map.Entry<UUID, Long> entry : endTimes.entrySet()) {
+                long[] fields = readPlayer(entry.getKey());
+                fields[F_FLIGHT] = entry.getValue();
+                writePlayer(entry.getKey(), fields);
+                expiryIndex.schedule(ExpiryKey.flight(entry.getKey()), entry.getValue());
+            }
+            afterWrite(endTimes.size());
+        } catch (IOException e) {
+            plugin.getLogger().severe("批量保存飞行时间时出错: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public Long getPlayerFlightTime(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            long endTime = players.getField(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                PLAYER_TAG, F_FLIGHT, NO_TIME);
+            return endTime != NO_TIME ? endTime : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void forEachActiveFlight(long now, UuidLongMap.EntryConsumer consumer) {
+        lock.readLock().lock();
+        try {
+            players.forEach((msb, lsb, tag, fields) -> {
+                if (fields[F_FLIGHT] != NO_TIME && fields[F_FLIGHT] > now) {
+                    consumer.accept(new UUID(msb, lsb), fields[F_FLIGHT]);
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<UUID, Long> getAllPlayerData() {
+        lock.readLock().lock();
+        try {
+            Map<UUID, Long> result = new HashMap<>();
+            players.forEach((msb, lsb, tag, fields) -> {
+                if (fields[F_FLIGHT] != NO_TIME) {
+                    result.put(new UUID(msb, lsb), fields[F_FLIGHT]);
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void removePlayerFlightTime(UUID uuid) {
+        removePlayerFlightTimes(Collections.singletonList(uuid));
+    }
+
+    @Override
+    public void removePlayerFlightTimes(Collection<UUID> uuids) {
+        lock.writeLock().lock();
+        try {
+            int removed = 0;
+            for (UUID uuid : uuids) {
+                long[] fields = readPlayer(uuid);
+                if (fields[F_FLIGHT] != NO_TIME) {
+                    fields[F_FLIGHT] = NO_TIME;
+                    writePlayer(uuid, fields);
+                    expiryIndex.remove(ExpiryKey.flight(uuid));
+                    removed++;
+                }
+            }
+            if (removed > 0) {
+                afterWrite(removed);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("删除飞行时间时出错: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // ============= 特效/速度购买记录（位图） =============
+
+    @Override
+    public void addPlayerEffect(UUID uuid, String effectName) {
+        setOwnership(uuid, effectNames, F_EFFECTS, effectName, true);
+    }
+
+    @Override
+    public void removePlayerEffect(UUID uuid, String effectName) {
+        setOwnership(uuid, effectNames, F_EFFECTS, effectName, false);
+    }
+
+    @Override
+    public Set<String> getPlayerEffects(UUID uuid) {
+        return getOwnership(uuid, effectNames, F_EFFECTS);
+    }
+
+    @Override
+    public Map<UUID, Set<String>> getAllPlayerEffects() {
+        return getAllOwnership(effectNames, F_EFFECTS);
+    }
+
+    @Override
+    public void addPlayerSpeed(UUID uuid, String speedName) {
+        setOwnership(uuid, speedNames, F_SPEEDS, speedName, true);
+    }
+
+    @Override
+    public void removePlayerSpeed(UUID uuid, String speedName) {
+        setOwnership(uuid, speedNames, F_SPEEDS, speedName, false);
+    }
+
+    @Override
+    public Set<String> getPlayerSpeeds(UUID uuid) {
+        return getOwnership(uuid, speedNames, F_SPEEDS);
+    }
+
+    @Override
+    public Map<UUID, Set<String>> getAllPlayerSpeeds() {
+        return getAllOwnership(speedNames, F_SPEEDS);
+    }
+
+    /**
+     * 设置或清除永久购买的位
+     * @throws IllegalStateException 名称的编号超出位图宽度、无法记录永久购买时抛出，调用方需退款或中止；
+     *                               超出上限的新名称不会写入字典
+     */
+    private void setOwnership(UUID uuid, NameDictionary dictionary, int field, String name, boolean owned) {
+        lock.writeLock().lock();
+        try {
+            int id = dictionary.find(name);
+            if (owned && (id >= MAX_BITS || (id < 0 && dictionary.size() >= MAX_BITS))) {
+                throw new IllegalStateException(String.format(
+                    "二进制存储每类最多支持 %d 种特效/速度，无法保存: %s", MAX_BITS, name));
+            }
+            if (owned && id < 0) {
+                id = dictionary.getOrCreate(name);
+            }
+            if (id < 0 || id >= MAX_BITS) {
+                // 未记录过的名称没有可清除的位
+                return;
+            }
+
+            long[] fields = readPlayer(uuid);
+            long bits = owned ? fields[field] | (1L << id) : fields[field] & ~(1L << id);
+            if (bits != fields[field]) {
+                fields[field] = bits;
+                writePlayer(uuid, fields);
+                afterWrite(1);
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("保存购买记录时出错: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Set<String> getOwnership(UUID uuid, NameDictionary dictionary, int field) {
+        lock.readLock().lock();
+        try {
+            return toNames(players.getField(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                PLAYER_TAG, field, 0L), dictionary);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<UUID, Set<String>> getAllOwnership(NameDictionary dictionary, int field) {
+        lock.readLock().lock();
+        try {
+            Map<UUID, Set<String>> result = new HashMap<>();
+            players.forEach((msb, lsb, tag, fields) -> {
+                if (fields[field] != 0L) {
+                    result.put(new UUID(msb, lsb), toNames(fields[field], dictionary));
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static Set<String> toNames(long bits, NameDictionary dictionary) {
+        Set<String> names = new HashSet<>();
+        while (bits != 0L) {
+            int id = Long.numberOfTrailingZeros(bits);
+            String name = dictionary.nameOf(id);
+            if (name != null) {
+                names.add(name);
+            }
+            bits &= bits - 1;
+        }
+        return names;
+    }
+
+    // ============= 时间限制特效/速度 =============
+
+    @Override
+    public void setPlayerEffectTime(UUID uuid, String effectName, long endTime) {
+        setTimed(Collections.singletonList(uuid), KIND_EFFECT, effectNames, effectName, endTime);
+    }
+
+    @Override
+    public void setPlayerEffectTimes(Collection<UUID> uuids, String effectName, long endTime) {
+        setTimed(uuids, KIND_EFFECT, effectNames, effectName, endTime);
+    }
+
+    @Override
+    public Long getPlayerEffectTime(UUID uuid, String effectName) {
+        return getTimed(uuid, KIND_EFFECT, effectNames, effectName);
+    }
+
+    @Override
+    public Map<String, Long> getPlayerEffectTimes(UUID uuid) {
+        return getTimedAll(uuid, KIND_EFFECT, effectNames);
+    }
+
+    @Override
+    public void removePlayerEffectTime(UUID uuid, String effectName) {
+        removeTimed(uuid, KIND_EFFECT, effectNames, effectName);
+    }
+
+    @Override
+    public Map<UUID, Map<String, Long>> getAllPlayerEffectTimes() {
+        return getAllTimed(KIND_EFFECT, effectNames);
+    }
+
+    @Override
+    public void setPlayerSpeedTime(UUID uuid, String speedName, long endTime) {
+        setTimed(Collections.singletonList(uuid), KIND_SPEED, speedNames, speedName, endTime);
+    }
+
+    @Override
+    public void setPlayerSpeedTimes(Collection<UUID> uuids, String speedName, long endTime) {
+        setTimed(uuids, KIND_SPEED, speedNames, speedName, endTime);
+    }
+
+    @Override
+    public Long getPlayerSpeedTime(UUID uuid, String speedName) {
+        return getTimed(uuid, KIND_SPEED, speedNames, speedName);
+    }
+
+    @Override
+    public Map<String, Long> getPlayerSpeedTimes(UUID uuid) {
+        return getTimedAll(uuid, KIND_SPEED, speedNames);
+    }
+
+    @Override
+    public void removePlayerSpeedTime(UUID uuid, String speedName) {
+        removeTimed(uuid, KIND_SPEED, speedNames, speedName);
+    }
+
+    @Override
+    public Map<UUID, Map<String, Long>> getAllPlayerSpeedTimes() {
+        return getAllTimed(KIND_SPEED, speedNames);
+    }
+
+    private void setTimed(Collection<UUID> uuids, int kind, NameDictionary dictionary, String name, long endTime) {
+        if (uuids.isEmpty()) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            int tag = timedTag(kind, dictionary.getOrCreate(name));
+            long[] fields = {endTime};
+            for (UUID uuid : uuids) {
+                timed.put(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), tag, fields);
+                expiryIndex.schedule(timedKey(kind, uuid, name), endTime);
+            }
+            afterWrite(uuids.size());
+        } catch (IOException e) {
+            plugin.getLogger().severe("保存限时购买记录时出错: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Long getTimed(UUID uuid, int kind, NameDictionary dictionary, String name) {
+        lock.readLock().lock();
+        try {
+            int id = dictionary.find(name);
+            if (id < 0) {
+                return null;
+            }
+            long endTime = timed.getField(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(),
+                timedTag(kind, id), 0, NO_TIME);
+            return endTime != NO_TIME ? endTime : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Long> getTimedAll(UUID uuid, int kind, NameDictionary dictionary) {
+        lock.readLock().lock();
+        try {
+            // 名称数量很少，逐个探测比扫描整个文件快
+            Map<String, Long> result = new HashMap<>();
+            long msb = uuid.getMostSignificantBits();
+            long lsb = uuid.getLeastSignificantBits();
+            for (int id = 0; id < dictionary.size(); id++) {
+                long endTime = timed.getField(msb, lsb, timedTag(kind, id), 0, NO_TIME);
+                if (endTime != NO_TIME) {
+                    result.put(dictionary.nameOf(id), endTime);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void removeTimed(UUID uuid, int kind, NameDictionary dictionary, String name) {
+        lock.writeLock().lock();
+        try {
+            int id = dictionary.find(name);
+            if (id >= 0 && timed.remove(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), timedTag(kind, id))) {
+                expiryIndex.remove(timedKey(kind, uuid, name));
+                afterWrite(1);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Map<UUID, Map<String, Long>> getAllTimed(int kind, NameDictionary dictionary) {
+        lock.readLock().lock();
+        try {
+            Map<UUID, Map<String, Long>> result = new HashMap<>();
+            timed.forEach((msb, lsb, tag, fields) -> {
+                if (tag >>> 16 == kind) {
+                    String name = dictionary.nameOf(tag & 0xFFFF);
+                    if (name != null) {
+                        result.computeIfAbsent(new UUID(msb, lsb), k -> new HashMap<>()).put(name, fields[0]);
+                    }
+                }
+            });
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static ExpiryKey timedKey(int kind, UUID uuid, String name) {
+        return kind == KIND_EFFECT ? ExpiryKey.effect(uuid, name) : ExpiryKey.speed(uuid, name);
+    }
+
+    private static int timedTag(int kind, int id) {
+        if (id > 0xFFFF) {
+            throw new IllegalArgumentException("名称编号超出范围: " + id);
+        }
+        return kind << 16 | id;
+    }
+
+    // ============= 过期清理 =============
+
+    @Override
+    public Map<ExpiryKey, Long> pollExpired(long now) {
+        Map<ExpiryKey, Long> expired = new HashMap<>();
+        lock.writeLock().lock();
+        try {
+            for (ExpiryKey key : expiryIndex.pollExpired(now)) {
+                UUID uuid = key.getUuid();
+                long msb = uuid.getMostSignificantBits();
+                long lsb = uuid.getLeastSignificantBits();
+                if (key.getKind() == ExpiryKey.Kind.FLIGHT) {
+                    long[] fields = readPlayer(uuid);
+                    if (fields[F_FLIGHT] != NO_TIME && fields[F_FLIGHT] <= now) {
+                        expired.put(key, fields[F_FLIGHT]);
+                        fields[F_FLIGHT] = NO_TIME;
+                        writePlayer(uuid, fields);
+                    }
+                } else {
+                    boolean effect = key.getKind() == ExpiryKey.Kind.EFFECT;
+                    int id = (effect ? effectNames : speedNames).find(key.getName());
+                    if (id < 0) {
+                        continue;
+                    }
+                    int tag = timedTag(effect ? KIND_EFFECT : KIND_SPEED, id);
+                    long endTime = timed.getField(msb, lsb, tag, 0, NO_TIME);
+                    if (endTime != NO_TIME && endTime <= now) {
+                        timed.remove(msb, lsb, tag);
+                        expired.put(key, endTime);
+                    }
+                }
+            }
+            if (!expired.isEmpty()) {
+                afterWrite(expired.size());
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("清理过期数据时出错: " + e.getMessage());
+        } finally {
+            lock.writeLock().unlock();
+        }
+        return expired;
+    }
+
+    @Override
+    public CompletableFuture<Map<ExpiryKey, Long>> pollExpiredAsync(long now) {
+        return CompletableFuture.completedFuture(pollExpired(now));
+    }
+
+    /**
+     * 启动时扫描一次记录文件建立过期索引
+     */
+    private void buildExpiryIndex() {
+        players.forEach((msb, lsb, tag, fields) -> {
+            if (fields[F_FLIGHT] != NO_TIME) {
+                expiryIndex.schedule(ExpiryKey.flight(new UUID(msb, lsb)), fields[F_FLIGHT]);
+            }
+        });
+        timed.forEach((msb, lsb, tag, fields) -> {
+            int kind = tag >>> 16;
+            String name = (kind == KIND_EFFECT ? effectNames : speedNames).nameOf(tag & 0xFFFF);
+            if (name != null) {
+                expiryIndex.schedule(timedKey(kind, new UUID(msb, lsb), name), fields[0]);
+            }
+        });
+    }
+
+    // ============= 整体读取 =============
+
+    @Override
+    public PlayerData loadPlayerProfile(UUID uuid) {
+        lock.readLock().lock();
+        try {
+            return new PlayerData(
+                getPlayerFlightTime(uuid),
+                getPlayerEffects(uuid),
+                getPlayerSpeeds(uuid),
+                getPlayerEffectTimes(uuid),
+                getPlayerSpeedTimes(uuid)
+            );
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<UUID, PlayerData> loadPlayerProfiles(Collection<UUID> uuids) {
+        lock.readLock().lock();
+        try {
+            Map<UUID, PlayerData> profiles = new HashMap<>();
+            for (UUID uuid : uuids) {
+                profiles.put(uuid, loadPlayerProfile(uuid));
+            }
+            return profiles;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ============= 异步访问（映射内存，立即完成） =============
+
+    @Override
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
+    @Override
+    public CompletableFuture<Long> getPlayerFlightTimeAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerFlightTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setPlayerFlightTimeAsync(UUID uuid, long endTime) {
+        setPlayerFlightTime(uuid, endTime);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerFlightTimeAsync(UUID uuid) {
+        removePlayerFlightTime(uuid);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerEffectsAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerEffects(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerEffectTimesAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerEffectTimes(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerEffectTimeAsync(UUID uuid, String effectName) {
+        removePlayerEffectTime(uuid, effectName);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerSpeedsAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerSpeeds(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerSpeedTimesAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerSpeedTimes(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerSpeedTimeAsync(UUID uuid, String speedName) {
+        removePlayerSpeedTime(uuid, speedName);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<PlayerData> loadPlayerProfileAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(loadPlayerProfile(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, PlayerData>> loadPlayerProfilesAsync(Collection<UUID> uuids) {
+        return CompletableFuture.completedFuture(loadPlayerProfiles(uuids));
+    }
+
+    // ============= 内部方法 =============
+
+    /**
+     * 读取玩家记录，不存在时返回空记录，调用方需持有锁
+     */
+    private long[] readPlayer(UUID uuid) {
+        long[] fields = players.get(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), PLAYER_TAG);
+        return fields != null ? fields : new long[]{NO_TIME, 0L, 0L};
+    }
+
+    /**
+     * 写入玩家记录，全部字段为空时删除记录，调用方需持有写锁
+     */
+    private void writePlayer(UUID uuid, long[] fields) throws IOException {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (fields[F_FLIGHT] == NO_TIME && fields[F_EFFECTS] == 0L && fields[F_SPEEDS] == 0L) {
+            players.remove(msb, lsb, PLAYER_TAG);
+        } else {
+            players.put(msb, lsb, PLAYER_TAG, fields);
+        }
+    }
+
+    private void afterWrite(int operations) {
+        writeOperations.addAndGet(operations);
+        if (syncWrites) {
+            players.force();
+            timed.force();
+            forceCount.incrementAndGet();
+        } else {
+            dirty.set(true);
+        }
+    }
+
+    /**
+     * 后台线程：定期把修改过的映射内存刷到磁盘
+     */
+    private void forceIfDirty() {
+        if (!dirty.compareAndSet(true, false)) {
+            return;
+        }
+        lock.readLock().lock();
+        try {
+            players.force();
+            timed.force();
+            forceCount.incrementAndGet();
+        } catch (Exception e) {
+            plugin.getLogger().warning("二进制存储刷盘失败: " + e.getMessage());
+            dirty.set(true);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * 获取存储统计信息
+     */
+    public String getStatistics() {
+        lock.readLock().lock();
+        try {
+            return String.format(
+                "二进制存储统计: 玩家记录=%d/%d, 限时记录=%d/%d, 文件大小=%dKB, 特效名称=%d, 速度名称=%d, 写操作=%d, 刷盘次数=%d, 扩容次数=%d",
+                players.size(), players.capacity(), timed.size(), timed.capacity(),
+                (players.getFileSize() + timed.getFileSize()) / 1024,
+                effectNames.size(), speedNames.size(), writeOperations.get(), forceCount.get(),
+                players.getResizeCount() + timed.getResizeCount());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package org.littlesheep.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 连接级预编译语句缓存 - 同一条 SQL 在连接的生命周期内只编译一次
+ *
+ * 非线程安全，同一时刻只能由持有该连接的一个线程使用。
+ * 取得的语句不要关闭，统一由 {@link #close()} 释放。
+ */
+final class CachedStatements implements AutoCloseable {
+    private final Connection connection;
+    private final Map<String, PreparedStatement> statements = new HashMap<>();
+
+    CachedStatements(Connection connection) {
+        this.connection = connection;
+    }
+
+    Connection getConnection() {
+        return connection;
+    }
+
+    /**
+     * 获取预编译语句，首次使用时编译
+     */
+    PreparedStatement prepare(String sql) throws SQLException {
+        PreparedStatement stmt = statements.get(sql);
+        if (stmt == null || stmt.isClosed()) {
+            stmt = connection.prepareStatement(sql);
+            statements.put(sql, stmt);
+        }
+        return stmt;
+    }
+
+    /**
+     * 清空所有缓存语句上未执行的批处理行，事务回滚后调用
+     */
+    void clearBatches() {
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                if (!stmt.isClosed()) {
+                    stmt.clearBatch();
+                }
+            } catch (SQLException ignored) {}
+        }
+    }
+
+    @Override
+    public void close() {
+        for (PreparedStatement stmt : statements.values()) {
+            try {
+                stmt.close();
+            } catch (SQLException ignored) {}
+        }
+        statements.clear();
+        try {
+            connection.close();
+        } catch (SQLException ignored) {}
+    }
+}
@@ -2,7 +2,13 @@ package org.littlesheep.data;
 
 import org.bukkit.plugin.java.JavaPlugin;
 import org.littlesheep.cache.FlightDataCache;
+import org.littlesheep.cache.FlightDataCache.DataKind;
+import org.littlesheep.utils.TimingWheel;
 
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -10,22 +16,41 @@ import java.util.concurrent.CompletableFuture;
 
 /**
  * 缓存装饰器存储 - 在原有存储基础上添加缓存层
+ *
+ * 飞行时间、特效、速度、限时特效和限时速度都按玩家缓存。
+ * 除飞行时间外的写入直接写到底层存储，写入完成后把同样的修改应用到已缓存的数据上。
+ * 底层为启用了变更日志的 MySQL 时，通过轮询变更日志使其他服务器写入的数据失效。
+ * 在线玩家的缓存条目临近 TTL 时在后台提前重新加载，主线程读取不会因过期而同步访问存储。
+ * 聚合读取在五类数据都已缓存时直接由缓存组装，部分命中时只读取缺少的类型。
  */
-public class CachedStorage implements Storage {
-    private final Storage delegate;
+public class CachedStorage implements AsyncStorage {
+    // 常驻玩家填充与写入冲突时的最多读取次数
+    private static final int PIN_FILL_ATTEMPTS = 5;
+
+    private final AsyncStorage delegate;
+    private final AsyncStorage backend; // 去掉统计包装后的底层存储，用于按类型访问
     private final FlightDataCache cache;
     private final JavaPlugin plugin;
     private final boolean writeThrough; // 是否写穿透模式
+    private final WriteBehindQueue<UUID, Long> flightWrites; // 写回模式下的飞行时间写入队列
+    private ChangelogPoller changelogPoller; // 跨服缓存同步，未启用时为 null
 
-    public CachedStorage(Storage delegate, JavaPlugin plugin) {
+    public CachedStorage(AsyncStorage delegate, JavaPlugin plugin, TimingWheel timingWheel) {
         this.delegate = delegate;
+        this.backend = MeteredStorage.unwrap(delegate);
         this.plugin = plugin;
-        this.cache = new FlightDataCache(plugin);
+        this.cache = new FlightDataCache(plugin, timingWheel);
         this.writeThrough = plugin.getConfig().getBoolean("cache.write-through", true);
+        this.flightWrites = writeThrough ? null : new WriteBehindQueue<>(plugin, "FlightTime",
+            this::writeFlightBatch,
+            plugin.getConfig().getLong("cache.write-behind.flush-interval-ms", 1000L),
+            plugin.getConfig().getInt("cache.write-behind.flush-threshold", 100),
+            plugin.getConfig().getInt("cache.write-behind.batch-size", 500));
+        this.cache.setRefreshHandler(this::refreshAhead);
         
         plugin.getLogger().info(String.format(
             "缓存存储已启用 - 底层存储: %s, 写模式: %s",
-            delegate.getClass().getSimpleName(),
+            backend.getClass().getSimpleName(),
             writeThrough ? "写穿透" : "写回"
         ));
     }
@@ -35,6 +60,13 @@ public class CachedStorage implements Storage {
         // 初始化底层存储
         delegate.init();
         
+        // 先确定变更日志起点再预加载，预加载期间其他服务器的写入也能被失效
+        if (backend instanceof MySqlStorage && ((MySqlStorage) backend).isChangelogEnabled()
+                && plugin.getConfig().getBoolean("cache.coherence.enabled", true)) {
+            changelogPoller = new ChangelogPoller(plugin, (MySqlStorage) backend, cache, this::reloadResidents);
+            changelogPoller.start();
+        }
+        
         // 预加载数据到缓存
         if (plugin.getConfig().getBoolean("cache.preload-on-init", true)) {
             preloadCache();
@@ -43,6 +75,15 @@ public class CachedStorage implements Storage {
 
     @Override
     public void close() {
+        // 先把写回队列中的数据全部落盘
+        if (flightWrites != null) {
+            flightWrites.close();
+        }
+        
+        if (changelogPoller != null) {
+            changelogPoller.close();
+        }
+        
         // 关闭缓存
         cache.shutdown();
         
@@ -61,35 +102,29 @@ public class CachedStorage implements Storage {
             // 写穿透模式：立即写入底层存储
             delegate.setPlayerFlightTime(uuid, endTime);
         } else {
-            // 写回模式：异步写入底层存储
-            CompletableFuture.runAsync(() -> {
-                try {
-                    delegate.setPlayerFlightTime(uuid, endTime);
-                } catch (Exception e) {
-                    plugin.getLogger().warning(String.format(
-                        "异步写入飞行时间失败 (UUID: %s): %s", uuid, e.getMessage()));
-                    // 写入失败时从缓存中移除，保证数据一致性
-                    cache.removeFlightTime(uuid);
-                }
-            });
+            // 写回模式：进入写回队列，由刷新线程合并后批量写入
+            flightWrites.put(uuid, endTime);
         }
     }
 
     @Override
     public Long getPlayerFlightTime(UUID uuid) {
         // 首先检查缓存
-        Long cachedTime = cache.getFlightTime(uuid);
+        Long cachedTime = cache.lookupFlightTime(uuid);
         if (cachedTime != null) {
-            return cachedTime;
+            return cachedTime != FlightDataCache.NO_FLIGHT ? cachedTime : null;
         }
         
-        // 缓存未命中，从底层存储读取
-        Long storageTime = delegate.getPlayerFlightTime(uuid);
-        if (storageTime != null) {
-            // 将数据加载到缓存
-            cache.setFlightTime(uuid, storageTime);
+        // 缓存已淘汰但尚未落盘的数据以写回队列为准
+        WriteBehindQueue.Pending<Long> pending = pendingFlightWrite(uuid);
+        if (pending != null) {
+            return pending.value;
         }
         
+        // 缓存未命中，从底层存储读取
+        long stamp = cache.stamp(uuid);
+        Long storageTime = delegate.getPlayerFlightTime(uuid);
+        cacheFlightTime(uuid, storageTime, stamp);
         return storageTime;
     }
 
@@ -102,15 +137,421 @@ public class CachedStorage implements Storage {
             // 写穿透模式：立即从底层存储删除
             delegate.removePlayerFlightTime(uuid);
         } else {
-            // 写回模式：异步从底层存储删除
-            CompletableFuture.runAsync(() -> {
-                try {
-                    delegate.removePlayerFlightTime(uuid);
-                } catch (Exception e) {
-                    plugin.getLogger().warning(String.format(
-                        "异步删除飞行时间失败 (UUID: %s): %s", uuid, e.getMessage()));
+            // 写回模式：删除同样进入写回队列，保证与之前的写入保持顺序
+            flightWrites.remove(uuid);
+        }
+    }
+
+    /**
+     * 提前刷新在线玩家的缓存条目，离线玩家的条目照常过期
+     * @return 是否发起了刷新
+     */
+    private boolean refreshAhead(UUID uuid) {
+        if (plugin.getServer().getPlayer(uuid) == null) {
+            return false;
+        }
+        long stamp = cache.stamp(uuid);
+        WriteBehindQueue.Pending<Long> pendingBefore = pendingFlightWrite(uuid);
+        delegate.loadPlayerProfileAsync(uuid).whenComplete((profile, error) ->
+            cache.completeRefresh(uuid, error == null ? withPendingFlight(uuid, profile, pendingBefore) : null, stamp));
+        return true;
+    }
+
+    /**
+     * 写回队列中有尚未落盘的飞行时间时，存储中读到的值已过时，改用队列中的值。
+     * 读取前已在队列中、读取期间才落盘的写入同样可能未被读到，以读取前查看到的值为准；
+     * 读取开始后的写入由 stamp 检查排除
+     * @param before 读取前 {@link #pendingFlightWrite} 的结果
+     */
+    private PlayerData withPendingFlight(UUID uuid, PlayerData profile, WriteBehindQueue.Pending<Long> before) {
+        WriteBehindQueue.Pending<Long> pending = pendingFlightWrite(uuid);
+        if (pending == null) {
+            pending = before;
+        }
+        if (profile != null && pending != null) {
+            profile.setFlightEndTime(pending.value);
+        }
+        return profile;
+    }
+
+    /**
+     * 把从底层存储读到的飞行时间放入缓存，没有记录时同样缓存。
+     * 写回队列中有尚未落盘的写入时存储中的值已过时，不填充；读取期间的失效和写入由 stamp 检查
+     */
+    private void cacheFlightTime(UUID uuid, Long storageTime, long stamp) {
+        if (pendingFlightWrite(uuid) != null) {
+            return;
+        }
+        if (storageTime != null) {
+            cache.fillFlightTime(uuid, storageTime, stamp);
+        } else {
+            cache.fillNoFlight(uuid, stamp);
+        }
+    }
+
+    /**
+     * 查看写回队列中尚未落盘的飞行时间写入
+     */
+    private WriteBehindQueue.Pending<Long> pendingFlightWrite(UUID uuid) {
+        return flightWrites != null ? flightWrites.peek(uuid) : null;
+    }
+
+    /**
+     * 写回队列的批量写入，在刷新线程上执行
+     */
+    private void writeFlightBatch(Map<UUID, Long> upserts, Set<UUID> removals) {
+        if (!upserts.isEmpty()) {
+            delegate.setPlayerFlightTimes(upserts);
+        }
+        if (!removals.isEmpty()) {
+            delegate.removePlayerFlightTimes(removals);
+        }
+    }
+
+    @Override
+    public void setPlayerFlightTimes(Map<UUID, Long> endTimes) {
+        endTimes.forEach(cache::setFlightTime);
+        
+        if (writeThrough) {
+            delegate.setPlayerFlightTimes(endTimes);
+        } else {
+            endTimes.forEach(flightWrites::put);
+        }
+    }
+
+    @Override
+    public void removePlayerFlightTimes(Collection<UUID> uuids) {
+        uuids.forEach(cache::removeFlightTime);
+        
+        if (writeThrough) {
+            delegate.removePlayerFlightTimes(uuids);
+        } else {
+            uuids.forEach(flightWrites::remove);
+        }
+    }
+
+    // ========== 异步访问 ==========
+
+    @Override
+    public StorageExecutor getStorageExecutor() {
+        return delegate.getStorageExecutor();
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = delegate.getQueueDepths();
+        if (flightWrites != null) {
+            depths.put("write-behind", flightWrites.size());
+        }
+        return depths;
+    }
+
+    @Override
+    public CompletableFuture<Long> getPlayerFlightTimeAsync(UUID uuid) {
+        // 缓存命中时立即完成，不占用I/O线程
+        Long cachedTime = cache.lookupFlightTime(uuid);
+        if (cachedTime != null) {
+            return CompletableFuture.completedFuture(cachedTime != FlightDataCache.NO_FLIGHT ? cachedTime : null);
+        }
+        
+        WriteBehindQueue.Pending<Long> pending = pendingFlightWrite(uuid);
+        if (pending != null) {
+            return CompletableFuture.completedFuture(pending.value);
+        }
+        
+        long stamp = cache.stamp(uuid);
+        return delegate.getPlayerFlightTimeAsync(uuid).thenApply(storageTime -> {
+            cacheFlightTime(uuid, storageTime, stamp);
+            return storageTime;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> setPlayerFlightTimeAsync(UUID uuid, long endTime) {
+        if (!writeThrough) {
+            setPlayerFlightTime(uuid, endTime);
+            return CompletableFuture.completedFuture(null);
+        }
+        cache.setFlightTime(uuid, endTime);
+        return delegate.setPlayerFlightTimeAsync(uuid, endTime);
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerFlightTimeAsync(UUID uuid) {
+        if (!writeThrough) {
+            removePlayerFlightTime(uuid);
+            return CompletableFuture.completedFuture(null);
+        }
+        cache.removeFlightTime(uuid);
+        return delegate.removePlayerFlightTimeAsync(uuid);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerEffectsAsync(UUID uuid) {
+        Set<String> cached = cache.getEffects(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long stamp = cache.stamp(uuid);
+        return delegate.getPlayerEffectsAsync(uuid).thenApply(effects -> {
+            cache.fillEffects(uuid, effects, stamp);
+            return effects;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerEffectTimesAsync(UUID uuid) {
+        Map<String, Long> cached = cache.getEffectTimes(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long stamp = cache.stamp(uuid);
+        return delegate.getPlayerEffectTimesAsync(uuid).thenApply(effectTimes -> {
+            cache.fillEffectTimes(uuid, effectTimes, stamp);
+            return effectTimes;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerEffectTimeAsync(UUID uuid, String effectName) {
+        return delegate.removePlayerEffectTimeAsync(uuid, effectName)
+            .whenComplete((ignored, error) -> {
+                if (error == null) {
+                    cache.updateEffectTimes(uuid, effectTimes -> effectTimes.remove(effectName));
+                } else {
+                    cache.invalidate(uuid, DataKind.EFFECT_TIMES);
                 }
             });
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerSpeedsAsync(UUID uuid) {
+        Set<String> cached = cache.getSpeeds(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long stamp = cache.stamp(uuid);
+        return delegate.getPlayerSpeedsAsync(uuid).thenApply(speeds -> {
+            cache.fillSpeeds(uuid, speeds, stamp);
+            return speeds;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerSpeedTimesAsync(UUID uuid) {
+        Map<String, Long> cached = cache.getSpeedTimes(uuid);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        long stamp = cache.stamp(uuid);
+        return delegate.getPlayerSpeedTimesAsync(uuid).thenApply(speedTimes -> {
+            cache.fillSpeedTimes(uuid, speedTimes, stamp);
+            return speedTimes;
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerSpeedTimeAsync(UUID uuid, String speedName) {
+        return delegate.removePlayerSpeedTimeAsync(uuid, speedName)
+            .whenComplete((ignored, error) -> {
+                if (error == null) {
+                    cache.updateSpeedTimes(uuid, speedTimes -> speedTimes.remove(speedName));
+                } else {
+                    cache.invalidate(uuid, DataKind.SPEED_TIMES);
+                }
+            });
+    }
+
+    @Override
+    public CompletableFuture<PlayerData> loadPlayerProfileAsync(UUID uuid) {
+        Set<DataKind> missing = EnumSet.noneOf(DataKind.class);
+        PlayerData cached = cache.getProfile(uuid, missing);
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(cached);
+        }
+        
+        if (cached == null || missing.size() == DataKind.values().length) {
+            // 全部未缓存时用一次聚合查询读取
+            long stamp = cache.stamp(uuid);
+            WriteBehindQueue.Pending<Long> pendingBefore = pendingFlightWrite(uuid);
+            return delegate.loadPlayerProfileAsync(uuid)
+                .thenApply(profile -> fillProfile(uuid, profile, stamp, pendingBefore));
+        }
+        
+        // 部分命中时只读取缺少的类型，各类型的读取各自填充缓存
+        CompletableFuture<Long> flightTime = missing.contains(DataKind.FLIGHT)
+            ? getPlayerFlightTimeAsync(uuid) : CompletableFuture.completedFuture(cached.getFlightEndTime());
+        CompletableFuture<Set<String>> effects = missing.contains(DataKind.EFFECTS)
+            ? getPlayerEffectsAsync(uuid) : CompletableFuture.completedFuture(cached.getPurchasedEffects());
+        CompletableFuture<Set<String>> speeds = missing.contains(DataKind.SPEEDS)
+            ? getPlayerSpeedsAsync(uuid) : CompletableFuture.completedFuture(cached.getPurchasedSpeeds());
+        CompletableFuture<Map<String, Long>> effectTimes = missing.contains(DataKind.EFFECT_TIMES)
+            ? getPlayerEffectTimesAsync(uuid) : CompletableFuture.completedFuture(cached.getEffectTimes());
+        CompletableFuture<Map<String, Long>> speedTimes = missing.contains(DataKind.SPEED_TIMES)
+            ? getPlayerSpeedTimesAsync(uuid) : CompletableFuture.completedFuture(cached.getSpeedTimes());
+        return CompletableFuture.allOf(flightTime, effects, speeds, effectTimes, speedTimes).thenApply(ignored ->
+            new PlayerData(flightTime.join(), effects.join(), speeds.join(), effectTimes.join(), speedTimes.join()));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, PlayerData>> loadPlayerProfilesAsync(Collection<UUID> uuids) {
+        Map<UUID, PlayerData> profiles = new HashMap<>();
+        Set<UUID> toLoad = collectCachedProfiles(uuids, profiles);
+        if (toLoad.isEmpty()) {
+            return CompletableFuture.completedFuture(profiles);
+        }
+        Map<UUID, Long> stamps = stamps(toLoad);
+        Map<UUID, WriteBehindQueue.Pending<Long>> pendingBefore = pendingFlightWrites(toLoad);
+        return delegate.loadPlayerProfilesAsync(toLoad).thenApply(loaded -> {
+            fillProfiles(loaded, stamps, pendingBefore);
+            profiles.putAll(loaded);
+            return profiles;
+        });
+    }
+
+    @Override
+    public PlayerData loadPlayerProfile(UUID uuid) {
+        Set<DataKind> missing = EnumSet.noneOf(DataKind.class);
+        PlayerData cached = cache.getProfile(uuid, missing);
+        if (missing.isEmpty()) {
+            return cached;
+        }
+        
+        if (cached == null || missing.size() == DataKind.values().length) {
+            long stamp = cache.stamp(uuid);
+            WriteBehindQueue.Pending<Long> pendingBefore = pendingFlightWrite(uuid);
+            return fillProfile(uuid, delegate.loadPlayerProfile(uuid), stamp, pendingBefore);
+        }
+        
+        return new PlayerData(
+            missing.contains(DataKind.FLIGHT) ? getPlayerFlightTime(uuid) : cached.getFlightEndTime(),
+            missing.contains(DataKind.EFFECTS) ? getPlayerEffects(uuid) : cached.getPurchasedEffects(),
+            missing.contains(DataKind.SPEEDS) ? getPlayerSpeeds(uuid) : cached.getPurchasedSpeeds(),
+            missing.contains(DataKind.EFFECT_TIMES) ? getPlayerEffectTimes(uuid) : cached.getEffectTimes(),
+            missing.contains(DataKind.SPEED_TIMES) ? getPlayerSpeedTimes(uuid) : cached.getSpeedTimes()
+        );
+    }
+
+    @Override
+    public Map<UUID, PlayerData> loadPlayerProfiles(Collection<UUID> uuids) {
+        Map<UUID, PlayerData> profiles = new HashMap<>();
+        Set<UUID> toLoad = collectCachedProfiles(uuids, profiles);
+        if (!toLoad.isEmpty()) {
+            Map<UUID, Long> stamps = stamps(toLoad);
+            Map<UUID, WriteBehindQueue.Pending<Long>> pendingBefore = pendingFlightWrites(toLoad);
+            Map<UUID, PlayerData> loaded = delegate.loadPlayerProfiles(toLoad);
+            fillProfiles(loaded, stamps, pendingBefore);
+            profiles.putAll(loaded);
+        }
+        return profiles;
+    }
+
+    /**
+     * 把全部数据都已缓存的玩家放入 profiles
+     * @return 仍需从底层存储读取的玩家
+     */
+    private Set<UUID> collectCachedProfiles(Collection<UUID> uuids, Map<UUID, PlayerData> profiles) {
+        Set<UUID> toLoad = new HashSet<>();
+        for (UUID uuid : uuids) {
+            Set<DataKind> missing = EnumSet.noneOf(DataKind.class);
+            PlayerData cached = cache.getProfile(uuid, missing);
+            if (missing.isEmpty()) {
+                profiles.put(uuid, cached);
+            } else {
+                toLoad.add(uuid);
+            }
+        }
+        return toLoad;
+    }
+
+    private Map<UUID, Long> stamps(Collection<UUID> uuids) {
+        Map<UUID, Long> stamps = new HashMap<>();
+        for (UUID uuid : uuids) {
+            stamps.put(uuid, cache.stamp(uuid));
+        }
+        return stamps;
+    }
+
+    /**
+     * 查看多个玩家在写回队列中尚未落盘的飞行时间，只包含有待写入的玩家
+     */
+    private Map<UUID, WriteBehindQueue.Pending<Long>> pendingFlightWrites(Collection<UUID> uuids) {
+        Map<UUID, WriteBehindQueue.Pending<Long>> pending = new HashMap<>();
+        if (flightWrites != null) {
+            for (UUID uuid : uuids) {
+                WriteBehindQueue.Pending<Long> write = flightWrites.peek(uuid);
+                if (write != null) {
+                    pending.put(uuid, write);
+                }
+            }
+        }
+        return pending;
+    }
+
+    /**
+     * 用聚合读取结果填充缓存，写回队列中尚未落盘的飞行时间覆盖读到的值
+     * @param pendingBefore 读取前 {@link #pendingFlightWrite} 的结果
+     */
+    private PlayerData fillProfile(UUID uuid, PlayerData profile, long stamp,
+                                   WriteBehindQueue.Pending<Long> pendingBefore) {
+        withPendingFlight(uuid, profile, pendingBefore);
+        cache.fillProfile(uuid, profile, stamp);
+        return profile;
+    }
+
+    private void fillProfiles(Map<UUID, PlayerData> profiles, Map<UUID, Long> stamps,
+                              Map<UUID, WriteBehindQueue.Pending<Long>> pendingBefore) {
+        profiles.forEach((uuid, profile) -> {
+            Long stamp = stamps.get(uuid);
+            if (stamp != null) {
+                fillProfile(uuid, profile, stamp, pendingBefore.get(uuid));
+            }
+        });
+    }
+
+    // ========== 在线玩家常驻 ==========
+
+    /**
+     * 把玩家设为常驻并加载全部数据，会阻塞，在异步登录事件中调用
+     */
+    public void pinPlayer(UUID uuid) {
+        cache.pin(uuid);
+        PlayerData profile = null;
+        // 填充与其他写入冲突时重新读取
+        for (int attempt = 0; attempt < PIN_FILL_ATTEMPTS; attempt++) {
+            long stamp = cache.stamp(uuid);
+            WriteBehindQueue.Pending<Long> pendingBefore = pendingFlightWrite(uuid);
+            profile = withPendingFlight(uuid, delegate.loadPlayerProfile(uuid), pendingBefore);
+            if (cache.fillProfile(uuid, profile, stamp)) {
+                return;
+            }
+        }
+        // 失效计数由同一分段的所有玩家共享，登录高峰时可能一直冲突；
+        // 只补上仍未缓存的类型，常驻期间的读取不会未命中
+        cache.fillMissing(uuid, profile);
+        plugin.getLogger().warning(String.format(
+            "玩家 %s 的常驻数据连续 %d 次填充与写入冲突，已直接补全未缓存的数据", uuid, PIN_FILL_ATTEMPTS));
+    }
+
+    /**
+     * 取消玩家常驻，数据回到普通缓存
+     */
+    public void releasePlayer(UUID uuid) {
+        cache.unpin(uuid);
+    }
+
+    /**
+     * 重新加载常驻玩家的数据，在这些玩家的缓存失效后调用，避免主线程读取时未命中
+     */
+    void reloadResidents(Collection<UUID> uuids) {
+        Set<UUID> residents = new HashSet<>();
+        for (UUID uuid : uuids) {
+            if (cache.isResident(uuid)) {
+                residents.add(uuid);
+            }
+        }
+        if (!residents.isEmpty()) {
+            loadPlayerProfiles(residents);
         }
     }
 
@@ -118,9 +559,41 @@ public class CachedStorage implements Storage {
     public Map<UUID, Long> getAllPlayerData() {
         // 直接从底层存储获取所有数据
         // 这个操作通常不频繁，不需要缓存
+        if (flightWrites != null) {
+            // 先落盘待写入数据，保证读到最新结果
+            flightWrites.flush();
+        }
         return delegate.getAllPlayerData();
     }
 
+    @Override
+    public void forEachActiveFlight(long now, UuidLongMap.EntryConsumer consumer) {
+        if (flightWrites != null) {
+            flightWrites.flush();
+        }
+        delegate.forEachActiveFlight(now, consumer);
+    }
+
+    @Override
+    public Map<ExpiryKey, Long> pollExpired(long now) {
+        Map<ExpiryKey, Long> expired = delegate.pollExpired(now);
+        // 只移除与被删除记录相同的值，期间重新购买的结果保留
+        expired.forEach((key, endTime) -> {
+            switch (key.getKind()) {
+                case FLIGHT:
+                    cache.expireFlightTime(key.getUuid(), endTime);
+                    break;
+                case EFFECT:
+                    cache.updateEffectTimes(key.getUuid(), effectTimes -> effectTimes.remove(key.getName(), endTime));
+                    break;
+                case SPEED:
+                    cache.updateSpeedTimes(key.getUuid(), speedTimes -> speedTimes.remove(key.getName(), endTime));
+                    break;
+            }
+        });
+        return expired;
+    }
+
     /**
      * 预加载数据到缓存
      */
@@ -128,12 +601,16 @@ public class CachedStorage implements Storage {
         CompletableFuture.runAsync(() -> {
             try {
                 long startTime = System.currentTimeMillis();
-                Map<UUID, Long> allData = delegate.getAllPlayerData();
-                cache.preloadData(allData);
+                // 逐条读取未过期的飞行时间，已过期的记录不会从存储中读出
+                int[] preloadCount = {0};
+                delegate.forEachActiveFlight(startTime, (uuid, endTime) -> {
+                    cache.preloadFlightTime(uuid, endTime);
+                    preloadCount[0]++;
+                });
                 
                 long loadTime = System.currentTimeMillis() - startTime;
                 plugin.getLogger().info(String.format(
-                    "缓存预加载完成，耗时 %dms", loadTime));
+                    "缓存预加载完成，预加载了 %d 条飞行数据，耗时 %dms", preloadCount[0], loadTime));
                     
             } catch (Exception e) {
                 plugin.getLogger().warning("缓存预加载失败: " + e.getMessage());
@@ -148,6 +625,7 @@ public class CachedStorage implements Storage {
         plugin.getLogger().info("正在刷新缓存...");
         cache.clear();
         preloadCache();
+        CompletableFuture.runAsync(() -> reloadResidents(cache.getResidentPlayers()));
     }
 
     /**
@@ -160,8 +638,11 @@ public class CachedStorage implements Storage {
             return;
         }
         
-        plugin.getLogger().info("写回模式下的缓存刷新功能尚未实现");
-        // TODO: 实现写回模式下的缓存刷新逻辑
+        int pending = flightWrites.size();
+        long startTime = System.currentTimeMillis();
+        flightWrites.flush();
+        plugin.getLogger().info(String.format(
+            "写回缓存已刷新，%d 条待写入数据，耗时 %dms", pending, System.currentTimeMillis() - startTime));
     }
 
     /**
@@ -182,8 +663,8 @@ public class CachedStorage implements Storage {
     /**
      * 获取底层存储实例
      */
-    public Storage getDelegate() {
-        return delegate;
+    public AsyncStorage getDelegate() {
+        return backend;
     }
 
     /**
@@ -205,9 +686,10 @@ public class CachedStorage implements Storage {
      */
     public void warmupCache(UUID uuid) {
         if (!cache.contains(uuid)) {
+            long stamp = cache.stamp(uuid);
             Long flightTime = delegate.getPlayerFlightTime(uuid);
-            if (flightTime != null) {
-                cache.setFlightTime(uuid, flightTime);
+            if (flightTime != null && pendingFlightWrite(uuid) == null) {
+                cache.fillFlightTime(uuid, flightTime, stamp);
             }
         }
     }
@@ -218,17 +700,29 @@ public class CachedStorage implements Storage {
     public String getDetailedStatistics() {
         StringBuilder sb = new StringBuilder();
         sb.append("=== 缓存存储统计 ===\n");
-        sb.append("底层存储: ").append(delegate.getClass().getSimpleName()).append("\n");
+        sb.append("底层存储: ").append(backend.getClass().getSimpleName()).append("\n");
         sb.append("写模式: ").append(writeThrough ? "写穿透" : "写回").append("\n");
         sb.append(getCacheStatistics()).append("\n");
+        if (flightWrites != null) {
+            sb.append(flightWrites.getStatistics()).append("\n");
+        }
+        if (changelogPoller != null) {
+            sb.append(changelogPoller.getStatistics()).append("\n");
+        }
         
         // 如果底层存储支持统计信息，也显示出来
-        if (delegate instanceof MySqlStorage) {
-            MySqlStorage mysqlStorage = (MySqlStorage) delegate;
+        if (backend instanceof MySqlStorage) {
+            MySqlStorage mysqlStorage = (MySqlStorage) backend;
             sb.append("MySQL存储: ").append(mysqlStorage.getDatabaseStatistics()).append("\n");
-        } else if (delegate instanceof JsonStorage) {
-            JsonStorage jsonStorage = (JsonStorage) delegate;
+        } else if (backend instanceof SqliteStorage) {
+            SqliteStorage sqliteStorage = (SqliteStorage) backend;
+            sb.append(sqliteStorage.getStatistics()).append("\n");
+        } else if (backend instanceof JsonStorage) {
+            JsonStorage jsonStorage = (JsonStorage) backend;
             sb.append("JSON存储: ").append(jsonStorage.getStatistics()).append("\n");
+        } else if (backend instanceof BinaryStorage) {
+            BinaryStorage binaryStorage = (BinaryStorage) backend;
+            sb.append(binaryStorage.getStatistics()).append("\n");
         }
         
         return sb.toString();
@@ -239,16 +733,25 @@ public class CachedStorage implements Storage {
     @Override
     public void addPlayerEffect(UUID uuid, String effectName) {
         delegate.addPlayerEffect(uuid, effectName);
+        cache.updateEffects(uuid, effects -> effects.add(effectName));
     }
 
     @Override
     public void removePlayerEffect(UUID uuid, String effectName) {
         delegate.removePlayerEffect(uuid, effectName);
+        cache.updateEffects(uuid, effects -> effects.remove(effectName));
     }
 
     @Override
     public Set<String> getPlayerEffects(UUID uuid) {
-        return delegate.getPlayerEffects(uuid);
+        Set<String> cached = cache.getEffects(uuid);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = cache.stamp(uuid);
+        Set<String> effects = delegate.getPlayerEffects(uuid);
+        cache.fillEffects(uuid, effects, stamp);
+        return effects;
     }
 
     @Override
@@ -256,21 +759,36 @@ public class CachedStorage implements Storage {
         return delegate.getAllPlayerEffects();
     }
 
+    @Override
+    public void addPlayerEffects(Collection<UUID> uuids, String effectName) {
+        delegate.addPlayerEffects(uuids, effectName);
+        uuids.forEach(uuid -> cache.updateEffects(uuid, effects -> effects.add(effectName)));
+    }
+
     // ========== 速度购买相关方法 ==========
 
     @Override
     public void addPlayerSpeed(UUID uuid, String speedName) {
         delegate.addPlayerSpeed(uuid, speedName);
+        cache.updateSpeeds(uuid, speeds -> speeds.add(speedName));
     }
 
     @Override
     public void removePlayerSpeed(UUID uuid, String speedName) {
         delegate.removePlayerSpeed(uuid, speedName);
+        cache.updateSpeeds(uuid, speeds -> speeds.remove(speedName));
     }
 
     @Override
     public Set<String> getPlayerSpeeds(UUID uuid) {
-        return delegate.getPlayerSpeeds(uuid);
+        Set<String> cached = cache.getSpeeds(uuid);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = cache.stamp(uuid);
+        Set<String> speeds = delegate.getPlayerSpeeds(uuid);
+        cache.fillSpeeds(uuid, speeds, stamp);
+        return speeds;
     }
 
     @Override
@@ -278,26 +796,42 @@ public class CachedStorage implements Storage {
         return delegate.getAllPlayerSpeeds();
     }
 
+    @Override
+    public void addPlayerSpeeds(Collection<UUID> uuids, String speedName) {
+        delegate.addPlayerSpeeds(uuids, speedName);
+        uuids.forEach(uuid -> cache.updateSpeeds(uuid, speeds -> speeds.add(speedName)));
+    }
+
     // ========== 时间限制特效购买相关方法 ==========
 
     @Override
     public void setPlayerEffectTime(UUID uuid, String effectName, long endTime) {
         delegate.setPlayerEffectTime(uuid, effectName, endTime);
+        cache.updateEffectTimes(uuid, effectTimes -> effectTimes.put(effectName, endTime));
     }
 
     @Override
     public Long getPlayerEffectTime(UUID uuid, String effectName) {
-        return delegate.getPlayerEffectTime(uuid, effectName);
+        // 单个查询也走整张列表的缓存
+        return getPlayerEffectTimes(uuid).get(effectName);
     }
 
     @Override
     public Map<String, Long> getPlayerEffectTimes(UUID uuid) {
-        return delegate.getPlayerEffectTimes(uuid);
+        Map<String, Long> cached = cache.getEffectTimes(uuid);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = cache.stamp(uuid);
+        Map<String, Long> effectTimes = delegate.getPlayerEffectTimes(uuid);
+        cache.fillEffectTimes(uuid, effectTimes, stamp);
+        return effectTimes != null ? effectTimes : new HashMap<>();
     }
 
     @Override
     public void removePlayerEffectTime(UUID uuid, String effectName) {
         delegate.removePlayerEffectTime(uuid, effectName);
+        cache.updateEffectTimes(uuid, effectTimes -> effectTimes.remove(effectName));
     }
 
     @Override
@@ -305,30 +839,52 @@ public class CachedStorage implements Storage {
         return delegate.getAllPlayerEffectTimes();
     }
 
+    @Override
+    public void setPlayerEffectTimes(Collection<UUID> uuids, String effectName, long endTime) {
+        delegate.setPlayerEffectTimes(uuids, effectName, endTime);
+        uuids.forEach(uuid -> cache.updateEffectTimes(uuid, effectTimes -> effectTimes.put(effectName, endTime)));
+    }
+
     // ========== 时间限制速度购买相关方法 ==========
 
     @Override
     public void setPlayerSpeedTime(UUID uuid, String speedName, long endTime) {
         delegate.setPlayerSpeedTime(uuid, speedName, endTime);
+        cache.updateSpeedTimes(uuid, speedTimes -> speedTimes.put(speedName, endTime));
     }
 
     @Override
     public Long getPlayerSpeedTime(UUID uuid, String speedName) {
-        return delegate.getPlayerSpeedTime(uuid, speedName);
+        // 单个查询也走整张列表的缓存
+        return getPlayerSpeedTimes(uuid).get(speedName);
     }
 
     @Override
     public Map<String, Long> getPlayerSpeedTimes(UUID uuid) {
-        return delegate.getPlayerSpeedTimes(uuid);
+        Map<String, Long> cached = cache.getSpeedTimes(uuid);
+        if (cached != null) {
+            return cached;
+        }
+        long stamp = cache.stamp(uuid);
+        Map<String, Long> speedTimes = delegate.getPlayerSpeedTimes(uuid);
+        cache.fillSpeedTimes(uuid, speedTimes, stamp);
+        return speedTimes != null ? speedTimes : new HashMap<>();
     }
 
     @Override
     public void removePlayerSpeedTime(UUID uuid, String speedName) {
         delegate.removePlayerSpeedTime(uuid, speedName);
+        cache.updateSpeedTimes(uuid, speedTimes -> speedTimes.remove(speedName));
     }
 
     @Override
     public Map<UUID, Map<String, Long>> getAllPlayerSpeedTimes() {
         return delegate.getAllPlayerSpeedTimes();
     }
-}
\ No newline at end of file
+
+    @Override
+    public void setPlayerSpeedTimes(Collection<UUID> uuids, String speedName, long endTime) {
+        delegate.setPlayerSpeedTimes(uuids, speedName, endTime);
+        uuids.forEach(uuid -> cache.updateSpeedTimes(uuid, speedTimes -> speedTimes.put(speedName, endTime)));
+    }
+}
@@ -0,0 +1,173 @@
+package org.littlesheep.data;
+
+import org.bukkit.plugin.java.JavaPlugin;
+import org.littlesheep.cache.FlightDataCache;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 变更日志轮询 - 定期读取其他服务器写入的变更，使本服务器缓存中对应玩家的数据失效
+ *
+ * 水位线以下的变更都已处理且已稳定；水位线以上已处理但未稳定的编号记在集合中，
+ * 下次轮询重新读到时跳过，直到它们稳定后水位线越过它们。
+ * 长时间无法读取变更日志时，期间的变更可能已被清理，此时清空整个缓存。
+ * 常驻（在线）玩家的数据失效后立即在轮询线程上重新加载。
+ */
+final class ChangelogPoller {
+    // 每次查询读取的最大变更数
+    private static final int BATCH_SIZE = 1000;
+
+    private final JavaPlugin plugin;
+    private final MySqlStorage storage;
+    private final FlightDataCache cache;
+    private final String serverId;
+    private final long pollIntervalMillis;
+    private final long settleMillis;
+    private final long retentionMillis;
+    private final ScheduledExecutorService executor;
+    private final Consumer<Collection<UUID>> reload; // 重新加载失效的常驻玩家
+
+    // 以下字段只在轮询线程上修改
+    private volatile long watermark;
+    private final Set<Long> appliedUnsettled = new HashSet<>();
+    private long lastSuccess;
+    private long lastPrune;
+    private volatile boolean failing = false;
+
+    // 统计信息
+    private volatile long appliedChanges = 0;
+    private volatile long failedPolls = 0;
+    private volatile int cacheResets = 0;
+
+    ChangelogPoller(JavaPlugin plugin, MySqlStorage storage, FlightDataCache cache,
+                    Consumer<Collection<UUID>> reload) {
+        this.plugin = plugin;
+        this.reload = reload;
+        this.storage = storage;
+        this.cache = cache;
+        this.serverId = storage.getChangelogServerId();
+        this.pollIntervalMillis = Math.max(100L, plugin.getConfig().getLong("cache.coherence.poll-interval-ms", 1000L));
+        this.settleMillis = plugin.getConfig().getLong("cache.coherence.settle-ms", 5000L);
+        this.retentionMillis = storage.getChangelogRetentionMinutes() * 60_000L;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PayToFly-CacheCoherence");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 从当前最新的变更开始轮询
+     */
+    void start() {
+        watermark = storage.getLatestChangeId();
+        lastSuccess = System.currentTimeMillis();
+        lastPrune = lastSuccess;
+        executor.scheduleWithFixedDelay(this::poll, pollIntervalMillis, pollIntervalMillis, TimeUnit.MILLISECONDS);
+        plugin.getLogger().info(String.format(
+            "跨服缓存同步已启用 - 轮询间隔: %dms, 起始变更编号: %d", pollIntervalMillis, watermark));
+    }
+
+    private void poll() {
+        long now = System.currentTimeMillis();
+        try {
+            long after = watermark;
+            boolean settledPrefix = true;
+            Set<UUID> changed = new HashSet<>();
+            List<MySqlChangelog.Change> changes;
+            do {
+                changes = storage.pollChanges(after, settleMillis, BATCH_SIZE);
+                for (MySqlChangelog.Change change : changes) {
+                    if (!appliedUnsettled.contains(change.id) && apply(change)) {
+                        changed.add(change.uuid);
+                    }
+                    // 只有连续已稳定的前缀才能推进水位线
+                    if (settledPrefix && change.settled) {
+                        watermark = change.id;
+                    } else {
+                        settledPrefix = false;
+                        appliedUnsettled.add(change.id);
+                    }
+                    after = change.id;
+                }
+            } while (changes.size() == BATCH_SIZE);
+            appliedUnsettled.removeIf(id -> id <= watermark);
+            if (!changed.isEmpty()) {
+                reload.accept(changed);
+            }
+
+            if (failing && now - lastSuccess > retentionMillis) {
+                // 中断期间的变更可能已被清理，无法逐条失效
+                cache.clear();
+                reload.accept(cache.getResidentPlayers());
+                cacheResets++;
+                plugin.getLogger().warning("变更日志中断时间超过保留时间，已清空缓存");
+            } else if (failing) {
+                plugin.getLogger().info("变更日志轮询已恢复");
+            }
+            failing = false;
+            lastSuccess = now;
+
+            if (now - lastPrune > Math.max(60_000L, retentionMillis / 4)) {
+                lastPrune = now;
+                int pruned = storage.pruneChangelog();
+                if (pruned > 0) {
+                    plugin.getLogger().fine(String.format("清理了 %d 条过期变更日志", pruned));
+                }
+            }
+        } catch (Exception e) {
+            failedPolls++;
+            if (!failing) {
+                failing = true;
+                plugin.getLogger().warning("读取变更日志失败，缓存可能暂时与其他服务器不一致: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return 是否使缓存失效（本服务器写入的变更返回 false）
+     */
+    private boolean apply(MySqlChangelog.Change change) {
+        // 本服务器的写入已经直接更新了缓存
+        if (serverId.equals(change.serverId)) {
+            return false;
+        }
+        if (change.kind == null) {
+            for (FlightDataCache.DataKind kind : FlightDataCache.DataKind.values()) {
+                cache.invalidate(change.uuid, kind);
+            }
+        } else {
+            cache.invalidate(change.uuid, change.kind);
+        }
+        appliedChanges++;
+        return true;
+    }
+
+    void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 获取同步统计信息
+     */
+    String getStatistics() {
+        return String.format("跨服缓存同步: 水位线=%d, 待稳定=%d, 已失效=%d, 轮询失败=%d, 缓存重置=%d%s",
+            watermark, appliedUnsettled.size(), appliedChanges, failedPolls, cacheResets, failing ? " (中断中)" : "");
+    }
+}
@@ -0,0 +1,97 @@
+package org.littlesheep.data;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按到期时间排序的过期索引
+ *
+ * 每个键只保留最新的到期时间，{@link #pollExpired(long)} 只访问已到期的条目，
+ * 清理的开销与过期条目数成正比，而不是与总条目数成正比。线程安全。
+ */
+public final class ExpiryIndex<K> {
+
+    private static final class Node<K> implements Comparable<Node<K>> {
+        final long expiresAt;
+        final long sequence;
+        final K key;
+
+        Node(long expiresAt, long sequence, K key) {
+            this.expiresAt = expiresAt;
+            this.sequence = sequence;
+            this.key = key;
+        }
+
+        @Override
+        public int compareTo(Node<K> other) {
+            int byTime = Long.compare(expiresAt, other.expiresAt);
+            return byTime != 0 ? byTime : Long.compare(sequence, other.sequence);
+        }
+    }
+
+    private final ConcurrentSkipListMap<Node<K>, Boolean> queue = new ConcurrentSkipListMap<>();
+    private final Map<K, Node<K>> current = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong(0);
+
+    /**
+     * 设置（或更新）键的到期时间
+     */
+    public void schedule(K key, long expiresAt) {
+        Node<K> node = new Node<>(expiresAt, sequence.incrementAndGet(), key);
+        current.compute(key, (k, previous) -> {
+            if (previous != null) {
+                queue.remove(previous);
+            }
+            queue.put(node, Boolean.TRUE);
+            return node;
+        });
+    }
+
+    /**
+     * 取消键的到期时间
+     */
+    public void remove(K key) {
+        current.computeIfPresent(key, (k, previous) -> {
+            queue.remove(previous);
+            return null;
+        });
+    }
+
+    /**
+     * 取出所有到期时间不晚于 now 的键，按到期时间先后排列
+     */
+    public List<K> pollExpired(long now) {
+        List<K> expired = new ArrayList<>();
+        Map.Entry<Node<K>, Boolean> first;
+        while ((first = queue.firstEntry()) != null && first.getKey().expiresAt <= now) {
+            Node<K> node = first.getKey();
+            // 期间被重新设置过的键已换成新节点，这里只移除旧节点
+            if (current.remove(node.key, node)) {
+                expired.add(node.key);
+            }
+            queue.remove(node);
+        }
+        return expired;
+    }
+
+    /**
+     * 最早的到期时间，没有条目时返回 Long.MAX_VALUE
+     */
+    public long nextExpiry() {
+        Map.Entry<Node<K>, Boolean> first = queue.firstEntry();
+        return first != null ? first.getKey().expiresAt : Long.MAX_VALUE;
+    }
+
+    public int size() {
+        return current.size();
+    }
+
+    public void clear() {
+        current.clear();
+        queue.clear();
+    }
+}
@@ -0,0 +1,78 @@
+package org.littlesheep.data;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * 会过期的一条存储记录的标识：飞行时间、限时特效或限时速度
+ */
+public final class ExpiryKey {
+
+    /**
+     * 记录类型
+     */
+    public enum Kind {
+        FLIGHT,
+        EFFECT,
+        SPEED
+    }
+
+    private final Kind kind;
+    private final UUID uuid;
+    private final String name;
+
+    private ExpiryKey(Kind kind, UUID uuid, String name) {
+        this.kind = kind;
+        this.uuid = uuid;
+        this.name = name;
+    }
+
+    public static ExpiryKey flight(UUID uuid) {
+        return new ExpiryKey(Kind.FLIGHT, uuid, null);
+    }
+
+    public static ExpiryKey effect(UUID uuid, String effectName) {
+        return new ExpiryKey(Kind.EFFECT, uuid, effectName);
+    }
+
+    public static ExpiryKey speed(UUID uuid, String speedName) {
+        return new ExpiryKey(Kind.SPEED, uuid, speedName);
+    }
+
+    public Kind getKind() {
+        return kind;
+    }
+
+    public UUID getUuid() {
+        return uuid;
+    }
+
+    /**
+     * 特效/速度名称，飞行时间记录为 null
+     */
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ExpiryKey)) {
+            return false;
+        }
+        ExpiryKey other = (ExpiryKey) o;
+        return kind == other.kind && uuid.equals(other.uuid) && Objects.equals(name, other.name);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(kind, uuid, name);
+    }
+
+    @Override
+    public String toString() {
+        return name == null ? kind + ":" + uuid : kind + ":" + uuid + ":" + name;
+    }
+}
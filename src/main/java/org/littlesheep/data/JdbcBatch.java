@@ -0,0 +1,50 @@
+package org.littlesheep.data;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * JDBC 批量写入工具 - 用批处理分块执行同一条语句
+ */
+final class JdbcBatch {
+    // 每次 executeBatch 提交的最大行数，避免单个批次占用过多内存
+    static final int CHUNK_SIZE = 1000;
+
+    /**
+     * 将一行数据绑定到语句参数
+     */
+    @FunctionalInterface
+    interface Binder<T> {
+        void bind(PreparedStatement stmt, T row) throws SQLException;
+    }
+
+    private JdbcBatch() {
+    }
+
+    /**
+     * 在已有语句上分块批量执行，不管理事务，由调用方负责提交。
+     * 失败时清空语句上已加入的行，缓存复用的语句不会在下次执行时重放这些行
+     */
+    static <T> void addAll(PreparedStatement stmt, Collection<T> rows, Binder<T> binder) throws SQLException {
+        int pending = 0;
+        try {
+            for (T row : rows) {
+                binder.bind(stmt, row);
+                stmt.addBatch();
+                if (++pending == CHUNK_SIZE) {
+                    stmt.executeBatch();
+                    pending = 0;
+                }
+            }
+            if (pending > 0) {
+                stmt.executeBatch();
+            }
+        } catch (SQLException | RuntimeException e) {
+            try {
+                stmt.clearBatch();
+            } catch (SQLException ignored) {}
+            throw e;
+        }
+    }
+}
@@ -12,12 +12,16 @@ public class JsonDataContainer {
     private Map<UUID, Long> flightData;
     private Map<UUID, Set<String>> effectData;
     private Map<UUID, Set<String>> speedData;
-    private int version = 1; // 数据格式版本号，用于将来的升级
+    private Map<UUID, Map<String, Long>> effectTimeData;
+    private Map<UUID, Map<String, Long>> speedTimeData;
+    private int version = 2; // 数据格式版本号，2 起包含时间限制购买记录
     
     public JsonDataContainer() {
         this.flightData = new HashMap<>();
         this.effectData = new HashMap<>();
         this.speedData = new HashMap<>();
+        this.effectTimeData = new HashMap<>();
+        this.speedTimeData = new HashMap<>();
     }
     
     public JsonDataContainer(Map<UUID, Long> flightData, 
@@ -26,6 +30,18 @@ public class JsonDataContainer {
         this.flightData = flightData != null ? new HashMap<>(flightData) : new HashMap<>();
         this.effectData = effectData != null ? new HashMap<>(effectData) : new HashMap<>();
         this.speedData = speedData != null ? new HashMap<>(speedData) : new HashMap<>();
+        this.effectTimeData = new HashMap<>();
+        this.speedTimeData = new HashMap<>();
+    }
+    
+    public JsonDataContainer(Map<UUID, Long> flightData, 
+                           Map<UUID, Set<String>> effectData, 
+                           Map<UUID, Set<String>> speedData,
+                           Map<UUID, Map<String, Long>> effectTimeData,
+                           Map<UUID, Map<String, Long>> speedTimeData) {
+        this(flightData, effectData, speedData);
+        this.effectTimeData = effectTimeData != null ? new HashMap<>(effectTimeData) : new HashMap<>();
+        this.speedTimeData = speedTimeData != null ? new HashMap<>(speedTimeData) : new HashMap<>();
     }
     
     // Getters and Setters
@@ -53,6 +69,22 @@ public class JsonDataContainer {
         this.speedData = speedData;
     }
     
+    public Map<UUID, Map<String, Long>> getEffectTimeData() {
+        return effectTimeData;
+    }
+    
+    public void setEffectTimeData(Map<UUID, Map<String, Long>> effectTimeData) {
+        this.effectTimeData = effectTimeData;
+    }
+    
+    public Map<UUID, Map<String, Long>> getSpeedTimeData() {
+        return speedTimeData;
+    }
+    
+    public void setSpeedTimeData(Map<UUID, Map<String, Long>> speedTimeData) {
+        this.speedTimeData = speedTimeData;
+    }
+    
     public int getVersion() {
         return version;
     }
@@ -74,6 +106,8 @@ public class JsonDataContainer {
     public boolean isEmpty() {
         return (flightData == null || flightData.isEmpty()) &&
                (effectData == null || effectData.isEmpty()) &&
-               (speedData == null || speedData.isEmpty());
+               (speedData == null || speedData.isEmpty()) &&
+               (effectTimeData == null || effectTimeData.isEmpty()) &&
+               (speedTimeData == null || speedTimeData.isEmpty());
     }
 }
\ No newline at end of file
@@ -0,0 +1,240 @@
+package org.littlesheep.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * JSON 存储的追加日志 - 每次修改只追加一行记录，不再重写整个数据文件
+ *
+ * 记录在持有 JsonStorage 写锁时按修改顺序入队，由存储的后台线程批量写入文件。
+ * 每条记录都是修改后的绝对值（设置/删除），重复回放结果相同。
+ * 日志超过阈值时由 JsonStorage 压缩：先把日志轮换为 .compacting 文件，
+ * 再写出完整快照，快照落盘后删除 .compacting 文件。
+ */
+final class JsonJournal {
+
+    // 记录类型
+    static final String SET_FLIGHT = "F";
+    static final String REMOVE_FLIGHT = "-F";
+    static final String ADD_EFFECT = "E";
+    static final String REMOVE_EFFECT = "-E";
+    static final String ADD_SPEED = "S";
+    static final String REMOVE_SPEED = "-S";
+    static final String SET_EFFECT_TIME = "ET";
+    static final String REMOVE_EFFECT_TIME = "-ET";
+    static final String SET_SPEED_TIME = "ST";
+    static final String REMOVE_SPEED_TIME = "-ST";
+
+    /**
+     * 一条日志记录，字段名保持简短以减小日志体积
+     */
+    static final class Record {
+        String op;
+        UUID u;
+        String n;
+        Long t;
+
+        Record() {
+        }
+
+        Record(String op, UUID uuid, String name, Long time) {
+            this.op = op;
+            this.u = uuid;
+            this.n = name;
+            this.t = time;
+        }
+    }
+
+    private final JavaPlugin plugin;
+    private final File journalFile;
+    private final File compactingFile;
+    private final Gson gson = new Gson();
+    private final Queue<Record> pending = new ConcurrentLinkedQueue<>();
+    private Writer writer;
+
+    // 统计信息
+    private final AtomicLong appendedRecords = new AtomicLong(0);
+    private volatile long journalBytes = 0;
+    private volatile int compactions = 0;
+
+    JsonJournal(JavaPlugin plugin, File dataFile) {
+        this.plugin = plugin;
+        this.journalFile = new File(dataFile.getParentFile(), dataFile.getName() + ".journal");
+        this.compactingFile = new File(dataFile.getParentFile(), dataFile.getName() + ".journal.compacting");
+    }
+
+    /**
+     * 回放上次未完成压缩的日志和当前日志
+     * @return 成功回放的记录数
+     */
+    int replay(Consumer<Record> applier) {
+        int applied = 0;
+        if (compactingFile.exists()) {
+            applied += replayFile(compactingFile, applier);
+        }
+        if (journalFile.exists()) {
+            applied += replayFile(journalFile, applier);
+        }
+        return applied;
+    }
+
+    private int replayFile(File file, Consumer<Record> applier) {
+        int applied = 0;
+        int skipped = 0;
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                try {
+                    Record record = gson.fromJson(line, Record.class);
+                    if (record == null || record.op == null || record.u == null) {
+                        skipped++;
+                        continue;
+                    }
+                    applier.accept(record);
+                    applied++;
+                } catch (JsonParseException | IllegalArgumentException e) {
+                    // 崩溃时最后一行可能只写了一半
+                    skipped++;
+                }
+            }
+        } catch (IOException e) {
+            plugin.getLogger().severe("读取日志文件失败: " + file.getName() + " - " + e.getMessage());
+        }
+
+        if (skipped > 0) {
+            plugin.getLogger().warning(String.format("日志文件 %s 中有 %d 条记录无法解析，已跳过", file.getName(), skipped));
+        }
+        return applied;
+    }
+
+    /**
+     * 打开日志文件用于追加
+     */
+    synchronized void open() throws IOException {
+        writer = new BufferedWriter(new OutputStreamWriter(
+            new FileOutputStream(journalFile, true), StandardCharsets.UTF_8));
+        journalBytes = journalFile.length();
+    }
+
+    /**
+     * 记录一次修改，调用方需持有 JsonStorage 写锁以保证顺序
+     */
+    void append(String op, UUID uuid, String name, Long time) {
+        pending.add(new Record(op, uuid, name, time));
+    }
+
+    /**
+     * 把排队的记录写入日志文件
+     */
+    synchronized void flush() throws IOException {
+        if (writer == null || pending.isEmpty()) {
+            return;
+        }
+        Record record;
+        while ((record = pending.poll()) != null) {
+            String line = gson.toJson(record);
+            writer.write(line);
+            writer.write('\n');
+            journalBytes += line.length() + 1;
+            appendedRecords.incrementAndGet();
+        }
+        writer.flush();
+    }
+
+    long getSize() {
+        return journalBytes;
+    }
+
+    /**
+     * 把当前日志轮换为 .compacting 文件并打开新日志，调用方需持有写锁
+     */
+    synchronized void rotate() throws IOException {
+        flush();
+        closeWriter();
+        if (compactingFile.exists()) {
+            // 上次压缩未完成，把两段日志合并，保持回放顺序
+            appendTo(journalFile, compactingFile);
+            Files.deleteIfExists(journalFile.toPath());
+        } else if (journalFile.exists()) {
+            Files.move(journalFile.toPath(), compactingFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        open();
+    }
+
+    /**
+     * 快照写入成功后删除已轮换的日志
+     */
+    void finishCompaction() {
+        try {
+            Files.deleteIfExists(compactingFile.toPath());
+            compactions++;
+        } catch (IOException e) {
+            plugin.getLogger().warning("删除已压缩日志失败: " + e.getMessage());
+        }
+    }
+
+    synchronized void close() {
+        try {
+            flush();
+        } catch (IOException e) {
+            plugin.getLogger().severe("写入日志失败: " + e.getMessage());
+        }
+        closeWriter();
+    }
+
+    private void closeWriter() {
+        if (writer != null) {
+            try {
+                writer.close();
+            } catch (IOException ignored) {}
+            writer = null;
+        }
+    }
+
+    private static void appendTo(File source, File target) throws IOException {
+        if (!source.exists()) {
+            return;
+        }
+        try (FileOutputStream out = new FileOutputStream(target, true)) {
+            Files.copy(source.toPath(), out);
+        }
+    }
+
+    /**
+     * 尚未写入日志文件的记录数
+     */
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * 获取日志统计信息
+     */
+    String getStatistics() {
+        return String.format("日志大小=%dKB, 待写入=%d, 已追加=%d, 压缩次数=%d",
+            journalBytes / 1024, pending.size(), appendedRecords.get(), compactions);
+    }
+}
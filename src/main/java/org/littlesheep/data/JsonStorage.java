@@ -2,18 +2,18 @@ package org.littlesheep.data;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.*;
-import java.lang.reflect.Type;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -25,14 +25,14 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
 /**
  * 优化的JSON存储实现，使用批量写入和缓存机制
  */
-public class JsonStorage implements Storage {
+public class JsonStorage implements AsyncStorage {
     private final JavaPlugin plugin;
     private final File dataFile;
     private final File backupFile;
     private final Gson gson;
     
     // 数据存储
-    private final Map<UUID, Long> data = new ConcurrentHashMap<>();
+    private final UuidLongMap data = new UuidLongMap();
     private final Map<UUID, Set<String>> playerEffects = new ConcurrentHashMap<>();
     private final Map<UUID, Set<String>> playerSpeeds = new ConcurrentHashMap<>();
     private final Map<UUID, Map<String, Long>> playerEffectTimes = new ConcurrentHashMap<>();
@@ -52,11 +52,22 @@ public class JsonStorage implements Storage {
     private final AtomicBoolean isSaving = new AtomicBoolean(false);
     private final ReadWriteLock dataLock = new ReentrantReadWriteLock();
     
+    // 数据全部在内存中，异步读取直接返回已完成的结果，执行器仅用于主线程回调
+    private final StorageExecutor storageExecutor;
+    
     // 配置参数
     private final int saveIntervalSeconds;
     private final boolean enableBackup;
     private final int maxBackups;
     
+    // 日志模式：修改追加到日志文件，日志超过阈值时压缩为快照
+    private final JsonJournal journal;
+    private final long compactThresholdBytes;
+    private final long journalFlushIntervalMs;
+    
+    // 按到期时间排序的飞行时间和限时特效/速度，清理时只访问已过期的记录
+    private final ExpiryIndex<ExpiryKey> expiryIndex = new ExpiryIndex<>();
+    
     // 统计信息
     private volatile long lastSaveTime = 0;
     private volatile int saveCount = 0;
@@ -75,6 +86,12 @@ public class JsonStorage implements Storage {
         this.saveIntervalSeconds = plugin.getConfig().getInt("storage.json.save-interval", 30);
         this.enableBackup = plugin.getConfig().getBoolean("storage.json.enable-backup", true);
         this.maxBackups = plugin.getConfig().getInt("storage.json.max-backups", 5);
+        this.storageExecutor = new StorageExecutor(plugin, "Json", 1);
+        
+        this.journal = plugin.getConfig().getBoolean("storage.json.journal.enabled", false)
+            ? new JsonJournal(plugin, dataFile) : null;
+        this.compactThresholdBytes = plugin.getConfig().getLong("storage.json.journal.compact-threshold-kb", 4096) * 1024L;
+        this.journalFlushIntervalMs = Math.max(10L, plugin.getConfig().getLong("storage.json.journal.flush-interval-ms", 200));
     }
 
     @Override
@@ -90,9 +107,31 @@ public class JsonStorage implements Storage {
             // 加载现有数据
             loadData();
             
-            // 启动定期保存任务
-            scheduler.scheduleAtFixedRate(this::saveDataIfNeeded, 
-                saveIntervalSeconds, saveIntervalSeconds, TimeUnit.SECONDS);
+            if (journal != null) {
+                // 在快照基础上回放日志，回放过的记录立即压缩进新快照
+                int replayed = journal.replay(this::applyRecord);
+                journal.open();
+                if (replayed > 0) {
+                    plugin.getLogger().info(String.format("已从日志回放 %d 条修改记录", replayed));
+                    needsSave.set(true);
+                }
+            }
+            
+            // 建立过期索引并清理过期数据
+            rebuildExpiryIndex();
+            cleanExpiredData();
+            
+            if (journal != null) {
+                if (needsSave.get()) {
+                    compactJournal();
+                }
+                scheduler.scheduleWithFixedDelay(this::flushJournal,
+                    journalFlushIntervalMs, journalFlushIntervalMs, TimeUnit.MILLISECONDS);
+            } else {
+                // 启动定期保存任务
+                scheduler.scheduleAtFixedRate(this::saveDataIfNeeded, 
+                    saveIntervalSeconds, saveIntervalSeconds, TimeUnit.SECONDS);
+            }
             
             // 添加JVM关闭钩子确保数据保存
             Runtime.getRuntime().addShutdownHook(new Thread(() -> {
@@ -102,8 +141,12 @@ public class JsonStorage implements Storage {
             }));
             
             plugin.getLogger().info(String.format(
-                "JSON存储已初始化 - 数据文件: %s, 自动保存间隔: %d秒, 备份: %s", 
-                dataFile.getName(), saveIntervalSeconds, enableBackup ? "启用" : "禁用"));
+                "JSON存储已初始化 - 数据文件: %s, %s, 备份: %s", 
+                dataFile.getName(),
+                journal != null
+                    ? String.format("日志模式, 压缩阈值: %dKB", compactThresholdBytes / 1024)
+                    : String.format("自动保存间隔: %d秒", saveIntervalSeconds),
+                enableBackup ? "启用" : "禁用"));
                 
         } catch (Exception e) {
             plugin.getLogger().severe("JSON存储初始化失败: " + e.getMessage());
@@ -129,8 +172,13 @@ public class JsonStorage implements Storage {
             scheduler.shutdownNow();
         }
         
+        storageExecutor.shutdown();
+        
         // 强制保存数据
         forceSave();
+        if (journal != null) {
+            journal.close();
+        }
         
         plugin.getLogger().info(String.format(
             "JSON存储已关闭 - 总保存次数: %d, 写操作数: %d", 
@@ -142,6 +190,7 @@ public class JsonStorage implements Storage {
         dataLock.writeLock().lock();
         try {
             data.put(uuid, endTime);
+            recordChange(JsonJournal.SET_FLIGHT, uuid, null, endTime);
             needsSave.set(true);
             writeOperations++;
         } finally {
@@ -159,11 +208,25 @@ public class JsonStorage implements Storage {
         }
     }
 
+    @Override
+    public void forEachActiveFlight(long now, UuidLongMap.EntryConsumer consumer) {
+        dataLock.readLock().lock();
+        try {
+            data.forEach((uuid, endTime) -> {
+                if (endTime > now) {
+                    consumer.accept(uuid, endTime);
+                }
+            });
+        } finally {
+            dataLock.readLock().unlock();
+        }
+    }
+
     @Override
     public Map<UUID, Long> getAllPlayerData() {
         dataLock.readLock().lock();
         try {
-            return new HashMap<>(data);
+            return data.toMap();
         } finally {
             dataLock.readLock().unlock();
         }
@@ -173,7 +236,8 @@ public class JsonStorage implements Storage {
     public void removePlayerFlightTime(UUID uuid) {
         dataLock.writeLock().lock();
         try {
-            if (data.remove(uuid) != null) {
+            if (data.remove(uuid)) {
+                recordChange(JsonJournal.REMOVE_FLIGHT, uuid, null, null);
                 needsSave.set(true);
                 writeOperations++;
             }
@@ -182,8 +246,139 @@ public class JsonStorage implements Storage {
         }
     }
 
+    @Override
+    public void setPlayerFlightTimes(Map<UUID, Long> endTimes) {
+        if (endTimes.isEmpty()) {
+            return;
+        }
+        dataLock.writeLock().lock();
+        try {
+            data.putAll(endTimes);
+            for (Map.Entry<UUID, Long> entry : endTimes.entrySet()) {
+                recordChange(JsonJournal.SET_FLIGHT, entry.getKey(), null, entry.getValue());
+            }
+            needsSave.set(true);
+            writeOperations += endTimes.size();
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removePlayerFlightTimes(Collection<UUID> uuids) {
+        dataLock.writeLock().lock();
+        try {
+            for (UUID uuid : uuids) {
+                if (data.remove(uuid)) {
+                    recordChange(JsonJournal.REMOVE_FLIGHT, uuid, null, null);
+                    needsSave.set(true);
+                    writeOperations++;
+                }
+            }
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
+    // ============= 异步访问（内存数据，立即完成） =============
+
+    @Override
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
+    @Override
+    public CompletableFuture<Long> getPlayerFlightTimeAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerFlightTime(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setPlayerFlightTimeAsync(UUID uuid, long endTime) {
+        setPlayerFlightTime(uuid, endTime);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerFlightTimeAsync(UUID uuid) {
+        removePlayerFlightTime(uuid);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerEffectsAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerEffects(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerEffectTimesAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerEffectTimes(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerEffectTimeAsync(UUID uuid, String effectName) {
+        removePlayerEffectTime(uuid, effectName);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerSpeedsAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerSpeeds(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerSpeedTimesAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(getPlayerSpeedTimes(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerSpeedTimeAsync(UUID uuid, String speedName) {
+        removePlayerSpeedTime(uuid, speedName);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Override
+    public CompletableFuture<PlayerData> loadPlayerProfileAsync(UUID uuid) {
+        return CompletableFuture.completedFuture(loadPlayerProfile(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, PlayerData>> loadPlayerProfilesAsync(Collection<UUID> uuids) {
+        return CompletableFuture.completedFuture(loadPlayerProfiles(uuids));
+    }
+
+    @Override
+    public PlayerData loadPlayerProfile(UUID uuid) {
+        // 在同一读锁内读取，保证五类数据来自同一时刻
+        dataLock.readLock().lock();
+        try {
+            return new PlayerData(
+                data.get(uuid),
+                getPlayerEffects(uuid),
+                getPlayerSpeeds(uuid),
+                getPlayerEffectTimes(uuid),
+                getPlayerSpeedTimes(uuid)
+            );
+        } finally {
+            dataLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Map<UUID, PlayerData> loadPlayerProfiles(Collection<UUID> uuids) {
+        dataLock.readLock().lock();
+        try {
+            Map<UUID, PlayerData> profiles = new HashMap<>();
+            for (UUID uuid : uuids) {
+                profiles.put(uuid, loadPlayerProfile(uuid));
+            }
+            return profiles;
+        } finally {
+            dataLock.readLock().unlock();
+        }
+    }
+
     /**
-     * 加载JSON数据
+     * 加载JSON数据 - 流式读取，校验与解析一次完成，主文件损坏时改用备份
      */
     private void loadData() {
         if (!dataFile.exists()) {
@@ -191,127 +386,146 @@ public class JsonStorage implements Storage {
             return;
         }
         
+        long start = System.nanoTime();
+        JsonStreamLoader.Result result;
         try {
-            // 检查文件是否损坏
-            if (!isFileValid(dataFile)) {
-                plugin.getLogger().warning("主数据文件损坏，尝试加载备份文件");
-                if (backupFile.exists() && isFileValid(backupFile)) {
-                    Files.copy(backupFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    plugin.getLogger().info("已从备份文件恢复数据");
-                } else {
-                    plugin.getLogger().severe("主文件和备份文件都损坏，将创建新的数据文件");
-                    return;
-                }
+            result = JsonStreamLoader.load(dataFile);
+        } catch (IOException e) {
+            plugin.getLogger().warning("主数据文件损坏: " + e.getMessage() + "，尝试加载备份文件");
+            if (!backupFile.exists()) {
+                plugin.getLogger().severe("没有可用的备份文件，将创建新的数据文件");
+                return;
             }
-            
-            // 加载数据 - 支持新旧格式
-            try (Reader reader = new BufferedReader(new FileReader(dataFile))) {
-                // 先尝试加载新格式
-                JsonDataContainer containerData = null;
-                try {
-                    containerData = gson.fromJson(reader, JsonDataContainer.class);
-                } catch (Exception e) {
-                    plugin.getLogger().info("检测到旧格式数据文件，正在转换...");
-                }
-                
-                dataLock.writeLock().lock();
-                try {
-                    if (containerData != null && containerData.isNewFormat()) {
-                        // 新格式数据
-                        data.clear();
-                        playerEffects.clear();
-                        playerSpeeds.clear();
-                        
-                        if (containerData.getFlightData() != null) {
-                            data.putAll(containerData.getFlightData());
-                        }
-                        if (containerData.getEffectData() != null) {
-                            for (Map.Entry<UUID, Set<String>> entry : containerData.getEffectData().entrySet()) {
-                                playerEffects.put(entry.getKey(), ConcurrentHashMap.newKeySet());
-                                playerEffects.get(entry.getKey()).addAll(entry.getValue());
-                            }
-                        }
-                        if (containerData.getSpeedData() != null) {
-                            for (Map.Entry<UUID, Set<String>> entry : containerData.getSpeedData().entrySet()) {
-                                playerSpeeds.put(entry.getKey(), ConcurrentHashMap.newKeySet());
-                                playerSpeeds.get(entry.getKey()).addAll(entry.getValue());
-                            }
-                        }
-                        
-                        plugin.getLogger().info(String.format("成功加载新格式数据: %d 条飞行记录, %d 条特效记录, %d 条速度记录", 
-                            data.size(), playerEffects.size(), playerSpeeds.size()));
-                    } else {
-                        // 尝试加载旧格式
-                        try (Reader oldReader = new BufferedReader(new FileReader(dataFile))) {
-                            Type type = new TypeToken<Map<UUID, Long>>(){}.getType();
-                            Map<UUID, Long> loadedData = gson.fromJson(oldReader, type);
-                            
-                            if (loadedData != null) {
-                                data.clear();
-                                data.putAll(loadedData);
-                                
-                                plugin.getLogger().info(String.format("成功加载旧格式数据 %d 条玩家记录，将在下次保存时升级格式", data.size()));
-                                needsSave.set(true); // 标记需要保存以升级格式
-                            } else {
-                                plugin.getLogger().warning("数据文件为空或格式不正确");
-                            }
-                        }
-                    }
-                } finally {
-                    dataLock.writeLock().unlock();
-                }
-                
-                // 清理过期数据
-                cleanExpiredData();
+            try {
+                result = JsonStreamLoader.load(backupFile);
+                Files.copy(backupFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                plugin.getLogger().info("已从备份文件恢复数据");
+            } catch (IOException backupError) {
+                plugin.getLogger().severe("主文件和备份文件都损坏，将创建新的数据文件: " + backupError.getMessage());
+                return;
             }
-        } catch (Exception e) {
-            plugin.getLogger().severe("加载数据失败: " + e.getMessage());
-            // 尝试加载备份
-            if (backupFile.exists()) {
-                try {
-                    Files.copy(backupFile.toPath(), dataFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
-                    loadData(); // 递归重试
-                } catch (IOException backupError) {
-                    plugin.getLogger().severe("备份恢复也失败: " + backupError.getMessage());
-                }
+        }
+        
+        dataLock.writeLock().lock();
+        try {
+            data.clear();
+            playerEffects.clear();
+            playerSpeeds.clear();
+            playerEffectTimes.clear();
+            playerSpeedTimes.clear();
+            
+            data.putAll(result.flightData);
+            playerEffects.putAll(result.effectData);
+            playerSpeeds.putAll(result.speedData);
+            playerEffectTimes.putAll(result.effectTimeData);
+            playerSpeedTimes.putAll(result.speedTimeData);
+            
+            if (result.legacyFormat) {
+                needsSave.set(true); // 标记需要保存以升级格式
             }
+        } finally {
+            dataLock.writeLock().unlock();
         }
+        
+        double elapsedMs = Math.max((System.nanoTime() - start) / 1_000_000.0, 0.001);
+        plugin.getLogger().info(String.format(
+            "成功加载%s数据: %d 条飞行记录, %d 条特效记录, %d 条速度记录 (%.1fKB, 耗时 %.1fms, %.1fMB/s, %.0f 条/秒)%s",
+            result.legacyFormat ? "旧格式" : "新格式",
+            data.size(), playerEffects.size(), playerSpeeds.size(),
+            result.bytes / 1024.0, elapsedMs,
+            result.bytes / 1024.0 / 1024.0 / (elapsedMs / 1000.0),
+            result.records / (elapsedMs / 1000.0),
+            result.legacyFormat ? "，将在下次保存时升级格式" : ""));
     }
 
     /**
-     * 检查文件是否有效
+     * 清理过期数据
      */
-    private boolean isFileValid(File file) {
-        try (Reader reader = new FileReader(file)) {
-            gson.fromJson(reader, Object.class);
-            return true;
-        } catch (Exception e) {
-            return false;
+    private void cleanExpiredData() {
+        int removedCount = pollExpired(System.currentTimeMillis()).size();
+        if (removedCount > 0) {
+            plugin.getLogger().info(String.format("清理了 %d 条过期数据", removedCount));
         }
     }
 
-    /**
-     * 清理过期数据
-     */
-    private void cleanExpiredData() {
-        long now = System.currentTimeMillis();
-        int removedCount = 0;
-        
+    @Override
+    public Map<ExpiryKey, Long> pollExpired(long now) {
+        Map<ExpiryKey, Long> expired = new HashMap<>();
         dataLock.writeLock().lock();
         try {
-            removedCount = data.entrySet().removeIf(entry -> entry.getValue() < now) ? 1 : 0;
-            if (removedCount > 0) {
+            for (ExpiryKey key : expiryIndex.pollExpired(now)) {
+                UUID uuid = key.getUuid();
+                Long endTime;
+                switch (key.getKind()) {
+                    case FLIGHT:
+                        endTime = data.get(uuid);
+                        if (endTime != null && endTime <= now) {
+                            data.remove(uuid);
+                            recordChange(JsonJournal.REMOVE_FLIGHT, uuid, null, null);
+                            expired.put(key, endTime);
+                        }
+                        break;
+                    case EFFECT:
+                        endTime = getTime(playerEffectTimes, uuid, key.getName());
+                        if (endTime != null && endTime <= now) {
+                            removeFromMap(playerEffectTimes, uuid, key.getName());
+                            recordChange(JsonJournal.REMOVE_EFFECT_TIME, uuid, key.getName(), null);
+                            expired.put(key, endTime);
+                        }
+                        break;
+                    case SPEED:
+                        endTime = getTime(playerSpeedTimes, uuid, key.getName());
+                        if (endTime != null && endTime <= now) {
+                            removeFromMap(playerSpeedTimes, uuid, key.getName());
+                            recordChange(JsonJournal.REMOVE_SPEED_TIME, uuid, key.getName(), null);
+                            expired.put(key, endTime);
+                        }
+                        break;
+                }
+            }
+            if (!expired.isEmpty()) {
                 needsSave.set(true);
+                writeOperations += expired.size();
             }
         } finally {
             dataLock.writeLock().unlock();
         }
-        
-        if (removedCount > 0) {
-            plugin.getLogger().info(String.format("清理了 %d 条过期数据", removedCount));
+        return expired;
+    }
+
+    @Override
+    public CompletableFuture<Map<ExpiryKey, Long>> pollExpiredAsync(long now) {
+        return CompletableFuture.completedFuture(pollExpired(now));
+    }
+
+    /**
+     * 按加载后的数据重建过期索引
+     */
+    private void rebuildExpiryIndex() {
+        dataLock.readLock().lock();
+        try {
+            expiryIndex.clear();
+            data.forEach((uuid, endTime) -> expiryIndex.schedule(ExpiryKey.flight(uuid), endTime));
+            for (Map.Entry<UUID, Map<String, Long>> entry : playerEffectTimes.entrySet()) {
+                for (Map.Entry<String, Long> time : entry.getValue().entrySet()) {
+                    expiryIndex.schedule(ExpiryKey.effect(entry.getKey(), time.getKey()), time.getValue());
+                }
+            }
+            for (Map.Entry<UUID, Map<String, Long>> entry : playerSpeedTimes.entrySet()) {
+                for (Map.Entry<String, Long> time : entry.getValue().entrySet()) {
+                    expiryIndex.schedule(ExpiryKey.speed(entry.getKey(), time.getKey()), time.getValue());
+                }
+            }
+        } finally {
+            dataLock.readLock().unlock();
         }
     }
 
+    private static Long getTime(Map<UUID, Map<String, Long>> map, UUID uuid, String name) {
+        Map<String, Long> times = map.get(uuid);
+        return times != null ? times.get(name) : null;
+    }
+
     /**
      * 如果需要则保存数据
      */
@@ -343,6 +557,12 @@ public class JsonStorage implements Storage {
      * 强制同步保存
      */
     public void forceSave() {
+        if (journal != null) {
+            if (needsSave.get()) {
+                compactJournal();
+            }
+            return;
+        }
         if (needsSave.get() || isSaving.get()) {
             // 等待当前保存完成
             while (isSaving.get()) {
@@ -370,6 +590,33 @@ public class JsonStorage implements Storage {
      * 保存数据到文件
      */
     private void saveDataToFile() throws IOException {
+        JsonDataContainer dataToSave;
+        dataLock.readLock().lock();
+        try {
+            dataToSave = createSnapshot();
+        } finally {
+            dataLock.readLock().unlock();
+        }
+        writeSnapshot(dataToSave);
+    }
+
+    /**
+     * 复制当前全部数据，调用方需持有读锁或写锁
+     */
+    private JsonDataContainer createSnapshot() {
+        return new JsonDataContainer(
+            data.toMap(),
+            getAllPlayerEffects(),
+            getAllPlayerSpeeds(),
+            getAllPlayerEffectTimes(),
+            getAllPlayerSpeedTimes()
+        );
+    }
+
+    /**
+     * 把快照写入数据文件
+     */
+    private void writeSnapshot(JsonDataContainer dataToSave) throws IOException {
         // 创建备份
         if (enableBackup && dataFile.exists()) {
             try {
@@ -382,19 +629,6 @@ public class JsonStorage implements Storage {
         // 使用临时文件避免写入过程中的数据损坏
         File tempFile = new File(dataFile.getParentFile(), dataFile.getName() + ".tmp");
         
-        JsonDataContainer dataToSave;
-        dataLock.readLock().lock();
-        try {
-            // 创建包含所有数据的容器
-            dataToSave = new JsonDataContainer(
-                new HashMap<>(data),
-                getAllPlayerEffects(),
-                getAllPlayerSpeeds()
-            );
-        } finally {
-            dataLock.readLock().unlock();
-        }
-        
         // 写入临时文件
         try (Writer writer = new BufferedWriter(new FileWriter(tempFile))) {
             gson.toJson(dataToSave, writer);
@@ -409,6 +643,152 @@ public class JsonStorage implements Storage {
         }
     }
 
+    // ============= 日志模式 =============
+
+    /**
+     * 记录一次修改：追加到日志并更新过期索引，调用方需持有写锁
+     */
+    private void recordChange(String op, UUID uuid, String name, Long time) {
+        if (journal != null) {
+            journal.append(op, uuid, name, time);
+        }
+        switch (op) {
+            case JsonJournal.SET_FLIGHT:
+                expiryIndex.schedule(ExpiryKey.flight(uuid), time);
+                break;
+            case JsonJournal.REMOVE_FLIGHT:
+                expiryIndex.remove(ExpiryKey.flight(uuid));
+                break;
+            case JsonJournal.SET_EFFECT_TIME:
+                expiryIndex.schedule(ExpiryKey.effect(uuid, name), time);
+                break;
+            case JsonJournal.REMOVE_EFFECT_TIME:
+                expiryIndex.remove(ExpiryKey.effect(uuid, name));
+                break;
+            case JsonJournal.SET_SPEED_TIME:
+                expiryIndex.schedule(ExpiryKey.speed(uuid, name), time);
+                break;
+            case JsonJournal.REMOVE_SPEED_TIME:
+                expiryIndex.remove(ExpiryKey.speed(uuid, name));
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * 后台线程：把排队的日志记录写入文件，超过阈值时压缩
+     */
+    private void flushJournal() {
+        try {
+            journal.flush();
+            if (journal.getSize() >= compactThresholdBytes) {
+                compactJournal();
+            }
+        } catch (Exception e) {
+            plugin.getLogger().severe("写入日志失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 压缩日志：轮换日志并复制数据（持有写锁，保证快照与日志边界一致），
+     * 然后在锁外写出快照，成功后删除旧日志
+     */
+    private void compactJournal() {
+        synchronized (journal) {
+            isSaving.set(true);
+            try {
+                JsonDataContainer snapshot;
+                dataLock.writeLock().lock();
+                try {
+                    journal.rotate();
+                    snapshot = createSnapshot();
+                    needsSave.set(false);
+                } finally {
+                    dataLock.writeLock().unlock();
+                }
+                
+                writeSnapshot(snapshot);
+                journal.finishCompaction();
+                lastSaveTime = System.currentTimeMillis();
+                saveCount++;
+            } catch (Exception e) {
+                // 旧日志保留在 .compacting 文件中，下次启动仍可回放
+                plugin.getLogger().severe("压缩日志失败: " + e.getMessage());
+                needsSave.set(true);
+            } finally {
+                isSaving.set(false);
+            }
+        }
+    }
+
+    /**
+     * 回放一条日志记录，只在初始化时调用
+     */
+    private void applyRecord(JsonJournal.Record record) {
+        UUID uuid = record.u;
+        switch (record.op) {
+            case JsonJournal.SET_FLIGHT:
+                if (record.t != null) {
+                    data.put(uuid, record.t);
+                }
+                break;
+            case JsonJournal.REMOVE_FLIGHT:
+                data.remove(uuid);
+                break;
+            case JsonJournal.ADD_EFFECT:
+                playerEffects.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(record.n);
+                break;
+            case JsonJournal.REMOVE_EFFECT:
+                removeFromSet(playerEffects, uuid, record.n);
+                break;
+            case JsonJournal.ADD_SPEED:
+                playerSpeeds.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(record.n);
+                break;
+            case JsonJournal.REMOVE_SPEED:
+                removeFromSet(playerSpeeds, uuid, record.n);
+                break;
+            case JsonJournal.SET_EFFECT_TIME:
+                if (record.t != null) {
+                    playerEffectTimes.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>()).put(record.n, record.t);
+                }
+                break;
+            case JsonJournal.REMOVE_EFFECT_TIME:
+                removeFromMap(playerEffectTimes, uuid, record.n);
+                break;
+            case JsonJournal.SET_SPEED_TIME:
+                if (record.t != null) {
+                    playerSpeedTimes.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>()).put(record.n, record.t);
+                }
+                break;
+            case JsonJournal.REMOVE_SPEED_TIME:
+                removeFromMap(playerSpeedTimes, uuid, record.n);
+                break;
+            default:
+                plugin.getLogger().warning("未知的日志记录类型: " + record.op);
+        }
+    }
+
+    private static void removeFromSet(Map<UUID, Set<String>> map, UUID uuid, String name) {
+        Set<String> values = map.get(uuid);
+        if (values != null) {
+            values.remove(name);
+            if (values.isEmpty()) {
+                map.remove(uuid);
+            }
+        }
+    }
+
+    private static void removeFromMap(Map<UUID, Map<String, Long>> map, UUID uuid, String name) {
+        Map<String, Long> values = map.get(uuid);
+        if (values != null) {
+            values.remove(name);
+            if (values.isEmpty()) {
+                map.remove(uuid);
+            }
+        }
+    }
+
     /**
      * 管理备份文件数量
      */
@@ -429,6 +809,15 @@ public class JsonStorage implements Storage {
         }
     }
 
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = AsyncStorage.super.getQueueDepths();
+        if (journal != null) {
+            depths.put("journal", journal.getPendingCount());
+        }
+        return depths;
+    }
+
     /**
      * 获取存储统计信息
      */
@@ -436,12 +825,13 @@ public class JsonStorage implements Storage {
         dataLock.readLock().lock();
         try {
             return String.format(
-                "JSON存储统计: 数据条数=%d, 保存次数=%d, 写操作=%d, 最后保存=%s, 待保存=%s",
+                "JSON存储统计: 数据条数=%d, 保存次数=%d, 写操作=%d, 最后保存=%s, 待保存=%s%s",
                 data.size(),
                 saveCount,
                 writeOperations,
                 lastSaveTime > 0 ? new java.util.Date(lastSaveTime).toString() : "从未",
-                needsSave.get() ? "是" : "否"
+                needsSave.get() ? "是" : "否",
+                journal != null ? ", " + journal.getStatistics() : ""
             );
         } finally {
             dataLock.readLock().unlock();
@@ -462,6 +852,7 @@ public class JsonStorage implements Storage {
         dataLock.writeLock().lock();
         try {
             playerEffects.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(effectName);
+            recordChange(JsonJournal.ADD_EFFECT, uuid, effectName, null);
             needsSave.set(true);
             writeOperations++;
         } finally {
@@ -469,6 +860,21 @@ public class JsonStorage implements Storage {
         }
     }
 
+    @Override
+    public void addPlayerEffects(Collection<UUID> uuids, String effectName) {
+        dataLock.writeLock().lock();
+        try {
+            for (UUID uuid : uuids) {
+                playerEffects.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(effectName);
+                recordChange(JsonJournal.ADD_EFFECT, uuid, effectName, null);
+            }
+            needsSave.set(true);
+            writeOperations += uuids.size();
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
     @Override
     public void removePlayerEffect(UUID uuid, String effectName) {
         dataLock.writeLock().lock();
@@ -479,6 +885,7 @@ public class JsonStorage implements Storage {
                 if (effects.isEmpty()) {
                     playerEffects.remove(uuid);
                 }
+                recordChange(JsonJournal.REMOVE_EFFECT, uuid, effectName, null);
                 needsSave.set(true);
                 writeOperations++;
             }
@@ -519,6 +926,7 @@ public class JsonStorage implements Storage {
         dataLock.writeLock().lock();
         try {
             playerSpeeds.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(speedName);
+            recordChange(JsonJournal.ADD_SPEED, uuid, speedName, null);
             needsSave.set(true);
             writeOperations++;
         } finally {
@@ -526,6 +934,21 @@ public class JsonStorage implements Storage {
         }
     }
 
+    @Override
+    public void addPlayerSpeeds(Collection<UUID> uuids, String speedName) {
+        dataLock.writeLock().lock();
+        try {
+            for (UUID uuid : uuids) {
+                playerSpeeds.computeIfAbsent(uuid, k -> ConcurrentHashMap.newKeySet()).add(speedName);
+                recordChange(JsonJournal.ADD_SPEED, uuid, speedName, null);
+            }
+            needsSave.set(true);
+            writeOperations += uuids.size();
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
     @Override
     public void removePlayerSpeed(UUID uuid, String speedName) {
         dataLock.writeLock().lock();
@@ -536,6 +959,7 @@ public class JsonStorage implements Storage {
                 if (speeds.isEmpty()) {
                     playerSpeeds.remove(uuid);
                 }
+                recordChange(JsonJournal.REMOVE_SPEED, uuid, speedName, null);
                 needsSave.set(true);
                 writeOperations++;
             }
@@ -576,6 +1000,7 @@ public class JsonStorage implements Storage {
         dataLock.writeLock().lock();
         try {
             playerEffectTimes.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>()).put(effectName, endTime);
+            recordChange(JsonJournal.SET_EFFECT_TIME, uuid, effectName, endTime);
             needsSave.set(true);
             writeOperations++;
         } finally {
@@ -583,6 +1008,21 @@ public class JsonStorage implements Storage {
         }
     }
 
+    @Override
+    public void setPlayerEffectTimes(Collection<UUID> uuids, String effectName, long endTime) {
+        dataLock.writeLock().lock();
+        try {
+            for (UUID uuid : uuids) {
+                playerEffectTimes.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>()).put(effectName, endTime);
+                recordChange(JsonJournal.SET_EFFECT_TIME, uuid, effectName, endTime);
+            }
+            needsSave.set(true);
+            writeOperations += uuids.size();
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
     @Override
     public Long getPlayerEffectTime(UUID uuid, String effectName) {
         dataLock.readLock().lock();
@@ -615,6 +1055,7 @@ public class JsonStorage implements Storage {
                 if (effectTimes.isEmpty()) {
                     playerEffectTimes.remove(uuid);
                 }
+                recordChange(JsonJournal.REMOVE_EFFECT_TIME, uuid, effectName, null);
                 needsSave.set(true);
                 writeOperations++;
             }
@@ -644,6 +1085,7 @@ public class JsonStorage implements Storage {
         dataLock.writeLock().lock();
         try {
             playerSpeedTimes.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>()).put(speedName, endTime);
+            recordChange(JsonJournal.SET_SPEED_TIME, uuid, speedName, endTime);
             needsSave.set(true);
             writeOperations++;
         } finally {
@@ -651,6 +1093,21 @@ public class JsonStorage implements Storage {
         }
     }
 
+    @Override
+    public void setPlayerSpeedTimes(Collection<UUID> uuids, String speedName, long endTime) {
+        dataLock.writeLock().lock();
+        try {
+            for (UUID uuid : uuids) {
+                playerSpeedTimes.computeIfAbsent(uuid, k -> new ConcurrentHashMap<>()).put(speedName, endTime);
+                recordChange(JsonJournal.SET_SPEED_TIME, uuid, speedName, endTime);
+            }
+            needsSave.set(true);
+            writeOperations += uuids.size();
+        } finally {
+            dataLock.writeLock().unlock();
+        }
+    }
+
     @Override
     public Long getPlayerSpeedTime(UUID uuid, String speedName) {
         dataLock.readLock().lock();
@@ -683,6 +1140,7 @@ public class JsonStorage implements Storage {
                 if (speedTimes.isEmpty()) {
                     playerSpeedTimes.remove(uuid);
                 }
+                recordChange(JsonJournal.REMOVE_SPEED_TIME, uuid, speedName, null);
                 needsSave.set(true);
                 writeOperations++;
             }
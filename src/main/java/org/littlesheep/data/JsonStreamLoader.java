@@ -0,0 +1,168 @@
+package org.littlesheep.data;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * JSON 数据文件流式加载器 - 一次读取同时完成校验和解析，不构建中间对象树
+ *
+ * 同时支持新格式（{@link JsonDataContainer}）和旧格式（顶层直接是 UUID -> 结束时间）。
+ * 文件中任何位置出现格式错误都会抛出 IOException，已读取的部分全部丢弃，
+ * 由调用方决定是否改用备份文件。
+ */
+final class JsonStreamLoader {
+
+    /**
+     * 加载结果，集合已是并发容器，可直接放入 JsonStorage
+     */
+    static final class Result {
+        final Map<UUID, Long> flightData = new HashMap<>();
+        final Map<UUID, Set<String>> effectData = new HashMap<>();
+        final Map<UUID, Set<String>> speedData = new HashMap<>();
+        final Map<UUID, Map<String, Long>> effectTimeData = new HashMap<>();
+        final Map<UUID, Map<String, Long>> speedTimeData = new HashMap<>();
+        boolean legacyFormat = false;
+        int version = 0;
+        int records = 0;
+        long bytes = 0;
+    }
+
+    private JsonStreamLoader() {
+    }
+
+    static Result load(File file) throws IOException {
+        Result result = new Result();
+        result.bytes = file.length();
+        if (result.bytes == 0) {
+            return result;
+        }
+
+        try (JsonReader reader = new JsonReader(new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 64 * 1024))) {
+            try {
+                readDocument(reader, result);
+            } catch (IllegalStateException | IllegalArgumentException e) {
+                // 类型不符（IllegalStateException）、数字或 UUID 格式错误（NumberFormatException 等）
+                throw new IOException(String.format("%s (位置 %s)", e.getMessage(), reader.getPath()), e);
+            }
+        }
+        return result;
+    }
+
+    private static void readDocument(JsonReader reader, Result result) throws IOException {
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case "flightData":
+                    readFlightMap(reader, result);
+                    break;
+                case "effectData":
+                    readSetMap(reader, result.effectData, result);
+                    break;
+                case "speedData":
+                    readSetMap(reader, result.speedData, result);
+                    break;
+                case "effectTimeData":
+                    readTimeMap(reader, result.effectTimeData, result);
+                    break;
+                case "speedTimeData":
+                    readTimeMap(reader, result.speedTimeData, result);
+                    break;
+                case "version":
+                    result.version = reader.nextInt();
+                    break;
+                default:
+                    // 旧格式：顶层直接是 UUID -> 结束时间
+                    result.flightData.put(UUID.fromString(name), reader.nextLong());
+                    result.legacyFormat = true;
+                    result.records++;
+            }
+        }
+        reader.endObject();
+
+        if (reader.peek() != JsonToken.END_DOCUMENT) {
+            throw new IOException("数据文件结尾有多余内容 (位置 " + reader.getPath() + ")");
+        }
+    }
+
+    private static void readFlightMap(JsonReader reader, Result result) throws IOException {
+        if (skipNull(reader)) {
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            result.flightData.put(UUID.fromString(reader.nextName()), reader.nextLong());
+            result.records++;
+        }
+        reader.endObject();
+    }
+
+    private static void readSetMap(JsonReader reader, Map<UUID, Set<String>> target, Result result) throws IOException {
+        if (skipNull(reader)) {
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            UUID uuid = UUID.fromString(reader.nextName());
+            if (skipNull(reader)) {
+                continue;
+            }
+            Set<String> values = ConcurrentHashMap.newKeySet();
+            reader.beginArray();
+            while (reader.hasNext()) {
+                values.add(reader.nextString());
+            }
+            reader.endArray();
+            if (!values.isEmpty()) {
+                target.put(uuid, values);
+                result.records++;
+            }
+        }
+        reader.endObject();
+    }
+
+    private static void readTimeMap(JsonReader reader, Map<UUID, Map<String, Long>> target, Result result) throws IOException {
+        if (skipNull(reader)) {
+            return;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            UUID uuid = UUID.fromString(reader.nextName());
+            if (skipNull(reader)) {
+                continue;
+            }
+            Map<String, Long> values = new ConcurrentHashMap<>();
+            reader.beginObject();
+            while (reader.hasNext()) {
+                values.put(reader.nextName(), reader.nextLong());
+            }
+            reader.endObject();
+            if (!values.isEmpty()) {
+                target.put(uuid, values);
+                result.records++;
+            }
+        }
+        reader.endObject();
+    }
+
+    private static boolean skipNull(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return true;
+        }
+        return false;
+    }
+}
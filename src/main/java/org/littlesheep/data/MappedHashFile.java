@@ -0,0 +1,436 @@
+package org.littlesheep.data;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 内存映射的定长记录哈希表 - 文件本身就是开放寻址（线性探测）的索引
+ *
+ * 每条记录以 (UUID 高位, UUID 低位, tag) 为键，带固定数量的 long 字段。
+ * 读取直接访问映射内存，没有解析过程；写入先写字段再写状态字，
+ * 进程崩溃时已写入的页仍在系统页缓存中，{@link #force()} 之后断电也不会丢失。
+ * 扩容时先把全部记录写入 .resize 文件再原地重排，重排中途崩溃会在下次打开时从该文件恢复。
+ *
+ * 非线程安全，由调用方加锁。
+ */
+final class MappedHashFile implements AutoCloseable {
+
+    /**
+     * 记录遍历回调
+     */
+    @FunctionalInterface
+    interface RecordVisitor {
+        void visit(long msb, long lsb, int tag, long[] fields);
+    }
+
+    /**
+     * 扩容时暂存的记录
+     */
+    private static final class Entry {
+        final long msb;
+        final long lsb;
+        final int tag;
+        final long[] fields;
+
+        Entry(long msb, long lsb, int tag, long[] fields) {
+            this.msb = msb;
+            this.lsb = lsb;
+            this.tag = tag;
+            this.fields = fields;
+        }
+    }
+
+    private static final int MAGIC = 0x50544642; // "PTFB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 64;
+    private static final int H_MAGIC = 0;
+    private static final int H_VERSION = 4;
+    private static final int H_CAPACITY = 8;
+    private static final int H_FIELDS = 12;
+    private static final int H_SIZE = 16;
+    private static final int H_TOMBSTONES = 20;
+
+    // 记录布局: 状态(4) + tag(4) + msb(8) + lsb(8) + 字段(8 * n)
+    private static final int S_STATE = 0;
+    private static final int S_TAG = 4;
+    private static final int S_MSB = 8;
+    private static final int S_LSB = 16;
+    private static final int S_FIELDS = 24;
+
+    private static final int EMPTY = 0;
+    private static final int USED = 1;
+    private static final int DELETED = 2;
+
+    // 含删除标记的装载因子上限
+    private static final double MAX_LOAD = 0.75;
+    // find 的返回值：键不存在且表中没有可插入的槽位
+    private static final int TABLE_FULL = Integer.MIN_VALUE;
+
+    private final File file;
+    private final File resizeFile;
+    private final int fieldCount;
+    private final int slotSize;
+
+    private final RandomAccessFile raf;
+    private final FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int size;
+    private int tombstones;
+    private int resizeCount = 0;
+
+    MappedHashFile(File file, int fieldCount, int initialCapacity) throws IOException {
+        this.file = file;
+        this.resizeFile = new File(file.getParentFile(), file.getName() + ".resize");
+        this.fieldCount = fieldCount;
+        this.slotSize = S_FIELDS + 8 * fieldCount;
+
+        this.raf = new RandomAccessFile(file, "rw");
+        this.channel = raf.getChannel();
+
+        boolean recovering = resizeFile.exists();
+        if (raf.length() >= HEADER_SIZE) {
+            try {
+                openExisting();
+            } catch (IOException e) {
+                if (!recovering) {
+                    throw e;
+                }
+            }
+        } else {
+            format(tableCapacityFor(initialCapacity));
+        }
+
+        if (recovering) {
+            // 上次扩容未完成，映射文件中的数据不可信，以 .resize 文件为准
+            List<Entry> records = readResizeFile();
+            format(Math.max(capacity, tableCapacityFor(records.size() * 2)));
+            for (Entry entry : records) {
+                insert(entry.msb, entry.lsb, entry.tag, entry.fields);
+            }
+            force();
+            Files.deleteIfExists(resizeFile.toPath());
+        }
+    }
+
+    private void openExisting() throws IOException {
+        MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+        if (header.getInt(H_MAGIC) != MAGIC || header.getInt(H_VERSION) != VERSION) {
+            throw new IOException("文件格式不正确: " + file.getName());
+        }
+        if (header.getInt(H_FIELDS) != fieldCount) {
+            throw new IOException(String.format("记录字段数不匹配: %s (文件 %d, 期望 %d)",
+                file.getName(), header.getInt(H_FIELDS), fieldCount));
+        }
+        int storedCapacity = header.getInt(H_CAPACITY);
+        long expectedLength = HEADER_SIZE + (long) storedCapacity * slotSize;
+        if (Integer.bitCount(storedCapacity) != 1 || raf.length() < expectedLength) {
+            throw new IOException(String.format("文件长度与容量不符: %s (容量 %d, 长度 %d)",
+                file.getName(), storedCapacity, raf.length()));
+        }
+
+        this.capacity = storedCapacity;
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, expectedLength);
+        recount();
+    }
+
+    /**
+     * 扫描全表重新统计记录数和删除标记数。头部计数与状态字不是原子写入的，
+     * 崩溃后可能不准，不能直接用于扩容和清理判断
+     */
+    private void recount() {
+        int used = 0;
+        int deleted = 0;
+        for (int i = 0; i < capacity; i++) {
+            int state = buffer.getInt(offset(i) + S_STATE);
+            if (state == USED) {
+                used++;
+            } else if (state == DELETED) {
+                deleted++;
+            }
+        }
+        this.size = used;
+        this.tombstones = deleted;
+        if (buffer.getInt(H_SIZE) != used || buffer.getInt(H_TOMBSTONES) != deleted) {
+            buffer.putInt(H_SIZE, used);
+            buffer.putInt(H_TOMBSTONES, deleted);
+        }
+    }
+
+    /**
+     * 把文件设为指定容量的空表
+     */
+    private void format(int newCapacity) throws IOException {
+        long length = HEADER_SIZE + (long) newCapacity * slotSize;
+        if (length > Integer.MAX_VALUE) {
+            throw new IOException("记录数超出单个映射文件的上限: " + newCapacity);
+        }
+        raf.setLength(length);
+        this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, length);
+        for (int i = 0; i < newCapacity; i++) {
+            buffer.putInt(HEADER_SIZE + i * slotSize + S_STATE, EMPTY);
+        }
+        buffer.putInt(H_MAGIC, MAGIC);
+        buffer.putInt(H_VERSION, VERSION);
+        buffer.putInt(H_CAPACITY, newCapacity);
+        buffer.putInt(H_FIELDS, fieldCount);
+        buffer.putInt(H_SIZE, 0);
+        buffer.putInt(H_TOMBSTONES, 0);
+        this.capacity = newCapacity;
+        this.size = 0;
+        this.tombstones = 0;
+    }
+
+    /**
+     * 读取记录字段，不存在时返回 null
+     */
+    long[] get(long msb, long lsb, int tag) {
+        int slot = find(msb, lsb, tag);
+        return slot >= 0 ? readFields(offset(slot)) : null;
+    }
+
+    /**
+     * 读取单个字段，不存在时返回 absent
+     */
+    long getField(long msb, long lsb, int tag, int field, long absent) {
+        int slot = find(msb, lsb, tag);
+        return slot >= 0 ? buffer.getLong(offset(slot) + S_FIELDS + 8 * field) : absent;
+    }
+
+    /**
+     * 写入或覆盖记录
+     */
+    void put(long msb, long lsb, int tag, long[] fields) throws IOException {
+        int slot = find(msb, lsb, tag);
+        if (slot >= 0) {
+            writeFields(offset(slot), fields);
+            return;
+        }
+        if (slot == TABLE_FULL || size + tombstones + 1 > capacity * MAX_LOAD) {
+            rehash();
+        }
+        insert(msb, lsb, tag, fields);
+    }
+
+    /**
+     * 删除记录
+     * @return 记录是否存在
+     */
+    boolean remove(long msb, long lsb, int tag) {
+        int slot = find(msb, lsb, tag);
+        if (slot < 0) {
+            return false;
+        }
+        buffer.putInt(offset(slot) + S_STATE, DELETED);
+        size--;
+        tombstones++;
+        buffer.putInt(H_SIZE, size);
+        buffer.putInt(H_TOMBSTONES, tombstones);
+        return true;
+    }
+
+    void forEach(RecordVisitor visitor) {
+        for (int i = 0; i < capacity; i++) {
+            int off = offset(i);
+            if (buffer.getInt(off + S_STATE) == USED) {
+                visitor.visit(buffer.getLong(off + S_MSB), buffer.getLong(off + S_LSB),
+                    buffer.getInt(off + S_TAG), readFields(off));
+            }
+        }
+    }
+
+    /**
+     * 把映射内存刷到磁盘
+     */
+    void force() {
+        buffer.force();
+    }
+
+    int size() {
+        return size;
+    }
+
+    int capacity() {
+        return capacity;
+    }
+
+    int getResizeCount() {
+        return resizeCount;
+    }
+
+    long getFileSize() {
+        return HEADER_SIZE + (long) capacity * slotSize;
+    }
+
+    @Override
+    public void close() {
+        try {
+            force();
+        } finally {
+            try {
+                channel.close();
+                raf.close();
+            } catch (IOException ignored) {}
+        }
+    }
+
+    private void insert(long msb, long lsb, int tag, long[] fields) {
+        int slot = find(msb, lsb, tag);
+        if (slot == TABLE_FULL) {
+            throw new IllegalStateException("映射哈希表已满: " + file.getName());
+        }
+        int target = -slot - 1;
+        int off = offset(target);
+        boolean reusedTombstone = buffer.getInt(off + S_STATE) == DELETED;
+
+        writeFields(off, fields);
+        buffer.putLong(off + S_MSB, msb);
+        buffer.putLong(off + S_LSB, lsb);
+        buffer.putInt(off + S_TAG, tag);
+        // 状态字最后写入，之前的字段写了一半也不会被当作有效记录
+        buffer.putInt(off + S_STATE, USED);
+
+        size++;
+        if (reusedTombstone) {
+            tombstones--;
+            buffer.putInt(H_TOMBSTONES, tombstones);
+        }
+        buffer.putInt(H_SIZE, size);
+    }
+
+    /**
+     * 查找记录所在槽位；不存在时返回 -(可插入槽位) - 1，没有可插入的槽位时返回 {@link #TABLE_FULL}
+     */
+    private int find(long msb, long lsb, int tag) {
+        int mask = capacity - 1;
+        int index = hash(msb, lsb, tag) & mask;
+        int firstDeleted = -1;
+        for (int probes = 0; probes < capacity; probes++) {
+            int off = offset(index);
+            int state = buffer.getInt(off + S_STATE);
+            if (state == EMPTY) {
+                return -(firstDeleted >= 0 ? firstDeleted : index) - 1;
+            }
+            if (state == DELETED) {
+                if (firstDeleted < 0) {
+                    firstDeleted = index;
+                }
+            } else if (buffer.getLong(off + S_MSB) == msb && buffer.getLong(off + S_LSB) == lsb
+                    && buffer.getInt(off + S_TAG) == tag) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        // 装载因子保证总有空槽；全是删除标记时复用第一个，全部占用时交给调用方扩容
+        return firstDeleted >= 0 ? -firstDeleted - 1 : TABLE_FULL;
+    }
+
+    /**
+     * 扩容或清理删除标记：先把记录写入 .resize 文件并刷盘，再原地重排
+     */
+    private void rehash() throws IOException {
+        List<Entry> records = new ArrayList<>(size);
+        forEach((msb, lsb, tag, fields) -> records.add(new Entry(msb, lsb, tag, fields)));
+        writeResizeFile(records);
+
+        int newCapacity = capacity;
+        while (records.size() + 1 > newCapacity * MAX_LOAD / 2) {
+            newCapacity <<= 1;
+        }
+        format(newCapacity);
+        for (Entry entry : records) {
+            insert(entry.msb, entry.lsb, entry.tag, entry.fields);
+        }
+        force();
+        Files.deleteIfExists(resizeFile.toPath());
+        resizeCount++;
+    }
+
+    private void writeResizeFile(List<Entry> records) throws IOException {
+        File temp = new File(resizeFile.getParentFile(), resizeFile.getName() + ".tmp");
+        try (FileOutputStream fos = new FileOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fos))) {
+            out.writeInt(fieldCount);
+            out.writeInt(records.size());
+            for (Entry entry : records) {
+                out.writeLong(entry.msb);
+                out.writeLong(entry.lsb);
+                out.writeInt(entry.tag);
+                for (long value : entry.fields) {
+                    out.writeLong(value);
+                }
+            }
+            out.flush();
+            fos.getFD().sync();
+        }
+        // 写完整后再改名，半个 .resize 文件不会被当作恢复依据
+        Files.move(temp.toPath(), resizeFile.toPath(), java.nio.file.StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private List<Entry> readResizeFile() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(resizeFile)))) {
+            if (in.readInt() != fieldCount) {
+                throw new IOException("扩容恢复文件字段数不匹配: " + resizeFile.getName());
+            }
+            int count = in.readInt();
+            List<Entry> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                long msb = in.readLong();
+                long lsb = in.readLong();
+                int tag = in.readInt();
+                long[] fields = new long[fieldCount];
+                for (int f = 0; f < fieldCount; f++) {
+                    fields[f] = in.readLong();
+                }
+                records.add(new Entry(msb, lsb, tag, fields));
+            }
+            return records;
+        }
+    }
+
+    private long[] readFields(int off) {
+        long[] fields = new long[fieldCount];
+        for (int f = 0; f < fieldCount; f++) {
+            fields[f] = buffer.getLong(off + S_FIELDS + 8 * f);
+        }
+        return fields;
+    }
+
+    private void writeFields(int off, long[] fields) {
+        for (int f = 0; f < fieldCount; f++) {
+            buffer.putLong(off + S_FIELDS + 8 * f, fields[f]);
+        }
+    }
+
+    private int offset(int slot) {
+        return HEADER_SIZE + slot * slotSize;
+    }
+
+    private static int tableCapacityFor(int records) {
+        int capacity = 16;
+        while (capacity * MAX_LOAD / 2 < records) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long msb, long lsb, int tag) {
+        long h = msb * 0x9E3779B97F4A7C15L ^ lsb ^ ((long) tag << 32);
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+}
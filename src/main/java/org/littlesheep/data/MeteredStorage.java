@@ -0,0 +1,325 @@
+package org.littlesheep.data;
+
+import org.littlesheep.utils.LatencyHistogram;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * 统计装饰器存储 - 记录每个存储方法的耗时，其余行为全部交给被包装的存储
+ *
+ * 异步方法记录从调用到结果完成的时间。所有方法（包括接口默认方法）都显式转发，
+ * 被包装存储自己的覆盖实现不会被绕过。
+ */
+public class MeteredStorage implements AsyncStorage {
+    private final AsyncStorage delegate;
+    private final Map<String, LatencyHistogram> operations;
+
+    public MeteredStorage(AsyncStorage delegate, StorageMetrics metrics, String layer) {
+        this.delegate = delegate;
+        this.operations = metrics.layer(layer);
+    }
+
+    /**
+     * 去掉统计包装，得到实际的存储实现，用于按类型访问
+     */
+    public static AsyncStorage unwrap(AsyncStorage storage) {
+        while (storage instanceof MeteredStorage) {
+            storage = ((MeteredStorage) storage).delegate;
+        }
+        return storage;
+    }
+
+    private LatencyHistogram histogram(String operation) {
+        LatencyHistogram histogram = operations.get(operation);
+        return histogram != null ? histogram : operations.computeIfAbsent(operation, k -> new LatencyHistogram());
+    }
+
+    private <T> T time(String operation, Supplier<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } finally {
+            histogram(operation).recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private void time(String operation, Runnable call) {
+        long start = System.nanoTime();
+        try {
+            call.run();
+        } finally {
+            histogram(operation).recordNanos(System.nanoTime() - start);
+        }
+    }
+
+    private <T> CompletableFuture<T> timeAsync(String operation, Supplier<CompletableFuture<T>> call) {
+        long start = System.nanoTime();
+        CompletableFuture<T> future = call.get();
+        if (future.isDone()) {
+            histogram(operation).recordNanos(System.nanoTime() - start);
+        } else {
+            future.whenComplete((result, error) -> histogram(operation).recordNanos(System.nanoTime() - start));
+        }
+        return future;
+    }
+
+    @Override
+    public void init() {
+        time("init", delegate::init);
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public StorageExecutor getStorageExecutor() {
+        return delegate.getStorageExecutor();
+    }
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        return delegate.getQueueDepths();
+    }
+
+    // ========== 飞行时间 ==========
+
+    @Override
+    public void setPlayerFlightTime(UUID uuid, long endTime) {
+        time("setPlayerFlightTime", () -> delegate.setPlayerFlightTime(uuid, endTime));
+    }
+
+    @Override
+    public Long getPlayerFlightTime(UUID uuid) {
+        return time("getPlayerFlightTime", () -> delegate.getPlayerFlightTime(uuid));
+    }
+
+    @Override
+    public Map<UUID, Long> getAllPlayerData() {
+        return time("getAllPlayerData", delegate::getAllPlayerData);
+    }
+
+    @Override
+    public void removePlayerFlightTime(UUID uuid) {
+        time("removePlayerFlightTime", () -> delegate.removePlayerFlightTime(uuid));
+    }
+
+    @Override
+    public void forEachActiveFlight(long now, UuidLongMap.EntryConsumer consumer) {
+        time("forEachActiveFlight", () -> delegate.forEachActiveFlight(now, consumer));
+    }
+
+    @Override
+    public void setPlayerFlightTimes(Map<UUID, Long> endTimes) {
+        time("setPlayerFlightTimes", () -> delegate.setPlayerFlightTimes(endTimes));
+    }
+
+    @Override
+    public void removePlayerFlightTimes(Collection<UUID> uuids) {
+        time("removePlayerFlightTimes", () -> delegate.removePlayerFlightTimes(uuids));
+    }
+
+    // ========== 特效 ==========
+
+    @Override
+    public void addPlayerEffect(UUID uuid, String effectName) {
+        time("addPlayerEffect", () -> delegate.addPlayerEffect(uuid, effectName));
+    }
+
+    @Override
+    public void removePlayerEffect(UUID uuid, String effectName) {
+        time("removePlayerEffect", () -> delegate.removePlayerEffect(uuid, effectName));
+    }
+
+    @Override
+    public Set<String> getPlayerEffects(UUID uuid) {
+        return time("getPlayerEffects", () -> delegate.getPlayerEffects(uuid));
+    }
+
+    @Override
+    public Map<UUID, Set<String>> getAllPlayerEffects() {
+        return time("getAllPlayerEffects", delegate::getAllPlayerEffects);
+    }
+
+    @Override
+    public void addPlayerEffects(Collection<UUID> uuids, String effectName) {
+        time("addPlayerEffects", () -> delegate.addPlayerEffects(uuids, effectName));
+    }
+
+    @Override
+    public void setPlayerEffectTime(UUID uuid, String effectName, long endTime) {
+        time("setPlayerEffectTime", () -> delegate.setPlayerEffectTime(uuid, effectName, endTime));
+    }
+
+    @Override
+    public Long getPlayerEffectTime(UUID uuid, String effectName) {
+        return time("getPlayerEffectTime", () -> delegate.getPlayerEffectTime(uuid, effectName));
+    }
+
+    @Override
+    public Map<String, Long> getPlayerEffectTimes(UUID uuid) {
+        return time("getPlayerEffectTimes", () -> delegate.getPlayerEffectTimes(uuid));
+    }
+
+    @Override
+    public void removePlayerEffectTime(UUID uuid, String effectName) {
+        time("removePlayerEffectTime", () -> delegate.removePlayerEffectTime(uuid, effectName));
+    }
+
+    @Override
+    public Map<UUID, Map<String, Long>> getAllPlayerEffectTimes() {
+        return time("getAllPlayerEffectTimes", delegate::getAllPlayerEffectTimes);
+    }
+
+    @Override
+    public void setPlayerEffectTimes(Collection<UUID> uuids, String effectName, long endTime) {
+        time("setPlayerEffectTimes", () -> delegate.setPlayerEffectTimes(uuids, effectName, endTime));
+    }
+
+    // ========== 速度 ==========
+
+    @Override
+    public void addPlayerSpeed(UUID uuid, String speedName) {
+        time("addPlayerSpeed", () -> delegate.addPlayerSpeed(uuid, speedName));
+    }
+
+    @Override
+    public void removePlayerSpeed(UUID uuid, String speedName) {
+        time("removePlayerSpeed", () -> delegate.removePlayerSpeed(uuid, speedName));
+    }
+
+    @Override
+    public Set<String> getPlayerSpeeds(UUID uuid) {
+        return time("getPlayerSpeeds", () -> delegate.getPlayerSpeeds(uuid));
+    }
+
+    @Override
+    public Map<UUID, Set<String>> getAllPlayerSpeeds() {
+        return time("getAllPlayerSpeeds", delegate::getAllPlayerSpeeds);
+    }
+
+    @Override
+    public void addPlayerSpeeds(Collection<UUID> uuids, String speedName) {
+        time("addPlayerSpeeds", () -> delegate.addPlayerSpeeds(uuids, speedName));
+    }
+
+    @Override
+    public void setPlayerSpeedTime(UUID uuid, String speedName, long endTime) {
+        time("setPlayerSpeedTime", () -> delegate.setPlayerSpeedTime(uuid, speedName, endTime));
+    }
+
+    @Override
+    public Long getPlayerSpeedTime(UUID uuid, String speedName) {
+        return time("getPlayerSpeedTime", () -> delegate.getPlayerSpeedTime(uuid, speedName));
+    }
+
+    @Override
+    public Map<String, Long> getPlayerSpeedTimes(UUID uuid) {
+        return time("getPlayerSpeedTimes", () -> delegate.getPlayerSpeedTimes(uuid));
+    }
+
+    @Override
+    public void removePlayerSpeedTime(UUID uuid, String speedName) {
+        time("removePlayerSpeedTime", () -> delegate.removePlayerSpeedTime(uuid, speedName));
+    }
+
+    @Override
+    public Map<UUID, Map<String, Long>> getAllPlayerSpeedTimes() {
+        return time("getAllPlayerSpeedTimes", delegate::getAllPlayerSpeedTimes);
+    }
+
+    @Override
+    public void setPlayerSpeedTimes(Collection<UUID> uuids, String speedName, long endTime) {
+        time("setPlayerSpeedTimes", () -> delegate.setPlayerSpeedTimes(uuids, speedName, endTime));
+    }
+
+    // ========== 聚合读取与过期清理 ==========
+
+    @Override
+    public PlayerData loadPlayerProfile(UUID uuid) {
+        return time("loadPlayerProfile", () -> delegate.loadPlayerProfile(uuid));
+    }
+
+    @Override
+    public Map<UUID, PlayerData> loadPlayerProfiles(Collection<UUID> uuids) {
+        return time("loadPlayerProfiles", () -> delegate.loadPlayerProfiles(uuids));
+    }
+
+    @Override
+    public Map<ExpiryKey, Long> pollExpired(long now) {
+        return time("pollExpired", () -> delegate.pollExpired(now));
+    }
+
+    // ========== 异步访问 ==========
+
+    @Override
+    public CompletableFuture<Long> getPlayerFlightTimeAsync(UUID uuid) {
+        return timeAsync("getPlayerFlightTimeAsync", () -> delegate.getPlayerFlightTimeAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> setPlayerFlightTimeAsync(UUID uuid, long endTime) {
+        return timeAsync("setPlayerFlightTimeAsync", () -> delegate.setPlayerFlightTimeAsync(uuid, endTime));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerFlightTimeAsync(UUID uuid) {
+        return timeAsync("removePlayerFlightTimeAsync", () -> delegate.removePlayerFlightTimeAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, Long>> getAllPlayerDataAsync() {
+        return timeAsync("getAllPlayerDataAsync", delegate::getAllPlayerDataAsync);
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerEffectsAsync(UUID uuid) {
+        return timeAsync("getPlayerEffectsAsync", () -> delegate.getPlayerEffectsAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerEffectTimesAsync(UUID uuid) {
+        return timeAsync("getPlayerEffectTimesAsync", () -> delegate.getPlayerEffectTimesAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerEffectTimeAsync(UUID uuid, String effectName) {
+        return timeAsync("removePlayerEffectTimeAsync", () -> delegate.removePlayerEffectTimeAsync(uuid, effectName));
+    }
+
+    @Override
+    public CompletableFuture<Set<String>> getPlayerSpeedsAsync(UUID uuid) {
+        return timeAsync("getPlayerSpeedsAsync", () -> delegate.getPlayerSpeedsAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Long>> getPlayerSpeedTimesAsync(UUID uuid) {
+        return timeAsync("getPlayerSpeedTimesAsync", () -> delegate.getPlayerSpeedTimesAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerSpeedTimeAsync(UUID uuid, String speedName) {
+        return timeAsync("removePlayerSpeedTimeAsync", () -> delegate.removePlayerSpeedTimeAsync(uuid, speedName));
+    }
+
+    @Override
+    public CompletableFuture<PlayerData> loadPlayerProfileAsync(UUID uuid) {
+        return timeAsync("loadPlayerProfileAsync", () -> delegate.loadPlayerProfileAsync(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Map<UUID, PlayerData>> loadPlayerProfilesAsync(Collection<UUID> uuids) {
+        return timeAsync("loadPlayerProfilesAsync", () -> delegate.loadPlayerProfilesAsync(uuids));
+    }
+
+    @Override
+    public CompletableFuture<Map<ExpiryKey, Long>> pollExpiredAsync(long now) {
+        return timeAsync("pollExpiredAsync", () -> delegate.pollExpiredAsync(now));
+    }
+}
@@ -0,0 +1,154 @@
+package org.littlesheep.data;
+
+import org.littlesheep.cache.FlightDataCache.DataKind;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * MySQL 变更日志表 - 多个服务器共用一套表时，用于让各自的缓存得知其他服务器的写入
+ *
+ * 每次写入后追加一行（玩家、数据类型、写入服务器），其他服务器按自增编号增量读取，
+ * 使对应玩家的缓存失效。自增编号按分配顺序而不是提交顺序出现，
+ * 因此最近几秒内的行视为"未稳定"，下次轮询时会再读一遍，防止漏掉较晚提交的小编号。
+ */
+final class MySqlChangelog {
+
+    /**
+     * 一条变更记录
+     */
+    static final class Change {
+        final long id;
+        final UUID uuid;
+        final DataKind kind; // null 表示全部类型
+        final String serverId;
+        final boolean settled; // 写入时间已超过稳定时间，之后不会再出现更小的编号
+
+        Change(long id, UUID uuid, DataKind kind, String serverId, boolean settled) {
+            this.id = id;
+            this.uuid = uuid;
+            this.kind = kind;
+            this.serverId = serverId;
+            this.settled = settled;
+        }
+    }
+
+    private final String table;
+    // 本次启动的服务器标识，用于跳过自己写入的变更
+    private final String serverId = UUID.randomUUID().toString();
+
+    MySqlChangelog(String baseTable) {
+        this.table = baseTable + "_changelog";
+    }
+
+    String getServerId() {
+        return serverId;
+    }
+
+    void createTable(Statement stmt) throws SQLException {
+        stmt.executeUpdate(String.format(
+            "CREATE TABLE IF NOT EXISTS %s (" +
+            "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
+            "uuid VARCHAR(36) NOT NULL, " +
+            "kind VARCHAR(16) NOT NULL, " +
+            "server_id VARCHAR(36) NOT NULL, " +
+            "changed_at TIMESTAMP(3) NOT NULL DEFAULT CURRENT_TIMESTAMP(3), " +
+            "INDEX idx_changed_at (changed_at)" +
+            ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4",
+            table
+        ));
+    }
+
+    /**
+     * 记录一个玩家的一类数据发生了变化
+     */
+    void record(Connection connection, UUID uuid, DataKind kind) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(insertSql())) {
+            bind(stmt, uuid, kind);
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * 批量记录变化，不管理事务
+     */
+    <T> void recordAll(Connection connection, Collection<T> rows, Function<T, UUID> uuidOf,
+                       Function<T, DataKind> kindOf) throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = connection.prepareStatement(insertSql())) {
+            JdbcBatch.addAll(stmt, rows, (s, row) -> bind(s, uuidOf.apply(row), kindOf.apply(row)));
+        }
+    }
+
+    private String insertSql() {
+        return "INSERT INTO " + table + " (uuid, kind, server_id) VALUES (?, ?, ?)";
+    }
+
+    private void bind(PreparedStatement stmt, UUID uuid, DataKind kind) throws SQLException {
+        stmt.setString(1, uuid.toString());
+        stmt.setString(2, kind.name());
+        stmt.setString(3, serverId);
+    }
+
+    /**
+     * 获取当前最大的变更编号
+     */
+    long latestId(Connection connection) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(id), 0) FROM " + table)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * 按编号顺序读取编号大于 afterId 的变更
+     * @param settleMillis 写入超过该时间的变更视为已稳定
+     */
+    List<Change> poll(Connection connection, long afterId, long settleMillis, int limit) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        String sql = String.format(
+            "SELECT id, uuid, kind, server_id, changed_at < NOW(3) - INTERVAL ? MICROSECOND AS settled " +
+            "FROM %s WHERE id > ? ORDER BY id LIMIT ?", table);
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, settleMillis * 1000);
+            stmt.setLong(2, afterId);
+            stmt.setInt(3, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    DataKind kind;
+                    try {
+                        kind = DataKind.valueOf(rs.getString("kind"));
+                    } catch (IllegalArgumentException e) {
+                        // 其他版本写入的未知类型，为 null 时使该玩家的全部数据失效
+                        kind = null;
+                    }
+                    changes.add(new Change(rs.getLong("id"), UUID.fromString(rs.getString("uuid")), kind,
+                        rs.getString("server_id"), rs.getBoolean("settled")));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * 删除超过保留时间的变更
+     * @return 删除的行数
+     */
+    int prune(Connection connection, int retentionMinutes) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(
+                "DELETE FROM " + table + " WHERE changed_at < NOW(3) - INTERVAL ? MINUTE LIMIT 10000")) {
+            stmt.setInt(1, retentionMinutes);
+            return stmt.executeUpdate();
+        }
+    }
+}
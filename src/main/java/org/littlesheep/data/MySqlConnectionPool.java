@@ -0,0 +1,339 @@
+package org.littlesheep.data;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * MySQL 有界连接池
+ *
+ * 借出与归还不持有全局锁：空闲连接保存在无锁双端队列中（后进先出，优先复用热连接），
+ * 借出数由公平信号量限制，池满时按到达顺序限时等待；新建连接前先预留连接总数名额，
+ * 保活检查期间暂时摘下的连接也计入总数，连接总数不会超过上限。
+ * 连接有效性由后台保活线程检查，借出时不再逐次调用 isValid；
+ * 超过最大存活时间或长时间空闲的连接会被回收。
+ */
+final class MySqlConnectionPool {
+
+    /**
+     * 连接工厂
+     */
+    @FunctionalInterface
+    interface ConnectionFactory {
+        Connection create() throws SQLException;
+    }
+
+    /**
+     * 池中的连接及其时间信息
+     */
+    static final class PooledConnection {
+        final Connection connection;
+        final long createdAt;
+        volatile long lastUsedAt;
+
+        PooledConnection(Connection connection) {
+            this.connection = connection;
+            this.createdAt = System.currentTimeMillis();
+            this.lastUsedAt = createdAt;
+        }
+    }
+
+    private final JavaPlugin plugin;
+    private final ConnectionFactory factory;
+    private final int maxConnections;
+    private final int minIdle;
+    private final long borrowTimeoutMs;
+    private final long maxLifetimeMs;
+    private final long idleTimeoutMs;
+    private final long keepaliveIntervalMs;
+
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private final Semaphore permits;
+    private final AtomicInteger totalConnections = new AtomicInteger(0);
+    private final ScheduledExecutorService housekeeper;
+    private volatile boolean closed = false;
+
+    // 统计信息
+    private final AtomicLong borrowCount = new AtomicLong(0);
+    private final AtomicLong borrowWaitNanos = new AtomicLong(0);
+    private final AtomicLong maxBorrowWaitNanos = new AtomicLong(0);
+    private final AtomicLong borrowTimeouts = new AtomicLong(0);
+    private final AtomicLong createdCount = new AtomicLong(0);
+    private final AtomicLong evictedCount = new AtomicLong(0);
+
+    MySqlConnectionPool(JavaPlugin plugin, ConnectionFactory factory, int maxConnections, int minIdle,
+                        long borrowTimeoutMs, long maxLifetimeMs, long idleTimeoutMs, long keepaliveIntervalMs) {
+        this.plugin = plugin;
+        this.factory = factory;
+        this.maxConnections = Math.max(1, maxConnections);
+        this.minIdle = Math.max(0, Math.min(minIdle, this.maxConnections));
+        this.borrowTimeoutMs = Math.max(0L, borrowTimeoutMs);
+        this.maxLifetimeMs = maxLifetimeMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.keepaliveIntervalMs = Math.max(1000L, keepaliveIntervalMs);
+        this.permits = new Semaphore(this.maxConnections, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PayToFly-MySQL-Pool");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * 启动后台保活与空闲回收任务，并预建最小空闲连接
+     */
+    void start() {
+        housekeeper.scheduleWithFixedDelay(this::housekeep,
+            keepaliveIntervalMs, keepaliveIntervalMs, TimeUnit.MILLISECONDS);
+        fillMinIdle();
+    }
+
+    /**
+     * 借出连接，池满时限时等待
+     */
+    PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+
+        long start = System.nanoTime();
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(borrowTimeoutMs);
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                borrowTimeouts.incrementAndGet();
+                throw new SQLException(String.format("获取数据库连接超时 (%dms)，%s", borrowTimeoutMs, getStatus()));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("获取连接被中断", e);
+        }
+        recordWait(System.nanoTime() - start);
+
+        try {
+            while (true) {
+                // 优先复用空闲连接，跳过已超过最大存活时间的连接
+                PooledConnection pooled;
+                while ((pooled = idle.pollFirst()) != null) {
+                    if (isExpired(pooled, System.currentTimeMillis())) {
+                        closeConnection(pooled);
+                        continue;
+                    }
+                    pooled.lastUsedAt = System.currentTimeMillis();
+                    return pooled;
+                }
+
+                // 没有空闲连接，预留到名额才新建
+                if (reserveSlot()) {
+                    return createConnection();
+                }
+
+                // 名额被保活检查中的连接占用，稍后它会回到空闲队列或被关闭
+                if (closed || System.nanoTime() - deadline >= 0) {
+                    borrowTimeouts.incrementAndGet();
+                    throw new SQLException(String.format("获取数据库连接超时 (%dms)，%s", borrowTimeoutMs, getStatus()));
+                }
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+            }
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * 归还连接
+     */
+    void release(PooledConnection pooled) {
+        if (pooled == null) {
+            return;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            if (closed || isExpired(pooled, now) || !resetConnection(pooled)) {
+                closeConnection(pooled);
+            } else {
+                pooled.lastUsedAt = now;
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 丢弃出错的连接（不放回池中）
+     */
+    void invalidate(PooledConnection pooled) {
+        if (pooled == null) {
+            return;
+        }
+        try {
+            closeConnection(pooled);
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * 关闭连接池
+     */
+    void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            closeConnection(pooled);
+        }
+    }
+
+    /**
+     * 后台任务：回收过期和长时间空闲的连接，对空闲连接做保活检查
+     */
+    private void housekeep() {
+        try {
+            long now = System.currentTimeMillis();
+            Iterator<PooledConnection> iterator = idle.iterator();
+            while (iterator.hasNext()) {
+                PooledConnection pooled = iterator.next();
+                boolean expired = isExpired(pooled, now);
+                boolean idleTooLong = idleTimeoutMs > 0 && now - pooled.lastUsedAt > idleTimeoutMs
+                    && totalConnections.get() > minIdle;
+                boolean needsKeepalive = now - pooled.lastUsedAt >= keepaliveIntervalMs;
+
+                if (!expired && !idleTooLong && !needsKeepalive) {
+                    continue;
+                }
+
+                // 从队列中摘下后再检查，避免与借出线程竞争同一连接
+                if (!idle.remove(pooled)) {
+                    continue;
+                }
+
+                if (expired || idleTooLong || !isAlive(pooled)) {
+                    closeConnection(pooled);
+                    evictedCount.incrementAndGet();
+                } else {
+                    pooled.lastUsedAt = System.currentTimeMillis();
+                    idle.offerLast(pooled);
+                }
+            }
+
+            fillMinIdle();
+        } catch (Throwable t) {
+            plugin.getLogger().warning("连接池维护任务出错: " + t.getMessage());
+        }
+    }
+
+    /**
+     * 补足最小空闲连接
+     */
+    private void fillMinIdle() {
+        while (!closed && idle.size() < minIdle && reserveSlot()) {
+            try {
+                idle.offerLast(createConnection());
+            } catch (SQLException e) {
+                plugin.getLogger().warning("预建数据库连接失败: " + e.getMessage());
+                return;
+            }
+        }
+    }
+
+    /**
+     * 预留一个连接名额，连接总数已达上限时返回 false
+     */
+    private boolean reserveSlot() {
+        int total;
+        do {
+            total = totalConnections.get();
+            if (total >= maxConnections) {
+                return false;
+            }
+        } while (!totalConnections.compareAndSet(total, total + 1));
+        return true;
+    }
+
+    /**
+     * 用已预留的名额新建连接，失败时归还名额
+     */
+    private PooledConnection createConnection() throws SQLException {
+        Connection connection;
+        try {
+            connection = factory.create();
+        } catch (SQLException | RuntimeException e) {
+            totalConnections.decrementAndGet();
+            throw e;
+        }
+        createdCount.incrementAndGet();
+        return new PooledConnection(connection);
+    }
+
+    private void closeConnection(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        try {
+            pooled.connection.close();
+        } catch (SQLException ignored) {}
+    }
+
+    private boolean isExpired(PooledConnection pooled, long now) {
+        return maxLifetimeMs > 0 && now - pooled.createdAt > maxLifetimeMs;
+    }
+
+    private boolean isAlive(PooledConnection pooled) {
+        try {
+            return !pooled.connection.isClosed() && pooled.connection.isValid(5);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 归还前恢复连接默认状态，未提交的事务会被回滚
+     */
+    private boolean resetConnection(PooledConnection pooled) {
+        try {
+            if (pooled.connection.isClosed()) {
+                return false;
+            }
+            if (!pooled.connection.getAutoCommit()) {
+                pooled.connection.rollback();
+                pooled.connection.setAutoCommit(true);
+            }
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private void recordWait(long waitNanos) {
+        borrowCount.incrementAndGet();
+        borrowWaitNanos.addAndGet(waitNanos);
+        maxBorrowWaitNanos.accumulateAndGet(waitNanos, Math::max);
+    }
+
+    /**
+     * 获取连接池状态信息
+     */
+    String getStatus() {
+        int total = totalConnections.get();
+        int idleCount = idle.size();
+        long borrows = borrowCount.get();
+        double avgWaitMs = borrows > 0 ? borrowWaitNanos.get() / 1_000_000.0 / borrows : 0.0;
+        return String.format(
+            "连接池状态: %d/%d 活跃, %d 空闲, %d 总连接, 等待线程=%d, 借出=%d, 平均等待=%.2fms, 最大等待=%.2fms, 超时=%d, 新建=%d, 回收=%d",
+            Math.max(0, total - idleCount), maxConnections, idleCount, total, permits.getQueueLength(),
+            borrows, avgWaitMs, maxBorrowWaitNanos.get() / 1_000_000.0, borrowTimeouts.get(),
+            createdCount.get(), evictedCount.get());
+    }
+}
@@ -2,21 +2,28 @@ package org.littlesheep.data;
 
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.littlesheep.cache.FlightDataCache.DataKind;
 import org.littlesheep.utils.ExceptionHandler;
 
 import java.sql.*;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 /**
  * MySQL存储实现，使用连接池和重试机制
  */
-public class MySqlStorage implements Storage {
+public class MySqlStorage implements AsyncStorage {
+    // 预加载时每页读取的行数
+    private static final int PRELOAD_PAGE_SIZE = 1000;
+    
     private final JavaPlugin plugin;
     private final String host;
     private final int port;
@@ -31,10 +38,18 @@ public class MySqlStorage implements Storage {
     private final int maxRetries;
     private final ExceptionHandler exceptionHandler;
     
-    // 简单连接池实现
-    private final Map<Connection, Boolean> connectionPool = new ConcurrentHashMap<>();
-    private final AtomicInteger activeConnections = new AtomicInteger(0);
-    private final Object poolLock = new Object();
+    // 有界连接池
+    private final MySqlConnectionPool connectionPool;
+    
+    // 异步I/O执行器，线程数与连接池大小一致
+    private final StorageExecutor storageExecutor;
+    
+    // 玩家数据聚合查询
+    private final ProfileQuery profileQuery;
+    
+    // 变更日志，未启用时为 null
+    private final MySqlChangelog changelog;
+    private final int changelogRetentionMinutes;
 
     public MySqlStorage(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -52,6 +67,13 @@ public class MySqlStorage implements Storage {
         this.maxConnections = config.getInt("storage.mysql.pool.max-connections", 5);
         this.connectionTimeout = config.getInt("storage.mysql.pool.connection-timeout", 30000);
         this.maxRetries = config.getInt("storage.mysql.pool.max-retries", 3);
+        this.connectionPool = new MySqlConnectionPool(plugin, this::createNewConnection,
+            maxConnections,
+            config.getInt("storage.mysql.pool.min-idle", 1),
+            connectionTimeout,
+            config.getLong("storage.mysql.pool.max-lifetime", 1800000L),
+            config.getLong("storage.mysql.pool.idle-timeout", 600000L),
+            config.getLong("storage.mysql.pool.keepalive-interval", 60000L));
         
         // 获取异常处理器
         if (plugin instanceof org.littlesheep.paytofly) {
@@ -59,6 +81,14 @@ public class MySqlStorage implements Storage {
         } else {
             this.exceptionHandler = new ExceptionHandler(plugin);
         }
+        
+        this.storageExecutor = new StorageExecutor(plugin, "MySQL", maxConnections);
+        this.profileQuery = new ProfileQuery(table, table + "_effects", table + "_speeds",
+            table + "_effect_times", table + "_speed_times");
+        
+        // 变更日志配置，同一套表的所有服务器需保持一致
+        this.changelog = config.getBoolean("storage.mysql.changelog.enabled", false) ? new MySqlChangelog(table) : null;
+        this.changelogRetentionMinutes = config.getInt("storage.mysql.changelog.retention-minutes", 60);
     }
 
     @Override
@@ -67,15 +97,15 @@ public class MySqlStorage implements Storage {
             // 使用新的MySQL驱动
             Class.forName("com.mysql.cj.jdbc.Driver");
             
-            // 预创建一个连接来测试连接性
-            Connection testConnection = createNewConnection();
-            if (testConnection != null) {
-                createTable(testConnection);
-                returnConnection(testConnection);
-                plugin.getLogger().info("MySQL数据库连接成功，连接池已初始化");
-            } else {
-                throw new SQLException("无法创建测试连接");
+            // 借出一个连接来测试连接性并建表
+            MySqlConnectionPool.PooledConnection testConnection = connectionPool.borrow();
+            try {
+                createTable(testConnection.connection);
+            } finally {
+                connectionPool.release(testConnection);
             }
+            connectionPool.start();
+            plugin.getLogger().info("MySQL数据库连接成功，连接池已初始化");
         } catch (Exception e) {
             plugin.getLogger().severe("无法连接到MySQL数据库: " + e.getMessage());
             throw new RuntimeException("MySQL初始化失败", e);
@@ -86,7 +116,7 @@ public class MySqlStorage implements Storage {
      * 创建新的数据库连接
      */
     private Connection createNewConnection() throws SQLException {
-        String url = String.format("jdbc:mysql://%s:%d/%s?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true",
+        String url = String.format("jdbc:mysql://%s:%d/%s?useSSL=false&serverTimezone=UTC&allowPublicKeyRetrieval=true&rewriteBatchedStatements=true",
                 host, port, database);
         
         Connection connection = DriverManager.getConnection(url, username, password);
@@ -100,70 +130,6 @@ public class MySqlStorage implements Storage {
         return connection;
     }
 
-    /**
-     * 从连接池获取连接
-     */
-    private Connection getConnection() throws SQLException {
-        synchronized (poolLock) {
-            // 查找可用连接
-            for (Map.Entry<Connection, Boolean> entry : connectionPool.entrySet()) {
-                if (!entry.getValue()) { // 连接空闲
-                    Connection conn = entry.getKey();
-                    if (isConnectionValid(conn)) {
-                        connectionPool.put(conn, true); // 标记为使用中
-                        return conn;
-                    } else {
-                        // 移除无效连接
-                        connectionPool.remove(conn);
-                        try {
-                            conn.close();
-                        } catch (SQLException ignored) {}
-                    }
-                }
-            }
-            
-            // 如果没有可用连接且未达到最大连接数，创建新连接
-            if (activeConnections.get() < maxConnections) {
-                Connection newConnection = createNewConnection();
-                connectionPool.put(newConnection, true);
-                activeConnections.incrementAndGet();
-                return newConnection;
-            }
-            
-            // 等待可用连接（简单实现）
-            try {
-                poolLock.wait(connectionTimeout);
-                return getConnection(); // 递归重试
-            } catch (InterruptedException e) {
-                Thread.currentThread().interrupt();
-                throw new SQLException("获取连接被中断", e);
-            }
-        }
-    }
-
-    /**
-     * 归还连接到池
-     */
-    private void returnConnection(Connection connection) {
-        if (connection != null) {
-            synchronized (poolLock) {
-                connectionPool.put(connection, false); // 标记为空闲
-                poolLock.notifyAll();
-            }
-        }
-    }
-
-    /**
-     * 检查连接是否有效
-     */
-    private boolean isConnectionValid(Connection connection) {
-        try {
-            return connection != null && !connection.isClosed() && connection.isValid(5);
-        } catch (SQLException e) {
-            return false;
-        }
-    }
-
     /**
      * 创建表结构
      */
@@ -230,6 +196,29 @@ public class MySqlStorage implements Storage {
                 table
             );
             stmt.executeUpdate(createSpeedTimesTableSQL);
+            
+            // 到期时间索引，用于过期清理
+            createEndTimeIndex(stmt, table);
+            createEndTimeIndex(stmt, table + "_effect_times");
+            createEndTimeIndex(stmt, table + "_speed_times");
+            
+            if (changelog != null) {
+                changelog.createTable(stmt);
+            }
+        }
+    }
+
+    /**
+     * 创建 end_time 索引，MySQL 不支持 CREATE INDEX IF NOT EXISTS，已存在时忽略
+     */
+    private void createEndTimeIndex(Statement stmt, String tableName) throws SQLException {
+        try {
+            stmt.executeUpdate(String.format("CREATE INDEX idx_end_time ON %s (end_time)", tableName));
+        } catch (SQLException e) {
+            // 1061: Duplicate key name
+            if (e.getErrorCode() != 1061) {
+                throw e;
+            }
         }
     }
 
@@ -238,32 +227,41 @@ public class MySqlStorage implements Storage {
      */
     private <T> T executeWithRetry(String operationName, DatabaseOperation<T> operation) {
         return exceptionHandler.executeWithRetry(operationName, () -> {
-            Connection connection = null;
+            MySqlConnectionPool.PooledConnection pooled = connectionPool.borrow();
             try {
-                connection = getConnection();
-                T result = operation.execute(connection);
+                T result = operation.execute(pooled.connection);
+                connectionPool.release(pooled);
                 return result;
             } catch (SQLException e) {
-                // 如果是连接问题，移除无效连接
-                if (connection != null && !isConnectionValid(connection)) {
-                    synchronized (poolLock) {
-                        connectionPool.remove(connection);
-                        activeConnections.decrementAndGet();
-                    }
-                    try {
-                        connection.close();
-                    } catch (SQLException ignored) {}
-                    connection = null;
+                // 连接层面的错误直接丢弃该连接，其余错误正常归还
+                if (isConnectionBroken(pooled.connection, e)) {
+                    connectionPool.invalidate(pooled);
+                } else {
+                    connectionPool.release(pooled);
                 }
                 throw e;
-            } finally {
-                if (connection != null) {
-                    returnConnection(connection);
-                }
+            } catch (RuntimeException e) {
+                connectionPool.release(pooled);
+                throw e;
             }
         }, maxRetries, 200, this::isDatabaseRetryableException);
     }
 
+    /**
+     * 判断异常是否意味着连接已不可用
+     */
+    private boolean isConnectionBroken(Connection connection, SQLException e) {
+        String sqlState = e.getSQLState();
+        if (sqlState != null && sqlState.startsWith("08")) {
+            return true;
+        }
+        try {
+            return connection.isClosed();
+        } catch (SQLException ignored) {
+            return true;
+        }
+    }
+
     /**
      * 判断数据库异常是否可重试
      */
@@ -297,34 +295,31 @@ public class MySqlStorage implements Storage {
         return false;
     }
 
+    @Override
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
     @Override
     public void close() {
-        synchronized (poolLock) {
-            for (Connection connection : connectionPool.keySet()) {
-                try {
-                    if (connection != null && !connection.isClosed()) {
-                        connection.close();
-                    }
-                } catch (SQLException e) {
-                    plugin.getLogger().warning("关闭数据库连接时出错: " + e.getMessage());
-                }
-            }
-            connectionPool.clear();
-            activeConnections.set(0);
-        }
+        // 先等待排队中的异步操作完成，再关闭连接
+        storageExecutor.shutdown();
+        
+        connectionPool.close();
         plugin.getLogger().info("MySQL连接池已关闭");
     }
 
     @Override
     public void setPlayerFlightTime(UUID uuid, long endTime) {
         try {
-            executeWithRetry("setPlayerFlightTime", connection -> {
+            executeWrite("setPlayerFlightTime", connection -> {
                 try (PreparedStatement stmt = connection.prepareStatement(
                     "REPLACE INTO " + table + " (uuid, end_time) VALUES (?, ?)"
                 )) {
                     stmt.setString(1, uuid.toString());
                     stmt.setLong(2, endTime);
                     stmt.executeUpdate();
+                    recordChange(connection, uuid, DataKind.FLIGHT);
                     return null;
                 }
             });
@@ -358,12 +353,13 @@ public class MySqlStorage implements Storage {
     @Override
     public void removePlayerFlightTime(UUID uuid) {
         try {
-            executeWithRetry("removePlayerFlightTime", connection -> {
+            executeWrite("removePlayerFlightTime", connection -> {
                 try (PreparedStatement stmt = connection.prepareStatement(
                     "DELETE FROM " + table + " WHERE uuid = ?"
                 )) {
                     stmt.setString(1, uuid.toString());
                     stmt.executeUpdate();
+                    recordChange(connection, uuid, DataKind.FLIGHT);
                     return null;
                 }
             });
@@ -398,6 +394,320 @@ public class MySqlStorage implements Storage {
         }
     }
 
+    @Override
+    public void forEachActiveFlight(long now, UuidLongMap.EntryConsumer consumer) {
+        // 按主键分页，每页单独查询和重试，只传输未过期的行
+        String sql = String.format(
+            "SELECT uuid, end_time FROM %s WHERE uuid > ? AND end_time > ? ORDER BY uuid LIMIT %d",
+            table, PRELOAD_PAGE_SIZE);
+        try {
+            String after = "";
+            while (after != null) {
+                String from = after;
+                Map<UUID, Long> page = new LinkedHashMap<>();
+                after = executeWithRetry("forEachActiveFlight", connection -> {
+                    page.clear();
+                    String last = null;
+                    int rows = 0;
+                    try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                        stmt.setString(1, from);
+                        stmt.setLong(2, now);
+                        stmt.setFetchSize(PRELOAD_PAGE_SIZE);
+                        try (ResultSet rs = stmt.executeQuery()) {
+                            while (rs.next()) {
+                                rows++;
+                                last = rs.getString("uuid");
+                                try {
+                                    page.put(UUID.fromString(last), rs.getLong("end_time"));
+                                } catch (IllegalArgumentException e) {
+                                    plugin.getLogger().warning("跳过无效的UUID: " + last);
+                                }
+                            }
+                        }
+                    }
+                    return rows < PRELOAD_PAGE_SIZE ? null : last;
+                });
+                // 回调放在查询之外，重试时不会重复交付
+                page.forEach(consumer::accept);
+            }
+        } catch (Exception e) {
+            plugin.getLogger().severe("遍历有效飞行数据失败: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public PlayerData loadPlayerProfile(UUID uuid) {
+        PlayerData profile = loadPlayerProfiles(Collections.singletonList(uuid)).get(uuid);
+        return profile != null ? profile : new PlayerData();
+    }
+
+    @Override
+    public Map<UUID, PlayerData> loadPlayerProfiles(Collection<UUID> uuids) {
+        try {
+            return executeWithRetry("loadPlayerProfiles", connection -> profileQuery.load(connection, uuids));
+        } catch (Exception e) {
+            plugin.getLogger().severe("批量读取玩家数据失败: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    // ============= 批量写入 =============
+
+    @Override
+    public void setPlayerFlightTimes(Map<UUID, Long> endTimes) {
+        executeBatch("setPlayerFlightTimes", "REPLACE INTO " + table + " (uuid, end_time) VALUES (?, ?)",
+            endTimes.entrySet(), (stmt, entry) -> {
+                stmt.setString(1, entry.getKey().toString());
+                stmt.setLong(2, entry.getValue());
+            }, DataKind.FLIGHT, Map.Entry::getKey);
+    }
+
+    @Override
+    public void removePlayerFlightTimes(Collection<UUID> uuids) {
+        executeBatch("removePlayerFlightTimes", "DELETE FROM " + table + " WHERE uuid = ?",
+            uuids, (stmt, uuid) -> stmt.setString(1, uuid.toString()), DataKind.FLIGHT, Function.identity());
+    }
+
+    @Override
+    public void addPlayerEffects(Collection<UUID> uuids, String effectName) {
+        executeBatch("批量添加玩家特效", String.format("INSERT INTO %s_effects (uuid, effect_name) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE purchased_at = CURRENT_TIMESTAMP", table),
+            uuids, (stmt, uuid) -> {
+                stmt.setString(1, uuid.toString());
+                stmt.setString(2, effectName);
+            }, DataKind.EFFECTS, Function.identity());
+    }
+
+    @Override
+    public void addPlayerSpeeds(Collection<UUID> uuids, String speedName) {
+        executeBatch("批量添加玩家速度", String.format("INSERT INTO %s_speeds (uuid, speed_name) VALUES (?, ?) " +
+                "ON DUPLICATE KEY UPDATE purchased_at = CURRENT_TIMESTAMP", table),
+            uuids, (stmt, uuid) -> {
+                stmt.setString(1, uuid.toString());
+                stmt.setString(2, speedName);
+            }, DataKind.SPEEDS, Function.identity());
+    }
+
+    @Override
+    public void setPlayerEffectTimes(Collection<UUID> uuids, String effectName, long endTime) {
+        executeBatch("批量设置玩家特效时间",
+            String.format("REPLACE INTO %s_effect_times (uuid, effect_name, end_time) VALUES (?, ?, ?)", table),
+            uuids, (stmt, uuid) -> {
+                stmt.setString(1, uuid.toString());
+                stmt.setString(2, effectName);
+                stmt.setLong(3, endTime);
+            }, DataKind.EFFECT_TIMES, Function.identity());
+    }
+
+    @Override
+    public void setPlayerSpeedTimes(Collection<UUID> uuids, String speedName, long endTime) {
+        executeBatch("批量设置玩家速度时间",
+            String.format("REPLACE INTO %s_speed_times (uuid, speed_name, end_time) VALUES (?, ?, ?)", table),
+            uuids, (stmt, uuid) -> {
+                stmt.setString(1, uuid.toString());
+                stmt.setString(2, speedName);
+                stmt.setLong(3, endTime);
+            }, DataKind.SPEED_TIMES, Function.identity());
+    }
+
+    /**
+     * 在一个事务中批量执行写入，驱动开启 rewriteBatchedStatements 后合并为多行语句
+     */
+    private <T> void executeBatch(String operationName, String sql, Collection<T> rows, JdbcBatch.Binder<T> binder,
+                                  DataKind kind, Function<T, UUID> uuidOf) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        executeWithRetry(operationName, connection -> inTransaction(connection, () -> {
+            try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+                JdbcBatch.addAll(stmt, rows, binder);
+            }
+            if (changelog != null) {
+                changelog.recordAll(connection, rows, uuidOf, row -> kind);
+            }
+            return null;
+        }));
+    }
+
+    /**
+     * 执行会记录变更日志的写入。启用变更日志时数据和日志行在同一事务中提交，
+     * 不会出现数据已提交而其他服务器收不到失效通知的情况；未启用时按自动提交执行
+     */
+    private <T> T executeWrite(String operationName, DatabaseOperation<T> operation) {
+        if (changelog == null) {
+            return executeWithRetry(operationName, operation);
+        }
+        return executeWithRetry(operationName, connection -> inTransaction(connection, () -> operation.execute(connection)));
+    }
+
+    /**
+     * 在一个事务中执行，失败时整体回滚，结束后恢复连接原来的自动提交设置
+     */
+    private static <T> T inTransaction(Connection connection, TransactionBody<T> body) throws SQLException {
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try {
+            T result = body.run();
+            connection.commit();
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            try {
+                connection.rollback();
+            } catch (SQLException ignored) {}
+            throw e;
+        } finally {
+            try {
+                connection.setAutoCommit(autoCommit);
+            } catch (SQLException ignored) {}
+        }
+    }
+
+    // ============= 变更日志 =============
+
+    /**
+     * 写入成功后记录变更，未启用变更日志时不做任何事
+     */
+    private void recordChange(Connection connection, UUID uuid, DataKind kind) throws SQLException {
+        if (changelog != null) {
+            changelog.record(connection, uuid, kind);
+        }
+    }
+
+    /**
+     * 过期数据对应的缓存数据类型
+     */
+    private static DataKind changedKind(ExpiryKey key) {
+        switch (key.getKind()) {
+            case EFFECT:
+                return DataKind.EFFECT_TIMES;
+            case SPEED:
+                return DataKind.SPEED_TIMES;
+            default:
+                return DataKind.FLIGHT;
+        }
+    }
+
+    /**
+     * 是否启用了变更日志
+     */
+    public boolean isChangelogEnabled() {
+        return changelog != null;
+    }
+
+    /**
+     * 本服务器写入变更日志时使用的标识
+     */
+    String getChangelogServerId() {
+        return changelog.getServerId();
+    }
+
+    /**
+     * 获取当前最大的变更编号
+     */
+    long getLatestChangeId() {
+        return executeWithRetry("getLatestChangeId", changelog::latestId);
+    }
+
+    /**
+     * 读取编号大于 afterId 的变更
+     */
+    List<MySqlChangelog.Change> pollChanges(long afterId, long settleMillis, int limit) {
+        return executeWithRetry("pollChanges", connection -> changelog.poll(connection, afterId, settleMillis, limit));
+    }
+
+    /**
+     * 删除超过保留时间的变更
+     */
+    int pruneChangelog() {
+        return executeWithRetry("pruneChangelog", connection -> changelog.prune(connection, changelogRetentionMinutes));
+    }
+
+    int getChangelogRetentionMinutes() {
+        return changelogRetentionMinutes;
+    }
+
+    // ============= 过期清理 =============
+
+    @Override
+    public Map<ExpiryKey, Long> pollExpired(long now) {
+        try {
+            return executeWithRetry("pollExpired", connection -> {
+                // 先锁定并读出过期行，再按 end_time 范围删除，两步在同一事务中完成
+                Map<ExpiryKey, Long> expired = new HashMap<>();
+                boolean autoCommit = connection.getAutoCommit();
+                connection.setAutoCommit(false);
+                try {
+                    collectExpired(connection, String.format(
+                        "SELECT uuid, end_time FROM %s WHERE end_time <= ? FOR UPDATE", table),
+                        now, ExpiryKey.Kind.FLIGHT, null, expired);
+                    collectExpired(connection, String.format(
+                        "SELECT uuid, effect_name, end_time FROM %s_effect_times WHERE end_time <= ? FOR UPDATE", table),
+                        now, ExpiryKey.Kind.EFFECT, "effect_name", expired);
+                    collectExpired(connection, String.format(
+                        "SELECT uuid, speed_name, end_time FROM %s_speed_times WHERE end_time <= ? FOR UPDATE", table),
+                        now, ExpiryKey.Kind.SPEED, "speed_name", expired);
+                    
+                    for (String tableName : new String[]{table, table + "_effect_times", table + "_speed_times"}) {
+                        try (PreparedStatement stmt = connection.prepareStatement(
+                                "DELETE FROM " + tableName + " WHERE end_time <= ?")) {
+                            stmt.setLong(1, now);
+                            stmt.executeUpdate();
+                        }
+                    }
+                    if (changelog != null) {
+                        changelog.recordAll(connection, expired.keySet(), ExpiryKey::getUuid, MySqlStorage::changedKind);
+                    }
+                    connection.commit();
+                    return expired;
+                } catch (SQLException e) {
+                    try {
+                        connection.rollback();
+                    } catch (SQLException ignored) {}
+                    throw e;
+                } finally {
+                    try {
+                        connection.setAutoCommit(autoCommit);
+                    } catch (SQLException ignored) {}
+                }
+            });
+        } catch (Exception e) {
+            plugin.getLogger().severe("清理过期数据失败: " + e.getMessage());
+            return new HashMap<>();
+        }
+    }
+
+    private void collectExpired(Connection connection, String sql, long now, ExpiryKey.Kind kind,
+                                       String nameColumn, Map<ExpiryKey, Long> expired) throws SQLException {
+        try (PreparedStatement stmt = connection.prepareStatement(sql)) {
+            stmt.setLong(1, now);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    String rawUuid = rs.getString("uuid");
+                    UUID uuid;
+                    try {
+                        uuid = UUID.fromString(rawUuid);
+                    } catch (IllegalArgumentException e) {
+                        // 单行数据损坏不能中断整次清理，该行仍会被随后的按时间删除清掉
+                        plugin.getLogger().warning(String.format("跳过UUID无效的过期记录 (%s): %s", kind, rawUuid));
+                        continue;
+                    }
+                    ExpiryKey key;
+                    switch (kind) {
+                        case EFFECT:
+                            key = ExpiryKey.effect(uuid, rs.getString(nameColumn));
+                            break;
+                        case SPEED:
+                            key = ExpiryKey.speed(uuid, rs.getString(nameColumn));
+                            break;
+                        default:
+                            key = ExpiryKey.flight(uuid);
+                    }
+                    expired.put(key, rs.getLong("end_time"));
+                }
+            }
+        }
+    }
+
     /**
      * 数据库操作函数式接口
      */
@@ -406,15 +716,19 @@ public class MySqlStorage implements Storage {
         T execute(Connection connection) throws SQLException;
     }
 
+    /**
+     * 事务内执行的操作
+     */
+    @FunctionalInterface
+    private interface TransactionBody<T> {
+        T run() throws SQLException;
+    }
+
     /**
      * 获取连接池状态信息
      */
     public String getPoolStatus() {
-        synchronized (poolLock) {
-            long activeCount = connectionPool.values().stream().mapToLong(inUse -> inUse ? 1 : 0).sum();
-            return String.format("连接池状态: %d/%d 活跃, %d 总连接", 
-                activeCount, maxConnections, connectionPool.size());
-        }
+        return connectionPool.getStatus();
     }
 
     /**
@@ -430,7 +744,7 @@ public class MySqlStorage implements Storage {
     
     @Override
     public void addPlayerEffect(UUID uuid, String effectName) {
-        executeWithRetry("添加玩家特效", connection -> {
+        executeWrite("添加玩家特效", connection -> {
             String sql = String.format("INSERT INTO %s_effects (uuid, effect_name) VALUES (?, ?) " +
                 "ON DUPLICATE KEY UPDATE purchased_at = CURRENT_TIMESTAMP", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -438,19 +752,21 @@ public class MySqlStorage implements Storage {
                 stmt.setString(2, effectName);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.EFFECTS);
             return null;
         });
     }
 
     @Override
     public void removePlayerEffect(UUID uuid, String effectName) {
-        executeWithRetry("删除玩家特效", connection -> {
+        executeWrite("删除玩家特效", connection -> {
             String sql = String.format("DELETE FROM %s_effects WHERE uuid = ? AND effect_name = ?", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
                 stmt.setString(1, uuid.toString());
                 stmt.setString(2, effectName);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.EFFECTS);
             return null;
         });
     }
@@ -493,7 +809,7 @@ public class MySqlStorage implements Storage {
     
     @Override
     public void addPlayerSpeed(UUID uuid, String speedName) {
-        executeWithRetry("添加玩家速度", connection -> {
+        executeWrite("添加玩家速度", connection -> {
             String sql = String.format("INSERT INTO %s_speeds (uuid, speed_name) VALUES (?, ?) " +
                 "ON DUPLICATE KEY UPDATE purchased_at = CURRENT_TIMESTAMP", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
@@ -501,19 +817,21 @@ public class MySqlStorage implements Storage {
                 stmt.setString(2, speedName);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.SPEEDS);
             return null;
         });
     }
 
     @Override
     public void removePlayerSpeed(UUID uuid, String speedName) {
-        executeWithRetry("删除玩家速度", connection -> {
+        executeWrite("删除玩家速度", connection -> {
             String sql = String.format("DELETE FROM %s_speeds WHERE uuid = ? AND speed_name = ?", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
                 stmt.setString(1, uuid.toString());
                 stmt.setString(2, speedName);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.SPEEDS);
             return null;
         });
     }
@@ -556,7 +874,7 @@ public class MySqlStorage implements Storage {
     
     @Override
     public void setPlayerEffectTime(UUID uuid, String effectName, long endTime) {
-        executeWithRetry("设置玩家特效时间", connection -> {
+        executeWrite("设置玩家特效时间", connection -> {
             String sql = String.format("REPLACE INTO %s_effect_times (uuid, effect_name, end_time) VALUES (?, ?, ?)", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
                 stmt.setString(1, uuid.toString());
@@ -564,6 +882,7 @@ public class MySqlStorage implements Storage {
                 stmt.setLong(3, endTime);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.EFFECT_TIMES);
             return null;
         });
     }
@@ -604,13 +923,14 @@ public class MySqlStorage implements Storage {
 
     @Override
     public void removePlayerEffectTime(UUID uuid, String effectName) {
-        executeWithRetry("删除玩家特效时间", connection -> {
+        executeWrite("删除玩家特效时间", connection -> {
             String sql = String.format("DELETE FROM %s_effect_times WHERE uuid = ? AND effect_name = ?", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
                 stmt.setString(1, uuid.toString());
                 stmt.setString(2, effectName);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.EFFECT_TIMES);
             return null;
         });
     }
@@ -637,7 +957,7 @@ public class MySqlStorage implements Storage {
     
     @Override
     public void setPlayerSpeedTime(UUID uuid, String speedName, long endTime) {
-        executeWithRetry("设置玩家速度时间", connection -> {
+        executeWrite("设置玩家速度时间", connection -> {
             String sql = String.format("REPLACE INTO %s_speed_times (uuid, speed_name, end_time) VALUES (?, ?, ?)", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
                 stmt.setString(1, uuid.toString());
@@ -645,6 +965,7 @@ public class MySqlStorage implements Storage {
                 stmt.setLong(3, endTime);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.SPEED_TIMES);
             return null;
         });
     }
@@ -685,13 +1006,14 @@ public class MySqlStorage implements Storage {
 
     @Override
     public void removePlayerSpeedTime(UUID uuid, String speedName) {
-        executeWithRetry("删除玩家速度时间", connection -> {
+        executeWrite("删除玩家速度时间", connection -> {
             String sql = String.format("DELETE FROM %s_speed_times WHERE uuid = ? AND speed_name = ?", table);
             try (PreparedStatement stmt = connection.prepareStatement(sql)) {
                 stmt.setString(1, uuid.toString());
                 stmt.setString(2, speedName);
                 stmt.executeUpdate();
             }
+            recordChange(connection, uuid, DataKind.SPEED_TIMES);
             return null;
         });
     }
@@ -0,0 +1,80 @@
+package org.littlesheep.data;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 名称字典 - 为特效/速度名称分配固定编号，编号即二进制存储中位图的位序号
+ *
+ * 每行一个名称，行号就是编号，只追加不修改。新名称先同步写入磁盘，
+ * 再写入引用它的记录，保证记录中的编号总能找到名称。
+ * 非线程安全，由调用方加锁。
+ */
+final class NameDictionary {
+    private final File file;
+    private final List<String> names = new ArrayList<>();
+    private final Map<String, Integer> ids = new HashMap<>();
+
+    NameDictionary(File file) throws IOException {
+        this.file = file;
+        if (!file.exists()) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // 空行也占一个编号，保证行号与编号一致
+                ids.putIfAbsent(line, names.size());
+                names.add(line);
+            }
+        }
+    }
+
+    /**
+     * 查找名称的编号，不存在时返回 -1
+     */
+    int find(String name) {
+        Integer id = ids.get(name);
+        return id != null ? id : -1;
+    }
+
+    /**
+     * 查找或分配名称的编号
+     */
+    int getOrCreate(String name) throws IOException {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        if (name.indexOf('\n') >= 0 || name.indexOf('\r') >= 0) {
+            throw new IOException("名称不能包含换行符: " + name);
+        }
+
+        try (FileOutputStream out = new FileOutputStream(file, true)) {
+            out.write((name + "\n").getBytes(StandardCharsets.UTF_8));
+            out.getFD().sync();
+        }
+        int newId = names.size();
+        names.add(name);
+        ids.put(name, newId);
+        return newId;
+    }
+
+    String nameOf(int id) {
+        return id >= 0 && id < names.size() ? names.get(id) : null;
+    }
+
+    int size() {
+        return names.size();
+    }
+}
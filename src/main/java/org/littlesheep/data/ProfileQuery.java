@@ -0,0 +1,156 @@
+package org.littlesheep.data;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 玩家数据聚合查询 - 用一条 UNION ALL 语句读取五张表中的玩家数据
+ *
+ * 每行结果为 (kind, uuid, name, end_time)，kind 区分数据来源表。
+ * MySQL 与 SQLite 的表结构一致，只是表名不同，因此共用此查询。
+ */
+final class ProfileQuery {
+    // 单条语句中 IN 列表的最大长度（五个子查询共 5 倍参数），避免超过 SQLite 的 999 个参数上限
+    static final int MAX_BATCH = 150;
+
+    private static final String KIND_FLIGHT = "F";
+    private static final String KIND_EFFECT = "E";
+    private static final String KIND_SPEED = "S";
+    private static final String KIND_EFFECT_TIME = "ET";
+    private static final String KIND_SPEED_TIME = "ST";
+
+    private final String flightTable;
+    private final String effectsTable;
+    private final String speedsTable;
+    private final String effectTimesTable;
+    private final String speedTimesTable;
+    private final Map<Integer, String> sqlCache = new ConcurrentHashMap<>();
+
+    ProfileQuery(String flightTable, String effectsTable, String speedsTable,
+                 String effectTimesTable, String speedTimesTable) {
+        this.flightTable = flightTable;
+        this.effectsTable = effectsTable;
+        this.speedsTable = speedsTable;
+        this.effectTimesTable = effectTimesTable;
+        this.speedTimesTable = speedTimesTable;
+    }
+
+    /**
+     * 获取预编译语句的方式
+     */
+    @FunctionalInterface
+    private interface StatementSource {
+        PreparedStatement prepare(String sql) throws SQLException;
+    }
+
+    /**
+     * 读取一批玩家的完整数据，每 {@link #MAX_BATCH} 个玩家一次往返
+     * 没有任何记录的玩家也会得到一个空的 PlayerData
+     */
+    Map<UUID, PlayerData> load(Connection connection, Collection<UUID> uuids) throws SQLException {
+        return load(connection::prepareStatement, true, uuids);
+    }
+
+    /**
+     * 使用连接上缓存的预编译语句读取
+     */
+    Map<UUID, PlayerData> load(CachedStatements statements, Collection<UUID> uuids) throws SQLException {
+        return load(statements::prepare, false, uuids);
+    }
+
+    private Map<UUID, PlayerData> load(StatementSource source, boolean closeStatements, Collection<UUID> uuids) throws SQLException {
+        if (uuids.isEmpty()) {
+            return Collections.emptyMap();
+        }
+
+        Map<UUID, PlayerData> profiles = new HashMap<>();
+        List<UUID> batch = new ArrayList<>(Math.min(uuids.size(), MAX_BATCH));
+        for (UUID uuid : uuids) {
+            profiles.put(uuid, new PlayerData());
+            batch.add(uuid);
+            if (batch.size() == MAX_BATCH) {
+                loadBatch(source, closeStatements, batch, profiles);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            loadBatch(source, closeStatements, batch, profiles);
+        }
+        return profiles;
+    }
+
+    private void loadBatch(StatementSource source, boolean closeStatement, List<UUID> batch,
+                           Map<UUID, PlayerData> profiles) throws SQLException {
+        String sql = sqlCache.computeIfAbsent(batch.size(), this::buildSql);
+        PreparedStatement stmt = source.prepare(sql);
+        try {
+            // 五个子查询使用同一组 uuid 参数
+            int index = 1;
+            for (int table = 0; table < 5; table++) {
+                for (UUID uuid : batch) {
+                    stmt.setString(index++, uuid.toString());
+                }
+            }
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    PlayerData profile = profiles.get(UUID.fromString(rs.getString("uuid")));
+                    if (profile == null) {
+                        continue;
+                    }
+                    apply(profile, rs.getString("kind"), rs.getString("name"), rs.getLong("end_time"));
+                }
+            }
+        } finally {
+            if (closeStatement) {
+                stmt.close();
+            }
+        }
+    }
+
+    private void apply(PlayerData profile, String kind, String name, long endTime) {
+        switch (kind) {
+            case KIND_FLIGHT:
+                profile.setFlightEndTime(endTime);
+                break;
+            case KIND_EFFECT:
+                profile.addEffect(name);
+                break;
+            case KIND_SPEED:
+                profile.addSpeed(name);
+                break;
+            case KIND_EFFECT_TIME:
+                profile.setEffectTime(name, endTime);
+                break;
+            case KIND_SPEED_TIME:
+                profile.setSpeedTime(name, endTime);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private String buildSql(int size) {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            placeholders.append(i == 0 ? "?" : ", ?");
+        }
+        String in = " WHERE uuid IN (" + placeholders + ")";
+
+        return "SELECT '" + KIND_FLIGHT + "' AS kind, uuid, NULL AS name, end_time FROM " + flightTable + in +
+            " UNION ALL SELECT '" + KIND_EFFECT + "', uuid, effect_name, 0 FROM " + effectsTable + in +
+            " UNION ALL SELECT '" + KIND_SPEED + "', uuid, speed_name, 0 FROM " + speedsTable + in +
+            " UNION ALL SELECT '" + KIND_EFFECT_TIME + "', uuid, effect_name, end_time FROM " + effectTimesTable + in +
+            " UNION ALL SELECT '" + KIND_SPEED_TIME + "', uuid, speed_name, end_time FROM " + speedTimesTable + in;
+    }
+}
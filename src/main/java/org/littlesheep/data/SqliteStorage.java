@@ -4,35 +4,136 @@ import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
 import java.sql.*;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
+import java.util.Properties;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * SQLite存储实现
+ *
+ * 数据库运行在 WAL 模式下：所有写入交给唯一的写线程按事务分组提交，
+ * 读取使用一组只读连接并发执行，读写互不阻塞。每个连接上的语句只编译一次。
+ */
+public class SqliteStorage implements AsyncStorage {
+    // SQLite 打开标志：只读
+    private static final int OPEN_READONLY = 0x00000001;
+
+    // 飞行时间
+    private static final String SQL_SET_FLIGHT = "INSERT OR REPLACE INTO player_flight_data (uuid, end_time) VALUES (?, ?)";
+    private static final String SQL_GET_FLIGHT = "SELECT end_time FROM player_flight_data WHERE uuid = ?";
+    private static final String SQL_REMOVE_FLIGHT = "DELETE FROM player_flight_data WHERE uuid = ?";
+    private static final String SQL_ALL_FLIGHT = "SELECT uuid, end_time FROM player_flight_data";
+    private static final String SQL_ACTIVE_FLIGHT = "SELECT uuid, end_time FROM player_flight_data WHERE end_time > ?";
+    // 特效
+    private static final String SQL_ADD_EFFECT = "INSERT OR REPLACE INTO player_effects (uuid, effect_name) VALUES (?, ?)";
+    private static final String SQL_REMOVE_EFFECT = "DELETE FROM player_effects WHERE uuid = ? AND effect_name = ?";
+    private static final String SQL_GET_EFFECTS = "SELECT effect_name FROM player_effects WHERE uuid = ?";
+    private static final String SQL_ALL_EFFECTS = "SELECT uuid, effect_name FROM player_effects";
+    // 速度
+    private static final String SQL_ADD_SPEED = "INSERT OR REPLACE INTO player_speeds (uuid, speed_name) VALUES (?, ?)";
+    private static final String SQL_REMOVE_SPEED = "DELETE FROM player_speeds WHERE uuid = ? AND speed_name = ?";
+    private static final String SQL_GET_SPEEDS = "SELECT speed_name FROM player_speeds WHERE uuid = ?";
+    private static final String SQL_ALL_SPEEDS = "SELECT uuid, speed_name FROM player_speeds";
+    // 时间限制特效
+    private static final String SQL_SET_EFFECT_TIME = "INSERT OR REPLACE INTO player_effect_times (uuid, effect_name, end_time) VALUES (?, ?, ?)";
+    private static final String SQL_GET_EFFECT_TIME = "SELECT end_time FROM player_effect_times WHERE uuid = ? AND effect_name = ?";
+    private static final String SQL_GET_EFFECT_TIMES = "SELECT effect_name, end_time FROM player_effect_times WHERE uuid = ?";
+    private static final String SQL_REMOVE_EFFECT_TIME = "DELETE FROM player_effect_times WHERE uuid = ? AND effect_name = ?";
+    private static final String SQL_ALL_EFFECT_TIMES = "SELECT uuid, effect_name, end_time FROM player_effect_times";
+    // 时间限制速度
+    private static final String SQL_SET_SPEED_TIME = "INSERT OR REPLACE INTO player_speed_times (uuid, speed_name, end_time) VALUES (?, ?, ?)";
+    private static final String SQL_GET_SPEED_TIME = "SELECT end_time FROM player_speed_times WHERE uuid = ? AND speed_name = ?";
+    private static final String SQL_GET_SPEED_TIMES = "SELECT speed_name, end_time FROM player_speed_times WHERE uuid = ?";
+    private static final String SQL_REMOVE_SPEED_TIME = "DELETE FROM player_speed_times WHERE uuid = ? AND speed_name = ?";
+    private static final String SQL_ALL_SPEED_TIMES = "SELECT uuid, speed_name, end_time FROM player_speed_times";
+    // 过期清理（走 end_time 索引的范围查询和范围删除）
+    private static final String SQL_EXPIRED_FLIGHT = "SELECT uuid, end_time FROM player_flight_data WHERE end_time <= ?";
+    private static final String SQL_DELETE_EXPIRED_FLIGHT = "DELETE FROM player_flight_data WHERE end_time <= ?";
+    private static final String SQL_EXPIRED_EFFECT_TIMES = "SELECT uuid, effect_name, end_time FROM player_effect_times WHERE end_time <= ?";
+    private static final String SQL_DELETE_EXPIRED_EFFECT_TIMES = "DELETE FROM player_effect_times WHERE end_time <= ?";
+    private static final String SQL_EXPIRED_SPEED_TIMES = "SELECT uuid, speed_name, end_time FROM player_speed_times WHERE end_time <= ?";
+    private static final String SQL_DELETE_EXPIRED_SPEED_TIMES = "DELETE FROM player_speed_times WHERE end_time <= ?";
 
-public class SqliteStorage implements Storage {
     private final JavaPlugin plugin;
-    private Connection connection;
     private final String dbFile;
+    private final int readConnections;
+    private final int maxWriteBatch;
+    private final int busyTimeoutMs;
+
+    // 只读连接池
+    private final BlockingQueue<CachedStatements> readers;
+    // 单写线程
+    private SqliteWriteQueue writeQueue;
+    // 异步读取线程数与只读连接数一致
+    private final StorageExecutor storageExecutor;
+    // 玩家数据聚合查询
+    private final ProfileQuery profileQuery = new ProfileQuery("player_flight_data", "player_effects",
+        "player_speeds", "player_effect_times", "player_speed_times");
 
     public SqliteStorage(JavaPlugin plugin) {
         this.plugin = plugin;
-        this.dbFile = new File(plugin.getDataFolder(), 
+        this.dbFile = new File(plugin.getDataFolder(),
             plugin.getConfig().getString("storage.sqlite.file", "database.db")).getAbsolutePath();
+        this.readConnections = Math.max(1, plugin.getConfig().getInt("storage.sqlite.read-connections", 4));
+        this.maxWriteBatch = plugin.getConfig().getInt("storage.sqlite.max-write-batch", 256);
+        this.busyTimeoutMs = plugin.getConfig().getInt("storage.sqlite.busy-timeout", 5000);
+        this.readers = new ArrayBlockingQueue<>(readConnections);
+        this.storageExecutor = new StorageExecutor(plugin, "SQLite", readConnections);
     }
 
     @Override
     public void init() {
         try {
             Class.forName("org.sqlite.JDBC");
-            connection = DriverManager.getConnection("jdbc:sqlite:" + dbFile);
-            createTable();
+
+            // 写连接负责建表并切换到 WAL 模式（WAL 设置持久保存在数据库文件中）
+            Connection writeConnection = openConnection(false);
+            try (Statement stmt = writeConnection.createStatement()) {
+                stmt.execute("PRAGMA journal_mode=WAL");
+            }
+            createTable(writeConnection);
+            writeQueue = new SqliteWriteQueue(plugin, new CachedStatements(writeConnection), maxWriteBatch);
+
+            for (int i = 0; i < readConnections; i++) {
+                readers.add(new CachedStatements(openConnection(true)));
+            }
+            plugin.getLogger().info(String.format("SQLite数据库已初始化 (WAL模式, %d 个只读连接)", readConnections));
         } catch (Exception e) {
             plugin.getLogger().severe("无法初始化SQLite数据库: " + e.getMessage());
         }
     }
 
-    private void createTable() throws SQLException {
+    /**
+     * 打开数据库连接
+     * @param readOnly 是否以只读方式打开
+     */
+    private Connection openConnection(boolean readOnly) throws SQLException {
+        Properties properties = new Properties();
+        properties.setProperty("journal_mode", "WAL");
+        // WAL 模式下 NORMAL 同步级别已能保证数据库一致性，只在检查点时 fsync
+        properties.setProperty("synchronous", "NORMAL");
+        properties.setProperty("busy_timeout", String.valueOf(busyTimeoutMs));
+        if (readOnly) {
+            properties.setProperty("open_mode", String.valueOf(OPEN_READONLY));
+        } else {
+            // 写事务直接获取写锁，避免读升级为写时的 SQLITE_BUSY
+            properties.setProperty("transaction_mode", "IMMEDIATE");
+        }
+        return DriverManager.getConnection("jdbc:sqlite:" + dbFile, properties);
+    }
+
+    private void createTable(Connection connection) throws SQLException {
         try (Statement stmt = connection.createStatement()) {
             // 飞行时间表
             stmt.executeUpdate(
@@ -40,7 +141,7 @@ public class SqliteStorage implements Storage {
                 "uuid TEXT PRIMARY KEY, " +
                 "end_time INTEGER)"
             );
-            
+
             // 特效购买记录表
             stmt.executeUpdate(
                 "CREATE TABLE IF NOT EXISTS player_effects (" +
@@ -48,7 +149,7 @@ public class SqliteStorage implements Storage {
                 "effect_name TEXT, " +
                 "PRIMARY KEY (uuid, effect_name))"
             );
-            
+
             // 速度购买记录表
             stmt.executeUpdate(
                 "CREATE TABLE IF NOT EXISTS player_speeds (" +
@@ -56,7 +157,7 @@ public class SqliteStorage implements Storage {
                 "speed_name TEXT, " +
                 "PRIMARY KEY (uuid, speed_name))"
             );
-            
+
             // 时间限制特效购买记录表
             stmt.executeUpdate(
                 "CREATE TABLE IF NOT EXISTS player_effect_times (" +
@@ -65,7 +166,7 @@ public class SqliteStorage implements Storage {
                 "end_time INTEGER, " +
                 "PRIMARY KEY (uuid, effect_name))"
             );
-            
+
             // 时间限制速度购买记录表
             stmt.executeUpdate(
                 "CREATE TABLE IF NOT EXISTS player_speed_times (" +
@@ -74,356 +175,541 @@ public class SqliteStorage implements Storage {
                 "end_time INTEGER, " +
                 "PRIMARY KEY (uuid, speed_name))"
             );
+
+            // 到期时间索引，用于过期清理
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_flight_end_time ON player_flight_data (end_time)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_effect_times_end_time ON player_effect_times (end_time)");
+            stmt.executeUpdate("CREATE INDEX IF NOT EXISTS idx_speed_times_end_time ON player_speed_times (end_time)");
         }
     }
 
+    @Override
+    public StorageExecutor getStorageExecutor() {
+        return storageExecutor;
+    }
+
     @Override
     public void close() {
+        // 先等待排队中的异步操作，再提交剩余写入，最后关闭只读连接
+        storageExecutor.shutdown();
+        if (writeQueue != null) {
+            writeQueue.close();
+        }
+        CachedStatements reader;
+        while ((reader = readers.poll()) != null) {
+            reader.close();
+        }
+    }
+
+    // ========== 读写通道 ==========
+
+    /**
+     * 只读连接上的查询
+     */
+    @FunctionalInterface
+    private interface ReadOperation<T> {
+        T execute(CachedStatements statements) throws SQLException;
+    }
+
+    /**
+     * 借用一个只读连接执行查询，出错时记录日志并返回 fallback
+     */
+    private <T> T read(String operationName, T fallback, ReadOperation<T> operation) {
+        CachedStatements reader = null;
         try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
+            reader = readers.poll(busyTimeoutMs, TimeUnit.MILLISECONDS);
+            if (reader == null) {
+                throw new SQLException("等待只读连接超时");
             }
+            return operation.execute(reader);
         } catch (SQLException e) {
-            plugin.getLogger().severe("关闭数据库连接时出错: " + e.getMessage());
+            plugin.getLogger().severe(operationName + "时出错: " + e.getMessage());
+            return fallback;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback;
+        } finally {
+            if (reader != null) {
+                readers.offer(reader);
+            }
+        }
+    }
+
+    /**
+     * 提交写操作到写线程，不等待提交
+     */
+    private CompletableFuture<Void> writeAsync(String operationName, SqliteWriteQueue.WriteOperation operation) {
+        if (writeQueue == null) {
+            CompletableFuture<Void> failed = new CompletableFuture<>();
+            failed.completeExceptionally(new SQLException("SQLite数据库未初始化"));
+            plugin.getLogger().severe(operationName + "时出错: SQLite数据库未初始化");
+            return failed;
+        }
+        return writeQueue.submit(operationName, operation);
+    }
+
+    /**
+     * 提交写操作并等待所在事务提交，保证随后的读取能看到本次写入
+     * 失败已由写线程记录日志
+     */
+    private void write(String operationName, SqliteWriteQueue.WriteOperation operation) {
+        try {
+            writeAsync(operationName, operation).get(busyTimeoutMs * 2L, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (TimeoutException e) {
+            plugin.getLogger().warning(operationName + "等待提交超时，写入仍在队列中");
+        } catch (ExecutionException ignored) {
+        }
+    }
+
+    private static SqliteWriteQueue.WriteOperation update(String sql, JdbcBatch.Binder<Void> binder) {
+        return statements -> {
+            PreparedStatement stmt = statements.prepare(sql);
+            binder.bind(stmt, null);
+            stmt.executeUpdate();
+        };
+    }
+
+    private static <T> SqliteWriteQueue.WriteOperation batch(String sql, Collection<T> rows, JdbcBatch.Binder<T> binder) {
+        return statements -> JdbcBatch.addAll(statements.prepare(sql), rows, binder);
+    }
+
+    // ========== 聚合读取 ==========
+
+    @Override
+    public PlayerData loadPlayerProfile(UUID uuid) {
+        PlayerData profile = loadPlayerProfiles(Collections.singletonList(uuid)).get(uuid);
+        return profile != null ? profile : new PlayerData();
+    }
+
+    @Override
+    public Map<UUID, PlayerData> loadPlayerProfiles(Collection<UUID> uuids) {
+        return read("批量读取玩家数据", new HashMap<>(), statements -> profileQuery.load(statements, uuids));
+    }
+
+    // ========== 批量写入 ==========
+
+    @Override
+    public void setPlayerFlightTimes(Map<UUID, Long> endTimes) {
+        if (endTimes.isEmpty()) {
+            return;
         }
+        write("批量保存玩家数据", batch(SQL_SET_FLIGHT, endTimes.entrySet(), (stmt, entry) -> {
+            stmt.setString(1, entry.getKey().toString());
+            stmt.setLong(2, entry.getValue());
+        }));
+    }
+
+    @Override
+    public void removePlayerFlightTimes(Collection<UUID> uuids) {
+        if (uuids.isEmpty()) {
+            return;
+        }
+        write("批量删除玩家数据", batch(SQL_REMOVE_FLIGHT, uuids, (stmt, uuid) -> stmt.setString(1, uuid.toString())));
+    }
+
+    @Override
+    public void addPlayerEffects(Collection<UUID> uuids, String effectName) {
+        if (uuids.isEmpty()) {
+            return;
+        }
+        write("批量添加玩家特效", batch(SQL_ADD_EFFECT, uuids, (stmt, uuid) -> {
+            stmt.setString(1, uuid.toString());
+            stmt.setString(2, effectName);
+        }));
     }
 
+    @Override
+    public void addPlayerSpeeds(Collection<UUID> uuids, String speedName) {
+        if (uuids.isEmpty()) {
+            return;
+        }
+        write("批量添加玩家速度", batch(SQL_ADD_SPEED, uuids, (stmt, uuid) -> {
+            stmt.setString(1, uuid.toString());
+            stmt.setString(2, speedName);
+        }));
+    }
+
+    @Override
+    public void setPlayerEffectTimes(Collection<UUID> uuids, String effectName, long endTime) {
+        if (uuids.isEmpty()) {
+            return;
+        }
+        write("批量设置玩家特效时间", batch(SQL_SET_EFFECT_TIME, uuids, (stmt, uuid) -> {
+            stmt.setString(1, uuid.toString());
+            stmt.setString(2, effectName);
+            stmt.setLong(3, endTime);
+        }));
+    }
+
+    @Override
+    public void setPlayerSpeedTimes(Collection<UUID> uuids, String speedName, long endTime) {
+        if (uuids.isEmpty()) {
+            return;
+        }
+        write("批量设置玩家速度时间", batch(SQL_SET_SPEED_TIME, uuids, (stmt, uuid) -> {
+            stmt.setString(1, uuid.toString());
+            stmt.setString(2, speedName);
+            stmt.setLong(3, endTime);
+        }));
+    }
+
+    // ========== 飞行时间 ==========
+
     @Override
     public void setPlayerFlightTime(UUID uuid, long endTime) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "INSERT OR REPLACE INTO player_flight_data (uuid, end_time) VALUES (?, ?)"
-        )) {
+        write("保存玩家数据", setFlightOperation(uuid, endTime));
+    }
+
+    @Override
+    public CompletableFuture<Void> setPlayerFlightTimeAsync(UUID uuid, long endTime) {
+        return writeAsync("保存玩家数据", setFlightOperation(uuid, endTime));
+    }
+
+    private SqliteWriteQueue.WriteOperation setFlightOperation(UUID uuid, long endTime) {
+        return update(SQL_SET_FLIGHT, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setLong(2, endTime);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("保存玩家数据时出错: " + e.getMessage());
-        }
+        });
     }
 
     @Override
     public Long getPlayerFlightTime(UUID uuid) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "SELECT end_time FROM player_flight_data WHERE uuid = ?"
-        )) {
+        return read("获取玩家数据", null, statements -> {
+            PreparedStatement stmt = statements.prepare(SQL_GET_FLIGHT);
             stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getLong("end_time");
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getLong("end_time") : null;
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取玩家数据时出错: " + e.getMessage());
-        }
-        return null;
+        });
     }
 
     @Override
     public void removePlayerFlightTime(UUID uuid) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "DELETE FROM player_flight_data WHERE uuid = ?"
-        )) {
-            stmt.setString(1, uuid.toString());
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("删除玩家数据时出错: " + e.getMessage());
-        }
+        write("删除玩家数据", removeFlightOperation(uuid));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerFlightTimeAsync(UUID uuid) {
+        return writeAsync("删除玩家数据", removeFlightOperation(uuid));
+    }
+
+    private SqliteWriteQueue.WriteOperation removeFlightOperation(UUID uuid) {
+        return update(SQL_REMOVE_FLIGHT, (stmt, ignored) -> stmt.setString(1, uuid.toString()));
     }
 
     @Override
     public Map<UUID, Long> getAllPlayerData() {
-        Map<UUID, Long> data = new HashMap<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT * FROM player_flight_data");
-            while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                long endTime = rs.getLong("end_time");
-                data.put(uuid, endTime);
+        return read("获取所有玩家数据", new HashMap<>(), statements -> {
+            Map<UUID, Long> data = new HashMap<>();
+            try (ResultSet rs = statements.prepare(SQL_ALL_FLIGHT).executeQuery()) {
+                while (rs.next()) {
+                    data.put(UUID.fromString(rs.getString("uuid")), rs.getLong("end_time"));
+                }
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取所有玩家数据时出错: " + e.getMessage());
-        }
-        return data;
+            return data;
+        });
+    }
+
+    @Override
+    public void forEachActiveFlight(long now, UuidLongMap.EntryConsumer consumer) {
+        // SQLite 逐行读取结果，走 end_time 索引只访问未过期的行
+        read("遍历有效飞行数据", null, statements -> {
+            PreparedStatement stmt = statements.prepare(SQL_ACTIVE_FLIGHT);
+            stmt.setLong(1, now);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    consumer.accept(UUID.fromString(rs.getString("uuid")), rs.getLong("end_time"));
+                }
+            }
+            return null;
+        });
     }
 
     // ============= 特效购买记录相关方法 =============
-    
+
     @Override
     public void addPlayerEffect(UUID uuid, String effectName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "INSERT OR REPLACE INTO player_effects (uuid, effect_name) VALUES (?, ?)"
-        )) {
+        write("添加玩家特效", update(SQL_ADD_EFFECT, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, effectName);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("添加玩家特效时出错: " + e.getMessage());
-        }
+        }));
     }
 
     @Override
     public void removePlayerEffect(UUID uuid, String effectName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "DELETE FROM player_effects WHERE uuid = ? AND effect_name = ?"
-        )) {
+        write("删除玩家特效", update(SQL_REMOVE_EFFECT, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, effectName);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("删除玩家特效时出错: " + e.getMessage());
-        }
+        }));
     }
 
     @Override
     public Set<String> getPlayerEffects(UUID uuid) {
-        Set<String> effects = new HashSet<>();
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "SELECT effect_name FROM player_effects WHERE uuid = ?"
-        )) {
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                effects.add(rs.getString("effect_name"));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取玩家特效时出错: " + e.getMessage());
-        }
-        return effects;
+        return read("获取玩家特效", new HashSet<>(), statements -> readNames(statements, SQL_GET_EFFECTS, uuid, "effect_name"));
     }
 
     @Override
     public Map<UUID, Set<String>> getAllPlayerEffects() {
-        Map<UUID, Set<String>> allEffects = new HashMap<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT * FROM player_effects");
-            while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                String effectName = rs.getString("effect_name");
-                allEffects.computeIfAbsent(uuid, k -> new HashSet<>()).add(effectName);
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取所有玩家特效时出错: " + e.getMessage());
-        }
-        return allEffects;
+        return read("获取所有玩家特效", new HashMap<>(), statements -> readAllNames(statements, SQL_ALL_EFFECTS, "effect_name"));
     }
 
     // ============= 速度购买记录相关方法 =============
-    
+
     @Override
     public void addPlayerSpeed(UUID uuid, String speedName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "INSERT OR REPLACE INTO player_speeds (uuid, speed_name) VALUES (?, ?)"
-        )) {
+        write("添加玩家速度", update(SQL_ADD_SPEED, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, speedName);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("添加玩家速度时出错: " + e.getMessage());
-        }
+        }));
     }
 
     @Override
     public void removePlayerSpeed(UUID uuid, String speedName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "DELETE FROM player_speeds WHERE uuid = ? AND speed_name = ?"
-        )) {
+        write("删除玩家速度", update(SQL_REMOVE_SPEED, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, speedName);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("删除玩家速度时出错: " + e.getMessage());
-        }
+        }));
     }
 
     @Override
     public Set<String> getPlayerSpeeds(UUID uuid) {
-        Set<String> speeds = new HashSet<>();
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "SELECT speed_name FROM player_speeds WHERE uuid = ?"
-        )) {
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                speeds.add(rs.getString("speed_name"));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取玩家速度时出错: " + e.getMessage());
-        }
-        return speeds;
+        return read("获取玩家速度", new HashSet<>(), statements -> readNames(statements, SQL_GET_SPEEDS, uuid, "speed_name"));
     }
 
     @Override
     public Map<UUID, Set<String>> getAllPlayerSpeeds() {
-        Map<UUID, Set<String>> allSpeeds = new HashMap<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT * FROM player_speeds");
-            while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                String speedName = rs.getString("speed_name");
-                allSpeeds.computeIfAbsent(uuid, k -> new HashSet<>()).add(speedName);
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取所有玩家速度时出错: " + e.getMessage());
-        }
-        return allSpeeds;
+        return read("获取所有玩家速度", new HashMap<>(), statements -> readAllNames(statements, SQL_ALL_SPEEDS, "speed_name"));
     }
 
     // ============= 时间限制特效购买记录相关方法 =============
-    
+
     @Override
     public void setPlayerEffectTime(UUID uuid, String effectName, long endTime) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "INSERT OR REPLACE INTO player_effect_times (uuid, effect_name, end_time) VALUES (?, ?, ?)"
-        )) {
+        write("设置玩家特效时间", update(SQL_SET_EFFECT_TIME, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, effectName);
             stmt.setLong(3, endTime);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("设置玩家特效时间时出错: " + e.getMessage());
-        }
+        }));
     }
 
     @Override
     public Long getPlayerEffectTime(UUID uuid, String effectName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "SELECT end_time FROM player_effect_times WHERE uuid = ? AND effect_name = ?"
-        )) {
-            stmt.setString(1, uuid.toString());
-            stmt.setString(2, effectName);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getLong("end_time");
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取玩家特效时间时出错: " + e.getMessage());
-        }
-        return null;
+        return read("获取玩家特效时间", null, statements -> readTime(statements, SQL_GET_EFFECT_TIME, uuid, effectName));
     }
 
     @Override
     public Map<String, Long> getPlayerEffectTimes(UUID uuid) {
-        Map<String, Long> effectTimes = new HashMap<>();
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "SELECT effect_name, end_time FROM player_effect_times WHERE uuid = ?"
-        )) {
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
-            while (rs.next()) {
-                effectTimes.put(rs.getString("effect_name"), rs.getLong("end_time"));
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取玩家特效时间列表时出错: " + e.getMessage());
-        }
-        return effectTimes;
+        return read("获取玩家特效时间列表", new HashMap<>(),
+            statements -> readTimes(statements, SQL_GET_EFFECT_TIMES, uuid, "effect_name"));
     }
 
     @Override
     public void removePlayerEffectTime(UUID uuid, String effectName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "DELETE FROM player_effect_times WHERE uuid = ? AND effect_name = ?"
-        )) {
+        write("删除玩家特效时间", removeEffectTimeOperation(uuid, effectName));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerEffectTimeAsync(UUID uuid, String effectName) {
+        return writeAsync("删除玩家特效时间", removeEffectTimeOperation(uuid, effectName));
+    }
+
+    private SqliteWriteQueue.WriteOperation removeEffectTimeOperation(UUID uuid, String effectName) {
+        return update(SQL_REMOVE_EFFECT_TIME, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, effectName);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("删除玩家特效时间时出错: " + e.getMessage());
-        }
+        });
     }
 
     @Override
     public Map<UUID, Map<String, Long>> getAllPlayerEffectTimes() {
-        Map<UUID, Map<String, Long>> allEffectTimes = new HashMap<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT * FROM player_effect_times");
-            while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                String effectName = rs.getString("effect_name");
-                long endTime = rs.getLong("end_time");
-                allEffectTimes.computeIfAbsent(uuid, k -> new HashMap<>()).put(effectName, endTime);
-            }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取所有玩家特效时间时出错: " + e.getMessage());
-        }
-        return allEffectTimes;
+        return read("获取所有玩家特效时间", new HashMap<>(),
+            statements -> readAllTimes(statements, SQL_ALL_EFFECT_TIMES, "effect_name"));
     }
 
     // ============= 时间限制速度购买记录相关方法 =============
-    
+
     @Override
     public void setPlayerSpeedTime(UUID uuid, String speedName, long endTime) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "INSERT OR REPLACE INTO player_speed_times (uuid, speed_name, end_time) VALUES (?, ?, ?)"
-        )) {
+        write("设置玩家速度时间", update(SQL_SET_SPEED_TIME, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, speedName);
             stmt.setLong(3, endTime);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("设置玩家速度时间时出错: " + e.getMessage());
-        }
+        }));
     }
 
     @Override
     public Long getPlayerSpeedTime(UUID uuid, String speedName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "SELECT end_time FROM player_speed_times WHERE uuid = ? AND speed_name = ?"
-        )) {
+        return read("获取玩家速度时间", null, statements -> readTime(statements, SQL_GET_SPEED_TIME, uuid, speedName));
+    }
+
+    @Override
+    public Map<String, Long> getPlayerSpeedTimes(UUID uuid) {
+        return read("获取玩家速度时间列表", new HashMap<>(),
+            statements -> readTimes(statements, SQL_GET_SPEED_TIMES, uuid, "speed_name"));
+    }
+
+    @Override
+    public void removePlayerSpeedTime(UUID uuid, String speedName) {
+        write("删除玩家速度时间", removeSpeedTimeOperation(uuid, speedName));
+    }
+
+    @Override
+    public CompletableFuture<Void> removePlayerSpeedTimeAsync(UUID uuid, String speedName) {
+        return writeAsync("删除玩家速度时间", removeSpeedTimeOperation(uuid, speedName));
+    }
+
+    private SqliteWriteQueue.WriteOperation removeSpeedTimeOperation(UUID uuid, String speedName) {
+        return update(SQL_REMOVE_SPEED_TIME, (stmt, ignored) -> {
             stmt.setString(1, uuid.toString());
             stmt.setString(2, speedName);
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getLong("end_time");
+        });
+    }
+
+    @Override
+    public Map<UUID, Map<String, Long>> getAllPlayerSpeedTimes() {
+        return read("获取所有玩家速度时间", new HashMap<>(),
+            statements -> readAllTimes(statements, SQL_ALL_SPEED_TIMES, "speed_name"));
+    }
+
+    // ============= 查询辅助方法 =============
+
+    private Set<String> readNames(CachedStatements statements, String sql, UUID uuid, String column) throws SQLException {
+        Set<String> names = new HashSet<>();
+        PreparedStatement stmt = statements.prepare(sql);
+        stmt.setString(1, uuid.toString());
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                names.add(rs.getString(column));
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取玩家速度时间时出错: " + e.getMessage());
         }
-        return null;
+        return names;
     }
 
-    @Override
-    public Map<String, Long> getPlayerSpeedTimes(UUID uuid) {
-        Map<String, Long> speedTimes = new HashMap<>();
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "SELECT speed_name, end_time FROM player_speed_times WHERE uuid = ?"
-        )) {
-            stmt.setString(1, uuid.toString());
-            ResultSet rs = stmt.executeQuery();
+    private Map<UUID, Set<String>> readAllNames(CachedStatements statements, String sql, String column) throws SQLException {
+        Map<UUID, Set<String>> all = new HashMap<>();
+        try (ResultSet rs = statements.prepare(sql).executeQuery()) {
             while (rs.next()) {
-                speedTimes.put(rs.getString("speed_name"), rs.getLong("end_time"));
+                UUID uuid = UUID.fromString(rs.getString("uuid"));
+                all.computeIfAbsent(uuid, k -> new HashSet<>()).add(rs.getString(column));
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取玩家速度时间列表时出错: " + e.getMessage());
         }
-        return speedTimes;
+        return all;
     }
 
+    private Long readTime(CachedStatements statements, String sql, UUID uuid, String name) throws SQLException {
+        PreparedStatement stmt = statements.prepare(sql);
+        stmt.setString(1, uuid.toString());
+        stmt.setString(2, name);
+        try (ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getLong("end_time") : null;
+        }
+    }
+
+    private Map<String, Long> readTimes(CachedStatements statements, String sql, UUID uuid, String column) throws SQLException {
+        Map<String, Long> times = new HashMap<>();
+        PreparedStatement stmt = statements.prepare(sql);
+        stmt.setString(1, uuid.toString());
+        try (ResultSet rs = stmt.executeQuery()) {
+            while (rs.next()) {
+                times.put(rs.getString(column), rs.getLong("end_time"));
+            }
+        }
+        return times;
+    }
+
+    private Map<UUID, Map<String, Long>> readAllTimes(CachedStatements statements, String sql, String column) throws SQLException {
+        Map<UUID, Map<String, Long>> all = new HashMap<>();
+        try (ResultSet rs = statements.prepare(sql).executeQuery()) {
+            while (rs.next()) {
+                UUID uuid = UUID.fromString(rs.getString("uuid"));
+                all.computeIfAbsent(uuid, k -> new HashMap<>()).put(rs.getString(column), rs.getLong("end_time"));
+            }
+        }
+        return all;
+    }
+
+    // ========== 过期清理 ==========
+
+    /**
+     * 等待清理事务提交后返回删除的记录。不设超时：删除一旦排入写队列就会提交，
+     * 超时返回空结果会让已删除的记录永远不被上报；写线程关闭时也会让等待者失败返回
+     */
     @Override
-    public void removePlayerSpeedTime(UUID uuid, String speedName) {
-        try (PreparedStatement stmt = connection.prepareStatement(
-            "DELETE FROM player_speed_times WHERE uuid = ? AND speed_name = ?"
-        )) {
-            stmt.setString(1, uuid.toString());
-            stmt.setString(2, speedName);
-            stmt.executeUpdate();
-        } catch (SQLException e) {
-            plugin.getLogger().severe("删除玩家速度时间时出错: " + e.getMessage());
+    public Map<ExpiryKey, Long> pollExpired(long now) {
+        try {
+            return pollExpiredAsync(now).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException ignored) {
+            // 失败已由写线程记录日志
         }
+        return new HashMap<>();
     }
 
     @Override
-    public Map<UUID, Map<String, Long>> getAllPlayerSpeedTimes() {
-        Map<UUID, Map<String, Long>> allSpeedTimes = new HashMap<>();
-        try (Statement stmt = connection.createStatement()) {
-            ResultSet rs = stmt.executeQuery("SELECT * FROM player_speed_times");
+    public CompletableFuture<Map<ExpiryKey, Long>> pollExpiredAsync(long now) {
+        // 查询和删除在写线程的同一个事务中执行，两者之间不会插入其他写入；结果随该事务的 future 一起返回
+        Map<ExpiryKey, Long> expired = new HashMap<>();
+        return writeAsync("清理过期数据", statements -> {
+            expired.clear();
+            collectExpired(statements.prepare(SQL_EXPIRED_FLIGHT), now, ExpiryKey.Kind.FLIGHT, null, expired);
+            collectExpired(statements.prepare(SQL_EXPIRED_EFFECT_TIMES), now, ExpiryKey.Kind.EFFECT, "effect_name", expired);
+            collectExpired(statements.prepare(SQL_EXPIRED_SPEED_TIMES), now, ExpiryKey.Kind.SPEED, "speed_name", expired);
+            for (String sql : new String[]{SQL_DELETE_EXPIRED_FLIGHT, SQL_DELETE_EXPIRED_EFFECT_TIMES, SQL_DELETE_EXPIRED_SPEED_TIMES}) {
+                PreparedStatement stmt = statements.prepare(sql);
+                stmt.setLong(1, now);
+                stmt.executeUpdate();
+            }
+        }).thenApply(ignored -> expired);
+    }
+
+    private void collectExpired(PreparedStatement stmt, long now, ExpiryKey.Kind kind, String nameColumn,
+                                       Map<ExpiryKey, Long> expired) throws SQLException {
+        stmt.setLong(1, now);
+        try (ResultSet rs = stmt.executeQuery()) {
             while (rs.next()) {
-                UUID uuid = UUID.fromString(rs.getString("uuid"));
-                String speedName = rs.getString("speed_name");
-                long endTime = rs.getLong("end_time");
-                allSpeedTimes.computeIfAbsent(uuid, k -> new HashMap<>()).put(speedName, endTime);
+                String rawUuid = rs.getString("uuid");
+                UUID uuid;
+                try {
+                    uuid = UUID.fromString(rawUuid);
+                } catch (IllegalArgumentException e) {
+                    // 单行数据损坏不能中断整次清理，该行仍会被随后的按时间删除清掉
+                    plugin.getLogger().warning(String.format("跳过UUID无效的过期记录 (%s): %s", kind, rawUuid));
+                    continue;
+                }
+                ExpiryKey key;
+                switch (kind) {
+                    case EFFECT:
+                        key = ExpiryKey.effect(uuid, rs.getString(nameColumn));
+                        break;
+                    case SPEED:
+                        key = ExpiryKey.speed(uuid, rs.getString(nameColumn));
+                        break;
+                    default:
+                        key = ExpiryKey.flight(uuid);
+                }
+                expired.put(key, rs.getLong("end_time"));
             }
-        } catch (SQLException e) {
-            plugin.getLogger().severe("获取所有玩家速度时间时出错: " + e.getMessage());
         }
-        return allSpeedTimes;
     }
-} 
\ No newline at end of file
+
+    @Override
+    public Map<String, Integer> getQueueDepths() {
+        Map<String, Integer> depths = AsyncStorage.super.getQueueDepths();
+        if (writeQueue != null) {
+            depths.put("writer", writeQueue.getQueueSize());
+        }
+        return depths;
+    }
+
+    /**
+     * 获取SQLite存储统计信息
+     */
+    public String getStatistics() {
+        return String.format("SQLite存储统计: 只读连接 %d/%d 空闲, %s",
+            readers.size(), readConnections,
+            writeQueue != null ? writeQueue.getStatistics() : "写线程未启动");
+    }
+}
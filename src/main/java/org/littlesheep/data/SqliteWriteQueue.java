@@ -0,0 +1,176 @@
+package org.littlesheep.data;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SQLite 单写线程 - 所有写操作排队后由唯一的写线程执行
+ *
+ * 写线程每次取出队列中积累的全部操作（最多 maxGroupSize 个），放在同一个事务中提交，
+ * 把大量小写入的 fsync 合并为一次。整组提交失败时逐个重试，只有出错的操作会失败。
+ */
+final class SqliteWriteQueue {
+
+    /**
+     * 在写连接上执行的写操作
+     */
+    @FunctionalInterface
+    interface WriteOperation {
+        void apply(CachedStatements statements) throws SQLException;
+    }
+
+    private static final class PendingWrite {
+        final String name;
+        final WriteOperation operation;
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        PendingWrite(String name, WriteOperation operation) {
+            this.name = name;
+            this.operation = operation;
+        }
+    }
+
+    private final JavaPlugin plugin;
+    private final CachedStatements writer;
+    private final int maxGroupSize;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    // 统计信息
+    private final AtomicLong committedWrites = new AtomicLong(0);
+    private final AtomicLong transactions = new AtomicLong(0);
+    private final AtomicLong failedWrites = new AtomicLong(0);
+
+    SqliteWriteQueue(JavaPlugin plugin, CachedStatements writer, int maxGroupSize) throws SQLException {
+        this.plugin = plugin;
+        this.writer = writer;
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        writer.getConnection().setAutoCommit(false);
+
+        this.thread = new Thread(this::runLoop, "PayToFly-SQLite-Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * 提交写操作，返回的 future 在所在事务提交后完成
+     */
+    CompletableFuture<Void> submit(String name, WriteOperation operation) {
+        PendingWrite pending = new PendingWrite(name, operation);
+        if (!running) {
+            pending.future.completeExceptionally(new SQLException("SQLite写线程已关闭"));
+            return pending.future;
+        }
+        queue.add(pending);
+        return pending.future;
+    }
+
+    int getQueueSize() {
+        return queue.size();
+    }
+
+    /**
+     * 停止接收新的写入，等待队列中的写入全部提交后关闭写连接
+     */
+    void close() {
+        running = false;
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            plugin.getLogger().severe(String.format("SQLite写线程未能在30秒内完成，仍有 %d 个写操作未提交", queue.size()));
+            thread.interrupt();
+        }
+        writer.close();
+    }
+
+    private void runLoop() {
+        List<PendingWrite> group = new ArrayList<>(maxGroupSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                group.add(first);
+                queue.drainTo(group, maxGroupSize - 1);
+                commitGroup(group);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable t) {
+                plugin.getLogger().severe("SQLite写线程出错: " + t.getMessage());
+            } finally {
+                group.clear();
+            }
+        }
+
+        // 异常退出时让剩余的等待者失败，不让调用方一直阻塞
+        PendingWrite pending;
+        while ((pending = queue.poll()) != null) {
+            pending.future.completeExceptionally(new SQLException("SQLite写线程已关闭"));
+        }
+    }
+
+    private void commitGroup(List<PendingWrite> group) {
+        try {
+            for (PendingWrite pending : group) {
+                pending.operation.apply(writer);
+            }
+            writer.getConnection().commit();
+            transactions.incrementAndGet();
+            committedWrites.addAndGet(group.size());
+            for (PendingWrite pending : group) {
+                pending.future.complete(null);
+            }
+        } catch (SQLException | RuntimeException e) {
+            rollback();
+            if (group.size() == 1) {
+                PendingWrite failed = group.get(0);
+                failedWrites.incrementAndGet();
+                plugin.getLogger().severe(failed.name + "时出错: " + e.getMessage());
+                failed.future.completeExceptionally(e);
+                return;
+            }
+
+            // 整组失败时逐个提交，找出出错的操作
+            for (PendingWrite pending : group) {
+                commitGroup(Collections.singletonList(pending));
+            }
+        }
+    }
+
+    /**
+     * 回滚当前事务，并清空缓存语句上残留的批处理行，避免下次刷新时重放
+     */
+    private void rollback() {
+        writer.clearBatches();
+        try {
+            writer.getConnection().rollback();
+        } catch (SQLException e) {
+            plugin.getLogger().warning("SQLite事务回滚失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 获取写线程统计信息
+     */
+    String getStatistics() {
+        long txCount = transactions.get();
+        double perTransaction = txCount > 0 ? (double) committedWrites.get() / txCount : 0.0;
+        return String.format("写队列=%d, 已提交=%d, 事务=%d, 平均每事务=%.1f, 失败=%d",
+            queue.size(), committedWrites.get(), txCount, perTransaction, failedWrites.get());
+    }
+}
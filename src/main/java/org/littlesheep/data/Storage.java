@@ -1,6 +1,8 @@
 package org.littlesheep.data;
 
 import java.io.Closeable;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
@@ -13,6 +15,18 @@ public interface Storage extends Closeable {
     Map<UUID, Long> getAllPlayerData();
     void removePlayerFlightTime(UUID uuid);
     
+    /**
+     * 逐条遍历飞行结束时间晚于 now 的记录，用于预加载，不把整张表读入内存
+     * SQL存储把时间条件下推到查询中并分页读取，默认实现过滤 {@link #getAllPlayerData()}
+     */
+    default void forEachActiveFlight(long now, UuidLongMap.EntryConsumer consumer) {
+        for (Map.Entry<UUID, Long> entry : getAllPlayerData().entrySet()) {
+            if (entry.getValue() > now) {
+                consumer.accept(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+    
     // 特效购买记录（永久）
     void addPlayerEffect(UUID uuid, String effectName);
     void removePlayerEffect(UUID uuid, String effectName);
@@ -38,4 +52,106 @@ public interface Storage extends Closeable {
     Map<String, Long> getPlayerSpeedTimes(UUID uuid);
     void removePlayerSpeedTime(UUID uuid, String speedName);
     Map<UUID, Map<String, Long>> getAllPlayerSpeedTimes();
-} 
\ No newline at end of file
+    
+    // 聚合读取
+    
+    /**
+     * 读取玩家的全部数据（飞行时间、特效、速度及其时间限制记录）
+     * SQL存储在一次查询中完成，默认实现逐项读取
+     */
+    default PlayerData loadPlayerProfile(UUID uuid) {
+        return new PlayerData(
+            getPlayerFlightTime(uuid),
+            getPlayerEffects(uuid),
+            getPlayerSpeeds(uuid),
+            getPlayerEffectTimes(uuid),
+            getPlayerSpeedTimes(uuid)
+        );
+    }
+    
+    /**
+     * 批量读取多个玩家的全部数据，用于启动和重载时预加载
+     */
+    default Map<UUID, PlayerData> loadPlayerProfiles(Collection<UUID> uuids) {
+        Map<UUID, PlayerData> profiles = new HashMap<>();
+        for (UUID uuid : uuids) {
+            profiles.put(uuid, loadPlayerProfile(uuid));
+        }
+        return profiles;
+    }
+    
+    // 批量写入
+    
+    /**
+     * 批量设置飞行结束时间，SQL存储在一个事务中批处理执行
+     */
+    default void setPlayerFlightTimes(Map<UUID, Long> endTimes) {
+        endTimes.forEach(this::setPlayerFlightTime);
+    }
+    
+    default void removePlayerFlightTimes(Collection<UUID> uuids) {
+        uuids.forEach(this::removePlayerFlightTime);
+    }
+    
+    /**
+     * 向多个玩家发放同一个永久特效
+     */
+    default void addPlayerEffects(Collection<UUID> uuids, String effectName) {
+        uuids.forEach(uuid -> addPlayerEffect(uuid, effectName));
+    }
+    
+    /**
+     * 向多个玩家发放同一个永久速度
+     */
+    default void addPlayerSpeeds(Collection<UUID> uuids, String speedName) {
+        uuids.forEach(uuid -> addPlayerSpeed(uuid, speedName));
+    }
+    
+    /**
+     * 向多个玩家发放同一个时间限制特效
+     */
+    default void setPlayerEffectTimes(Collection<UUID> uuids, String effectName, long endTime) {
+        uuids.forEach(uuid -> setPlayerEffectTime(uuid, effectName, endTime));
+    }
+    
+    /**
+     * 向多个玩家发放同一个时间限制速度
+     */
+    default void setPlayerSpeedTimes(Collection<UUID> uuids, String speedName, long endTime) {
+        uuids.forEach(uuid -> setPlayerSpeedTime(uuid, speedName, endTime));
+    }
+    
+    // 过期清理
+    
+    /**
+     * 删除所有到期时间不晚于 now 的飞行时间、限时特效和限时速度记录
+     * 各存储按到期时间索引只访问已过期的记录，默认实现全表扫描
+     * @return 被删除的记录及其到期时间
+     */
+    default Map<ExpiryKey, Long> pollExpired(long now) {
+        Map<ExpiryKey, Long> expired = new HashMap<>();
+        for (Map.Entry<UUID, Long> entry : getAllPlayerData().entrySet()) {
+            if (entry.getValue() <= now) {
+                removePlayerFlightTime(entry.getKey());
+                expired.put(ExpiryKey.flight(entry.getKey()), entry.getValue());
+            }
+        }
+        for (Map.Entry<UUID, Map<String, Long>> entry : getAllPlayerEffectTimes().entrySet()) {
+            for (Map.Entry<String, Long> time : entry.getValue().entrySet()) {
+                if (time.getValue() <= now) {
+                    removePlayerEffectTime(entry.getKey(), time.getKey());
+                    expired.put(ExpiryKey.effect(entry.getKey(), time.getKey()), time.getValue());
+                }
+            }
+        }
+        for (Map.Entry<UUID, Map<String, Long>> entry : getAllPlayerSpeedTimes().entrySet()) {
+            for (Map.Entry<String, Long> time : entry.getValue().entrySet()) {
+                if (time.getValue() <= now) {
+                    removePlayerSpeedTime(entry.getKey(), time.getKey());
+                    expired.put(ExpiryKey.speed(entry.getKey(), time.getKey()), time.getValue());
+                }
+            }
+        }
+        return expired;
+    }
+}
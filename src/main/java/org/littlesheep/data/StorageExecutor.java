@@ -0,0 +1,112 @@
+package org.littlesheep.data;
+
+import org.bukkit.plugin.IllegalPluginAccessException;
+import org.bukkit.plugin.java.JavaPlugin;
+import org.littlesheep.paytofly;
+import org.littlesheep.scheduler.BukkitPluginScheduler;
+import org.littlesheep.scheduler.PluginScheduler;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * 存储I/O执行器 - 在专用线程池上执行存储操作，并负责把结果交回主线程
+ */
+public class StorageExecutor implements Executor {
+    private final JavaPlugin plugin;
+    private final String name;
+    private final ThreadPoolExecutor ioExecutor;
+    private final Executor mainThreadExecutor;
+    private final AtomicInteger threadCounter = new AtomicInteger(0);
+
+    public StorageExecutor(JavaPlugin plugin, String name, int threads) {
+        this.plugin = plugin;
+        this.name = name;
+        int poolSize = Math.max(1, threads);
+
+        // 核心线程按需创建，空闲时回收，JSON等内存存储几乎不会产生线程
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(
+            poolSize, poolSize, 60L, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(),
+            r -> {
+                Thread t = new Thread(r, "PayToFly-" + name + "-IO-" + threadCounter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+        executor.allowCoreThreadTimeOut(true);
+        this.ioExecutor = executor;
+
+        // 已在主线程时直接执行，否则投递到下一个tick。
+        // 插件已禁用时调度器不再接受任务，直接在当前线程执行，避免等待回调的 future 永远不完成
+        PluginScheduler scheduler = plugin instanceof paytofly && ((paytofly) plugin).getPluginScheduler() != null
+            ? ((paytofly) plugin).getPluginScheduler() : new BukkitPluginScheduler(plugin);
+        this.mainThreadExecutor = task -> {
+            if (scheduler.isGlobalThread() || !plugin.isEnabled()) {
+                task.run();
+                return;
+            }
+            try {
+                scheduler.runGlobal(task);
+            } catch (IllegalPluginAccessException e) {
+                // 检查之后插件被禁用
+                task.run();
+            }
+        };
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        ioExecutor.execute(command);
+    }
+
+    /**
+     * 在I/O线程上执行有返回值的存储操作
+     */
+    public <T> CompletableFuture<T> supply(Supplier<T> operation) {
+        return CompletableFuture.supplyAsync(operation, ioExecutor);
+    }
+
+    /**
+     * 在I/O线程上执行无返回值的存储操作
+     */
+    public CompletableFuture<Void> run(Runnable operation) {
+        return CompletableFuture.runAsync(operation, ioExecutor);
+    }
+
+    /**
+     * 等待执行的存储操作数
+     */
+    public int getQueueDepth() {
+        return ioExecutor.getQueue().size();
+    }
+
+    /**
+     * 获取主线程执行器，用于 thenAcceptAsync 等回调把结果交回服务器主线程。
+     * 在按区域多线程的服务端上这是全局区域线程，涉及玩家的回调应改用
+     * {@link PluginScheduler#entityExecutor}。插件禁用后任务在提交它的线程上直接执行
+     */
+    public Executor mainThread() {
+        return mainThreadExecutor;
+    }
+
+    /**
+     * 关闭执行器，等待已提交的存储操作完成
+     */
+    public void shutdown() {
+        ioExecutor.shutdown();
+        try {
+            if (!ioExecutor.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning(name + " 存储I/O线程池未能在10秒内完成，强制关闭");
+                ioExecutor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            ioExecutor.shutdownNow();
+        }
+    }
+}
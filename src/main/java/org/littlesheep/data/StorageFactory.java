@@ -1,15 +1,19 @@
 package org.littlesheep.data;
 
 import org.bukkit.plugin.java.JavaPlugin;
+import org.littlesheep.utils.TimingWheel;
 
 public class StorageFactory {
-    public static Storage createStorage(String type, JavaPlugin plugin) {
+    /**
+     * @param metrics 存储耗时统计，为 null 时不记录
+     */
+    public static AsyncStorage createStorage(String type, JavaPlugin plugin, TimingWheel timingWheel, StorageMetrics metrics) {
         if (type == null || type.trim().isEmpty()) {
             plugin.getLogger().warning("存储类型未指定，使用默认JSON存储");
-            return createWithCache(new JsonStorage(plugin), plugin);
+            return createWithCache(metered(new JsonStorage(plugin), metrics, "JSON"), plugin, timingWheel, metrics);
         }
 
-        Storage baseStorage;
+        AsyncStorage baseStorage;
         switch (type.trim().toUpperCase()) {
             case "JSON":
                 baseStorage = new JsonStorage(plugin);
@@ -20,24 +24,33 @@ public class StorageFactory {
             case "MYSQL":
                 baseStorage = new MySqlStorage(plugin);
                 break;
+            case "BINARY":
+                baseStorage = new BinaryStorage(plugin);
+                break;
             default:
                 plugin.getLogger().warning("未知的存储类型: " + type + "，使用默认JSON存储");
                 baseStorage = new JsonStorage(plugin);
                 break;
         }
 
-        return createWithCache(baseStorage, plugin);
+        baseStorage = metered(baseStorage, metrics, baseStorage.getClass().getSimpleName().replace("Storage", ""));
+        return createWithCache(baseStorage, plugin, timingWheel, metrics);
+    }
+
+    private static AsyncStorage metered(AsyncStorage storage, StorageMetrics metrics, String layer) {
+        return metrics != null ? new MeteredStorage(storage, metrics, layer) : storage;
     }
 
     /**
      * 根据配置决定是否启用缓存
      */
-    private static Storage createWithCache(Storage baseStorage, JavaPlugin plugin) {
+    private static AsyncStorage createWithCache(AsyncStorage baseStorage, JavaPlugin plugin, TimingWheel timingWheel,
+                                                StorageMetrics metrics) {
         boolean cacheEnabled = plugin.getConfig().getBoolean("cache.enabled", true);
         
         if (cacheEnabled) {
             plugin.getLogger().info("缓存已启用，创建缓存装饰器存储");
-            return new CachedStorage(baseStorage, plugin);
+            return metered(new CachedStorage(baseStorage, plugin, timingWheel), metrics, "Cache");
         } else {
             plugin.getLogger().info("缓存已禁用，使用原始存储");
             return baseStorage;
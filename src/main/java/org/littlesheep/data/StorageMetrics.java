@@ -0,0 +1,91 @@
+package org.littlesheep.data;
+
+import org.littlesheep.utils.LatencyHistogram;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 存储层延迟统计 - 按存储层（缓存、各后端）和存储方法分别记录耗时直方图
+ */
+public final class StorageMetrics {
+
+    /**
+     * 一个存储层的一个方法的统计结果
+     */
+    public static final class Entry {
+        public final String layer;
+        public final String operation;
+        public final LatencyHistogram.Snapshot snapshot;
+
+        Entry(String layer, String operation, LatencyHistogram.Snapshot snapshot) {
+            this.layer = layer;
+            this.operation = operation;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s.%s: 次数=%d, p50=%s, p99=%s, 最大=%s",
+                layer, operation, snapshot.count,
+                formatMicros(snapshot.p50), formatMicros(snapshot.p99), formatMicros(snapshot.max));
+        }
+    }
+
+    // 存储层 -> 方法名 -> 直方图
+    private final Map<String, Map<String, LatencyHistogram>> layers = new ConcurrentHashMap<>();
+
+    /**
+     * 获取某个存储层的方法直方图表，由 {@link MeteredStorage} 持有
+     */
+    Map<String, LatencyHistogram> layer(String name) {
+        return layers.computeIfAbsent(name, k -> new ConcurrentHashMap<>());
+    }
+
+    /**
+     * 获取所有有记录的方法的统计结果，按 p99 从高到低排列
+     */
+    public List<Entry> getEntries() {
+        List<Entry> entries = new ArrayList<>();
+        layers.forEach((layer, operations) -> operations.forEach((operation, histogram) -> {
+            LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+            if (snapshot.count > 0) {
+                entries.add(new Entry(layer, operation, snapshot));
+            }
+        }));
+        entries.sort(Comparator.comparingLong((Entry e) -> e.snapshot.p99).reversed());
+        return entries;
+    }
+
+    /**
+     * 查找某个方法的统计结果，层名不区分大小写
+     * @return 没有记录时返回 null
+     */
+    public LatencyHistogram.Snapshot find(String layer, String operation) {
+        for (Map.Entry<String, Map<String, LatencyHistogram>> entry : layers.entrySet()) {
+            if (entry.getKey().equalsIgnoreCase(layer)) {
+                LatencyHistogram histogram = entry.getValue().get(operation);
+                return histogram != null ? histogram.snapshot() : null;
+            }
+        }
+        return null;
+    }
+
+    public void reset() {
+        layers.values().forEach(operations -> operations.values().forEach(LatencyHistogram::reset));
+    }
+
+    /**
+     * 格式化微秒耗时
+     */
+    public static String formatMicros(long micros) {
+        if (micros >= 1000) {
+            return String.format(Locale.ROOT, "%.1fms", micros / 1000.0);
+        }
+        return micros + "µs";
+    }
+}
@@ -0,0 +1,327 @@
+package org.littlesheep.data;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * UUID 到 long 的开放寻址哈希表 - 键的高低位和值交错存放在同一个 long 数组中，不为每个条目创建对象
+ *
+ * 每个槽位占连续三个 long，一次查找通常只访问一条缓存行。全零 UUID 作为空槽标记，单独保存。
+ * 线性探测，删除时向前移动后续条目，不留墓碑。负载超过 3/4 时容量翻倍。
+ * 写入互斥；读取先用乐观读，期间有写入时再加读锁重试，读多写少时几乎无锁开销。
+ */
+public final class UuidLongMap {
+
+    /**
+     * 遍历回调
+     */
+    @FunctionalInterface
+    public interface EntryConsumer {
+        void accept(UUID uuid, long value);
+    }
+
+    private static final int MIN_CAPACITY = 16;
+    private static final int STRIDE = 3; // 高位、低位、值
+
+    private final StampedLock lock = new StampedLock();
+    private volatile long[] slots;
+    private volatile int size;
+    // 全零 UUID 与空槽无法区分，单独保存
+    private volatile boolean hasNil;
+    private volatile long nilValue;
+
+    public UuidLongMap() {
+        this(MIN_CAPACITY);
+    }
+
+    public UuidLongMap(int expectedSize) {
+        slots = new long[capacityFor(expectedSize) * STRIDE];
+    }
+
+    private static int capacityFor(int expectedSize) {
+        int capacity = MIN_CAPACITY;
+        while (capacity * 3L / 4 < expectedSize) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    private static int hash(long msb, long lsb) {
+        long h = msb ^ lsb;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return (int) h;
+    }
+
+    private static boolean isNil(long msb, long lsb) {
+        return msb == 0 && lsb == 0;
+    }
+
+    /**
+     * 查找键所在的槽位下标，不存在时返回 -(空槽位下标 + 1)
+     * 最多探测整张表一圈，乐观读期间表被修改时也能结束
+     */
+    private static int find(long[] t, long msb, long lsb) {
+        int mask = t.length / STRIDE - 1;
+        int slot = hash(msb, lsb) & mask;
+        for (int probes = 0; probes <= mask; probes++) {
+            int base = slot * STRIDE;
+            long m = t[base];
+            long l = t[base + 1];
+            if (m == msb && l == lsb) {
+                return base;
+            }
+            if (isNil(m, l)) {
+                return -(base + 1);
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1 - t.length;
+    }
+
+    /**
+     * 获取键对应的值
+     * @return 不存在时返回 defaultValue
+     */
+    public long get(UUID uuid, long defaultValue) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (isNil(msb, lsb)) {
+            return getNil(defaultValue);
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long[] t = slots;
+            int base = find(t, msb, lsb);
+            long value = base >= 0 ? t[base + 2] : defaultValue;
+            if (lock.validate(stamp)) {
+                return value;
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            long[] t = slots;
+            int base = find(t, msb, lsb);
+            return base >= 0 ? t[base + 2] : defaultValue;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 获取键对应的值，不存在时返回 null。只探测一次，找到的槽位同时用于判断存在和取值
+     */
+    public Long get(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        if (isNil(msb, lsb)) {
+            return hasNil ? getNil(0) : null;
+        }
+
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            long[] t = slots;
+            int base = find(t, msb, lsb);
+            long value = base >= 0 ? t[base + 2] : 0;
+            if (lock.validate(stamp)) {
+                return base >= 0 ? value : null;
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            long[] t = slots;
+            int base = find(t, msb, lsb);
+            return base >= 0 ? t[base + 2] : null;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private long getNil(long defaultValue) {
+        long stamp = lock.readLock();
+        try {
+            return hasNil ? nilValue : defaultValue;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean containsKey(UUID uuid) {
+        long stamp = lock.readLock();
+        try {
+            return containsUnlocked(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean containsUnlocked(long msb, long lsb) {
+        return isNil(msb, lsb) ? hasNil : find(slots, msb, lsb) >= 0;
+    }
+
+    /**
+     * 写入键值
+     * @return 键原本不存在时返回 true
+     */
+    public boolean put(UUID uuid, long value) {
+        long stamp = lock.writeLock();
+        try {
+            return putLocked(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits(), value);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public void putAll(Map<UUID, Long> entries) {
+        long stamp = lock.writeLock();
+        try {
+            for (Map.Entry<UUID, Long> entry : entries.entrySet()) {
+                putLocked(entry.getKey().getMostSignificantBits(), entry.getKey().getLeastSignificantBits(), entry.getValue());
+            }
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    private boolean putLocked(long msb, long lsb, long value) {
+        if (isNil(msb, lsb)) {
+            boolean added = !hasNil;
+            nilValue = value;
+            hasNil = true;
+            if (added) {
+                size++;
+            }
+            return added;
+        }
+        long[] t = slots;
+        int base = find(t, msb, lsb);
+        if (base >= 0) {
+            t[base + 2] = value;
+            return false;
+        }
+        if ((size + 1) * 4L > (t.length / STRIDE) * 3L) {
+            t = resize(t.length / STRIDE * 2);
+            base = find(t, msb, lsb);
+        }
+        base = -base - 1;
+        t[base] = msb;
+        t[base + 1] = lsb;
+        t[base + 2] = value;
+        size++;
+        return true;
+    }
+
+    private long[] resize(int capacity) {
+        long[] old = slots;
+        long[] t = new long[capacity * STRIDE];
+        for (int i = 0; i < old.length; i += STRIDE) {
+            if (!isNil(old[i], old[i + 1])) {
+                int base = -find(t, old[i], old[i + 1]) - 1;
+                t[base] = old[i];
+                t[base + 1] = old[i + 1];
+                t[base + 2] = old[i + 2];
+            }
+        }
+        slots = t;
+        return t;
+    }
+
+    /**
+     * 删除键
+     * @return 键原本存在时返回 true
+     */
+    public boolean remove(UUID uuid) {
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        long stamp = lock.writeLock();
+        try {
+            if (isNil(msb, lsb)) {
+                if (!hasNil) {
+                    return false;
+                }
+                hasNil = false;
+                size--;
+                return true;
+            }
+            long[] t = slots;
+            int base = find(t, msb, lsb);
+            if (base < 0) {
+                return false;
+            }
+            // 把后续同一探测链上的条目前移，填补空位
+            int mask = t.length / STRIDE - 1;
+            int gap = base / STRIDE;
+            int next = (gap + 1) & mask;
+            while (!isNil(t[next * STRIDE], t[next * STRIDE + 1])) {
+                int home = hash(t[next * STRIDE], t[next * STRIDE + 1]) & mask;
+                // home 不在 (gap, next] 之间时，该条目可以移到 gap
+                if (((next - home) & mask) >= ((next - gap) & mask)) {
+                    System.arraycopy(t, next * STRIDE, t, gap * STRIDE, STRIDE);
+                    gap = next;
+                }
+                next = (next + 1) & mask;
+            }
+            t[gap * STRIDE] = 0;
+            t[gap * STRIDE + 1] = 0;
+            t[gap * STRIDE + 2] = 0;
+            size--;
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            slots = new long[MIN_CAPACITY * STRIDE];
+            hasNil = false;
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 在读锁内遍历所有条目，回调中不能修改本表
+     */
+    public void forEach(EntryConsumer consumer) {
+        long stamp = lock.readLock();
+        try {
+            if (hasNil) {
+                consumer.accept(new UUID(0, 0), nilValue);
+            }
+            long[] t = slots;
+            for (int i = 0; i < t.length; i += STRIDE) {
+                if (!isNil(t[i], t[i + 1])) {
+                    consumer.accept(new UUID(t[i], t[i + 1]), t[i + 2]);
+                }
+            }
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * 复制为普通 Map
+     */
+    public Map<UUID, Long> toMap() {
+        Map<UUID, Long> result = new HashMap<>(size * 4 / 3 + 1);
+        forEach(result::put);
+        return result;
+    }
+}
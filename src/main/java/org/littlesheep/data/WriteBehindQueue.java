@@ -0,0 +1,259 @@
+package org.littlesheep.data;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 写回队列 - 合并同一键的重复写入，按数量或时间间隔批量落盘
+ *
+ * 同一键只保留最后一次写入；所有落盘都在唯一的刷新线程上执行，
+ * 因此同一键的写入顺序与提交顺序一致。落盘失败的条目保留在队列中等待下次重试。
+ */
+final class WriteBehindQueue<K, V> {
+
+    /**
+     * 批量写入器，upserts 为需要写入的值，removals 为需要删除的键
+     */
+    @FunctionalInterface
+    interface BatchWriter<K, V> {
+        void write(Map<K, V> upserts, Set<K> removals) throws Exception;
+    }
+
+    /**
+     * 待写入的条目，value 为 null 表示删除
+     */
+    static final class Pending<V> {
+        final V value;
+
+        Pending(V value) {
+            this.value = value;
+        }
+
+        boolean isRemoval() {
+            return value == null;
+        }
+    }
+
+    private final JavaPlugin plugin;
+    private final String name;
+    private final BatchWriter<K, V> writer;
+    private final int flushThreshold;
+    private final int batchSize;
+
+    private final ConcurrentHashMap<K, Pending<V>> dirty = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private volatile boolean closed = false;
+    // 入队持读锁检查 closed 并写入，关闭持写锁设置 closed，保证最后一次落盘之后不会再有条目进入队列
+    private final ReadWriteLock closeLock = new ReentrantReadWriteLock();
+
+    // 统计信息
+    private final AtomicLong submitted = new AtomicLong(0);
+    private final AtomicLong written = new AtomicLong(0);
+    private final AtomicLong batches = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+
+    WriteBehindQueue(JavaPlugin plugin, String name, BatchWriter<K, V> writer,
+                     long flushIntervalMs, int flushThreshold, int batchSize) {
+        this.plugin = plugin;
+        this.name = name;
+        this.writer = writer;
+        this.flushThreshold = Math.max(1, flushThreshold);
+        this.batchSize = Math.max(1, batchSize);
+
+        this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "PayToFly-" + name + "-WriteBehind");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(50L, flushIntervalMs);
+        flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 记录一次写入
+     */
+    void put(K key, V value) {
+        enqueue(key, new Pending<>(value));
+    }
+
+    /**
+     * 记录一次删除
+     */
+    void remove(K key) {
+        enqueue(key, new Pending<>(null));
+    }
+
+    private void enqueue(K key, Pending<V> pending) {
+        closeLock.readLock().lock();
+        try {
+            if (!closed) {
+                dirty.put(key, pending);
+                submitted.incrementAndGet();
+
+                // 达到阈值时提前触发一次刷新
+                if (dirty.size() >= flushThreshold && flushScheduled.compareAndSet(false, true)) {
+                    flusher.execute(() -> {
+                        flushScheduled.set(false);
+                        flushSafely();
+                    });
+                }
+                return;
+            }
+        } finally {
+            closeLock.readLock().unlock();
+        }
+
+        // 已关闭时直接同步写入，避免数据丢失
+        writeDirect(key, pending);
+    }
+
+    /**
+     * 查看尚未落盘的条目，没有时返回 null
+     */
+    Pending<V> peek(K key) {
+        return dirty.get(key);
+    }
+
+    int size() {
+        return dirty.size();
+    }
+
+    /**
+     * 在刷新线程上立即落盘全部条目并等待完成
+     */
+    void flush() {
+        if (closed) {
+            return;
+        }
+        try {
+            flusher.submit(this::flushSafely).get(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            plugin.getLogger().warning(String.format("%s 写回队列刷新失败: %s", name, e.getMessage()));
+        }
+    }
+
+    /**
+     * 关闭队列：停止定时刷新并把剩余条目全部落盘
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        flush();
+        closeLock.writeLock().lock();
+        try {
+            closed = true;
+        } finally {
+            closeLock.writeLock().unlock();
+        }
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(10, TimeUnit.SECONDS)) {
+                flusher.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flusher.shutdownNow();
+        }
+
+        // 刷新线程退出后仍有残留（关闭前最后一刻的入队，或最后一次批量写入失败），在当前线程上再落盘一次
+        if (!dirty.isEmpty()) {
+            flushSafely();
+        }
+        if (!dirty.isEmpty()) {
+            plugin.getLogger().severe(String.format("%s 写回队列关闭时仍有 %d 条数据未能写入", name, dirty.size()));
+        }
+    }
+
+    private void flushSafely() {
+        try {
+            drain();
+        } catch (Throwable t) {
+            plugin.getLogger().warning(String.format("%s 写回队列刷新异常: %s", name, t.getMessage()));
+        }
+    }
+
+    /**
+     * 按批次落盘当前所有条目，成功写入且期间未被覆盖的条目才会移出队列
+     */
+    private void drain() {
+        if (dirty.isEmpty()) {
+            return;
+        }
+
+        List<Map.Entry<K, Pending<V>>> snapshot = new ArrayList<>(dirty.entrySet());
+        for (int start = 0; start < snapshot.size(); start += batchSize) {
+            List<Map.Entry<K, Pending<V>>> batch = snapshot.subList(start, Math.min(start + batchSize, snapshot.size()));
+
+            Map<K, V> upserts = new HashMap<>();
+            Set<K> removals = new HashSet<>();
+            for (Map.Entry<K, Pending<V>> entry : batch) {
+                if (entry.getValue().isRemoval()) {
+                    removals.add(entry.getKey());
+                } else {
+                    upserts.put(entry.getKey(), entry.getValue().value);
+                }
+            }
+
+            try {
+                writer.write(upserts, removals);
+            } catch (Exception e) {
+                failures.incrementAndGet();
+                plugin.getLogger().warning(String.format(
+                    "%s 写回批量写入失败 (%d 条)，将在下次刷新时重试: %s", name, batch.size(), e.getMessage()));
+                return;
+            }
+
+            // 只移除与快照相同的条目，刷新期间的新写入保留到下一轮
+            for (Map.Entry<K, Pending<V>> entry : batch) {
+                dirty.remove(entry.getKey(), entry.getValue());
+            }
+            written.addAndGet(batch.size());
+            batches.incrementAndGet();
+        }
+    }
+
+    private void writeDirect(K key, Pending<V> pending) {
+        Map<K, V> upserts = new HashMap<>();
+        Set<K> removals = new HashSet<>();
+        if (pending.isRemoval()) {
+            removals.add(key);
+        } else {
+            upserts.put(key, pending.value);
+        }
+        try {
+            writer.write(upserts, removals);
+        } catch (Exception e) {
+            failures.incrementAndGet();
+            plugin.getLogger().warning(String.format("%s 直接写入失败 (%s): %s", name, key, e.getMessage()));
+        }
+    }
+
+    /**
+     * 获取写回队列统计信息
+     */
+    String getStatistics() {
+        long submittedCount = submitted.get();
+        long writtenCount = written.get();
+        double coalesceRate = submittedCount > 0 ? (1.0 - (double) writtenCount / submittedCount) * 100 : 0.0;
+        return String.format("写回队列: 待写入=%d, 提交=%d, 落盘=%d, 批次=%d, 合并率=%.1f%%, 失败=%d",
+            dirty.size(), submittedCount, writtenCount, batches.get(), Math.max(0.0, coalesceRate), failures.get());
+    }
+}
@@ -6,9 +6,9 @@ import org.bukkit.Particle;
 import org.bukkit.Sound;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 import org.littlesheep.paytofly;
+import org.littlesheep.scheduler.PluginScheduler;
+import org.littlesheep.scheduler.ScheduledTask;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,15 +23,17 @@ import java.util.ArrayList;
  * - 粒子特效（彩虹尾迹、星星、火花等）
  * - 音效播放（启动音效、持续音效）
  * - 特效等级管理
- * - 性能优化（异步处理、资源清理）
+ * - 性能优化（统一调度、资源清理）
+ *
+ * 全局任务每 2 tick 遍历一次启用特效的玩家，粒子在玩家所在的线程上生成。
  */
 public class FlightEffectManager {
     
     private final paytofly plugin;
-    private final Map<Player, BukkitTask> activeEffects;
+    private final Map<Player, ScheduledTask> activeEffects;
     private final Map<Player, FlightEffectType> playerEffects;
     private final Random random;
-    private BukkitTask globalEffectTask;
+    private ScheduledTask globalEffectTask;
     
     public FlightEffectManager(paytofly plugin) {
         this.plugin = plugin;
@@ -106,7 +108,7 @@ public class FlightEffectManager {
      * 停止玩家的飞行特效
      */
     public void stopFlightEffect(Player player) {
-        BukkitTask task = activeEffects.remove(player);
+        ScheduledTask task = activeEffects.remove(player);
         if (task != null) {
             task.cancel();
         }
@@ -126,22 +128,24 @@ public class FlightEffectManager {
             globalEffectTask.cancel();
         }
         
-        globalEffectTask = new BukkitRunnable() {
-            @Override
-            public void run() {
-                for (Map.Entry<Player, FlightEffectType> entry : playerEffects.entrySet()) {
-                    Player player = entry.getKey();
-                    FlightEffectType effectType = entry.getValue();
-                    
-                    if (player.isOnline() && player.isFlying()) {
+        PluginScheduler scheduler = plugin.getPluginScheduler();
+        globalEffectTask = scheduler.runGlobalTimer(() -> {
+            for (Map.Entry<Player, FlightEffectType> entry : playerEffects.entrySet()) {
+                Player player = entry.getKey();
+                FlightEffectType effectType = entry.getValue();
+                
+                if (!player.isOnline()) {
+                    // 清理离线玩家
+                    playerEffects.remove(player);
+                    continue;
+                }
+                scheduler.executeForEntity(player, () -> {
+                    if (player.isFlying()) {
                         createParticleEffect(player, effectType);
-                    } else if (!player.isOnline()) {
-                        // 清理离线玩家
-                        playerEffects.remove(player);
                     }
-                }
+                });
             }
-        }.runTaskTimerAsynchronously(plugin, 0L, 2L); // 每2tick执行一次
+        }, 1L, 2L); // 每2tick执行一次
         
         plugin.getLogger().info("全局特效任务已启动，更新频率: 每2tick");
     }
@@ -408,8 +412,15 @@ public class FlightEffectManager {
             
             // 扣款
             if (plugin.getEconomyManager().withdraw(player, price)) {
-                // 添加购买记录
-                plugin.getStorage().addPlayerEffect(player.getUniqueId(), effectType.getName());
+                // 添加购买记录，存储无法记录时退款
+                try {
+                    plugin.getStorage().addPlayerEffect(player.getUniqueId(), effectType.getName());
+                } catch (IllegalStateException e) {
+                    plugin.getEconomyManager().deposit(player, price);
+                    plugin.getLogger().warning(String.format("玩家 %s 购买特效 %s 失败，已退款: %s",
+                        player.getName(), effectType.getName(), e.getMessage()));
+                    return false;
+                }
                 return true;
             }
         }
@@ -510,7 +521,7 @@ public class FlightEffectManager {
      */
     public void cleanup() {
         // 取消所有任务
-        activeEffects.values().forEach(BukkitTask::cancel);
+        activeEffects.values().forEach(ScheduledTask::cancel);
         activeEffects.clear();
         
         if (globalEffectTask != null) {
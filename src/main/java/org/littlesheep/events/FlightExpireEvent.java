@@ -0,0 +1,39 @@
+package org.littlesheep.events;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.player.PlayerEvent;
+
+/**
+ * 玩家购买的飞行时间到期事件
+ *
+ * 每次到期只触发一次，在拥有该玩家的线程上触发：Bukkit 上是主线程，Folia 上是玩家所在区域的线程。
+ * 监听者不能假定处于主线程或全局区域线程，访问其他玩家或世界时需通过 PluginScheduler 提交到对应线程。
+ * 触发时飞行权限已撤销、存储中的飞行时间已删除、MHDF-Tools 已同步，监听者只需更新自己的状态。
+ */
+public class FlightExpireEvent extends PlayerEvent {
+    private static final HandlerList HANDLERS = new HandlerList();
+
+    private final long endTime;
+
+    public FlightExpireEvent(Player player, long endTime) {
+        super(player);
+        this.endTime = endTime;
+    }
+
+    /**
+     * 到期时间（毫秒时间戳）
+     */
+    public long getEndTime() {
+        return endTime;
+    }
+
+    @Override
+    public HandlerList getHandlers() {
+        return HANDLERS;
+    }
+
+    public static HandlerList getHandlerList() {
+        return HANDLERS;
+    }
+}
@@ -15,12 +15,15 @@ import org.bukkit.inventory.ItemFlag;
 import org.bukkit.inventory.ItemStack;
 import org.bukkit.inventory.meta.ItemMeta;
 import org.bukkit.inventory.meta.SkullMeta;
+import org.littlesheep.data.AsyncStorage;
+import org.littlesheep.data.PlayerData;
 import org.littlesheep.paytofly;
 import org.bukkit.ChatColor;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * 增强版飞行商店GUI
@@ -126,10 +129,31 @@ public class EnhancedFlightShopGUI implements Listener {
         playerCurrentGUI.put(player.getUniqueId(), type.getConfigKey());
     }
     
+    /**
+     * 异步加载玩家数据，完成后在主线程上渲染界面
+     */
+    private void loadProfileThen(Player player, Consumer<PlayerData> render) {
+        AsyncStorage storage = plugin.getStorage();
+        storage.loadPlayerProfileAsync(player.getUniqueId()).whenCompleteAsync((profile, error) -> {
+            if (!player.isOnline()) {
+                return;
+            }
+            if (error != null) {
+                plugin.getLogger().warning("加载玩家数据失败: " + player.getName() + " - " + error.getMessage());
+                profile = new PlayerData();
+            }
+            render.accept(profile);
+        }, plugin.getPluginScheduler().entityExecutor(player));
+    }
+    
     /**
      * 打开主界面
      */
     public void openMainGUI(Player player) {
+        loadProfileThen(player, profile -> openMainGUI(player, profile));
+    }
+    
+    private void openMainGUI(Player player, PlayerData profile) {
         String title = ChatColor.translateAlternateColorCodes('&', 
             guiConfig.getString("settings.main.title", "&b&l✈ &f飞行商店 &b&l✈"));
         int size = guiConfig.getInt("settings.main.size", 54);
@@ -140,7 +164,7 @@ public class EnhancedFlightShopGUI implements Listener {
         fillBackground(gui, "settings.main");
         
         // 添加主界面物品
-        addMainItems(gui, player);
+        addMainItems(gui, player, profile);
         
         player.openInventory(gui);
     }
@@ -149,6 +173,10 @@ public class EnhancedFlightShopGUI implements Listener {
      * 打开特效商店
      */
     public void openEffectsGUI(Player player) {
+        loadProfileThen(player, profile -> openEffectsGUI(player, profile));
+    }
+    
+    private void openEffectsGUI(Player player, PlayerData profile) {
         String title = ChatColor.translateAlternateColorCodes('&', 
             guiConfig.getString("settings.effects.title", "&d&l✨ &f特效商店 &d&l✨"));
         int size = guiConfig.getInt("settings.effects.size", 45);
@@ -159,7 +187,7 @@ public class EnhancedFlightShopGUI implements Listener {
         fillBackground(gui, "settings.effects");
         
         // 添加特效物品
-        addEffectItems(gui, player);
+        addEffectItems(gui, player, profile);
         
         player.openInventory(gui);
     }
@@ -168,6 +196,10 @@ public class EnhancedFlightShopGUI implements Listener {
      * 打开速度商店
      */
     public void openSpeedsGUI(Player player) {
+        loadProfileThen(player, profile -> openSpeedsGUI(player, profile));
+    }
+    
+    private void openSpeedsGUI(Player player, PlayerData profile) {
         String title = ChatColor.translateAlternateColorCodes('&', 
             guiConfig.getString("settings.speeds.title", "&a&l⚡ &f速度商店 &a&l⚡"));
         int size = guiConfig.getInt("settings.speeds.size", 45);
@@ -178,7 +210,7 @@ public class EnhancedFlightShopGUI implements Listener {
         fillBackground(gui, "settings.speeds");
         
         // 添加速度物品
-        addSpeedItems(gui, player);
+        addSpeedItems(gui, player, profile);
         
         player.openInventory(gui);
     }
@@ -187,6 +219,10 @@ public class EnhancedFlightShopGUI implements Listener {
      * 打开特效切换器
      */
     public void openEffectSwitcherGUI(Player player) {
+        loadProfileThen(player, profile -> openEffectSwitcherGUI(player, profile));
+    }
+    
+    private void openEffectSwitcherGUI(Player player, PlayerData profile) {
         String title = ChatColor.translateAlternateColorCodes('&', 
             guiConfig.getString("settings.effect-switcher.title", "&d&l✨ &f特效切换器"));
         int size = guiConfig.getInt("settings.effect-switcher.size", 45);
@@ -197,7 +233,7 @@ public class EnhancedFlightShopGUI implements Listener {
         fillBackground(gui, "settings.effect-switcher");
         
         // 添加特效切换器物品
-        addEffectSwitcherItems(gui, player);
+        addEffectSwitcherItems(gui, player, profile);
         
         player.openInventory(gui);
     }
@@ -206,6 +242,10 @@ public class EnhancedFlightShopGUI implements Listener {
      * 打开速度切换器
      */
     public void openSpeedSwitcherGUI(Player player) {
+        loadProfileThen(player, profile -> openSpeedSwitcherGUI(player, profile));
+    }
+    
+    private void openSpeedSwitcherGUI(Player player, PlayerData profile) {
         String title = ChatColor.translateAlternateColorCodes('&', 
             guiConfig.getString("settings.speed-switcher.title", "&a&l⚡ &f速度切换器"));
         int size = guiConfig.getInt("settings.speed-switcher.size", 45);
@@ -216,7 +256,7 @@ public class EnhancedFlightShopGUI implements Listener {
         fillBackground(gui, "settings.speed-switcher");
         
         // 添加速度切换器物品
-        addSpeedSwitcherItems(gui, player);
+        addSpeedSwitcherItems(gui, player, profile);
         
         player.openInventory(gui);
     }
@@ -297,7 +337,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 添加主界面物品
      */
-    private void addMainItems(Inventory gui, Player player) {
+    private void addMainItems(Inventory gui, Player player, PlayerData profile) {
         if (!guiConfig.contains("main-items")) return;
         
         for (String key : guiConfig.getConfigurationSection("main-items").getKeys(false)) {
@@ -306,7 +346,7 @@ public class EnhancedFlightShopGUI implements Listener {
             int slot = guiConfig.getInt(path + "slot", -1);
             if (slot < 0 || slot >= gui.getSize()) continue;
             
-            ItemStack item = createMainItem(key, path, player);
+            ItemStack item = createMainItem(key, path, player, profile);
             if (item != null) {
                 gui.setItem(slot, item);
             }
@@ -316,7 +356,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 创建主界面物品
      */
-    private ItemStack createMainItem(String key, String path, Player player) {
+    private ItemStack createMainItem(String key, String path, Player player, PlayerData profile) {
         try {
             Material material = Material.valueOf(guiConfig.getString(path + "material", "STONE"));
             String name = ChatColor.translateAlternateColorCodes('&', 
@@ -335,14 +375,14 @@ public class EnhancedFlightShopGUI implements Listener {
             for (String line : guiConfig.getStringList(path + "lore")) {
                 String processedLine = line.replace("{cost}", String.format("%.0f", cost));
                 lore.add(ChatColor.translateAlternateColorCodes('&', 
-                    replacePlaceholders(processedLine, player)));
+                    replacePlaceholders(processedLine, player, profile)));
             }
             
             ItemStack item = createItem(material, name, lore, glow);
             
             // 特殊处理玩家头颅
             if (material == Material.PLAYER_HEAD && guiConfig.contains(path + "skull-owner")) {
-                String owner = replacePlaceholders(guiConfig.getString(path + "skull-owner"), player);
+                String owner = replacePlaceholders(guiConfig.getString(path + "skull-owner"), player, profile);
                 setSkullOwner(item, owner);
             }
             
@@ -356,7 +396,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 添加特效物品
      */
-    private void addEffectItems(Inventory gui, Player player) {
+    private void addEffectItems(Inventory gui, Player player, PlayerData profile) {
         if (!guiConfig.contains("effect-items")) return;
         
         for (String key : guiConfig.getConfigurationSection("effect-items").getKeys(false)) {
@@ -365,7 +405,7 @@ public class EnhancedFlightShopGUI implements Listener {
             int slot = guiConfig.getInt(path + "slot", -1);
             if (slot < 0 || slot >= gui.getSize()) continue;
             
-            ItemStack item = createShopItem(key, path, player, "effect");
+            ItemStack item = createShopItem(key, path, player, "effect", profile);
             if (item != null) {
                 gui.setItem(slot, item);
             }
@@ -375,7 +415,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 添加速度物品
      */
-    private void addSpeedItems(Inventory gui, Player player) {
+    private void addSpeedItems(Inventory gui, Player player, PlayerData profile) {
         if (!guiConfig.contains("speed-items")) return;
         
         for (String key : guiConfig.getConfigurationSection("speed-items").getKeys(false)) {
@@ -384,7 +424,7 @@ public class EnhancedFlightShopGUI implements Listener {
             int slot = guiConfig.getInt(path + "slot", -1);
             if (slot < 0 || slot >= gui.getSize()) continue;
             
-            ItemStack item = createShopItem(key, path, player, "speed");
+            ItemStack item = createShopItem(key, path, player, "speed", profile);
             if (item != null) {
                 gui.setItem(slot, item);
             }
@@ -394,7 +434,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 添加特效切换器物品
      */
-    private void addEffectSwitcherItems(Inventory gui, Player player) {
+    private void addEffectSwitcherItems(Inventory gui, Player player, PlayerData profile) {
         if (!guiConfig.contains("effect-switcher-items")) return;
         
         for (String key : guiConfig.getConfigurationSection("effect-switcher-items").getKeys(false)) {
@@ -403,7 +443,7 @@ public class EnhancedFlightShopGUI implements Listener {
             int slot = guiConfig.getInt(path + "slot", -1);
             if (slot < 0 || slot >= gui.getSize()) continue;
             
-            ItemStack item = createSwitcherItem(key, path, player, "effect");
+            ItemStack item = createSwitcherItem(key, path, player, "effect", profile);
             if (item != null) {
                 gui.setItem(slot, item);
             }
@@ -413,7 +453,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 添加速度切换器物品
      */
-    private void addSpeedSwitcherItems(Inventory gui, Player player) {
+    private void addSpeedSwitcherItems(Inventory gui, Player player, PlayerData profile) {
         if (!guiConfig.contains("speed-switcher-items")) return;
         
         for (String key : guiConfig.getConfigurationSection("speed-switcher-items").getKeys(false)) {
@@ -422,7 +462,7 @@ public class EnhancedFlightShopGUI implements Listener {
             int slot = guiConfig.getInt(path + "slot", -1);
             if (slot < 0 || slot >= gui.getSize()) continue;
             
-            ItemStack item = createSwitcherItem(key, path, player, "speed");
+            ItemStack item = createSwitcherItem(key, path, player, "speed", profile);
             if (item != null) {
                 gui.setItem(slot, item);
             }
@@ -590,7 +630,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 创建商店物品
      */
-    private ItemStack createShopItem(String key, String path, Player player, String type) {
+    private ItemStack createShopItem(String key, String path, Player player, String type, PlayerData profile) {
         try {
             Material material = Material.valueOf(guiConfig.getString(path + "material", "STONE"));
             String name = ChatColor.translateAlternateColorCodes('&', 
@@ -599,7 +639,7 @@ public class EnhancedFlightShopGUI implements Listener {
             double price = guiConfig.getDouble(path + "price", 0.0);
             
             // 检查拥有状态和当前选中状态
-            boolean owned = checkOwnership(player, key, type);
+            boolean owned = checkOwnership(player, key, type, profile);
             boolean isCurrent = isCurrentSelection(player, key, type);
             String status = getOwnershipStatus(owned, isCurrent, price);
             
@@ -626,7 +666,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 创建切换器物品
      */
-    private ItemStack createSwitcherItem(String key, String path, Player player, String type) {
+    private ItemStack createSwitcherItem(String key, String path, Player player, String type, PlayerData profile) {
         try {
             Material material = Material.valueOf(guiConfig.getString(path + "material", "STONE"));
             String name = ChatColor.translateAlternateColorCodes('&', 
@@ -634,7 +674,7 @@ public class EnhancedFlightShopGUI implements Listener {
             boolean glow = guiConfig.getBoolean(path + "glow", false);
             
             // 检查是否拥有此特效/速度
-            boolean owned = checkOwnership(player, key, type);
+            boolean owned = checkOwnership(player, key, type, profile);
             boolean isCurrent = isCurrentSelection(player, key, type);
             
             List<String> lore = new ArrayList<>();
@@ -674,20 +714,15 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 检查玩家是否拥有特效或速度
      */
-    private boolean checkOwnership(Player player, String key, String type) {
+    private boolean checkOwnership(Player player, String key, String type, PlayerData profile) {
         if ("effect".equals(type)) {
             // 检查特效权限或购买状态
             String permission = "paytofly.effects." + key;
             if (player.hasPermission(permission) || player.hasPermission("paytofly.effects.*")) {
                 return true;
             }
-            // 检查永久购买
-            if (plugin.getStorage().getPlayerEffects(player.getUniqueId()).contains(key)) {
-                return true;
-            }
-            // 检查时间限制购买
-            Long effectTime = plugin.getStorage().getPlayerEffectTime(player.getUniqueId(), key);
-            return effectTime != null && effectTime > System.currentTimeMillis();
+            // 检查永久购买或时间限制购买
+            return profile.hasEffectAccess(key);
         } else if ("speed".equals(type)) {
             // 检查速度权限或购买状态
             if ("normal".equals(key) || "slow".equals(key)) {
@@ -697,13 +732,8 @@ public class EnhancedFlightShopGUI implements Listener {
             if (player.hasPermission(permission) || player.hasPermission("paytofly.speed.*")) {
                 return true;
             }
-            // 检查永久购买
-            if (plugin.getStorage().getPlayerSpeeds(player.getUniqueId()).contains(key)) {
-                return true;
-            }
-            // 检查时间限制购买
-            Long speedTime = plugin.getStorage().getPlayerSpeedTime(player.getUniqueId(), key);
-            return speedTime != null && speedTime > System.currentTimeMillis();
+            // 检查永久购买或时间限制购买
+            return profile.hasSpeedAccess(key);
         }
         return false;
     }
@@ -821,7 +851,7 @@ public class EnhancedFlightShopGUI implements Listener {
     /**
      * 替换占位符
      */
-    private String replacePlaceholders(String text, Player player) {
+    private String replacePlaceholders(String text, Player player, PlayerData profile) {
         if (text == null) return "";
         
         // 基础占位符
@@ -843,8 +873,8 @@ public class EnhancedFlightShopGUI implements Listener {
         if (player.hasPermission("paytofly.infinite")) {
             text = text.replace("{remaining_time}", "&d无限");
         } else {
-            // 先检查存储中的数据
-            Long endTime = plugin.getStorage().getPlayerFlightTime(player.getUniqueId());
+            // 先检查已加载的存储数据
+            Long endTime = profile.getFlightEndTime();
             if (endTime == null) {
                 // 如果存储中没有，检查内存中的数据
                 endTime = plugin.getFlyingPlayers().get(player.getUniqueId());
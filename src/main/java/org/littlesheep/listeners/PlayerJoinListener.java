@@ -4,6 +4,7 @@ import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.littlesheep.data.AsyncStorage;
 import org.littlesheep.paytofly;
 
 import java.util.UUID;
@@ -21,17 +22,20 @@ public class PlayerJoinListener implements Listener {
         UUID uuid = player.getUniqueId();
         
         // 延迟1tick执行，确保玩家完全加入
-        plugin.getServer().getScheduler().runTaskLater(plugin, () -> {
+        plugin.getPluginScheduler().runForEntityLater(player, () -> {
             // 检查是否有无限飞行权限
             if (player.hasPermission("paytofly.infinite")) {
                 player.setAllowFlight(true);
                 return;
             }
 
-            // 获取玩家的飞行到期时间
-            Long endTime = plugin.getStorage().getPlayerFlightTime(uuid);
-            
-            if (endTime != null) {
+            // 异步读取玩家的飞行到期时间，结果回到玩家所在的线程处理
+            AsyncStorage storage = plugin.getStorage();
+            storage.getPlayerFlightTimeAsync(uuid).thenAcceptAsync(endTime -> {
+                if (endTime == null || !player.isOnline()) {
+                    return;
+                }
+                
                 long remaining = plugin.getTimeManager().getRemainingTime(player, endTime);
                 
                 if (remaining > 0) {
@@ -41,18 +45,13 @@ public class PlayerJoinListener implements Listener {
                         "{time}", formatDuration(remaining),
                         "{remaining}", formatDuration(remaining)));
                     
-                    // 启动倒计时（如果接近结束）
-                    plugin.getCountdownManager().startCountdown(player, endTime);
+                    // 登记结束时间并启动倒计时
+                    plugin.getExpiryManager().track(player, endTime);
                 } else {
-                    // 飞行时间已过期
-                    player.setAllowFlight(false);
-                    player.setFlying(false);
-                    player.sendMessage(plugin.getPrefix() + plugin.getLang("flight-expired"));
-                    
-                    // 从存储中移除过期数据
-                    plugin.getStorage().removePlayerFlightTime(uuid);
+                    // 飞行时间已过期，撤销飞行和清理存储由到期管理器统一处理
+                    plugin.getExpiryManager().expire(player, endTime);
                 }
-            }
+            }, plugin.getPluginScheduler().entityExecutor(player));
         }, 1L);
 
         // 检查是否为管理员且配置允许提示更新
@@ -60,7 +59,7 @@ public class PlayerJoinListener implements Listener {
             plugin.getConfig().getBoolean("settings.admin-update-notice", true)) {
             
             // 使用异步任务检查更新
-            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            plugin.getPluginScheduler().runAsync(() -> {
                 String latestVersion = plugin.getUpdateChecker().getLatestVersion();
                 String currentVersion = plugin.getDescription().getVersion();
                 
@@ -6,19 +6,19 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerGameModeChangeEvent;
 import org.bukkit.GameMode;
-import org.littlesheep.data.Storage;
+import org.littlesheep.data.AsyncStorage;
+import org.littlesheep.data.PlayerData;
 import org.littlesheep.paytofly;
 import org.bukkit.event.entity.PlayerDeathEvent;
 import org.bukkit.event.player.PlayerToggleFlightEvent;
-import org.bukkit.Bukkit;
 import java.util.Map;
 import java.util.UUID;
 
 public class PlayerListener implements Listener {
-    private final Storage storage;
+    private final AsyncStorage storage;
     private final paytofly plugin;
 
-    public PlayerListener(paytofly plugin, Storage storage) {
+    public PlayerListener(paytofly plugin, AsyncStorage storage) {
         this.storage = storage;
         this.plugin = plugin;
     }
@@ -27,8 +27,20 @@ public class PlayerListener implements Listener {
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
         
+        // 异步加载玩家数据，回到玩家所在的线程后初始化默认特效、速度和飞行状态
+        storage.loadPlayerProfileAsync(player.getUniqueId()).thenAcceptAsync(profile -> {
+            if (player.isOnline()) {
+                handleJoin(player, profile);
+            }
+        }, plugin.getPluginScheduler().entityExecutor(player));
+    }
+
+    /**
+     * 使用已加载的玩家数据处理加入逻辑（玩家所在的线程）
+     */
+    private void handleJoin(Player player, PlayerData profile) {
         // 初始化玩家的默认特效和速度
-        initializePlayerDefaults(player);
+        initializePlayerDefaults(player, profile);
         
         // 先检查创造模式飞行权限
         boolean canFlyInCreative = checkCreativeFlight(player);
@@ -47,12 +59,12 @@ public class PlayerListener implements Listener {
                 player.setAllowFlight(true);
             } else {
                 // 检查购买的飞行时间
-                Long endTime = storage.getPlayerFlightTime(player.getUniqueId());
+                Long endTime = profile.getFlightEndTime();
                 if (endTime != null && endTime > System.currentTimeMillis()) {
                     // 有有效的飞行时间
                     player.setAllowFlight(true);
-                    // 启动倒计时
-                    plugin.getCountdownManager().startCountdown(player, endTime);
+                    // 登记结束时间并启动倒计时
+                    plugin.getExpiryManager().track(player, endTime);
                 } else {
                     // 没有飞行权限
                     player.setAllowFlight(false);
@@ -65,28 +77,28 @@ public class PlayerListener implements Listener {
     /**
      * 初始化玩家的默认特效和速度设置
      */
-    private void initializePlayerDefaults(Player player) {
+    private void initializePlayerDefaults(Player player, PlayerData profile) {
         // 确保特效管理器已初始化
         if (plugin.getEffectManager() != null) {
             // 从存储中加载玩家已购买的特效
-            restorePlayerEffect(player);
+            restorePlayerEffect(player, profile);
         }
         
         // 确保速度管理器已初始化
         if (plugin.getSpeedManager() != null) {
             // 从存储中加载玩家已购买的速度
-            restorePlayerSpeed(player);
+            restorePlayerSpeed(player, profile);
         }
     }
 
     /**
      * 恢复玩家的特效设置
      */
-    private void restorePlayerEffect(Player player) {
+    private void restorePlayerEffect(Player player, PlayerData profile) {
         // 获取玩家永久购买的特效
-        var purchasedEffects = storage.getPlayerEffects(player.getUniqueId());
+        var purchasedEffects = profile.getPurchasedEffects();
         // 获取玩家时间限制购买的特效
-        var effectTimes = storage.getPlayerEffectTimes(player.getUniqueId());
+        var effectTimes = profile.getEffectTimes();
         
         var bestEffect = org.littlesheep.effects.FlightEffectManager.FlightEffectType.BASIC;
         
@@ -108,7 +120,7 @@ public class PlayerListener implements Listener {
                 }
             } else {
                 // 清理过期的特效
-                storage.removePlayerEffectTime(player.getUniqueId(), entry.getKey());
+                storage.removePlayerEffectTimeAsync(player.getUniqueId(), entry.getKey());
             }
         }
         
@@ -119,11 +131,11 @@ public class PlayerListener implements Listener {
     /**
      * 恢复玩家的速度设置
      */
-    private void restorePlayerSpeed(Player player) {
+    private void restorePlayerSpeed(Player player, PlayerData profile) {
         // 获取玩家永久购买的速度
-        var purchasedSpeeds = storage.getPlayerSpeeds(player.getUniqueId());
+        var purchasedSpeeds = profile.getPurchasedSpeeds();
         // 获取玩家时间限制购买的速度
-        var speedTimes = storage.getPlayerSpeedTimes(player.getUniqueId());
+        var speedTimes = profile.getSpeedTimes();
         
         var bestSpeed = org.littlesheep.speed.FlightSpeedManager.FlightSpeedLevel.NORMAL;
         
@@ -145,7 +157,7 @@ public class PlayerListener implements Listener {
                 }
             } else {
                 // 清理过期的速度
-                storage.removePlayerSpeedTime(player.getUniqueId(), entry.getKey());
+                storage.removePlayerSpeedTimeAsync(player.getUniqueId(), entry.getKey());
             }
         }
         
@@ -187,7 +199,7 @@ public class PlayerListener implements Listener {
         Long endTime = plugin.getFlyingPlayers().get(playerId);
         if (endTime != null && endTime > System.currentTimeMillis()) {
             // 在玩家重生时恢复飞行状态
-            Bukkit.getScheduler().runTaskLater(plugin, () -> {
+            plugin.getPluginScheduler().runForEntityLater(player, () -> {
                 player.setAllowFlight(true);
                 player.setFlying(true);
             }, 1L);
@@ -261,7 +273,7 @@ public class PlayerListener implements Listener {
                 event.setCancelled(true);
                 
                 // 延迟1tick设置飞行权限和状态，确保事件处理完成
-                Bukkit.getScheduler().runTaskLater(plugin, () -> {
+                plugin.getPluginScheduler().runForEntityLater(player, () -> {
                     player.setAllowFlight(true);
                     player.setFlying(true);
                     
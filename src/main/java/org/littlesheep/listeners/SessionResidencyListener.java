@@ -0,0 +1,90 @@
+package org.littlesheep.listeners;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.littlesheep.data.CachedStorage;
+import org.littlesheep.paytofly;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 在线玩家数据常驻 - 登录前异步加载玩家全部数据并常驻缓存，退出后经过宽限期再释放
+ *
+ * 玩家在线期间加入处理、变量和 GUI 读取数据都直接命中缓存，不会在主线程访问存储。
+ */
+public class SessionResidencyListener implements Listener {
+    private final paytofly plugin;
+    private final CachedStorage storage;
+    private final long gracePeriodTicks;
+
+    // 等待释放的玩家及其释放序号，宽限期内重新登录时移除以取消释放
+    private final Map<UUID, Long> pendingReleases = new ConcurrentHashMap<>();
+    private final AtomicLong releaseSequence = new AtomicLong(0);
+
+    public SessionResidencyListener(paytofly plugin, CachedStorage storage) {
+        this.plugin = plugin;
+        this.storage = storage;
+        this.gracePeriodTicks = Math.max(1L, plugin.getConfig().getLong("cache.residency.grace-period-seconds", 60) * 20L);
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        UUID uuid = event.getUniqueId();
+        pendingReleases.remove(uuid);
+        try {
+            // 该事件在异步线程上触发，可以直接阻塞读取
+            storage.pinPlayer(uuid);
+        } catch (Exception e) {
+            // 加载失败不阻止登录，之后按需读取
+            plugin.getLogger().warning(String.format("预加载玩家 %s 的数据失败: %s", event.getName(), e.getMessage()));
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        // 预登录之后被拒绝的玩家不会触发退出事件
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            scheduleRelease(event.getPlayer().getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onQuit(PlayerQuitEvent event) {
+        scheduleRelease(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * 宽限期后释放常驻。重复登录时旧会话的退出事件在新会话登录之后才触发，
+     * 释放前确认玩家仍不在线，不会取消新会话的常驻
+     */
+    private void scheduleRelease(UUID uuid) {
+        long sequence = releaseSequence.incrementAndGet();
+        pendingReleases.put(uuid, sequence);
+        plugin.getPluginScheduler().runGlobalLater(() -> {
+            if (pendingReleases.remove(uuid, sequence) && plugin.getServer().getPlayer(uuid) == null) {
+                storage.releasePlayer(uuid);
+            }
+        }, gracePeriodTicks);
+    }
+
+    /**
+     * 常驻已在线的玩家，用于插件重载后
+     */
+    public void pinOnlinePlayers() {
+        for (Player player : plugin.getServer().getOnlinePlayers()) {
+            UUID uuid = player.getUniqueId();
+            storage.getStorageExecutor().run(() -> storage.pinPlayer(uuid));
+        }
+    }
+}
@@ -72,13 +72,23 @@ public class WorldChangeListener implements Listener {
         }
 
         // 检查购买状态
-        Long endTime = plugin.getStorage().getPlayerFlightTime(player.getUniqueId());
+        applyPurchasedFlight(player);
+    }
+    
+    /**
+     * 按到期管理器中登记的结束时间应用购买的飞行状态，不读取存储。
+     * 到期由到期管理器处理，这里只在飞行状态确实改变时同步 MHDF-Tools，
+     * 避免每次传送都重复发送取消命令。
+     * @param player 玩家
+     */
+    private void applyPurchasedFlight(Player player) {
+        Long endTime = plugin.getExpiryManager().getDeadline(player.getUniqueId());
         if (endTime != null && endTime > System.currentTimeMillis()) {
             player.setAllowFlight(true);
             
             // 同步MHDF-Tools飞行权限
             syncMHDFToolsFlight(player, endTime);
-        } else {
+        } else if (player.getAllowFlight()) {
             player.setAllowFlight(false);
             player.setFlying(false);
             
@@ -146,10 +156,10 @@ public class WorldChangeListener implements Listener {
         final Player player = event.getPlayer();
         
         // 延迟一秒检查飞行状态，避免死亡后立即取消飞行
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+        plugin.getPluginScheduler().runForEntityLater(player, () -> {
             // 检查玩家飞行权限
-            Long endTime = plugin.getStorage().getPlayerFlightTime(player.getUniqueId());
-            if (endTime != null && endTime > System.currentTimeMillis()) {
+            Long endTime = plugin.getExpiryManager().getDeadline(player.getUniqueId());
+            if (player.isOnline() && endTime != null && endTime > System.currentTimeMillis()) {
                 player.setAllowFlight(true);
                 
                 // 同步MHDF-Tools飞行权限
@@ -171,7 +181,7 @@ public class WorldChangeListener implements Listener {
         }
         
         // 延迟几tick检查飞行状态，确保传送完成
-        Bukkit.getScheduler().runTaskLater(plugin, () -> {
+        plugin.getPluginScheduler().runForEntityLater(player, () -> {
             // 如果玩家已经离线，跳过处理
             if (!player.isOnline()) {
                 return;
@@ -220,14 +230,6 @@ public class WorldChangeListener implements Listener {
         }
         
         // 检查购买状态
-        Long endTime = plugin.getStorage().getPlayerFlightTime(player.getUniqueId());
-        if (endTime != null && endTime > System.currentTimeMillis()) {
-            player.setAllowFlight(true);
-            syncMHDFToolsFlight(player, endTime);
-        } else {
-            player.setAllowFlight(false);
-            player.setFlying(false);
-            syncMHDFToolsDisableFlight(player);
-        }
+        applyPurchasedFlight(player);
     }
 } 
\ No newline at end of file
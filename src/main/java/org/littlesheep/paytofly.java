@@ -8,12 +8,17 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
-import org.littlesheep.data.Storage;
+import org.littlesheep.data.AsyncStorage;
+import org.littlesheep.data.CachedStorage;
+import org.littlesheep.data.MeteredStorage;
 import org.littlesheep.data.StorageFactory;
+import org.littlesheep.data.StorageMetrics;
 import org.littlesheep.economy.EconomyManager;
 import org.littlesheep.listeners.PlayerListener;
+import org.littlesheep.listeners.SessionResidencyListener;
 import org.littlesheep.placeholders.FlightExpansion;
 import org.littlesheep.utils.OptimizedCountdownManager;
+import org.littlesheep.utils.FlightExpiryManager;
 import org.littlesheep.utils.LanguageManager;
 import org.bstats.bukkit.Metrics;
 import org.bstats.charts.SimplePie;
@@ -30,6 +35,9 @@ import org.littlesheep.commands.CommandHandler;
 import org.littlesheep.utils.CustomTimeManager;
 import org.littlesheep.utils.ResourceManager;
 import org.littlesheep.utils.ExceptionHandler;
+import org.littlesheep.utils.TimingWheel;
+import org.littlesheep.scheduler.PluginScheduler;
+import org.littlesheep.scheduler.SchedulerFactory;
 import org.littlesheep.effects.FlightEffectManager;
 import org.littlesheep.speed.FlightSpeedManager;
 import org.bukkit.ChatColor;
@@ -38,6 +46,7 @@ import java.io.File;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 public final class paytofly extends JavaPlugin {
     private Economy econ;
@@ -45,9 +54,10 @@ public final class paytofly extends JavaPlugin {
     private Map<UUID, Long> flyingPlayers = new HashMap<>();
     private FileConfiguration config;
     private String prefix;
-    private Storage storage;
+    private AsyncStorage storage;
     private LanguageManager lang;
     private OptimizedCountdownManager countdownManager;
+    private FlightExpiryManager expiryManager;
     private static final int BSTATS_ID = 24712;
     private EnhancedFlightShopGUI shopGUI;
     private VersionManager versionManager;
@@ -57,6 +67,9 @@ public final class paytofly extends JavaPlugin {
     private FileConfiguration messageConfig;
     private FileConfiguration langConfig;
     private ResourceManager resourceManager;
+    private TimingWheel timingWheel;
+    private PluginScheduler pluginScheduler;
+    private StorageMetrics storageMetrics;
     private ExceptionHandler exceptionHandler;
     private CommandHandler commandHandler;
     private FlightEffectManager effectManager;
@@ -67,6 +80,10 @@ public final class paytofly extends JavaPlugin {
         // 初始化资源管理器（必须第一个初始化）
         resourceManager = new ResourceManager(this);
         
+        // 初始化任务调度器，按服务端类型选择实现
+        pluginScheduler = SchedulerFactory.createScheduler(this);
+        resourceManager.registerShutdownHook(pluginScheduler::cancelAll);
+        
         // 初始化异常处理器
         exceptionHandler = new ExceptionHandler(this);
         
@@ -101,13 +118,23 @@ public final class paytofly extends JavaPlugin {
             getLogger().severe(lang.getMessage("economy-failed-hint"));
         }
         
+        // 初始化时间轮，缓存过期、存储清理和倒计时的截止时间都登记在这里
+        timingWheel = resourceManager.registerCloseable(new TimingWheel(this, 50L, 1024));
+        
         // 初始化存储系统
         try {
-            storage = StorageFactory.createStorage(getConfig().getString("storage.type", "JSON"), this);
+            storageMetrics = getConfig().getBoolean("storage.latency-metrics", true) ? new StorageMetrics() : null;
+            storage = StorageFactory.createStorage(getConfig().getString("storage.type", "JSON"), this, timingWheel, storageMetrics);
             storage.init();
             // 注册存储到资源管理器
             resourceManager.registerCloseable(storage);
             getLogger().info("§a存储系统初始化成功！（类型：" + getConfig().getString("storage.type", "JSON") + "）");
+            
+            // 定期清理过期的飞行时间和限时特效/速度，只访问已过期的记录
+            long expiryCleanupMillis = getConfig().getLong("storage.expiry-cleanup-interval-minutes", 10) * 60_000L;
+            if (expiryCleanupMillis > 0) {
+                scheduleExpiryCleanup(expiryCleanupMillis);
+            }
         } catch (Exception e) {
             getLogger().severe(lang.getMessage("storage-failed-detail"));
             e.printStackTrace();
@@ -116,7 +143,8 @@ public final class paytofly extends JavaPlugin {
         }
         
         // 初始化优化的倒计时管理器
-        countdownManager = new OptimizedCountdownManager(this, lang);
+        countdownManager = new OptimizedCountdownManager(this, lang, timingWheel, pluginScheduler);
+        getServer().getPluginManager().registerEvents(countdownManager, this);
         // 注册倒计时管理器清理钩子
         resourceManager.registerShutdownHook(() -> {
             if (countdownManager != null) {
@@ -124,6 +152,11 @@ public final class paytofly extends JavaPlugin {
             }
         });
         
+        // 初始化飞行到期管理器，在线玩家的飞行结束时间都登记在这里
+        expiryManager = new FlightExpiryManager(this, timingWheel);
+        getServer().getPluginManager().registerEvents(expiryManager, this);
+        resourceManager.registerShutdownHook(expiryManager::cleanup);
+        
         // 从存储加载飞行数据
         flyingPlayers = storage.getAllPlayerData();
         for (Map.Entry<UUID, Long> entry : flyingPlayers.entrySet()) {
@@ -131,7 +164,7 @@ public final class paytofly extends JavaPlugin {
             if (player != null && player.isOnline()) {
                 long endTime = entry.getValue();
                 if (endTime > System.currentTimeMillis()) {
-                    countdownManager.startCountdown(player, endTime);
+                    expiryManager.track(player, endTime);
                 }
             }
         }
@@ -139,6 +172,14 @@ public final class paytofly extends JavaPlugin {
         // 注册事件监听器
         getServer().getPluginManager().registerEvents(new PlayerListener(this, storage), this);
         
+        // 在线玩家数据常驻缓存
+        AsyncStorage unwrappedStorage = MeteredStorage.unwrap(storage);
+        if (unwrappedStorage instanceof CachedStorage && getConfig().getBoolean("cache.residency.enabled", false)) {
+            SessionResidencyListener residencyListener = new SessionResidencyListener(this, (CachedStorage) unwrappedStorage);
+            getServer().getPluginManager().registerEvents(residencyListener, this);
+            residencyListener.pinOnlinePlayers();
+        }
+        
         // 注册命令和补全器
         getCommand("fly").setExecutor(this);
         getCommand("fly").setTabCompleter(new FlyCommandTabCompleter());
@@ -148,7 +189,9 @@ public final class paytofly extends JavaPlugin {
         
         // 注册 PAPI 扩展
         if (Bukkit.getPluginManager().getPlugin("PlaceholderAPI") != null) {
-            new FlightExpansion(this).register();
+            FlightExpansion expansion = new FlightExpansion(this);
+            expansion.register();
+            getServer().getPluginManager().registerEvents(expansion, this);
         }
         
         // 初始化 bStats
@@ -243,6 +286,28 @@ public final class paytofly extends JavaPlugin {
         getLogger().info("PayToFly插件已禁用！");
     }
 
+    /**
+     * 在时间轮上登记下一次过期数据清理，清理本身在存储I/O线程上执行，完成后再登记下一次
+     */
+    private void scheduleExpiryCleanup(long intervalMillis) {
+        timingWheel.scheduleAfter(intervalMillis, TimeUnit.MILLISECONDS, () -> {
+            if (!isEnabled()) {
+                return;
+            }
+            storage.getStorageExecutor().run(() -> {
+                int removed = storage.pollExpired(System.currentTimeMillis()).size();
+                if (removed > 0) {
+                    getLogger().fine(String.format("清理了 %d 条过期数据", removed));
+                }
+            }).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    getLogger().warning("清理过期数据失败: " + error.getMessage());
+                }
+                scheduleExpiryCleanup(intervalMillis);
+            });
+        });
+    }
+
     // Getter methods for other classes to access
     public Map<UUID, Long> getFlyingPlayers() {
         return flyingPlayers;
@@ -265,7 +330,11 @@ public final class paytofly extends JavaPlugin {
         return countdownManager;
     }
 
-    public Storage getStorage() {
+    public FlightExpiryManager getExpiryManager() {
+        return expiryManager;
+    }
+
+    public AsyncStorage getStorage() {
         return storage;
     }
 
@@ -360,6 +429,21 @@ public final class paytofly extends JavaPlugin {
         return economyManager;
     }
 
+    public PluginScheduler getPluginScheduler() {
+        return pluginScheduler;
+    }
+
+    public TimingWheel getTimingWheel() {
+        return timingWheel;
+    }
+
+    /**
+     * 存储耗时统计，未启用时返回 null
+     */
+    public StorageMetrics getStorageMetrics() {
+        return storageMetrics;
+    }
+
     public ResourceManager getResourceManager() {
         return resourceManager;
     }
@@ -391,14 +475,18 @@ public final class paytofly extends JavaPlugin {
      */
     public void syncMHDFToolsFlight(Player player, long endTime) {
         if (getServer().getPluginManager().getPlugin("MHDF-Tools") != null) {
-            try {
-                // 只使用fly命令设置飞行权限，不使用flytime命令
-                String command = "fly " + player.getName() + " true";
-                getServer().dispatchCommand(Bukkit.getConsoleSender(), command);
-                getLogger().info(lang.getMessage("mhdf-sync-success", "{player}", player.getName()));
-            } catch (Exception e) {
-                getLogger().warning(lang.getMessage("mhdf-sync-failed", "{error}", e.getMessage()));
-            }
+            String name = player.getName();
+            // 控制台命令只能在全局线程上执行，调用方可能在玩家所在区域的线程上
+            getPluginScheduler().globalExecutor().execute(() -> {
+                try {
+                    // 只使用fly命令设置飞行权限，不使用flytime命令
+                    String command = "fly " + name + " true";
+                    getServer().dispatchCommand(Bukkit.getConsoleSender(), command);
+                    getLogger().info(lang.getMessage("mhdf-sync-success", "{player}", name));
+                } catch (Exception e) {
+                    getLogger().warning(lang.getMessage("mhdf-sync-failed", "{error}", e.getMessage()));
+                }
+            });
         }
     }
 
@@ -408,19 +496,23 @@ public final class paytofly extends JavaPlugin {
      */
     public void syncMHDFToolsDisableFlight(Player player) {
         if (getServer().getPluginManager().getPlugin("MHDF-Tools") != null) {
-            try {
-                // 使用MHDF-Tools的fly命令取消飞行权限
-                getServer().dispatchCommand(Bukkit.getConsoleSender(), 
-                        "fly " + player.getName() + " false");
-                
-                // 确保完全移除权限 - 尝试清除可能存在的任何临时权限
-                getServer().dispatchCommand(Bukkit.getConsoleSender(), 
-                        "lp user " + player.getName() + " permission unset mhdtools.commands.fly.temp");
-                
-                getLogger().info(lang.getMessage("mhdf-disable-success", "{player}", player.getName()));
-            } catch (Exception e) {
-                getLogger().warning(lang.getMessage("mhdf-disable-failed", "{error}", e.getMessage()));
-            }
+            String name = player.getName();
+            // 到期处理在玩家所在区域的线程上调用，控制台命令提交到全局线程执行
+            getPluginScheduler().globalExecutor().execute(() -> {
+                try {
+                    // 使用MHDF-Tools的fly命令取消飞行权限
+                    getServer().dispatchCommand(Bukkit.getConsoleSender(), 
+                            "fly " + name + " false");
+                    
+                    // 确保完全移除权限 - 尝试清除可能存在的任何临时权限
+                    getServer().dispatchCommand(Bukkit.getConsoleSender(), 
+                            "lp user " + name + " permission unset mhdtools.commands.fly.temp");
+                    
+                    getLogger().info(lang.getMessage("mhdf-disable-success", "{player}", name));
+                } catch (Exception e) {
+                    getLogger().warning(lang.getMessage("mhdf-disable-failed", "{error}", e.getMessage()));
+                }
+            });
         }
     }
 }
@@ -2,13 +2,31 @@ package org.littlesheep.placeholders;
 
 import me.clip.placeholderapi.expansion.PlaceholderExpansion;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.littlesheep.data.PlayerData;
+import org.littlesheep.data.StorageMetrics;
 import org.littlesheep.paytofly;
+import org.littlesheep.utils.LatencyHistogram;
 import org.littlesheep.utils.TimeFormatter;
 import java.text.SimpleDateFormat;
 import java.util.Date;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
 
-public class FlightExpansion extends PlaceholderExpansion {
+public class FlightExpansion extends PlaceholderExpansion implements Listener {
     private final paytofly plugin;
+    
+    // placeholder 请求不能阻塞，存储读取在后台进行，期间返回上一次的结果
+    private final Map<UUID, Optional<Long>> lastFlightTimes = new ConcurrentHashMap<>();
+    private final Map<UUID, Optional<PlayerData>> lastProfiles = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<Long>> pendingFlightTimes = new ConcurrentHashMap<>();
+    private final Map<UUID, CompletableFuture<PlayerData>> pendingProfiles = new ConcurrentHashMap<>();
 
     public FlightExpansion(paytofly plugin) {
         this.plugin = plugin;
@@ -36,12 +54,17 @@ public class FlightExpansion extends PlaceholderExpansion {
 
     @Override
     public String onPlaceholderRequest(Player player, String params) {
+        // 存储统计与玩家无关，控制台和计分板也可以使用
+        if (params.startsWith("metrics_")) {
+            return resolveMetric(params.substring("metrics_".length()));
+        }
+
         if (player == null) {
             return "";
         }
 
-        // 优先从存储中获取飞行结束时间
-        Long endTime = plugin.getStorage().getPlayerFlightTime(player.getUniqueId());
+        // 优先从存储中获取飞行结束时间（不阻塞）
+        Long endTime = resolveFlightTime(player.getUniqueId());
         if (endTime == null) {
             // 如果存储中没有，检查内存中的数据（兼容旧版本）
             endTime = plugin.getFlyingPlayers().get(player.getUniqueId());
@@ -170,6 +193,38 @@ public class FlightExpansion extends PlaceholderExpansion {
         return null;
     }
     
+    /**
+     * 解析存储统计 placeholder：
+     * metrics_queue_队列名，或 metrics_存储层_方法名_统计项（p50、p99、max、mean、count），
+     * 例如 metrics_cache_getPlayerFlightTime_p99，耗时单位为微秒
+     */
+    private String resolveMetric(String key) {
+        if (key.startsWith("queue_")) {
+            Integer depth = plugin.getStorage() != null
+                ? plugin.getStorage().getQueueDepths().get(key.substring("queue_".length())) : null;
+            return depth != null ? String.valueOf(depth) : "0";
+        }
+
+        StorageMetrics metrics = plugin.getStorageMetrics();
+        int first = key.indexOf('_');
+        int last = key.lastIndexOf('_');
+        if (metrics == null || first <= 0 || last <= first + 1) {
+            return null;
+        }
+        LatencyHistogram.Snapshot snapshot = metrics.find(key.substring(0, first), key.substring(first + 1, last));
+        if (snapshot == null) {
+            return "0";
+        }
+        switch (key.substring(last + 1)) {
+            case "p50": return String.valueOf(snapshot.p50);
+            case "p99": return String.valueOf(snapshot.p99);
+            case "max": return String.valueOf(snapshot.max);
+            case "mean": return String.valueOf(snapshot.mean);
+            case "count": return String.valueOf(snapshot.count);
+            default: return null;
+        }
+    }
+
     /**
      * 检查玩家是否有特效访问权限（永久或时间限制）
      */
@@ -180,14 +235,8 @@ public class FlightExpansion extends PlaceholderExpansion {
             return true;
         }
         
-        // 检查永久购买
-        if (plugin.getStorage().getPlayerEffects(player.getUniqueId()).contains(effectName)) {
-            return true;
-        }
-        
-        // 检查时间限制购买
-        Long effectTime = plugin.getStorage().getPlayerEffectTime(player.getUniqueId(), effectName);
-        return effectTime != null && effectTime > System.currentTimeMillis();
+        // 检查永久购买或时间限制购买
+        return resolveProfile(player.getUniqueId()).hasEffectAccess(effectName);
     }
     
     /**
@@ -205,14 +254,63 @@ public class FlightExpansion extends PlaceholderExpansion {
             return true;
         }
         
-        // 检查永久购买
-        if (plugin.getStorage().getPlayerSpeeds(player.getUniqueId()).contains(speedName)) {
-            return true;
+        // 检查永久购买或时间限制购买
+        return resolveProfile(player.getUniqueId()).hasSpeedAccess(speedName);
+    }
+    
+    /**
+     * 获取飞行结束时间（不阻塞）
+     */
+    private Long resolveFlightTime(UUID uuid) {
+        return resolve(uuid, lastFlightTimes, pendingFlightTimes,
+            () -> plugin.getStorage().getPlayerFlightTimeAsync(uuid));
+    }
+    
+    /**
+     * 获取玩家购买数据（不阻塞），尚未加载时视为没有任何购买记录
+     */
+    private PlayerData resolveProfile(UUID uuid) {
+        PlayerData profile = resolve(uuid, lastProfiles, pendingProfiles,
+            () -> plugin.getStorage().loadPlayerProfileAsync(uuid));
+        return profile != null ? profile : new PlayerData();
+    }
+    
+    /**
+     * 已完成的读取立即使用其结果；否则在后台读取（同一玩家只保留一个进行中的读取），
+     * 并返回上一次的结果
+     */
+    private <T> T resolve(UUID uuid, Map<UUID, Optional<T>> lastValues,
+                          Map<UUID, CompletableFuture<T>> pending,
+                          Supplier<CompletableFuture<T>> loader) {
+        if (!pending.containsKey(uuid)) {
+            CompletableFuture<T> future = loader.get();
+            if (future.isDone() && !future.isCompletedExceptionally()) {
+                T value = future.join();
+                lastValues.put(uuid, Optional.ofNullable(value));
+                return value;
+            }
+            
+            if (pending.putIfAbsent(uuid, future) == null) {
+                future.whenComplete((value, error) -> {
+                    if (error == null) {
+                        lastValues.put(uuid, Optional.ofNullable(value));
+                    }
+                    pending.remove(uuid, future);
+                });
+            }
         }
         
-        // 检查时间限制购买
-        Long speedTime = plugin.getStorage().getPlayerSpeedTime(player.getUniqueId(), speedName);
-        return speedTime != null && speedTime > System.currentTimeMillis();
+        Optional<T> last = lastValues.get(uuid);
+        return last != null ? last.orElse(null) : null;
+    }
+    
+    @EventHandler
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        UUID uuid = event.getPlayer().getUniqueId();
+        lastFlightTimes.remove(uuid);
+        lastProfiles.remove(uuid);
+        pendingFlightTimes.remove(uuid);
+        pendingProfiles.remove(uuid);
     }
     
     /**
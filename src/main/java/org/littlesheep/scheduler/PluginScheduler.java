@@ -0,0 +1,85 @@
+package org.littlesheep.scheduler;
+
+import org.bukkit.entity.Entity;
+
+import java.util.concurrent.Executor;
+
+/**
+ * 插件任务调度抽象 - 区分全局、异步和按实体三类任务
+ *
+ * 在单主线程服务端上，全局任务和实体任务都在主线程执行；在按区域多线程的服务端（Folia）上，
+ * 全局任务在全局区域线程执行，实体任务在实体所在区域的线程执行并跟随实体迁移。
+ * 涉及某个玩家的操作（飞行状态、BossBar、粒子、消息）应提交为该玩家的实体任务。
+ * 延迟和周期以 tick 为单位。
+ */
+public interface PluginScheduler {
+
+    /**
+     * 在全局线程上执行
+     */
+    ScheduledTask runGlobal(Runnable task);
+
+    ScheduledTask runGlobalLater(Runnable task, long delayTicks);
+
+    ScheduledTask runGlobalTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * 在异步线程上执行，不能访问世界和实体
+     */
+    ScheduledTask runAsync(Runnable task);
+
+    ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks);
+
+    /**
+     * 在拥有该实体的线程上执行；实体已被移除（如玩家离线）时任务可能不会执行
+     */
+    ScheduledTask runForEntity(Entity entity, Runnable task);
+
+    ScheduledTask runForEntityLater(Entity entity, Runnable task, long delayTicks);
+
+    /**
+     * 当前线程是否为全局线程
+     */
+    boolean isGlobalThread();
+
+    /**
+     * 当前线程是否可以直接访问该实体
+     */
+    boolean isOwnedByCurrentThread(Entity entity);
+
+    /**
+     * 取消本插件提交的所有任务
+     */
+    void cancelAll();
+
+    /**
+     * 已在拥有实体的线程上时直接执行，否则提交为实体任务
+     */
+    default void executeForEntity(Entity entity, Runnable task) {
+        if (isOwnedByCurrentThread(entity)) {
+            task.run();
+        } else {
+            runForEntity(entity, task);
+        }
+    }
+
+    /**
+     * 把结果交给实体所在线程处理的执行器，用于 CompletableFuture 回调
+     */
+    default Executor entityExecutor(Entity entity) {
+        return task -> executeForEntity(entity, task);
+    }
+
+    /**
+     * 把结果交给全局线程处理的执行器
+     */
+    default Executor globalExecutor() {
+        return task -> {
+            if (isGlobalThread()) {
+                task.run();
+            } else {
+                runGlobal(task);
+            }
+        };
+    }
+}
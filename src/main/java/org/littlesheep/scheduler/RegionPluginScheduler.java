@@ -0,0 +1,236 @@
+package org.littlesheep.scheduler;
+
+import org.bukkit.Server;
+import org.bukkit.entity.Entity;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+/**
+ * 按区域多线程服务端（Folia）的调度实现
+ *
+ * 编译时依赖的 Spigot API 中没有区域调度器，相关方法在构造时通过反射解析一次。
+ * 全局任务提交到全局区域调度器，实体任务提交到实体自己的调度器，异步任务提交到异步调度器。
+ * 实体调度器没有按插件取消的方法，未执行的实体任务在这里登记，由 cancelAll 逐个取消。
+ */
+public class RegionPluginScheduler implements PluginScheduler {
+    private static final String SCHEDULER_PACKAGE = "io.papermc.paper.threadedregions.scheduler.";
+    private static final long MILLIS_PER_TICK = 50L;
+
+    private final Plugin plugin;
+    private final Object globalScheduler;
+    private final Object asyncScheduler;
+
+    private final Method globalRun;
+    private final Method globalRunDelayed;
+    private final Method globalRunAtFixedRate;
+    private final Method globalCancelTasks;
+    private final Method asyncRunNow;
+    private final Method asyncRunAtFixedRate;
+    private final Method asyncCancelTasks;
+    private final Method entityGetScheduler;
+    private final Method entityRun;
+    private final Method entityRunDelayed;
+    private final Method taskCancel;
+    private final Method taskIsCancelled;
+    private final Method isGlobalTickThread;
+    private final Method isOwnedByCurrentRegion;
+
+    // 尚未执行、取消或随实体移除的实体任务
+    private final Set<Object> entityTasks = ConcurrentHashMap.newKeySet();
+
+    public RegionPluginScheduler(Plugin plugin) throws ReflectiveOperationException {
+        this.plugin = plugin;
+        Server server = plugin.getServer();
+
+        Class<?> globalType = Class.forName(SCHEDULER_PACKAGE + "GlobalRegionScheduler");
+        Class<?> asyncType = Class.forName(SCHEDULER_PACKAGE + "AsyncScheduler");
+        Class<?> entityType = Class.forName(SCHEDULER_PACKAGE + "EntityScheduler");
+        Class<?> taskType = Class.forName(SCHEDULER_PACKAGE + "ScheduledTask");
+
+        this.globalScheduler = server.getClass().getMethod("getGlobalRegionScheduler").invoke(server);
+        this.asyncScheduler = server.getClass().getMethod("getAsyncScheduler").invoke(server);
+
+        this.globalRun = globalType.getMethod("run", Plugin.class, Consumer.class);
+        this.globalRunDelayed = globalType.getMethod("runDelayed", Plugin.class, Consumer.class, long.class);
+        this.globalRunAtFixedRate = globalType.getMethod("runAtFixedRate", Plugin.class, Consumer.class, long.class, long.class);
+        this.globalCancelTasks = globalType.getMethod("cancelTasks", Plugin.class);
+        this.asyncRunNow = asyncType.getMethod("runNow", Plugin.class, Consumer.class);
+        this.asyncRunAtFixedRate = asyncType.getMethod("runAtFixedRate",
+            Plugin.class, Consumer.class, long.class, long.class, TimeUnit.class);
+        this.asyncCancelTasks = asyncType.getMethod("cancelTasks", Plugin.class);
+        this.entityGetScheduler = Entity.class.getMethod("getScheduler");
+        this.entityRun = entityType.getMethod("run", Plugin.class, Consumer.class, Runnable.class);
+        this.entityRunDelayed = entityType.getMethod("runDelayed", Plugin.class, Consumer.class, Runnable.class, long.class);
+        this.taskCancel = taskType.getMethod("cancel");
+        this.taskIsCancelled = taskType.getMethod("isCancelled");
+        this.isGlobalTickThread = Server.class.getMethod("isGlobalTickThread");
+        this.isOwnedByCurrentRegion = Server.class.getMethod("isOwnedByCurrentRegion", Entity.class);
+    }
+
+    private Object invoke(Method method, Object target, Object... args) {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException(cause);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static Consumer<Object> consumer(Runnable task) {
+        return scheduledTask -> task.run();
+    }
+
+    private ScheduledTask wrap(Object task) {
+        if (task == null) {
+            // 实体已被移除，任务不会执行
+            return CANCELLED;
+        }
+        return new ScheduledTask() {
+            @Override
+            public void cancel() {
+                invoke(taskCancel, task);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return (Boolean) invoke(taskIsCancelled, task);
+            }
+        };
+    }
+
+    private static final ScheduledTask CANCELLED = new ScheduledTask() {
+        @Override
+        public void cancel() {
+        }
+
+        @Override
+        public boolean isCancelled() {
+            return true;
+        }
+    };
+
+    @Override
+    public ScheduledTask runGlobal(Runnable task) {
+        return wrap(invoke(globalRun, globalScheduler, plugin, consumer(task)));
+    }
+
+    @Override
+    public ScheduledTask runGlobalLater(Runnable task, long delayTicks) {
+        if (delayTicks <= 0) {
+            return runGlobal(task);
+        }
+        return wrap(invoke(globalRunDelayed, globalScheduler, plugin, consumer(task), delayTicks));
+    }
+
+    @Override
+    public ScheduledTask runGlobalTimer(Runnable task, long delayTicks, long periodTicks) {
+        // 区域调度器要求延迟和周期至少为 1 tick
+        return wrap(invoke(globalRunAtFixedRate, globalScheduler, plugin, consumer(task),
+            Math.max(1L, delayTicks), Math.max(1L, periodTicks)));
+    }
+
+    @Override
+    public ScheduledTask runAsync(Runnable task) {
+        return wrap(invoke(asyncRunNow, asyncScheduler, plugin, consumer(task)));
+    }
+
+    @Override
+    public ScheduledTask runAsyncTimer(Runnable task, long delayTicks, long periodTicks) {
+        return wrap(invoke(asyncRunAtFixedRate, asyncScheduler, plugin, consumer(task),
+            Math.max(0L, delayTicks) * MILLIS_PER_TICK, Math.max(1L, periodTicks) * MILLIS_PER_TICK,
+            TimeUnit.MILLISECONDS));
+    }
+
+    @Override
+    public ScheduledTask runForEntity(Entity entity, Runnable task) {
+        return scheduleForEntity(entity, task, 0L);
+    }
+
+    @Override
+    public ScheduledTask runForEntityLater(Entity entity, Runnable task, long delayTicks) {
+        return scheduleForEntity(entity, task, delayTicks);
+    }
+
+    /**
+     * 提交实体任务并登记，任务执行或随实体移除而作废时注销
+     */
+    private ScheduledTask scheduleForEntity(Entity entity, Runnable task, long delayTicks) {
+        Object scheduler = invoke(entityGetScheduler, entity);
+        AtomicReference<Object> handle = new AtomicReference<>();
+        AtomicBoolean finished = new AtomicBoolean(false);
+        Runnable untrack = () -> {
+            finished.set(true);
+            Object registered = handle.get();
+            if (registered != null) {
+                entityTasks.remove(registered);
+            }
+        };
+        Consumer<Object> consumer = scheduledTask -> {
+            untrack.run();
+            task.run();
+        };
+
+        Object scheduled = delayTicks > 0
+            ? invoke(entityRunDelayed, scheduler, plugin, consumer, untrack, delayTicks)
+            : invoke(entityRun, scheduler, plugin, consumer, untrack);
+        if (scheduled == null) {
+            // 实体已被移除，任务不会执行
+            return CANCELLED;
+        }
+        handle.set(scheduled);
+        entityTasks.add(scheduled);
+        // 任务可能在登记前已在实体所在区域线程上执行
+        if (finished.get()) {
+            entityTasks.remove(scheduled);
+        }
+
+        return new ScheduledTask() {
+            @Override
+            public void cancel() {
+                entityTasks.remove(scheduled);
+                invoke(taskCancel, scheduled);
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return (Boolean) invoke(taskIsCancelled, scheduled);
+            }
+        };
+    }
+
+    @Override
+    public boolean isGlobalThread() {
+        return (Boolean) invoke(isGlobalTickThread, plugin.getServer());
+    }
+
+    @Override
+    public boolean isOwnedByCurrentThread(Entity entity) {
+        return (Boolean) invoke(isOwnedByCurrentRegion, plugin.getServer(), entity);
+    }
+
+    @Override
+    public void cancelAll() {
+        invoke(globalCancelTasks, globalScheduler, plugin);
+        invoke(asyncCancelTasks, asyncScheduler, plugin);
+        Iterator<Object> iterator = entityTasks.iterator();
+        while (iterator.hasNext()) {
+            Object task = iterator.next();
+            iterator.remove();
+            invoke(taskCancel, task);
+        }
+    }
+}
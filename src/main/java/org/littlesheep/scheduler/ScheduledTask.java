@@ -0,0 +1,13 @@
+package org.littlesheep.scheduler;
+
+/**
+ * 由 {@link PluginScheduler} 提交的任务
+ */
+public interface ScheduledTask {
+    /**
+     * 取消任务，已执行完的一次性任务取消无效果
+     */
+    void cancel();
+
+    boolean isCancelled();
+}
@@ -0,0 +1,29 @@
+package org.littlesheep.scheduler;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+public class SchedulerFactory {
+    /**
+     * 根据服务端类型选择调度实现：按区域多线程的服务端使用区域调度器，其余使用 Bukkit 调度器
+     */
+    public static PluginScheduler createScheduler(JavaPlugin plugin) {
+        if (isRegionThreaded()) {
+            try {
+                plugin.getLogger().info("检测到按区域多线程的服务端，使用区域调度器");
+                return new RegionPluginScheduler(plugin);
+            } catch (ReflectiveOperationException e) {
+                plugin.getLogger().warning("区域调度器初始化失败，使用 Bukkit 调度器: " + e);
+            }
+        }
+        return new BukkitPluginScheduler(plugin);
+    }
+
+    private static boolean isRegionThreaded() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+}
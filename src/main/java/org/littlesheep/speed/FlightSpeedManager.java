@@ -156,26 +156,15 @@ public class FlightSpeedManager {
         float speedDiff = targetSpeed - currentSpeed;
         float stepSize = speedDiff / steps;
         
-        // 异步执行平滑过渡
-        new Thread(() -> {
-            for (int i = 1; i <= steps; i++) {
-                float newSpeed = currentSpeed + (stepSize * i);
-                
-                // 同步设置速度
-                plugin.getServer().getScheduler().runTask(plugin, () -> {
-                    if (player.isOnline()) {
-                        player.setFlySpeed(newSpeed);
-                    }
-                });
-                
-                try {
-                    Thread.sleep(50); // 50ms间隔
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                    break;
+        // 每 tick 一步，在玩家所在的线程上设置速度
+        for (int i = 1; i <= steps; i++) {
+            float newSpeed = currentSpeed + (stepSize * i);
+            plugin.getPluginScheduler().runForEntityLater(player, () -> {
+                if (player.isOnline()) {
+                    player.setFlySpeed(newSpeed);
                 }
-            }
-        }).start();
+            }, i);
+        }
     }
     
     /**
@@ -275,8 +264,15 @@ public class FlightSpeedManager {
             
             // 扣款
             if (plugin.getEconomyManager().withdraw(player, price)) {
-                // 添加购买记录
-                plugin.getStorage().addPlayerSpeed(player.getUniqueId(), speedLevel.getName());
+                // 添加购买记录，存储无法记录时退款
+                try {
+                    plugin.getStorage().addPlayerSpeed(player.getUniqueId(), speedLevel.getName());
+                } catch (IllegalStateException e) {
+                    plugin.getEconomyManager().deposit(player, price);
+                    plugin.getLogger().warning(String.format("玩家 %s 购买速度 %s 失败，已退款: %s",
+                        player.getName(), speedLevel.getName(), e.getMessage()));
+                    return false;
+                }
                 return true;
             }
         }
@@ -8,8 +8,11 @@ import java.time.Instant;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class FlightChecker {
     private final paytofly plugin;
@@ -22,18 +25,33 @@ public class FlightChecker {
         this.lang = lang;
     }
 
+    /**
+     * 检查所有在线玩家，每个玩家提交到拥有它的线程上检查，全部完成后输出结果。
+     * 检查前已离线的玩家任务不会执行，此时不输出结果
+     */
     public void checkAllPlayers() {
         plugin.getLogger().info(lang.getMessage("checking-players"));
-        int checked = 0;
-        int updated = 0;
+        List<Player> players = new ArrayList<>(plugin.getServer().getOnlinePlayers());
+        if (players.isEmpty()) {
+            logCheckComplete(0, 0);
+            return;
+        }
 
-        for (Player player : plugin.getServer().getOnlinePlayers()) {
-            if (updatePlayerFlightStatus(player)) {
-                updated++;
-            }
-            checked++;
+        AtomicInteger remaining = new AtomicInteger(players.size());
+        AtomicInteger updated = new AtomicInteger(0);
+        for (Player player : players) {
+            plugin.getPluginScheduler().executeForEntity(player, () -> {
+                if (updatePlayerFlightStatus(player)) {
+                    updated.incrementAndGet();
+                }
+                if (remaining.decrementAndGet() == 0) {
+                    logCheckComplete(players.size(), updated.get());
+                }
+            });
         }
+    }
 
+    private void logCheckComplete(int checked, int updated) {
         plugin.getLogger().info(lang.getMessage("check-complete", 
             "{checked}", String.valueOf(checked),
             "{updated}", String.valueOf(updated)));
@@ -50,19 +68,9 @@ public class FlightChecker {
 
         boolean statusChanged = false;
         if (endTime == null || endTime < System.currentTimeMillis()) {
-            // 飞行时间已过期
+            // 飞行时间已过期，交给到期管理器处理，同一结束时间只会处理一次
             if (player.getAllowFlight()) {
-                player.setAllowFlight(false);
-                player.setFlying(false);
-                String expireTime = endTime != null ? formatTime(endTime) : "未知";
-                player.sendMessage(plugin.getPrefix() + lang.getMessage("flight-expired", 
-                    "{time}", expireTime));
-                flyingPlayers.remove(uuid);
-                
-                // 同步取消MHDF-Tools飞行权限
-                syncMHDFToolsDisableFlight(player);
-                
-                statusChanged = true;
+                statusChanged = plugin.getExpiryManager().expire(player, endTime);
             }
         } else {
             // 飞行时间有效
@@ -72,7 +80,7 @@ public class FlightChecker {
                 player.sendMessage(plugin.getPrefix() + lang.getMessage("flight-restored", 
                     "{time}", expireTime,
                     "{remaining}", TimeFormatter.formatTime(endTime - System.currentTimeMillis())));
-                plugin.getCountdownManager().startCountdown(player, endTime);
+                plugin.getExpiryManager().track(player, endTime);
                 
                 // 同步MHDF-Tools飞行权限
                 syncMHDFToolsFlight(player, endTime);
@@ -91,36 +99,18 @@ public class FlightChecker {
      */
     private void syncMHDFToolsFlight(Player player, long endTime) {
         if (Bukkit.getPluginManager().getPlugin("MHDF-Tools") != null) {
-            try {
-                // 只使用fly命令设置飞行权限，不使用flytime命令
-                String command = "fly " + player.getName() + " true";
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
-                plugin.getLogger().info("已同步玩家 " + player.getName() + " 的飞行权限到MHDF-Tools");
-            } catch (Exception e) {
-                plugin.getLogger().warning("同步MHDF-Tools飞行权限失败: " + e.getMessage());
-            }
-        }
-    }
-
-    /**
-     * 同步取消MHDF-Tools飞行权限
-     * @param player 玩家
-     */
-    private void syncMHDFToolsDisableFlight(Player player) {
-        if (Bukkit.getPluginManager().getPlugin("MHDF-Tools") != null) {
-            try {
-                // 使用MHDF-Tools的fly命令取消飞行权限
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), 
-                        "fly " + player.getName() + " false");
-                
-                // 确保完全移除权限 - 尝试清除可能存在的任何临时权限
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), 
-                        "lp user " + player.getName() + " permission unset mhdtools.commands.fly.temp");
-                
-                plugin.getLogger().info("已禁用玩家 " + player.getName() + " 的MHDF-Tools飞行权限");
-            } catch (Exception e) {
-                plugin.getLogger().warning("同步取消MHDF-Tools飞行权限失败: " + e.getMessage());
-            }
+            String name = player.getName();
+            // 检查在玩家所在区域的线程上进行，控制台命令提交到全局线程执行
+            plugin.getPluginScheduler().globalExecutor().execute(() -> {
+                try {
+                    // 只使用fly命令设置飞行权限，不使用flytime命令
+                    String command = "fly " + name + " true";
+                    Bukkit.dispatchCommand(Bukkit.getConsoleSender(), command);
+                    plugin.getLogger().info("已同步玩家 " + name + " 的飞行权限到MHDF-Tools");
+                } catch (Exception e) {
+                    plugin.getLogger().warning("同步MHDF-Tools飞行权限失败: " + e.getMessage());
+                }
+            });
         }
     }
 
@@ -0,0 +1,218 @@
+package org.littlesheep.utils;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
+import org.littlesheep.events.FlightExpireEvent;
+import org.littlesheep.paytofly;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 飞行到期管理器 - 在线玩家飞行结束时间的唯一来源
+ *
+ * 开始飞行、加入服务器、重新检查等入口都通过 {@link #track} 登记结束时间，
+ * 到期由时间轮触发并交给玩家所在的线程处理。每个结束时间只处理一次：撤销飞行、删除存储记录、
+ * 同步 MHDF-Tools，然后触发 {@link FlightExpireEvent}，其他组件监听该事件而不是各自读取存储。
+ * 登记和到期处理都在玩家所在的线程上进行。
+ */
+public class FlightExpiryManager implements Listener {
+    private static final DateTimeFormatter TIME_FORMATTER =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final paytofly plugin;
+    private final TimingWheel timingWheel;
+    private final Map<UUID, Deadline> deadlines = new ConcurrentHashMap<>();
+
+    // 统计信息
+    private volatile long expiredCount = 0;
+    private volatile long duplicateCount = 0;
+
+    /**
+     * 一个玩家的结束时间；到期后保留在表中，用于忽略对同一结束时间的重复到期请求
+     */
+    private static final class Deadline {
+        final long endTime;
+        TimingWheel.Timeout timeout;
+        volatile boolean expired;
+
+        Deadline(long endTime) {
+            this.endTime = endTime;
+        }
+
+        void cancel() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
+        }
+    }
+
+    public FlightExpiryManager(paytofly plugin, TimingWheel timingWheel) {
+        this.plugin = plugin;
+        this.timingWheel = timingWheel;
+    }
+
+    /**
+     * 登记玩家的飞行结束时间并开始倒计时，已过期的结束时间立即按到期处理。
+     * 与当前登记的结束时间相同时不做任何事。
+     */
+    public void track(Player player, long endTime) {
+        UUID uuid = player.getUniqueId();
+        if (endTime <= System.currentTimeMillis()) {
+            expire(player, endTime);
+            return;
+        }
+
+        Deadline current = deadlines.get(uuid);
+        if (current != null && current.endTime == endTime && !current.expired) {
+            return;
+        }
+
+        Deadline deadline = new Deadline(endTime);
+        replace(uuid, deadline);
+        deadline.timeout = timingWheel.schedule(endTime, () -> {
+            if (plugin.isEnabled()) {
+                plugin.getPluginScheduler().runForEntity(player, () -> onDeadline(uuid, deadline));
+            }
+        });
+        plugin.getCountdownManager().startCountdown(player, endTime);
+    }
+
+    /**
+     * 取消玩家的飞行结束时间（例如管理员禁用飞行），不触发到期事件
+     */
+    public void cancel(Player player) {
+        Deadline deadline = deadlines.remove(player.getUniqueId());
+        if (deadline != null) {
+            deadline.cancel();
+        }
+        plugin.getCountdownManager().cancelCountdown(player);
+    }
+
+    /**
+     * 获取玩家当前有效的结束时间
+     * @return 没有登记或已到期时返回 null
+     */
+    public Long getDeadline(UUID uuid) {
+        Deadline deadline = deadlines.get(uuid);
+        return deadline != null && !deadline.expired ? deadline.endTime : null;
+    }
+
+    /**
+     * 按到期处理玩家的飞行，用于在时间轮之外发现飞行已过期的场合（加入服务器、重新检查）
+     * @param endTime 已过期的结束时间，未知时为 null
+     * @return 本次请求执行了到期处理时返回 true；飞行仍有效或该结束时间已处理过时返回 false
+     */
+    public boolean expire(Player player, Long endTime) {
+        UUID uuid = player.getUniqueId();
+        long now = System.currentTimeMillis();
+        long end = endTime != null ? endTime : now;
+
+        Deadline current = deadlines.get(uuid);
+        if (current != null) {
+            if (!current.expired && current.endTime > now) {
+                // 已登记了更晚的结束时间，请求来自过时的数据
+                duplicateCount++;
+                return false;
+            }
+            if (current.expired && current.endTime >= end) {
+                duplicateCount++;
+                return false;
+            }
+            end = Math.max(end, current.endTime);
+        }
+
+        Deadline deadline = new Deadline(end);
+        replace(uuid, deadline);
+        fireExpiry(player, deadline);
+        return true;
+    }
+
+    /**
+     * 时间轮上的结束时间已到
+     */
+    private void onDeadline(UUID uuid, Deadline deadline) {
+        if (deadlines.get(uuid) != deadline || deadline.expired) {
+            return;
+        }
+        deadline.timeout = null;
+        Player player = plugin.getServer().getPlayer(uuid);
+        if (player == null || !player.isOnline()) {
+            deadlines.remove(uuid, deadline);
+            return;
+        }
+        fireExpiry(player, deadline);
+    }
+
+    private void replace(UUID uuid, Deadline deadline) {
+        Deadline previous = deadlines.put(uuid, deadline);
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    /**
+     * 执行一次到期处理：撤销飞行、删除存储记录、同步 MHDF-Tools，然后通知监听者
+     */
+    private void fireExpiry(Player player, Deadline deadline) {
+        deadline.expired = true;
+        expiredCount++;
+        UUID uuid = player.getUniqueId();
+
+        plugin.getFlyingPlayers().remove(uuid);
+        plugin.getStorage().removePlayerFlightTimeAsync(uuid);
+
+        // 有无限飞行权限的玩家只清理购买记录，不撤销飞行
+        if (!player.hasPermission("paytofly.infinite")) {
+            player.setAllowFlight(false);
+            player.setFlying(false);
+            plugin.syncMHDFToolsDisableFlight(player);
+            player.sendMessage(plugin.getPrefix() + plugin.getLang().getMessage("flight-expired",
+                "{time}", formatTime(deadline.endTime)));
+        }
+
+        plugin.getServer().getPluginManager().callEvent(new FlightExpireEvent(player, deadline.endTime));
+        plugin.getLogger().fine(String.format("玩家 %s 的飞行已到期，结束时间: %d", player.getName(), deadline.endTime));
+    }
+
+    /**
+     * 玩家离线时不再跟踪，重新加入时由加入监听器重新登记
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        Deadline deadline = deadlines.remove(event.getPlayer().getUniqueId());
+        if (deadline != null) {
+            deadline.cancel();
+        }
+    }
+
+    /**
+     * 清理所有登记的结束时间
+     */
+    public void cleanup() {
+        deadlines.values().forEach(Deadline::cancel);
+        deadlines.clear();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStatistics() {
+        return String.format("飞行到期统计: 跟踪玩家=%d, 已到期=%d, 忽略重复=%d",
+            deadlines.size(), expiredCount, duplicateCount);
+    }
+
+    private String formatTime(long timestamp) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(timestamp), ZoneId.systemDefault())
+            .format(TIME_FORMATTER);
+    }
+}
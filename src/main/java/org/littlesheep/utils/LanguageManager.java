@@ -9,9 +9,10 @@ import java.nio.file.StandardCopyOption;
 import java.util.logging.Level;
 import java.util.List;
 import java.util.Map;
-import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bukkit.ChatColor;
+import org.bukkit.configuration.ConfigurationSection;
 
 public class LanguageManager {
     private final JavaPlugin plugin;
@@ -20,14 +21,14 @@ public class LanguageManager {
     private static final double CURRENT_LANG_VERSION = 1.0;
     private final File langFolder;
     private final File langFile;
-    private Map<String, String> messages;
+    // messages 节点下的消息，加载时编译为模板
+    private final Map<String, MessageTemplate> templates = new ConcurrentHashMap<>();
 
     public LanguageManager(JavaPlugin plugin, String language) {
         this.plugin = plugin;
         this.language = language;
         this.langFolder = new File(plugin.getDataFolder(), "lang");
         this.langFile = new File(langFolder, language + ".yml");
-        this.messages = new HashMap<>();
         loadLanguage();
     }
 
@@ -77,6 +78,27 @@ public class LanguageManager {
         }
 
         langConfig = YamlConfiguration.loadConfiguration(langFile);
+        compileTemplates();
+    }
+
+    /**
+     * 编译 messages 节点下的所有消息，重载语言文件时重新编译
+     */
+    private void compileTemplates() {
+        templates.clear();
+        ConfigurationSection section = langConfig.getConfigurationSection("messages");
+        if (section == null) {
+            return;
+        }
+        for (Map.Entry<String, Object> entry : section.getValues(true).entrySet()) {
+            if (entry.getValue() instanceof String) {
+                templates.put(entry.getKey(), compile((String) entry.getValue()));
+            }
+        }
+    }
+
+    private static MessageTemplate compile(String message) {
+        return MessageTemplate.compile(ChatColor.translateAlternateColorCodes('&', message));
     }
 
     private void updateLanguageFile() {
@@ -114,31 +136,24 @@ public class LanguageManager {
         }
     }
 
-    public String getMessage(String path) {
-        // 首先看是否设置了默认消息
-        if (this.messages.containsKey(path)) {
-            return ChatColor.translateAlternateColorCodes('&', messages.get(path));
+    /**
+     * 获取消息模板，频繁渲染的调用方可以持有模板直接渲染。缺失的键返回提示缺失的模板
+     */
+    public MessageTemplate getTemplate(String path) {
+        MessageTemplate template = templates.get(path);
+        if (template != null) {
+            return template;
         }
-        
-        // 尝试从文件中获取
         String message = langConfig.getString("messages." + path);
-        if (message == null) {
-            return ChatColor.translateAlternateColorCodes('&', "&c缺失的语言键: " + path);
-        }
-        
-        // 缓存并返回
-        messages.put(path, message);
-        return ChatColor.translateAlternateColorCodes('&', message);
+        return templates.computeIfAbsent(path, k -> compile(message != null ? message : "&c缺失的语言键: " + path));
+    }
+
+    public String getMessage(String path) {
+        return getTemplate(path).getText();
     }
 
     public String getMessage(String path, String... replacements) {
-        String message = getMessage(path);
-        for (int i = 0; i < replacements.length; i += 2) {
-            if (i + 1 < replacements.length) {
-                message = message.replace(replacements[i], replacements[i + 1]);
-            }
-        }
-        return message;
+        return getTemplate(path).render(replacements);
     }
 
     public String[] getMessageLines(String path) {
@@ -148,6 +163,7 @@ public class LanguageManager {
 
     public void reloadLanguage() {
         langConfig = YamlConfiguration.loadConfiguration(langFile);
+        compileTemplates();
     }
 
     public List<String> getStringList(String path) {
@@ -0,0 +1,149 @@
+package org.littlesheep.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntFunction;
+
+/**
+ * 预编译的消息模板 - 加载语言文件时把消息拆分为文本段和 {name} 占位符，
+ * 渲染时按顺序拼接到线程复用的 StringBuilder 中，不再逐个调用 String.replace。
+ *
+ * 颜色代码在编译时已转换；替换值原样插入，不会再被后面的替换项处理。
+ */
+public final class MessageTemplate {
+    // 按整数键缓存渲染结果的上限，例如倒计时剩余秒数
+    private static final int CACHE_LIMIT = 3600;
+    private static final ThreadLocal<StringBuilder> BUILDER = ThreadLocal.withInitial(() -> new StringBuilder(128));
+
+    private final String text;
+    // 文本段与占位符交替排列：parts[0] 文本, parts[1] 占位符, parts[2] 文本 ...
+    private final String[] parts;
+    private volatile AtomicReferenceArray<String> cache;
+
+    private MessageTemplate(String text, String[] parts) {
+        this.text = text;
+        this.parts = parts;
+    }
+
+    /**
+     * 编译消息，占位符为 {字母、数字、-、_}
+     */
+    public static MessageTemplate compile(String text) {
+        List<String> parts = new ArrayList<>();
+        int literalStart = 0;
+        int i = 0;
+        while (i < text.length()) {
+            int open = text.indexOf('{', i);
+            if (open < 0) {
+                break;
+            }
+            int close = open + 1;
+            while (close < text.length() && isNameChar(text.charAt(close))) {
+                close++;
+            }
+            if (close < text.length() && text.charAt(close) == '}' && close > open + 1) {
+                parts.add(text.substring(literalStart, open));
+                parts.add(text.substring(open, close + 1));
+                literalStart = close + 1;
+                i = literalStart;
+            } else {
+                i = open + 1;
+            }
+        }
+        parts.add(text.substring(literalStart));
+        return new MessageTemplate(text, parts.toArray(new String[0]));
+    }
+
+    private static boolean isNameChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '-';
+    }
+
+    /**
+     * 原始消息（颜色代码已转换）
+     */
+    public String getText() {
+        return text;
+    }
+
+    public boolean hasPlaceholders() {
+        return parts.length > 1;
+    }
+
+    /**
+     * 按 占位符, 值, 占位符, 值 ... 的形式渲染，未提供的占位符保持原样，末尾落单的参数忽略
+     */
+    public String render(String... replacements) {
+        if (!hasPlaceholders() || replacements.length < 2) {
+            return text;
+        }
+        StringBuilder sb = builder();
+        for (int i = 0; i < parts.length; i++) {
+            if ((i & 1) == 0) {
+                sb.append(parts[i]);
+            } else {
+                sb.append(lookup(parts[i], replacements));
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 只替换一个占位符，数值直接写入，不产生中间字符串
+     */
+    public String render(String placeholder, long value) {
+        if (!hasPlaceholders()) {
+            return text;
+        }
+        StringBuilder sb = builder();
+        for (int i = 0; i < parts.length; i++) {
+            if ((i & 1) == 0) {
+                sb.append(parts[i]);
+            } else if (parts[i].equals(placeholder)) {
+                sb.append(value);
+            } else {
+                sb.append(parts[i]);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 渲染并按整数键缓存，用于取值反复出现的场合（如倒计时剩余秒数）。
+     * 同一模板上相同的 key 必须总是得到相同的值；超出缓存范围的 key 直接渲染。
+     */
+    public String renderCached(String placeholder, int key, IntFunction<String> value) {
+        if (!hasPlaceholders()) {
+            return text;
+        }
+        if (key < 0 || key >= CACHE_LIMIT) {
+            return render(placeholder, value.apply(key));
+        }
+        AtomicReferenceArray<String> rendered = cache;
+        if (rendered == null) {
+            rendered = new AtomicReferenceArray<>(CACHE_LIMIT);
+            cache = rendered;
+        }
+        String result = rendered.get(key);
+        if (result == null) {
+            result = render(placeholder, value.apply(key));
+            rendered.lazySet(key, result);
+        }
+        return result;
+    }
+
+    private static String lookup(String placeholder, String[] replacements) {
+        for (int i = 0; i + 1 < replacements.length; i += 2) {
+            if (placeholder.equals(replacements[i])) {
+                return replacements[i + 1];
+            }
+        }
+        return placeholder;
+    }
+
+    private static StringBuilder builder() {
+        StringBuilder sb = BUILDER.get();
+        sb.setLength(0);
+        return sb;
+    }
+}
@@ -6,21 +6,48 @@ import org.bukkit.boss.BarStyle;
 import org.bukkit.boss.BossBar;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.plugin.java.JavaPlugin;
+import org.littlesheep.events.FlightExpireEvent;
+import org.littlesheep.scheduler.PluginScheduler;
+import org.littlesheep.scheduler.ScheduledTask;
 
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 优化的倒计时管理器 - 使用统一任务调度，提高性能
  * 兼容原CountdownManager接口
+ *
+ * 倒计时先在共享时间轮上休眠到提醒窗口（BossBar show-before 与聊天 warning-time 中较早的一个）开始，
+ * 进入窗口后才加入每秒刷新的集合。每秒的全局任务只遍历即将到期的玩家，没有玩家处于提醒窗口时不运行。
+ * 刷新集合按 UUID 哈希分成 20 片，全局任务每 tick 处理一片，每个倒计时仍是每秒刷新一次；
+ * 单个 tick 的处理时间超过预算时，剩余的倒计时顺延到下一个 tick，避免每秒一次的 MSPT 尖峰。
+ * 分片任务是全局任务，每个倒计时的刷新在玩家所在的线程上执行。
+ * 这里只负责提示，到期处理由 {@link FlightExpiryManager} 完成，收到 {@link FlightExpireEvent} 后结束倒计时。
  */
-public class OptimizedCountdownManager {
+public class OptimizedCountdownManager implements Listener {
     private final JavaPlugin plugin;
     private final LanguageManager lang;
+    private final TimingWheel timingWheel;
+    private final PluginScheduler scheduler;
     private final Map<UUID, PlayerCountdown> activeCountdowns = new ConcurrentHashMap<>();
+    // 处于提醒窗口内、需要每秒刷新的倒计时
+    private final Map<UUID, PlayerCountdown> warningCountdowns = new ConcurrentHashMap<>();
+    // 同一批倒计时按 UUID 哈希分片，每 tick 处理一片
+    private static final int SHARDS = 20;
+    private final List<Map<UUID, PlayerCountdown>> warningShards = new ArrayList<>(SHARDS);
+    // 超出预算顺延到下一 tick 的倒计时，只在全局任务中访问
+    private final ArrayDeque<PlayerCountdown> pendingUpdates = new ArrayDeque<>();
+    private int shardIndex = 0;
     private final FileConfiguration config;
     
     // 配置选项
@@ -33,19 +60,25 @@ public class OptimizedCountdownManager {
     private final int reminderInterval;
     private final int chatWarningTime;
     private final int showBeforeSeconds;
+    private final long warningWindowMillis; // 结束前多久开始每秒刷新，0 表示不刷新
+    private final long tickBudgetNanos; // 每 tick 刷新倒计时的时间预算
     
     // 统一调度任务
-    private Integer globalTaskId = null;
+    private ScheduledTask globalTask = null;
     private final Object taskLock = new Object();
     
     // 性能统计
     private volatile long lastUpdateTime = 0;
     private volatile int totalUpdates = 0;
-    private volatile int activePlayersCount = 0;
+    private volatile long carriedOver = 0;
+    private volatile long maxTickNanos = 0;
 
-    public OptimizedCountdownManager(JavaPlugin plugin, LanguageManager lang) {
+    public OptimizedCountdownManager(JavaPlugin plugin, LanguageManager lang, TimingWheel timingWheel,
+                                     PluginScheduler scheduler) {
         this.plugin = plugin;
         this.lang = lang;
+        this.timingWheel = timingWheel;
+        this.scheduler = scheduler;
         this.config = plugin.getConfig();
         
         // 加载配置
@@ -59,7 +92,17 @@ public class OptimizedCountdownManager {
         this.chatWarningTime = config.getInt("notifications.chat.warning-time", 60);
         this.showBeforeSeconds = config.getInt("notifications.bossbar.show-before", 15);
         
-        plugin.getLogger().info("优化倒计时管理器已初始化 - 统一任务调度模式");
+        // show-before 为 0 时 BossBar 一直显示，整个倒计时都在窗口内
+        long bossBarWindow = !bossBarEnabled ? 0L : showBeforeSeconds > 0 ? showBeforeSeconds * 1000L : Long.MAX_VALUE;
+        long chatWindow = chatEnabled ? Math.max(0, chatWarningTime) * 1000L : 0L;
+        this.warningWindowMillis = Math.max(bossBarWindow, chatWindow);
+        this.tickBudgetNanos = (long) (Math.max(0.1, config.getDouble("notifications.tick-budget-ms", 2.0))
+            * TimeUnit.MILLISECONDS.toNanos(1));
+        for (int i = 0; i < SHARDS; i++) {
+            warningShards.add(new ConcurrentHashMap<>());
+        }
+        
+        plugin.getLogger().info("优化倒计时管理器已初始化 - 截止时间调度模式");
     }
 
     /**
@@ -75,13 +118,99 @@ public class OptimizedCountdownManager {
         PlayerCountdown countdown = new PlayerCountdown(player, endTime);
         activeCountdowns.put(uuid, countdown);
         
-        // 启动全局任务（如果还没有）
-        startGlobalTaskIfNeeded();
+        // 没有启用任何提醒时只等待到期事件
+        if (warningWindowMillis > 0) {
+            long windowStart = warningWindowMillis == Long.MAX_VALUE ? Long.MIN_VALUE : endTime - warningWindowMillis;
+            if (System.currentTimeMillis() >= windowStart) {
+                enterWarningWindow(uuid, countdown);
+            } else {
+                countdown.timeout = scheduleForPlayer(player, windowStart, () -> enterWarningWindow(uuid, countdown));
+            }
+        }
         
         plugin.getLogger().fine(String.format("为玩家 %s 开始倒计时，结束时间: %d", player.getName(), endTime));
     }
 
+    /**
+     * 在时间轮上登记任务，到时后在玩家所在的线程上执行
+     */
+    private TimingWheel.Timeout scheduleForPlayer(Player player, long deadline, Runnable task) {
+        return timingWheel.schedule(deadline, () -> {
+            if (plugin.isEnabled()) {
+                scheduler.runForEntity(player, task);
+            }
+        });
+    }
+
+    /**
+     * 倒计时进入提醒窗口：加入每秒刷新的集合
+     */
+    private void enterWarningWindow(UUID uuid, PlayerCountdown countdown) {
+        if (activeCountdowns.get(uuid) != countdown) {
+            return;
+        }
+        if (!countdown.getPlayer().isOnline()) {
+            discardCountdown(uuid, countdown);
+            return;
+        }
+        countdown.timeout = null;
+        warningCountdowns.put(uuid, countdown);
+        shardOf(uuid).put(uuid, countdown);
+        // 立即刷新一次，不必等到下一次全局任务
+        countdown.update(System.currentTimeMillis());
+        startGlobalTaskIfNeeded();
+    }
+
+    /**
+     * 刷新单个倒计时，在玩家所在的线程上执行
+     */
+    private void refreshCountdown(UUID uuid, PlayerCountdown countdown, long now) {
+        try {
+            if (!countdown.update(now)) {
+                // 玩家已离线，移除
+                discardCountdown(uuid, countdown);
+            }
+        } catch (Exception e) {
+            plugin.getLogger().warning(String.format(
+                "更新玩家 %s 倒计时时出错: %s", uuid, e.getMessage()));
+            // 移除有问题的倒计时
+            discardCountdown(uuid, countdown);
+        }
+    }
+
+    /**
+     * 飞行到期后结束倒计时
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onFlightExpire(FlightExpireEvent event) {
+        stopCountdown(event.getPlayer().getUniqueId());
+    }
+
+    /**
+     * 移除倒计时但不执行到期处理，用于玩家离线或刷新出错
+     */
+    private void discardCountdown(UUID uuid, PlayerCountdown countdown) {
+        activeCountdowns.remove(uuid, countdown);
+        removeWarning(uuid, countdown);
+        countdown.cleanup();
+    }
+
+    private Map<UUID, PlayerCountdown> shardOf(UUID uuid) {
+        return warningShards.get(Math.floorMod(uuid.hashCode(), SHARDS));
+    }
 
+    private void removeWarning(UUID uuid, PlayerCountdown countdown) {
+        warningCountdowns.remove(uuid, countdown);
+        shardOf(uuid).remove(uuid, countdown);
+    }
+
+    /**
+     * 玩家离线时移除倒计时，重新加入时由加入监听器重新开始
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerQuit(PlayerQuitEvent event) {
+        stopCountdown(event.getPlayer().getUniqueId());
+    }
 
     /**
      * 取消玩家的倒计时
@@ -98,12 +227,13 @@ public class OptimizedCountdownManager {
     public void stopCountdown(UUID uuid) {
         PlayerCountdown countdown = activeCountdowns.remove(uuid);
         if (countdown != null) {
+            removeWarning(uuid, countdown);
             countdown.cleanup();
             plugin.getLogger().fine("停止玩家倒计时: " + uuid);
         }
         
-        // 如果没有活跃倒计时了，停止全局任务
-        if (activeCountdowns.isEmpty()) {
+        // 如果提醒窗口内没有倒计时了，停止全局任务
+        if (warningCountdowns.isEmpty()) {
             stopGlobalTask();
         }
     }
@@ -113,10 +243,9 @@ public class OptimizedCountdownManager {
      */
     private void startGlobalTaskIfNeeded() {
         synchronized (taskLock) {
-            if (globalTaskId == null && !activeCountdowns.isEmpty()) {
-                globalTaskId = Bukkit.getScheduler().scheduleSyncRepeatingTask(plugin, 
-                    this::updateAllCountdowns, 0L, 20L);
-                plugin.getLogger().fine("启动全局倒计时任务，ID: " + globalTaskId);
+            if (globalTask == null && !warningCountdowns.isEmpty()) {
+                globalTask = scheduler.runGlobalTimer(this::updateWarningShard, 1L, 1L);
+                plugin.getLogger().fine("启动全局倒计时任务");
             }
         }
     }
@@ -126,79 +255,60 @@ public class OptimizedCountdownManager {
      */
     private void stopGlobalTask() {
         synchronized (taskLock) {
-            if (globalTaskId != null) {
-                Bukkit.getScheduler().cancelTask(globalTaskId);
-                plugin.getLogger().fine("停止全局倒计时任务，ID: " + globalTaskId);
-                globalTaskId = null;
+            if (globalTask != null) {
+                globalTask.cancel();
+                plugin.getLogger().fine("停止全局倒计时任务");
+                globalTask = null;
             }
         }
     }
 
     /**
-     * 更新所有倒计时
+     * 每 tick 执行：把当前分片的倒计时加入待刷新队列，在时间预算内依次刷新，
+     * 剩余的留在队列中由下一个 tick 继续处理。已在队列中的倒计时不会重复加入。
      */
-    private void updateAllCountdowns() {
+    private void updateWarningShard() {
+        long start = System.nanoTime();
         long now = System.currentTimeMillis();
         lastUpdateTime = now;
-        totalUpdates++;
         
-        Iterator<Map.Entry<UUID, PlayerCountdown>> iterator = activeCountdowns.entrySet().iterator();
-        int processedCount = 0;
+        for (PlayerCountdown countdown : warningShards.get(shardIndex).values()) {
+            if (!countdown.queued) {
+                countdown.queued = true;
+                pendingUpdates.add(countdown);
+            }
+        }
+        shardIndex = (shardIndex + 1) % SHARDS;
         
-        while (iterator.hasNext()) {
-            Map.Entry<UUID, PlayerCountdown> entry = iterator.next();
-            UUID uuid = entry.getKey();
-            PlayerCountdown countdown = entry.getValue();
-            
-            try {
-                if (!countdown.update(now)) {
-                    // 倒计时结束，移除
-                    iterator.remove();
-                    countdown.cleanup();
-                    handleCountdownExpired(countdown);
-                }
-                processedCount++;
-            } catch (Exception e) {
-                plugin.getLogger().warning(String.format(
-                    "更新玩家 %s 倒计时时出错: %s", uuid, e.getMessage()));
-                // 移除有问题的倒计时
-                iterator.remove();
-                countdown.cleanup();
+        int processed = 0;
+        while (!pendingUpdates.isEmpty()) {
+            // 至少处理一个，保证队列一定会前进
+            if (processed > 0 && System.nanoTime() - start >= tickBudgetNanos) {
+                break;
             }
+            PlayerCountdown countdown = pendingUpdates.poll();
+            countdown.queued = false;
+            UUID uuid = countdown.getPlayer().getUniqueId();
+            if (warningCountdowns.get(uuid) != countdown) {
+                // 入队后已被停止或替换
+                continue;
+            }
+            
+            scheduler.executeForEntity(countdown.getPlayer(), () -> refreshCountdown(uuid, countdown, now));
+            processed++;
         }
         
-        activePlayersCount = processedCount;
+        totalUpdates += processed;
+        carriedOver += pendingUpdates.size();
+        maxTickNanos = Math.max(maxTickNanos, System.nanoTime() - start);
         
-        // 如果没有活跃倒计时了，停止任务
-        if (activeCountdowns.isEmpty()) {
+        // 如果提醒窗口内没有倒计时了，停止任务
+        if (warningCountdowns.isEmpty()) {
+            pendingUpdates.clear();
             stopGlobalTask();
         }
     }
 
-    /**
-     * 处理倒计时过期
-     */
-    private void handleCountdownExpired(PlayerCountdown countdown) {
-        Player player = countdown.getPlayer();
-        if (player != null && player.isOnline()) {
-            // 禁用飞行
-            player.setAllowFlight(false);
-            player.setFlying(false);
-            
-            // 清理插件数据
-            if (plugin instanceof org.littlesheep.paytofly) {
-                org.littlesheep.paytofly paytoFlyPlugin = (org.littlesheep.paytofly) plugin;
-                paytoFlyPlugin.getFlyingPlayers().remove(player.getUniqueId());
-                paytoFlyPlugin.getStorage().removePlayerFlightTime(player.getUniqueId());
-                
-                // 同步取消MHDF-Tools飞行权限
-                syncMHDFToolsDisableFlight(player, paytoFlyPlugin);
-            }
-            
-            player.sendMessage(lang.getMessage("flight-expired"));
-        }
-    }
-
     /**
      * 清理所有倒计时
      */
@@ -213,6 +323,9 @@ public class OptimizedCountdownManager {
             countdown.cleanup();
         }
         activeCountdowns.clear();
+        warningCountdowns.clear();
+        warningShards.forEach(Map::clear);
+        pendingUpdates.clear();
         
         plugin.getLogger().info("倒计时管理器清理完成");
     }
@@ -222,33 +335,17 @@ public class OptimizedCountdownManager {
      */
     public String getStatistics() {
         return String.format(
-            "倒计时统计: 活跃玩家=%d, 总更新次数=%d, 最后更新=%s, 全局任务=%s",
-            activePlayersCount,
+            "倒计时统计: 活跃玩家=%d, 提醒窗口内=%d, 总更新次数=%d, 顺延次数=%d, 单tick最长=%.2fms, 最后更新=%s, 全局任务=%s",
+            activeCountdowns.size(),
+            warningCountdowns.size(),
             totalUpdates,
+            carriedOver,
+            maxTickNanos / 1_000_000.0,
             lastUpdateTime > 0 ? new java.util.Date(lastUpdateTime).toString() : "从未",
-            globalTaskId != null ? "运行中" : "已停止"
+            globalTask != null ? "运行中" : "已停止"
         );
     }
 
-    /**
-     * 同步取消MHDF-Tools飞行权限
-     */
-    private void syncMHDFToolsDisableFlight(Player player, org.littlesheep.paytofly paytoFlyPlugin) {
-        if (Bukkit.getPluginManager().getPlugin("MHDF-Tools") != null) {
-            try {
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), 
-                        "fly " + player.getName() + " false");
-                
-                Bukkit.dispatchCommand(Bukkit.getConsoleSender(), 
-                        "lp user " + player.getName() + " permission unset mhdtools.commands.fly.temp");
-                
-                paytoFlyPlugin.getLogger().fine("已在倒计时结束时禁用玩家 " + player.getName() + " 的MHDF-Tools飞行权限");
-            } catch (Exception e) {
-                paytoFlyPlugin.getLogger().warning("同步取消MHDF-Tools飞行权限失败: " + e.getMessage());
-            }
-        }
-    }
-
     /**
      * 玩家倒计时数据类
      */
@@ -257,8 +354,10 @@ public class OptimizedCountdownManager {
         private final long endTime;
         private final long startTime;
         private BossBar bossBar;
+        private TimingWheel.Timeout timeout; // 时间轮上进入提醒窗口的任务
         private long lastChatReminder = 0;
         private boolean bossBarShown = false;
+        private boolean queued = false; // 是否在待刷新队列中，只在全局任务中访问
 
         public PlayerCountdown(Player player, long endTime) {
             this.player = player;
@@ -268,7 +367,7 @@ public class OptimizedCountdownManager {
             // 创建BossBar但不立即显示
             if (bossBarEnabled) {
                 this.bossBar = Bukkit.createBossBar(
-                    lang.getMessage("bossbar-title", "{time}", formatTime(endTime - startTime)),
+                    renderTime("bossbar-title", endTime - startTime),
                     normalColor,
                     barStyle
                 );
@@ -278,21 +377,21 @@ public class OptimizedCountdownManager {
         /**
          * 更新倒计时
          * @param now 当前时间
-         * @return true if countdown should continue, false if expired
+         * @return 玩家离线时返回 false，到期由 FlightExpiryManager 处理
          */
         public boolean update(long now) {
             long remaining = endTime - now;
             
-            // 检查是否过期
-            if (remaining <= 0) {
-                return false;
-            }
-            
             // 检查玩家是否仍在线
             if (!player.isOnline()) {
                 return false;
             }
             
+            // 已到期，等待到期事件
+            if (remaining <= 0) {
+                return true;
+            }
+            
             // 更新BossBar
             updateBossBar(remaining);
             
@@ -305,19 +404,20 @@ public class OptimizedCountdownManager {
         private void updateBossBar(long remaining) {
             if (bossBar == null) return;
             
-            // 只在最后倒计时时显示BossBar
-            if (remaining <= showBeforeSeconds * 1000L) {
+            // 只在最后倒计时时显示BossBar，show-before 为 0 时一直显示
+            long window = showBeforeSeconds > 0 ? showBeforeSeconds * 1000L : Math.max(1L, endTime - startTime);
+            if (remaining <= window) {
                 if (!bossBarShown) {
                     bossBar.addPlayer(player);
                     bossBarShown = true;
                 }
                 
                 if (showProgress) {
-                    double progress = Math.max(0.0, remaining / (double)(showBeforeSeconds * 1000L));
+                    double progress = Math.min(1.0, Math.max(0.0, remaining / (double) window));
                     bossBar.setProgress(progress);
                 }
                 
-                bossBar.setTitle(lang.getMessage("bossbar-title", "{time}", formatTime(remaining)));
+                bossBar.setTitle(renderTime("bossbar-title", remaining));
                 bossBar.setColor(warningColor);
             }
         }
@@ -328,13 +428,16 @@ public class OptimizedCountdownManager {
             if (remaining <= chatWarningTime * 1000 && 
                 now - lastChatReminder >= reminderInterval * 1000) {
                 
-                player.sendMessage(lang.getMessage("flight-ending-soon", 
-                    "{time}", formatTime(remaining)));
+                player.sendMessage(renderTime("flight-ending-soon", remaining));
                 lastChatReminder = now;
             }
         }
 
         public void cleanup() {
+            if (timeout != null) {
+                timeout.cancel();
+                timeout = null;
+            }
             if (bossBar != null) {
                 bossBar.removeAll();
                 bossBar = null;
@@ -346,6 +449,14 @@ public class OptimizedCountdownManager {
         }
     }
 
+    /**
+     * 渲染带 {time} 的消息；剩余时间按秒取整，同一秒数的结果在模板上缓存，所有玩家共用
+     */
+    private String renderTime(String path, long milliseconds) {
+        int seconds = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, milliseconds / 1000));
+        return lang.getTemplate(path).renderCached("{time}", seconds, s -> formatTime(s * 1000L));
+    }
+
     private String formatTime(long milliseconds) {
         long seconds = milliseconds / 1000;
         long minutes = seconds / 60;
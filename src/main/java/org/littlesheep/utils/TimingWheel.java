@@ -0,0 +1,286 @@
+package org.littlesheep.utils;
+
+import org.bukkit.plugin.java.JavaPlugin;
+
+import java.io.Closeable;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Logger;
+
+/**
+ * 哈希时间轮 - 插件内所有按截止时间触发的任务共用一个驱动线程
+ *
+ * 截止时间按刻度映射到环形槽位，每个槽位是一个双向链表。
+ * 任意线程提交和取消都只是入队，O(1)；槽位只由驱动线程访问，每个刻度处理一个槽位，
+ * 槽位中截止时间未到的任务（属于之后的轮次）留在原处。
+ * 截止时间使用 System.currentTimeMillis()，与插件中保存的到期时间一致。
+ *
+ * 任务在驱动线程上执行，必须很快返回；I/O 或需要主线程的操作应转交给对应的执行器。
+ */
+public final class TimingWheel implements Closeable {
+
+    /**
+     * 已提交的任务
+     */
+    public interface Timeout {
+        /**
+         * 取消任务
+         * @return 任务尚未执行且本次取消成功时返回 true
+         */
+        boolean cancel();
+
+        /**
+         * 截止时间（毫秒时间戳）
+         */
+        long getDeadline();
+    }
+
+    private static final int ST_INIT = 0;
+    private static final int ST_CANCELLED = 1;
+    private static final int ST_EXPIRED = 2;
+
+    private final class Entry implements Timeout {
+        final long deadline;
+        final long tick;
+        final Runnable task;
+        final AtomicInteger state = new AtomicInteger(ST_INIT);
+        // 以下字段只由驱动线程访问
+        Bucket bucket;
+        Entry prev;
+        Entry next;
+
+        Entry(long deadline, Runnable task) {
+            this.deadline = deadline;
+            // 向上取整，任务不会早于截止时间执行
+            this.tick = Math.floorDiv(deadline, tickMillis) + (Math.floorMod(deadline, tickMillis) != 0 ? 1 : 0);
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            if (!state.compareAndSet(ST_INIT, ST_CANCELLED)) {
+                return false;
+            }
+            cancelled.add(this);
+            return true;
+        }
+
+        @Override
+        public long getDeadline() {
+            return deadline;
+        }
+    }
+
+    /**
+     * 槽位，只由驱动线程访问
+     */
+    private static final class Bucket {
+        Entry head;
+        Entry tail;
+
+        void add(Entry entry) {
+            entry.bucket = this;
+            entry.prev = tail;
+            if (tail == null) {
+                head = entry;
+            } else {
+                tail.next = entry;
+            }
+            tail = entry;
+        }
+
+        void remove(Entry entry) {
+            if (entry.prev == null) {
+                head = entry.next;
+            } else {
+                entry.prev.next = entry.next;
+            }
+            if (entry.next == null) {
+                tail = entry.prev;
+            } else {
+                entry.next.prev = entry.prev;
+            }
+            entry.bucket = null;
+            entry.prev = null;
+            entry.next = null;
+        }
+    }
+
+    private final Logger logger;
+    private final long tickMillis;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final Queue<Entry> added = new ConcurrentLinkedQueue<>();
+    private final Queue<Entry> cancelled = new ConcurrentLinkedQueue<>();
+    private final Thread driver;
+    private volatile boolean running = true;
+
+    // 驱动线程已处理到的刻度
+    private long processedTick;
+
+    // 统计信息
+    private final AtomicInteger pending = new AtomicInteger(0);
+    private final AtomicLong fired = new AtomicLong(0);
+    private final AtomicLong failures = new AtomicLong(0);
+
+    /**
+     * @param tickMillis 刻度长度（毫秒），任务最多延迟一个刻度执行
+     * @param wheelSize 槽位数，取整为 2 的幂
+     */
+    public TimingWheel(JavaPlugin plugin, long tickMillis, int wheelSize) {
+        this(plugin.getLogger(), tickMillis, wheelSize);
+    }
+
+    /**
+     * 不依赖插件实例的构造方法，用于基准测试等独立运行的场合
+     */
+    public TimingWheel(Logger logger, long tickMillis, int wheelSize) {
+        this.logger = logger;
+        this.tickMillis = Math.max(1L, tickMillis);
+        int size = Integer.highestOneBit(Math.max(16, wheelSize - 1)) << 1;
+        this.wheel = new Bucket[size];
+        for (int i = 0; i < size; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = size - 1;
+        this.processedTick = Math.floorDiv(System.currentTimeMillis(), this.tickMillis);
+        this.driver = new Thread(this::run, "PayToFly-TimingWheel");
+        this.driver.setDaemon(true);
+        this.driver.start();
+
+        logger.info(String.format(
+            "时间轮已启动 - 刻度: %dms, 槽位: %d", this.tickMillis, size));
+    }
+
+    /**
+     * 在指定时间执行任务，已过期的截止时间在下一个刻度执行
+     * @param deadline 截止时间（毫秒时间戳）
+     */
+    public Timeout schedule(long deadline, Runnable task) {
+        Entry entry = new Entry(deadline, task);
+        if (!running) {
+            // 已关闭时返回一个永远不会执行的任务
+            entry.state.set(ST_CANCELLED);
+            return entry;
+        }
+        pending.incrementAndGet();
+        added.add(entry);
+        return entry;
+    }
+
+    /**
+     * 在指定延迟后执行任务
+     */
+    public Timeout scheduleAfter(long delay, TimeUnit unit, Runnable task) {
+        return schedule(System.currentTimeMillis() + unit.toMillis(delay), task);
+    }
+
+    private void run() {
+        while (running) {
+            long now = System.currentTimeMillis();
+            long currentTick = Math.floorDiv(now, tickMillis);
+            transferCancelled();
+            transferAdded();
+            if (currentTick > processedTick) {
+                // 落后超过一圈时每个槽位只需处理一次
+                long from = Math.max(processedTick + 1, currentTick - mask);
+                for (long tick = from; tick <= currentTick; tick++) {
+                    expire(wheel[(int) (tick & mask)], currentTick);
+                }
+                processedTick = currentTick;
+            }
+            long sleepMillis = (currentTick + 1) * tickMillis - System.currentTimeMillis();
+            if (sleepMillis > 0) {
+                LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(sleepMillis));
+            }
+        }
+        transferCancelled();
+    }
+
+    /**
+     * 把新提交的任务放入槽位，截止刻度已处理过的放到下一个刻度
+     */
+    private void transferAdded() {
+        Entry entry;
+        while ((entry = added.poll()) != null) {
+            if (entry.state.get() != ST_INIT) {
+                continue;
+            }
+            long tick = Math.max(entry.tick, processedTick + 1);
+            wheel[(int) (tick & mask)].add(entry);
+        }
+    }
+
+    private void transferCancelled() {
+        Entry entry;
+        while ((entry = cancelled.poll()) != null) {
+            // 尚未放入槽位的任务在 transferAdded 中跳过
+            if (entry.bucket != null) {
+                entry.bucket.remove(entry);
+            }
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * 执行槽位中截止刻度不晚于 currentTick 的任务
+     */
+    private void expire(Bucket bucket, long currentTick) {
+        Entry entry = bucket.head;
+        while (entry != null) {
+            Entry next = entry.next;
+            if (entry.tick <= currentTick) {
+                bucket.remove(entry);
+                if (entry.state.compareAndSet(ST_INIT, ST_EXPIRED)) {
+                    pending.decrementAndGet();
+                    fired.incrementAndGet();
+                    try {
+                        entry.task.run();
+                    } catch (Throwable t) {
+                        failures.incrementAndGet();
+                        logger.warning("时间轮任务执行失败: " + t);
+                    }
+                }
+            }
+            entry = next;
+        }
+    }
+
+    /**
+     * 等待中的任务数
+     */
+    public int getPendingCount() {
+        return pending.get();
+    }
+
+    /**
+     * 获取统计信息
+     */
+    public String getStatistics() {
+        return String.format("时间轮统计: 等待中=%d, 已执行=%d, 执行失败=%d",
+            pending.get(), fired.get(), failures.get());
+    }
+
+    /**
+     * 停止驱动线程，未执行的任务全部丢弃
+     */
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        LockSupport.unpark(driver);
+        try {
+            driver.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        added.clear();
+        pending.set(0);
+    }
+}
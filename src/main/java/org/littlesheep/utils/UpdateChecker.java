@@ -30,7 +30,7 @@ public class UpdateChecker {
 
     public void checkForUpdates() {
         plugin.getLogger().info("正在检查更新...");
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        plugin.getPluginScheduler().runAsync(() -> {
             ExceptionHandler.SafeResult<Void> result = exceptionHandler.executeSafely(
                 "checkForUpdates", () -> {
                     URL url = new URI(GITHUB_API_URL).toURL();
@@ -0,0 +1,198 @@
+package org.littlesheep.cache;
+
+import org.littlesheep.data.ExpiryIndex;
+import org.littlesheep.utils.TimingWheel;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * FlightDataCache 分段 LRU 与原先全表扫描淘汰的对比 - 容量已满时的写入耗时、命中读取耗时、并发写入后的大小
+ *
+ * 不是单元测试，不会被 surefire 执行。test-compile 之后手动运行：
+ * java -cp target/classes:target/test-classes:&lt;spigot-api&gt; org.littlesheep.cache.FlightDataCacheBenchmark
+ */
+public final class FlightDataCacheBenchmark {
+    private static final int[] SIZES = {1_000, 10_000, 100_000};
+    private static final int ROUNDS = 3;
+    private static final int THREADS = 4;
+    private static final long TTL_MILLIS = 30 * 60 * 1000L;
+
+    /**
+     * 被替换前的实现：ConcurrentHashMap 加过期索引，容量已满时扫描全表找最久未访问的条目
+     */
+    static final class ScanEvictionCache {
+        private static final class CacheEntry {
+            final Long flightEndTime;
+            final long createdTime = System.currentTimeMillis();
+            volatile long lastAccessed = createdTime;
+
+            CacheEntry(Long flightEndTime) {
+                this.flightEndTime = flightEndTime;
+            }
+        }
+
+        private final Map<UUID, CacheEntry> cache = new ConcurrentHashMap<>();
+        private final ExpiryIndex<UUID> expiryIndex = new ExpiryIndex<>();
+        private final AtomicInteger currentSize = new AtomicInteger(0);
+        private final long maxCacheSize;
+
+        ScanEvictionCache(long maxCacheSize) {
+            this.maxCacheSize = maxCacheSize;
+        }
+
+        Long getFlightTime(UUID uuid) {
+            CacheEntry entry = cache.get(uuid);
+            if (entry == null || System.currentTimeMillis() - entry.createdTime > TTL_MILLIS) {
+                return null;
+            }
+            entry.lastAccessed = System.currentTimeMillis();
+            return entry.flightEndTime;
+        }
+
+        void setFlightTime(UUID uuid, long flightEndTime) {
+            if (currentSize.get() >= maxCacheSize && !cache.containsKey(uuid)) {
+                evictLeastRecentlyUsed();
+            }
+            CacheEntry entry = new CacheEntry(flightEndTime);
+            CacheEntry previous = cache.put(uuid, entry);
+            expiryIndex.schedule(uuid, Math.min(entry.createdTime + TTL_MILLIS + 1, flightEndTime));
+            if (previous == null) {
+                currentSize.incrementAndGet();
+            }
+        }
+
+        private void evictLeastRecentlyUsed() {
+            UUID lruKey = null;
+            long oldestAccess = Long.MAX_VALUE;
+            for (Map.Entry<UUID, CacheEntry> entry : cache.entrySet()) {
+                if (entry.getValue().lastAccessed < oldestAccess) {
+                    oldestAccess = entry.getValue().lastAccessed;
+                    lruKey = entry.getKey();
+                }
+            }
+            if (lruKey != null && cache.remove(lruKey) != null) {
+                expiryIndex.remove(lruKey);
+                currentSize.decrementAndGet();
+            }
+        }
+
+        int size() {
+            return cache.size();
+        }
+    }
+
+    /**
+     * 两种实现共用的操作
+     */
+    private interface Target {
+        void set(UUID uuid, long endTime);
+
+        Long get(UUID uuid);
+
+        int size();
+    }
+
+    private FlightDataCacheBenchmark() {
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        Logger logger = Logger.getLogger("FlightDataCacheBenchmark");
+        logger.setLevel(Level.WARNING);
+        TimingWheel timingWheel = new TimingWheel(logger, 1000L, 512);
+        try {
+            for (int size : SIZES) {
+                run(size, timingWheel, logger);
+            }
+        } finally {
+            timingWheel.close();
+        }
+    }
+
+    private static void run(int size, TimingWheel timingWheel, Logger logger) throws InterruptedException {
+        // 全表扫描在 10 万条时每次写入约需一次完整遍历，按容量缩减写入次数
+        int inserts = Math.max(200, Math.min(20_000, 20_000_000 / size));
+        int lookups = 1_000_000;
+        System.out.printf("容量 %d, 写入 %d 次, 读取 %d 次%n", size, inserts, lookups);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            ScanEvictionCache scan = new ScanEvictionCache(size);
+            measure("全表扫描", round, size, inserts, lookups, new Target() {
+                public void set(UUID uuid, long endTime) { scan.setFlightTime(uuid, endTime); }
+                public Long get(UUID uuid) { return scan.getFlightTime(uuid); }
+                public int size() { return scan.size(); }
+            });
+
+            FlightDataCache striped = new FlightDataCache(logger, timingWheel, size, TTL_MILLIS, 0L, 0L);
+            measure("分段LRU", round, size, inserts, lookups, new Target() {
+                public void set(UUID uuid, long endTime) { striped.setFlightTime(uuid, endTime); }
+                public Long get(UUID uuid) { return striped.getFlightTime(uuid); }
+                public int size() { return (int) striped.getStatistics().currentSize; }
+            });
+            striped.shutdown();
+        }
+    }
+
+    private static void measure(String name, int round, int size, int inserts, int lookups, Target target)
+            throws InterruptedException {
+        Random random = new Random(round);
+        long endTime = System.currentTimeMillis() + TTL_MILLIS;
+        UUID[] resident = new UUID[size];
+        for (int i = 0; i < size; i++) {
+            resident[i] = new UUID(random.nextLong(), random.nextLong());
+            target.set(resident[i], endTime);
+        }
+
+        // 命中读取
+        long sink = 0;
+        long start = System.nanoTime();
+        for (int i = 0; i < lookups; i++) {
+            Long value = target.get(resident[random.nextInt(size)]);
+            sink += value != null ? value : 0;
+        }
+        double getNanos = (double) (System.nanoTime() - start) / lookups;
+
+        // 容量已满时写入新键，每次写入都要淘汰一个条目
+        start = System.nanoTime();
+        for (int i = 0; i < inserts; i++) {
+            target.set(new UUID(random.nextLong(), random.nextLong()), endTime);
+        }
+        double setNanos = (double) (System.nanoTime() - start) / inserts;
+
+        // 多线程同时写入新键，检查大小是否仍不超过容量
+        CountDownLatch ready = new CountDownLatch(THREADS);
+        CountDownLatch go = new CountDownLatch(1);
+        Thread[] threads = new Thread[THREADS];
+        for (int t = 0; t < THREADS; t++) {
+            long seed = random.nextLong();
+            threads[t] = new Thread(() -> {
+                Random local = new Random(seed);
+                ready.countDown();
+                try {
+                    go.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < inserts / THREADS; i++) {
+                    target.set(new UUID(local.nextLong(), local.nextLong()), endTime);
+                }
+            });
+            threads[t].start();
+        }
+        ready.await();
+        go.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        System.out.printf("  第 %d 轮 %s: 满容量写入 %.0f ns/次, 命中读取 %.0f ns/次, 并发写入后大小 %d/%d (sink=%d)%n",
+            round, name, setNanos, getNanos, target.size(), size, sink % 10);
+    }
+}
@@ -0,0 +1,114 @@
+package org.littlesheep.data;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * UuidLongMap 与 ConcurrentHashMap&lt;UUID, Long&gt; 的对比 - 常驻内存和随机读取耗时
+ *
+ * 不是单元测试，不会被 surefire 执行。test-compile 之后手动运行：
+ * java -Xms1g -Xmx1g -cp target/classes:target/test-classes org.littlesheep.data.UuidLongMapBenchmark [条目数]
+ */
+public final class UuidLongMapBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int LOOKUPS = 5_000_000;
+
+    private UuidLongMapBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        Random random = new Random(42);
+        UUID[] keys = new UUID[entries];
+        UUID[] probes = new UUID[entries];
+        for (int i = 0; i < entries; i++) {
+            keys[i] = new UUID(random.nextLong(), random.nextLong());
+            // 读取时使用内容相同的另一个 UUID 对象，与从玩家对象取得 UUID 的情况一致
+            probes[i] = new UUID(keys[i].getMostSignificantBits(), keys[i].getLeastSignificantBits());
+        }
+        int[] order = new int[LOOKUPS];
+        for (int i = 0; i < LOOKUPS; i++) {
+            order[i] = random.nextInt(entries);
+        }
+
+        System.out.printf("条目数: %d%n", entries);
+        long chmBytes = retained(() -> {
+            Map<UUID, Long> map = new ConcurrentHashMap<>();
+            for (int i = 0; i < entries; i++) {
+                map.put(keys[i], System.currentTimeMillis() + i);
+            }
+            return map;
+        });
+        long primitiveBytes = retained(() -> {
+            UuidLongMap map = new UuidLongMap();
+            for (int i = 0; i < entries; i++) {
+                map.put(keys[i], System.currentTimeMillis() + i);
+            }
+            return map;
+        });
+        System.out.printf("常驻内存: ConcurrentHashMap %.1f MB, UuidLongMap %.1f MB%n",
+            chmBytes / 1048576.0, primitiveBytes / 1048576.0);
+
+        Map<UUID, Long> chm = new ConcurrentHashMap<>();
+        UuidLongMap primitive = new UuidLongMap();
+        for (int i = 0; i < entries; i++) {
+            chm.put(keys[i], (long) i);
+            primitive.put(keys[i], i);
+        }
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long sink = 0;
+            long start = System.nanoTime();
+            for (int i : order) {
+                sink += chm.get(probes[i]);
+            }
+            long chmNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i : order) {
+                sink += primitive.get(probes[i]);
+            }
+            long boxedNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i : order) {
+                sink += primitive.get(probes[i], -1L);
+            }
+            long primitiveNanos = System.nanoTime() - start;
+
+            System.out.printf("第 %d 轮 get: ConcurrentHashMap %.1f ns, UuidLongMap.get(uuid) %.1f ns, "
+                    + "UuidLongMap.get(uuid, default) %.1f ns (sink=%d)%n",
+                round, (double) chmNanos / LOOKUPS, (double) boxedNanos / LOOKUPS,
+                (double) primitiveNanos / LOOKUPS, sink);
+        }
+    }
+
+    /**
+     * 构建对象前后各做一次完整 GC，返回其常驻的堆大小
+     */
+    private static long retained(Supplier<Object> builder) {
+        long before = usedAfterGc();
+        Object built = builder.get();
+        long after = usedAfterGc();
+        if (built.hashCode() == 0) {
+            System.out.print("");
+        }
+        return after - before;
+    }
+
+    private static long usedAfterGc() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
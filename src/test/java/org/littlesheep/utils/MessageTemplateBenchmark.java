@@ -0,0 +1,101 @@
+package org.littlesheep.utils;
+
+import org.bukkit.ChatColor;
+
+/**
+ * MessageTemplate 与原先 getMessage 路径的对比 - 每次调用转换颜色代码再链式 String.replace，
+ * 对比预编译模板的 render 和按剩余秒数缓存的 renderCached
+ *
+ * 不是单元测试，不会被 surefire 执行。test-compile 之后手动运行：
+ * java -cp target/classes:target/test-classes:&lt;spigot-api&gt; org.littlesheep.utils.MessageTemplateBenchmark
+ */
+public final class MessageTemplateBenchmark {
+    private static final int ROUNDS = 5;
+    private static final int CALLS = 2_000_000;
+    // 倒计时剩余秒数的取值范围
+    private static final int SECONDS = 3600;
+
+    // 语言文件中的原始消息
+    private static final String BOSSBAR_TITLE = "&e&l飞行时间: &6&l{time}";
+    private static final String GIVE_TIME = "&a已给予玩家 {player} 共 {amount}{unit} 的飞行时间";
+
+    private MessageTemplateBenchmark() {
+    }
+
+    public static void main(String[] args) {
+        MessageTemplate bossbar = MessageTemplate.compile(ChatColor.translateAlternateColorCodes('&', BOSSBAR_TITLE));
+        MessageTemplate giveTime = MessageTemplate.compile(ChatColor.translateAlternateColorCodes('&', GIVE_TIME));
+        String[] times = new String[SECONDS];
+        for (int s = 0; s < SECONDS; s++) {
+            times[s] = formatTime(s);
+        }
+
+        System.out.printf("每种方式调用 %d 次%n", CALLS);
+        for (int round = 1; round <= ROUNDS; round++) {
+            long sink = 0;
+
+            // 单个占位符：倒计时 BossBar 标题
+            long start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += legacy(BOSSBAR_TITLE, "{time}", times[i % SECONDS]).length();
+            }
+            double legacyTitle = (double) (System.nanoTime() - start) / CALLS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += bossbar.render("{time}", times[i % SECONDS]).length();
+            }
+            double renderTitle = (double) (System.nanoTime() - start) / CALLS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += bossbar.renderCached("{time}", i % SECONDS, MessageTemplateBenchmark::formatTime).length();
+            }
+            double cachedTitle = (double) (System.nanoTime() - start) / CALLS;
+
+            // 多个占位符：管理员给予时间
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += legacy(GIVE_TIME, "{player}", "Steve", "{amount}", times[i % SECONDS], "{unit}", "分钟").length();
+            }
+            double legacyGive = (double) (System.nanoTime() - start) / CALLS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < CALLS; i++) {
+                sink += giveTime.render("{player}", "Steve", "{amount}", times[i % SECONDS], "{unit}", "分钟").length();
+            }
+            double renderGive = (double) (System.nanoTime() - start) / CALLS;
+
+            System.out.printf("第 %d 轮 单占位符: 原路径 %.1f ns, render %.1f ns, renderCached %.1f ns; "
+                    + "三占位符: 原路径 %.1f ns, render %.1f ns (sink=%d)%n",
+                round, legacyTitle, renderTitle, cachedTitle, legacyGive, renderGive, sink % 10);
+        }
+    }
+
+    /**
+     * 被替换前的 LanguageManager.getMessage(path, replacements...)：每次转换颜色代码后依次 replace
+     */
+    private static String legacy(String raw, String... replacements) {
+        String message = ChatColor.translateAlternateColorCodes('&', raw);
+        for (int i = 0; i < replacements.length; i += 2) {
+            if (i + 1 < replacements.length) {
+                message = message.replace(replacements[i], replacements[i + 1]);
+            }
+        }
+        return message;
+    }
+
+    /**
+     * 与 OptimizedCountdownManager 相同的时间格式
+     */
+    private static String formatTime(int seconds) {
+        int minutes = seconds / 60;
+        int hours = minutes / 60;
+        if (hours > 0) {
+            return hours + "h " + minutes % 60 + "m";
+        } else if (minutes > 0) {
+            return minutes + "m " + seconds % 60 + "s";
+        }
+        return seconds + "s";
+    }
+}